@@ -456,7 +456,8 @@ public class BenchmarkRunner {
                         new IsNodeTypeTest(benchmarkOptions.getRunAsAdmin().value(options)),
                         new SetPropertyTransientTest(),
                         new GetURITest(),
-                        new ISO8601FormatterTest()
+                        new ISO8601FormatterTest(),
+                        new XPathParseTest()
                 )
         );
 
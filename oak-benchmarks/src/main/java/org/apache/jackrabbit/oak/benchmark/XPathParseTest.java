@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.jackrabbit.oak.InitialContentHelper;
+import org.apache.jackrabbit.oak.namepath.NamePathMapper;
+import org.apache.jackrabbit.oak.query.NodeStateNodeTypeInfoProvider;
+import org.apache.jackrabbit.oak.query.QueryEngineSettings;
+import org.apache.jackrabbit.oak.query.SQL2Parser;
+import org.apache.jackrabbit.oak.query.stats.QueryStatsData;
+import org.apache.jackrabbit.oak.query.xpath.XPathToSQL2Converter;
+
+/**
+ * Measures the time needed to convert XPath queries to SQL-2, and to parse
+ * the SQL-2 statements, without executing them. The statement cache is not
+ * used. The queries are read from the file set in the system property
+ * "XPathParseTest.queries" (one query per line), or else a built-in list of
+ * typical queries is used.
+ */
+public class XPathParseTest extends AbstractTest<Object> {
+
+    private static final String QUERIES = System.getProperty("XPathParseTest.queries");
+
+    private static final int COUNT = Integer.getInteger("XPathParseTest.count", 1000);
+
+    private static final List<String> DEFAULT_QUERIES = Arrays.asList(
+            "/jcr:root/content//element(*, nt:unstructured)[@sling:resourceType = 'acme/components/page']",
+            "/jcr:root/content/dam//element(*, nt:file)[jcr:content/metadata/@dc:format = 'image/jpeg'] " +
+                    "order by @jcr:created descending",
+            "//element(*, rep:User)[@rep:authorizableId = 'admin' or @rep:principalName = 'admin']",
+            "/jcr:root/var/eventing/jobs//element(*, nt:unstructured)[@event.job.topic = 'x' " +
+                    "and not(@slingevent:finishedState)] order by @slingevent:created ascending",
+            "/jcr:root/content//*[jcr:contains(., 'hello world') and (@status = 'a' or @status = 'b')]",
+            "/jcr:root/content//element(*, nt:folder)[jcr:content/@cq:lastModified > " +
+                    "xs:dateTime('2020-01-01T00:00:00.000Z')] option(traversal fail)",
+            "//*[fn:name() = 'jcr:content' and @x = 1 and @y <= 2.5 and @z != 'it''s']",
+            "/jcr:root/oak:index/*[@type = 'lucene' or @type = 'property' or @type = 'disabled']");
+
+    private List<String> queries;
+
+    private SQL2Parser parser;
+
+    @Override
+    protected void beforeSuite() throws Exception {
+        if (QUERIES == null) {
+            queries = DEFAULT_QUERIES;
+        } else {
+            queries = new ArrayList<String>();
+            for (String line : Files.readAllLines(Paths.get(QUERIES), StandardCharsets.UTF_8)) {
+                line = line.trim();
+                if (!line.isEmpty()) {
+                    queries.add(line);
+                }
+            }
+        }
+        parser = new SQL2Parser(NamePathMapper.DEFAULT,
+                new NodeStateNodeTypeInfoProvider(InitialContentHelper.INITIAL_CONTENT),
+                new QueryEngineSettings(), new QueryStatsData("", "").new QueryExecutionStats());
+        parser.setIncludeSelectorNameInWildcardColumns(false);
+    }
+
+    @Override
+    protected void runTest() throws Exception {
+        for (int i = 0; i < COUNT; i++) {
+            for (String xpath : queries) {
+                String sql2 = new XPathToSQL2Converter().convert(xpath);
+                parser.parse(sql2, false);
+            }
+        }
+    }
+
+}
@@ -66,6 +66,7 @@ import org.apache.jackrabbit.oak.spi.security.authorization.permission.Permissio
 import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
 import org.apache.jackrabbit.oak.spi.state.NodeState;
 import org.apache.jackrabbit.oak.spi.state.NodeStore;
+import org.apache.jackrabbit.oak.spi.state.PrefetchNodeStore;
 import org.jetbrains.annotations.NotNull;
 
 class MutableRoot implements Root, PermissionAware {
@@ -153,6 +154,23 @@ class MutableRoot implements Root, PermissionAware {
                  QueryEngineSettings queryEngineSettings,
                  QueryIndexProvider indexProvider,
                  ContentSessionImpl session) {
+        this(store, hook, workspaceName, subject, securityProvider, queryEngineSettings,
+                indexProvider, session, store.getRoot());
+    }
+
+    /**
+     * New instance on the given base state, for example to read the same
+     * state as another root concurrently.
+     */
+    private MutableRoot(NodeStore store,
+                 CommitHook hook,
+                 String workspaceName,
+                 Subject subject,
+                 SecurityProvider securityProvider,
+                 QueryEngineSettings queryEngineSettings,
+                 QueryIndexProvider indexProvider,
+                 ContentSessionImpl session,
+                 NodeState base) {
         this.store = checkNotNull(store);
         this.hook = checkNotNull(hook);
         this.workspaceName = checkNotNull(workspaceName);
@@ -162,7 +180,7 @@ class MutableRoot implements Root, PermissionAware {
         this.indexProvider = indexProvider;
         this.session = checkNotNull(session);
 
-        builder = store.getRoot().builder();
+        builder = base.builder();
         secureBuilder = new SecureNodeBuilder(builder, permissionProvider);
         rootTree = new MutableTree(this, secureBuilder, lastMove);
     }
@@ -316,8 +334,23 @@ class MutableRoot implements Root, PermissionAware {
                     provider = new UUIDDiffIndexProviderWrapper(
                             provider, getBaseState(), getRootState());
                 }
+                PrefetchNodeStore prefetchNodeStore = store instanceof PrefetchNodeStore
+                        ? (PrefetchNodeStore) store : PrefetchNodeStore.NOOP;
                 return new ExecutionContext(
-                        getBaseState(), MutableRoot.this, queryEngineSettings, provider, permissionProvider.get());
+                        getBaseState(), MutableRoot.this, queryEngineSettings, provider, permissionProvider.get(),
+                        prefetchNodeStore) {
+                    @Override
+                    public ExecutionContext newConcurrentContext() {
+                        if (hasPendingChanges()) {
+                            return null;
+                        }
+                        // a new root on the same state, with its own permission provider
+                        MutableRoot root = new MutableRoot(store, hook, workspaceName, subject,
+                                securityProvider, queryEngineSettings, indexProvider, session, getBaseState());
+                        return new ExecutionContext(getBaseState(), root, queryEngineSettings,
+                                indexProvider, root.getPermissionProvider(), prefetchNodeStore);
+                    }
+                };
             }
         };
     }
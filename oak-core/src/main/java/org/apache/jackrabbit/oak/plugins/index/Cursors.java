@@ -16,6 +16,8 @@
  */
 package org.apache.jackrabbit.oak.plugins.index;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -36,6 +38,7 @@ import org.apache.jackrabbit.oak.spi.query.QueryLimits;
 import org.apache.jackrabbit.oak.spi.state.ChildNodeEntry;
 import org.apache.jackrabbit.oak.spi.state.NodeState;
 import org.apache.jackrabbit.oak.spi.state.NodeStateUtils;
+import org.apache.jackrabbit.oak.spi.state.PrefetchNodeStore;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -126,6 +129,43 @@ public class Cursors {
         return new AncestorCursor(c, level, settings);
     }
 
+    /**
+     * Returns a cursor wrapper that reads up to <code>prefetchCount</code>
+     * rows ahead of the wrapped cursor, and asks the store to load the nodes
+     * of these rows with one bulk read.
+     *
+     * @param c the cursor to wrap.
+     * @param store the store used to prefetch the nodes.
+     * @param rootState the root state used to read the nodes.
+     * @param prefetchCount the number of rows to read ahead. Must be {@code >= 1}.
+     * @return the cursor.
+     */
+    public static Cursor newPrefetchCursor(Cursor c, PrefetchNodeStore store,
+            NodeState rootState, int prefetchCount) {
+        return newPrefetchCursor(c, store, rootState, prefetchCount, Long.MAX_VALUE);
+    }
+
+    /**
+     * Returns a cursor wrapper that reads up to <code>prefetchCount</code>
+     * rows ahead of the wrapped cursor, and asks the store to load the nodes
+     * of these rows with one bulk read. Rows beyond <code>maxRows</code> are
+     * not read ahead, as they are only needed if rows are filtered out.
+     *
+     * @param c the cursor to wrap.
+     * @param store the store used to prefetch the nodes.
+     * @param rootState the root state used to read the nodes.
+     * @param prefetchCount the number of rows to read ahead. Must be {@code >= 1}.
+     * @param maxRows the number of rows that are needed (for example the
+     *          limit plus the offset of the query), or Long.MAX_VALUE
+     * @return the cursor.
+     */
+    public static Cursor newPrefetchCursor(Cursor c, PrefetchNodeStore store,
+            NodeState rootState, int prefetchCount, long maxRows) {
+        checkNotNull(c);
+        checkArgument(prefetchCount >= 1);
+        return new PrefetchCursor(c, store, rootState, prefetchCount, maxRows);
+    }
+
     /**
      * A Cursor implementation where the remove method throws an
      * UnsupportedOperationException.
@@ -464,6 +504,78 @@ public class Cursors {
         
     }
 
+    /**
+     * A cursor that reads rows of the wrapped cursor in batches, and
+     * prefetches the nodes of each batch. Once the number of rows that are
+     * needed was read, the rows are read one at a time.
+     */
+    private static class PrefetchCursor extends AbstractCursor {
+
+        private static final Logger LOG = LoggerFactory.getLogger(PrefetchCursor.class);
+
+        private final Cursor cursor;
+        private final PrefetchNodeStore store;
+        private final NodeState rootState;
+        private final int prefetchCount;
+        private final Deque<IndexRow> buffer;
+        private long remaining;
+
+        PrefetchCursor(Cursor cursor, PrefetchNodeStore store,
+                NodeState rootState, int prefetchCount, long maxRows) {
+            this.cursor = cursor;
+            this.store = store;
+            this.rootState = rootState;
+            this.prefetchCount = prefetchCount;
+            this.remaining = maxRows;
+            this.buffer = new ArrayDeque<IndexRow>(prefetchCount);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (buffer.isEmpty()) {
+                fetch();
+            }
+            return !buffer.isEmpty();
+        }
+
+        @Override
+        public IndexRow next() {
+            if (!hasNext()) {
+                throw new IllegalStateException("This cursor is closed");
+            }
+            return buffer.poll();
+        }
+
+        private void fetch() {
+            int count = (int) Math.max(1, Math.min(prefetchCount, remaining));
+            List<String> paths = new ArrayList<String>(count);
+            while (buffer.size() < count && cursor.hasNext()) {
+                IndexRow row = cursor.next();
+                buffer.add(row);
+                remaining--;
+                String path = row.isVirtualRow() ? null : row.getPath();
+                if (path != null) {
+                    paths.add(path);
+                }
+            }
+            if (!paths.isEmpty()) {
+                try {
+                    store.prefetch(paths, rootState);
+                } catch (RuntimeException e) {
+                    // prefetching is only an optimization; the nodes
+                    // are read one by one later on
+                    LOG.warn("Prefetching {} nodes failed", paths.size(), e);
+                }
+            }
+        }
+
+        @Override
+        public long getSize(SizePrecision precision, long max) {
+            return cursor.getSize(precision, max);
+        }
+
+    }
+
     /**
      * A cursor that combines multiple cursors into a single cursor.
      */
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.index.counter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * A HyperLogLog distinct value counter. The standard error is about
+ * 1.04 / sqrt(m), that is about 3% for the default of 1024 registers. Values
+ * can only be added, not removed.
+ */
+public class HyperLogLog {
+
+    public static final int DEFAULT_REGISTERS = 1024;
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private final int bits;
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this(DEFAULT_REGISTERS);
+    }
+
+    /**
+     * Create a counter.
+     *
+     * @param m the number of registers, a power of two between 16 and 65536
+     */
+    public HyperLogLog(int m) {
+        if (m < 16 || m > 65536 || Integer.bitCount(m) != 1) {
+            throw new IllegalArgumentException("Unsupported number of registers: " + m);
+        }
+        this.bits = Integer.numberOfTrailingZeros(m);
+        this.registers = new byte[m];
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this(registers.length);
+        System.arraycopy(registers, 0, this.registers, 0, registers.length);
+    }
+
+    public void add(String value) {
+        add(HASH.hashString(value, StandardCharsets.UTF_8).asLong());
+    }
+
+    public void add(long hash) {
+        int index = (int) (hash >>> (64 - bits));
+        // the rank is the position of the leftmost one bit in the remaining bits
+        long rest = (hash << bits) | (1L << (bits - 1));
+        int rank = Long.numberOfLeadingZeros(rest) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    /**
+     * Add all values of the other counter, which must have the same number of
+     * registers.
+     *
+     * @param other the other counter
+     */
+    public void merge(HyperLogLog other) {
+        if (other.registers.length != registers.length) {
+            throw new IllegalArgumentException("Different number of registers");
+        }
+        for (int i = 0; i < registers.length; i++) {
+            registers[i] = (byte) Math.max(registers[i], other.registers[i]);
+        }
+    }
+
+    /**
+     * Get the estimated number of distinct values.
+     *
+     * @return the estimated count
+     */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte r : registers) {
+            sum += 1.0 / (1L << r);
+            if (r == 0) {
+                zeros++;
+            }
+        }
+        double alpha;
+        switch (m) {
+        case 16:
+            alpha = 0.673;
+            break;
+        case 32:
+            alpha = 0.697;
+            break;
+        case 64:
+            alpha = 0.709;
+            break;
+        default:
+            alpha = 0.7213 / (1 + 1.079 / m);
+        }
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // small range correction (linear counting)
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Serialize the registers to a string.
+     *
+     * @return the string
+     */
+    public String serialize() {
+        return Base64.getEncoder().encodeToString(registers);
+    }
+
+    /**
+     * Read a counter that was serialized using {@link #serialize()}.
+     *
+     * @param s the string
+     * @return the counter
+     * @throws IllegalArgumentException if the string is not a valid counter
+     */
+    public static HyperLogLog deserialize(String s) {
+        return new HyperLogLog(Base64.getDecoder().decode(s));
+    }
+
+}
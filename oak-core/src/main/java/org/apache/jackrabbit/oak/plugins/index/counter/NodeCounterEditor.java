@@ -32,8 +32,12 @@ import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
 import org.apache.jackrabbit.oak.spi.state.NodeState;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+
+import javax.jcr.PropertyType;
 
 /**
  * An approximate descendant node counter mechanism.
@@ -49,6 +53,22 @@ public class NodeCounterEditor implements Editor {
     public static final String COUNT_HASH_PROPERTY_NAME = ":cnt";
     
     public static final int DEFAULT_RESOLUTION = 1000;
+
+    /**
+     * The node (below the index definition) that contains the statistics of
+     * the properties listed in the index definition.
+     */
+    public static final String STATISTICS_NODE_NAME = ":statistics";
+
+    /**
+     * The number of nodes that have the property.
+     */
+    public static final String STATISTICS_COUNT = "count";
+
+    /**
+     * The serialized {@link HyperLogLog} of the property values.
+     */
+    public static final String STATISTICS_VALUES = "values";
     
     private final NodeCounterRoot root;
     private final NodeCounterEditor parent;
@@ -110,6 +130,9 @@ public class NodeCounterEditor implements Editor {
     @Override
     public void leave(NodeState before, NodeState after)
             throws CommitFailedException {
+        if (parent == null) {
+            writeStatistics();
+        }
         if (NodeCounter.COUNT_HASH) {
             leaveNew();
             return;
@@ -181,6 +204,30 @@ public class NodeCounterEditor implements Editor {
         }
     }
 
+    private void writeStatistics() throws CommitFailedException {
+        if (root.statistics.isEmpty()) {
+            return;
+        }
+        root.callback.indexUpdate();
+        NodeBuilder data = root.definition.child(STATISTICS_NODE_NAME);
+        for (Map.Entry<String, PropertyStatistics> e : root.statistics.entrySet()) {
+            PropertyStatistics stats = e.getValue();
+            NodeBuilder builder = data.child(e.getKey());
+            PropertyState p = builder.getProperty(STATISTICS_COUNT);
+            long count = p == null ? 0 : p.getValue(Type.LONG);
+            builder.setProperty(STATISTICS_COUNT, Math.max(0, count + stats.countOffset));
+            p = builder.getProperty(STATISTICS_VALUES);
+            if (p != null) {
+                try {
+                    stats.values.merge(HyperLogLog.deserialize(p.getValue(Type.STRING)));
+                } catch (IllegalArgumentException ex) {
+                    // not readable: start again
+                }
+            }
+            builder.setProperty(STATISTICS_VALUES, stats.values.serialize());
+        }
+    }
+
     private NodeBuilder getBuilder(Mount mount) {
         if (parent == null) {
             return root.definition.child(Multiplexers.getNodeForMount(mount, DATA_NODE_NAME));
@@ -199,19 +246,29 @@ public class NodeCounterEditor implements Editor {
 
     @Override
     public void propertyAdded(PropertyState after) throws CommitFailedException {
-        // nothing to do
+        PropertyStatistics stats = root.getStatistics(after.getName());
+        if (stats != null) {
+            stats.countOffset++;
+            stats.add(after);
+        }
     }
 
     @Override
     public void propertyChanged(PropertyState before, PropertyState after)
             throws CommitFailedException {
-        // nothing to do
+        PropertyStatistics stats = root.getStatistics(after.getName());
+        if (stats != null) {
+            stats.add(after);
+        }
     }
 
     @Override
     public void propertyDeleted(PropertyState before)
             throws CommitFailedException {
-        // nothing to do
+        PropertyStatistics stats = root.getStatistics(before.getName());
+        if (stats != null) {
+            stats.countOffset--;
+        }
     }
     
     @Override
@@ -281,7 +338,15 @@ public class NodeCounterEditor implements Editor {
         final NodeState root;
         final IndexUpdateCallback callback;
         
+        final Set<String> statisticsProperties;
+        final Map<String, PropertyStatistics> statistics = new HashMap<>();
+
         NodeCounterRoot(int resolution, long seed, NodeBuilder definition, NodeState root, IndexUpdateCallback callback) {
+            this(resolution, seed, definition, root, callback, Collections.emptySet());
+        }
+
+        NodeCounterRoot(int resolution, long seed, NodeBuilder definition, NodeState root, IndexUpdateCallback callback,
+                Set<String> statisticsProperties) {
             this.resolution = resolution;
             this.seed = seed;
             // if resolution is 1000, then the bitMask is 1023 (bits 0..9 set)
@@ -289,6 +354,33 @@ public class NodeCounterEditor implements Editor {
             this.definition = definition;
             this.root = root;
             this.callback = callback;
+            this.statisticsProperties = statisticsProperties;
+        }
+
+        PropertyStatistics getStatistics(String propertyName) {
+            if (!statisticsProperties.contains(propertyName)) {
+                return null;
+            }
+            return statistics.computeIfAbsent(propertyName, n -> new PropertyStatistics());
+        }
+    }
+
+    /**
+     * The changes of the statistics of a property, collected while the
+     * editor runs.
+     */
+    static class PropertyStatistics {
+        long countOffset;
+        final HyperLogLog values = new HyperLogLog();
+
+        void add(PropertyState p) {
+            if (p.getType().tag() == PropertyType.BINARY) {
+                // don't read binaries
+                return;
+            }
+            for (String v : p.getValue(Type.STRINGS)) {
+                values.add(v);
+            }
         }
     }
 
@@ -18,6 +18,8 @@
  */
 package org.apache.jackrabbit.oak.plugins.index.counter;
 
+import java.util.Collections;
+import java.util.Set;
 import java.util.UUID;
 
 import org.apache.jackrabbit.oak.api.CommitFailedException;
@@ -36,6 +38,8 @@ import org.jetbrains.annotations.Nullable;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
 
+import com.google.common.collect.ImmutableSet;
+
 @Component(service = IndexEditorProvider.class)
 public class NodeCounterEditorProvider implements IndexEditorProvider {
 
@@ -45,6 +49,12 @@ public class NodeCounterEditorProvider implements IndexEditorProvider {
 
     public static final String SEED = "seed";
 
+    /**
+     * The names of the properties for which to collect statistics (the number
+     * of nodes with the property, and the number of distinct values).
+     */
+    public static final String PROPERTY_STATISTICS = "propertyStatistics";
+
     @Reference
     private MountInfoProvider mountInfoProvider = Mounts.defaultMountInfoProvider();
 
@@ -81,8 +91,13 @@ public class NodeCounterEditorProvider implements IndexEditorProvider {
                     resolution, seed, definition, root, callback);
             return new NodeCounterEditorOld(rootData, null, "/", null);
         } else {
+            Set<String> statisticsProperties = Collections.emptySet();
+            s = definition.getProperty(PROPERTY_STATISTICS);
+            if (s != null) {
+                statisticsProperties = ImmutableSet.copyOf(s.getValue(Type.STRINGS));
+            }
             NodeCounterEditor.NodeCounterRoot rootData = new NodeCounterEditor.NodeCounterRoot(
-                    resolution, seed, definition, root, callback);
+                    resolution, seed, definition, root, callback, statisticsProperties);
             return new NodeCounterEditor(rootData, mountInfoProvider);
         }
     }
@@ -30,6 +30,7 @@ import org.apache.jackrabbit.oak.api.Type;
 import org.apache.jackrabbit.oak.commons.PathUtils;
 import org.apache.jackrabbit.oak.commons.jmx.AnnotatedStandardMBean;
 import org.apache.jackrabbit.oak.plugins.index.IndexConstants;
+import org.apache.jackrabbit.oak.plugins.index.counter.HyperLogLog;
 import org.apache.jackrabbit.oak.plugins.index.counter.NodeCounterEditor;
 import org.apache.jackrabbit.oak.plugins.index.property.Multiplexers;
 import org.apache.jackrabbit.oak.spi.state.ChildNodeEntry;
@@ -203,6 +204,62 @@ public class NodeCounter extends AnnotatedStandardMBean implements NodeCounterMB
         return found ? x : null;
     }
     
+    /**
+     * Get the estimated number of nodes that have the given property. The
+     * statistics are only collected for the properties listed in the
+     * "propertyStatistics" property of the counter index definition.
+     * 
+     * @param root the root
+     * @param propertyName the property name
+     * @return the estimated number of nodes, or -1 if unknown
+     */
+    public static long getEstimatedPropertyCount(NodeState root, String propertyName) {
+        NodeState s = getStatistics(root, propertyName);
+        if (s == null) {
+            return -1;
+        }
+        PropertyState p = s.getProperty(NodeCounterEditor.STATISTICS_COUNT);
+        return p == null ? -1 : p.getValue(Type.LONG);
+    }
+
+    /**
+     * Get the estimated number of distinct values of the given property. As
+     * values are never removed from the statistics, this is the number of
+     * distinct values that were stored since the index was (re-)built.
+     * 
+     * @param root the root
+     * @param propertyName the property name
+     * @return the estimated number of distinct values, or -1 if unknown
+     */
+    public static long getEstimatedDistinctValueCount(NodeState root, String propertyName) {
+        NodeState s = getStatistics(root, propertyName);
+        if (s == null) {
+            return -1;
+        }
+        PropertyState p = s.getProperty(NodeCounterEditor.STATISTICS_VALUES);
+        if (p == null) {
+            return -1;
+        }
+        try {
+            return HyperLogLog.deserialize(p.getValue(Type.STRING)).estimate();
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    private static NodeState getStatistics(NodeState root, String propertyName) {
+        if (propertyName.isEmpty() || propertyName.indexOf('/') >= 0) {
+            // only statistics of properties of the node itself are collected
+            return null;
+        }
+        NodeState s = child(root,
+                IndexConstants.INDEX_DEFINITIONS_NAME,
+                "counter",
+                NodeCounterEditor.STATISTICS_NODE_NAME,
+                propertyName);
+        return s == null || !s.exists() ? null : s;
+    }
+
     @Override
     public String getEstimatedChildNodeCounts(String path, int level) {
         StringBuilder buff = new StringBuilder();
@@ -24,6 +24,7 @@ import org.apache.jackrabbit.oak.query.ast.NodeTypeInfoProvider;
 import org.apache.jackrabbit.oak.spi.query.QueryIndexProvider;
 import org.apache.jackrabbit.oak.spi.security.authorization.permission.PermissionProvider;
 import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.apache.jackrabbit.oak.spi.state.PrefetchNodeStore;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -47,15 +48,26 @@ public class ExecutionContext {
 
     private final PermissionProvider permissionProvider;
 
+    private final PrefetchNodeStore prefetchNodeStore;
+
     public ExecutionContext(
             NodeState baseState, Root root,
             QueryEngineSettings settings,
             QueryIndexProvider indexProvider, PermissionProvider permissionProvider) {
+        this(baseState, root, settings, indexProvider, permissionProvider, PrefetchNodeStore.NOOP);
+    }
+
+    public ExecutionContext(
+            NodeState baseState, Root root,
+            QueryEngineSettings settings,
+            QueryIndexProvider indexProvider, PermissionProvider permissionProvider,
+            PrefetchNodeStore prefetchNodeStore) {
         this.baseState = baseState;
         this.root = root;
         this.settings = settings;
         this.indexProvider = indexProvider;
         this.permissionProvider = permissionProvider;
+        this.prefetchNodeStore = prefetchNodeStore;
     }
 
     /**
@@ -106,4 +118,28 @@ public class ExecutionContext {
     public PermissionProvider getPermissionProvider() {
         return permissionProvider;
     }
+
+    /**
+     * Get the store used to load the nodes of result rows in batches.
+     *
+     * @return the store, or {@link PrefetchNodeStore#NOOP} if the node store
+     *         doesn't support prefetching
+     */
+    @NotNull
+    public PrefetchNodeStore getPrefetchNodeStore() {
+        return prefetchNodeStore;
+    }
+
+    /**
+     * Create a context on the same base state, with its own root and
+     * permission provider, so that query results can be read by another
+     * thread. The new context must only be used by one thread at a time.
+     *
+     * @return the new context, or null if this is not supported, for example
+     *         because the root has transient changes
+     */
+    @Nullable
+    public ExecutionContext newConcurrentContext() {
+        return null;
+    }
 }
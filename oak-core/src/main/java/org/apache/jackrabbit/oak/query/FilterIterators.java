@@ -14,13 +14,33 @@
 package org.apache.jackrabbit.oak.query;
 
 import java.util.ArrayList;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.jackrabbit.oak.spi.query.QueryLimits;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -78,15 +98,21 @@ public class FilterIterators {
     public static <K> Iterator<K> newCombinedFilter(
             Iterator<K> it, boolean distinct, long limit, long offset, 
             Comparator<K> orderBy, QueryLimits settings) {
+        return newCombinedFilter(it, distinct, limit, offset, orderBy, settings, null);
+    }
+
+    public static <K> Iterator<K> newCombinedFilter(
+            Iterator<K> it, boolean distinct, long limit, long offset, 
+            Comparator<K> orderBy, QueryLimits settings, @Nullable Spill<K> spill) {
         if (distinct) {
-            it = FilterIterators.newDistinct(it, settings);
+            it = FilterIterators.newDistinct(it, settings, spill);
         }
         if (orderBy != null) {
             // avoid overflow (both offset and limit could be Long.MAX_VALUE)
             int max = (int) Math.min(Integer.MAX_VALUE, 
                     Math.min(Integer.MAX_VALUE, offset) + 
                     Math.min(Integer.MAX_VALUE, limit));
-            it = FilterIterators.newSort(it, orderBy, max, settings);
+            it = FilterIterators.newSort(it, orderBy, max, settings, spill);
         }
         if (offset != 0) {
             it = FilterIterators.newOffset(it, offset);
@@ -98,7 +124,12 @@ public class FilterIterators {
     }
     
     public static <K> DistinctIterator<K> newDistinct(Iterator<K> it, QueryLimits settings) {
-        return new DistinctIterator<K>(it, settings);
+        return newDistinct(it, settings, null);
+    }
+
+    public static <K> DistinctIterator<K> newDistinct(Iterator<K> it, QueryLimits settings,
+            @Nullable Spill<K> spill) {
+        return new DistinctIterator<K>(it, settings, spill);
     }
     
     public static <K> Iterator<K> newLimit(Iterator<K> it, long limit) {
@@ -110,27 +141,399 @@ public class FilterIterators {
     }
     
     public static <K> Iterator<K> newSort(Iterator<K> it, Comparator<K> orderBy, int max, QueryLimits settings) {
-        return new SortIterator<K>(it, orderBy, max, settings);
+        return newSort(it, orderBy, max, settings, null);
+    }
+
+    public static <K> Iterator<K> newSort(Iterator<K> it, Comparator<K> orderBy, int max, QueryLimits settings,
+            @Nullable Spill<K> spill) {
+        return new SortIterator<K>(it, orderBy, max, settings, spill);
+    }
+
+    /**
+     * Close the iterator if it is closeable, which releases the temporary
+     * files of the iterator and its sources. Other iterators are ignored.
+     *
+     * @param it the iterator
+     */
+    public static void close(Iterator<?> it) {
+        if (it instanceof Closeable) {
+            try {
+                ((Closeable) it).close();
+            } catch (IOException e) {
+                LOG.debug("Could not close the iterator", e);
+            }
+        }
+    }
+
+    /**
+     * Converts entries to and from a line of text, so that the distinct and
+     * sort iterators can write entries to temporary files instead of keeping
+     * them in memory. Entries are written once the number of entries in
+     * memory reaches the threshold.
+     * <p>
+     * Temporary files are deleted once they are read fully, when the iterator
+     * that created them is closed, or when the spill is closed. The files of a
+     * spill that is no longer referenced, but was not closed, are deleted
+     * when the next spill is created.
+     *
+     * @param <K> the entry type
+     */
+    public abstract static class Spill<K> implements Closeable {
+
+        /**
+         * The number of entries in memory at which entries are written to
+         * temporary files, or 0 to disable spilling (the default).
+         * {@code -Doak.query.spillThreshold}
+         */
+        public static final int DEFAULT_THRESHOLD = Integer.getInteger("oak.query.spillThreshold", 0);
+
+        private final int threshold;
+        private final SpillFiles files;
+
+        protected Spill(int threshold) {
+            this.threshold = threshold;
+            SpillFiles.deleteAbandoned();
+            files = new SpillFiles(this);
+        }
+
+        public int getThreshold() {
+            return threshold;
+        }
+
+        /**
+         * Convert the entry to a line of text.
+         *
+         * @param entry the entry
+         * @return the line (without line break), or null if the entry can not
+         *         be written, in which case it is kept in memory
+         */
+        @Nullable
+        protected abstract String write(K entry);
+
+        /**
+         * Convert a line of text back to an entry.
+         *
+         * @param line the line
+         * @return the entry
+         */
+        protected abstract K read(String line);
+
+        /**
+         * Called after entries were written to a temporary file.
+         *
+         * @param count the number of entries
+         */
+        protected void spilled(int count) {
+        }
+
+        /**
+         * Close and delete all temporary files of this spill.
+         */
+        @Override
+        public void close() {
+            files.deleteAll();
+        }
+
+        /**
+         * Get the number of temporary files that were not deleted yet.
+         *
+         * @return the number of files
+         */
+        int getFileCount() {
+            return files.size();
+        }
+
+    }
+
+    /**
+     * The temporary files of a spill that were not deleted yet. This does not
+     * reference the spill, so that the files can be deleted once the spill is
+     * no longer referenced.
+     */
+    private static class SpillFiles extends PhantomReference<Spill<?>> {
+
+        private static final ReferenceQueue<Spill<?>> ABANDONED = new ReferenceQueue<Spill<?>>();
+
+        /**
+         * The spill files that are in use, so that they are not garbage
+         * collected before the spill is.
+         */
+        private static final Set<SpillFiles> IN_USE =
+                Collections.newSetFromMap(new ConcurrentHashMap<SpillFiles, Boolean>());
+
+        private final Set<TempFile> files = new HashSet<TempFile>();
+
+        SpillFiles(Spill<?> spill) {
+            super(spill, ABANDONED);
+            IN_USE.add(this);
+        }
+
+        static void deleteAbandoned() {
+            Reference<?> ref;
+            while ((ref = ABANDONED.poll()) != null) {
+                SpillFiles f = (SpillFiles) ref;
+                LOG.debug("Deleting {} temporary files of a spill that was not closed", f.size());
+                f.deleteAll();
+            }
+        }
+
+        synchronized TempFile create() {
+            try {
+                TempFile f = new TempFile(this);
+                files.add(f);
+                return f;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not create temporary file", e);
+            }
+        }
+
+        synchronized void removed(TempFile f) {
+            files.remove(f);
+        }
+
+        synchronized int size() {
+            return files.size();
+        }
+
+        void deleteAll() {
+            List<TempFile> list;
+            synchronized (this) {
+                list = new ArrayList<TempFile>(files);
+            }
+            for (TempFile f : list) {
+                f.delete();
+            }
+            IN_USE.remove(this);
+        }
+
+    }
+
+    /**
+     * A temporary file, and the writer or reader that is open.
+     */
+    private static class TempFile {
+
+        private final SpillFiles owner;
+        private final File file;
+        private BufferedWriter writer;
+        private BufferedReader reader;
+
+        TempFile(SpillFiles owner) throws IOException {
+            this.owner = owner;
+            file = File.createTempFile("oak-query-", ".tmp");
+            try {
+                writer = new BufferedWriter(new OutputStreamWriter(
+                        new FileOutputStream(file), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                delete();
+                throw e;
+            }
+        }
+
+        void closeWriter() throws IOException {
+            try {
+                if (writer != null) {
+                    writer.close();
+                }
+            } finally {
+                writer = null;
+            }
+        }
+
+        void openReader() throws IOException {
+            reader = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(file), StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Close the writer and reader if open, and delete the file.
+         */
+        void delete() {
+            close(writer);
+            close(reader);
+            writer = null;
+            reader = null;
+            if (file.exists() && !file.delete()) {
+                LOG.debug("Could not delete {}", file);
+            }
+            owner.removed(this);
+        }
+
+        private void close(@Nullable Closeable c) {
+            if (c == null) {
+                return;
+            }
+            try {
+                c.close();
+            } catch (IOException e) {
+                LOG.debug("Could not close {}", file, e);
+            }
+        }
+
+    }
+
+    /**
+     * A temporary file of entries written using a spill.
+     */
+    private static class SpillFile<K> {
+
+        private final Spill<K> spill;
+        private final TempFile temp;
+        private boolean closed;
+        private int count;
+
+        SpillFile(Spill<K> spill) {
+            this.spill = spill;
+            temp = spill.files.create();
+        }
+
+        /**
+         * Write the entry.
+         *
+         * @param entry the entry
+         * @return false if the entry can not be written
+         */
+        boolean write(K entry) {
+            String line = spill.write(entry);
+            if (line == null) {
+                return false;
+            }
+            try {
+                temp.writer.write(line);
+                temp.writer.newLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write to " + temp.file, e);
+            }
+            count++;
+            return true;
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                temp.closeWriter();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write to " + temp.file, e);
+            }
+            if (count > 0) {
+                spill.spilled(count);
+            }
+        }
+
+        /**
+         * Close and delete the file, without reporting the entries as spilled.
+         */
+        void discard() {
+            closed = true;
+            delete();
+        }
+
+        void delete() {
+            temp.delete();
+        }
+
+        /**
+         * Read the entries. The file is deleted once all entries are read,
+         * or when the reader is closed.
+         *
+         * @return the reader
+         */
+        SpillReader<K> open() {
+            close();
+            return new SpillReader<K>(this);
+        }
+
+    }
+
+    /**
+     * Reads the entries of a spill file.
+     */
+    private static class SpillReader<K> implements Closeable {
+
+        private final SpillFile<K> file;
+        private K current;
+
+        SpillReader(SpillFile<K> file) {
+            this.file = file;
+            try {
+                file.temp.openReader();
+            } catch (IOException e) {
+                file.delete();
+                throw new UncheckedIOException("Could not read " + file.temp.file, e);
+            }
+            fetch();
+        }
+
+        K peek() {
+            return current;
+        }
+
+        K pop() {
+            K r = current;
+            fetch();
+            return r;
+        }
+
+        private void fetch() {
+            try {
+                String line = file.temp.reader.readLine();
+                if (line != null) {
+                    current = file.spill.read(line);
+                    return;
+                }
+                current = null;
+                file.delete();
+            } catch (IOException e) {
+                file.delete();
+                throw new UncheckedIOException("Could not read " + file.temp.file, e);
+            }
+        }
+
+        @Override
+        public void close() {
+            current = null;
+            file.delete();
+        }
+
     }
 
     /**
      * An iterator that filters duplicate entries, that is, it only returns each
      * unique entry once. The internal set of unique entries is filled only when
      * needed (on demand).
+     * <p>
+     * If a spill is used, and the set reaches the spill threshold, the
+     * remaining entries are partitioned by hash code into temporary files,
+     * and returned after the source is read fully, one partition at a time.
+     * The entries are then no longer returned in the order of the source.
      * 
      * @param <K> the entry type
      */
-    static class DistinctIterator<K> implements Iterator<K> {
+    static class DistinctIterator<K> implements Iterator<K>, Closeable {
+
+        static final int PARTITIONS = 16;
 
         private final Iterator<K> source;
         private final QueryLimits settings;
+        private final Spill<K> spill;
         private final HashSet<K> distinctSet;
+        private List<SpillFile<K>> partitions;
+        private int nextPartition;
+        private Iterator<K> partitionIterator;
         private K current;
         private boolean end;
 
         DistinctIterator(Iterator<K> source, QueryLimits settings) {
+            this(source, settings, null);
+        }
+
+        DistinctIterator(Iterator<K> source, QueryLimits settings, Spill<K> spill) {
             this.source = source;
             this.settings = settings;
+            this.spill = spill != null && spill.getThreshold() > 0 ? spill : null;
             distinctSet = new HashSet<K>();
         }
 
@@ -138,15 +541,65 @@ public class FilterIterators {
             if (end) {
                 return;
             }
-            while (source.hasNext()) {
-                current = source.next();
-                if (distinctSet.add(current)) {
-                    checkMemoryLimit(distinctSet.size(), settings);
+            if (partitionIterator == null) {
+                while (source.hasNext()) {
+                    current = source.next();
+                    if (partitions != null) {
+                        if (distinctSet.contains(current) ||
+                                partitions.get(partition(current)).write(current)) {
+                            continue;
+                        }
+                        // can not be written: keep it in memory
+                    }
+                    if (distinctSet.add(current)) {
+                        checkMemoryLimit(distinctSet.size(), settings);
+                        if (partitions == null && spill != null &&
+                                distinctSet.size() >= spill.getThreshold()) {
+                            openPartitions();
+                        }
+                        return;
+                    }
+                }
+                if (partitions == null) {
+                    current = null;
+                    end = true;
                     return;
                 }
+                // all entries in the partitions are not in the set
+                distinctSet.clear();
+                partitionIterator = Collections.emptyIterator();
             }
-            current = null;
-            end = true;
+            while (!partitionIterator.hasNext()) {
+                if (nextPartition >= partitions.size()) {
+                    current = null;
+                    end = true;
+                    return;
+                }
+                partitionIterator = readPartition(partitions.get(nextPartition++));
+            }
+            current = partitionIterator.next();
+        }
+
+        private void openPartitions() {
+            partitions = new ArrayList<SpillFile<K>>(PARTITIONS);
+            for (int i = 0; i < PARTITIONS; i++) {
+                partitions.add(new SpillFile<K>(spill));
+            }
+        }
+
+        private Iterator<K> readPartition(SpillFile<K> file) {
+            // all equal entries are in the same partition
+            LinkedHashSet<K> set = new LinkedHashSet<K>();
+            SpillReader<K> reader = file.open();
+            while (reader.peek() != null) {
+                set.add(reader.pop());
+                checkMemoryLimit(set.size(), settings);
+            }
+            return set.iterator();
+        }
+
+        private static int partition(Object entry) {
+            return Math.floorMod(entry.hashCode(), PARTITIONS);
         }
 
         @Override
@@ -175,28 +628,53 @@ public class FilterIterators {
             throw new UnsupportedOperationException();
         }
 
+        @Override
+        public void close() {
+            if (partitions != null) {
+                for (SpillFile<K> f : partitions) {
+                    f.delete();
+                }
+            }
+            partitionIterator = Collections.emptyIterator();
+            distinctSet.clear();
+            current = null;
+            end = true;
+            FilterIterators.close(source);
+        }
+
     }
     
     /**
      * An iterator that returns entries in sorted order. The internal list of
      * sorted entries can be limited to a given number of entries, and the
      * entries are only read when needed (on demand).
+     * <p>
+     * If a spill is used, and the list reaches the spill threshold, the sorted
+     * list is written to a temporary file. The files are then merged while
+     * iterating over the result.
      * 
      * @param <K> the entry type
      */
-    static class SortIterator<K> implements Iterator<K> {
+    static class SortIterator<K> implements Iterator<K>, Closeable {
 
         private final Iterator<K> source;
         private final QueryLimits settings;
         private final Comparator<K> orderBy;
+        private final Spill<K> spill;
         private Iterator<K> result;
         private final int max;
 
         SortIterator(Iterator<K> source, Comparator<K> orderBy, int max, QueryLimits settings) {
+            this(source, orderBy, max, settings, null);
+        }
+
+        SortIterator(Iterator<K> source, Comparator<K> orderBy, int max, QueryLimits settings,
+                Spill<K> spill) {
             this.source = source;
             this.orderBy = orderBy;
             this.max = max;
             this.settings = settings;
+            this.spill = spill != null && spill.getThreshold() > 0 ? spill : null;
         }
         
         private void init() {
@@ -204,6 +682,26 @@ public class FilterIterators {
                 return;
             }
             ArrayList<K> list = new ArrayList<K>();
+            ArrayList<SpillFile<K>> files = new ArrayList<SpillFile<K>>();
+            try {
+                readSource(list, files);
+            } catch (RuntimeException e) {
+                for (SpillFile<K> f : files) {
+                    f.delete();
+                }
+                throw e;
+            }
+            Collections.sort(list, orderBy);
+            keepFirst(list, max);
+            if (files.isEmpty()) {
+                result = list.iterator();
+                return;
+            }
+            result = new LimitIterator<K>(new MergeIterator<K>(files, list, orderBy), max);
+        }
+
+        private void readSource(ArrayList<K> list, ArrayList<SpillFile<K>> files) {
+            boolean spillEnabled = spill != null;
             while (source.hasNext()) {
                 K x = source.next();
                 list.add(x);
@@ -215,11 +713,36 @@ public class FilterIterators {
                     // remove tail entries right now, to save memory
                     Collections.sort(list, orderBy);
                     keepFirst(list, max);
+                } else if (spillEnabled && list.size() >= spill.getThreshold()) {
+                    Collections.sort(list, orderBy);
+                    SpillFile<K> file = writeSorted(list);
+                    if (file == null) {
+                        // keep everything in memory from now on
+                        spillEnabled = false;
+                    } else {
+                        files.add(file);
+                        list.clear();
+                    }
                 }
             }
-            Collections.sort(list, orderBy);
-            keepFirst(list, max);
-            result = list.iterator();
+        }
+
+        /**
+         * Write the sorted list to a temporary file.
+         *
+         * @param list the sorted list
+         * @return the file, or null if one of the entries can not be written
+         */
+        private SpillFile<K> writeSorted(ArrayList<K> list) {
+            SpillFile<K> file = new SpillFile<K>(spill);
+            for (int i = 0, size = Math.min(list.size(), max); i < size; i++) {
+                if (!file.write(list.get(i))) {
+                    file.discard();
+                    return null;
+                }
+            }
+            file.close();
+            return file;
         }
         
         /**
@@ -252,8 +775,93 @@ public class FilterIterators {
         public void remove() {
             throw new UnsupportedOperationException();
         }
+
+        @Override
+        public void close() {
+            if (result == null) {
+                result = Collections.emptyIterator();
+            } else {
+                FilterIterators.close(result);
+            }
+            FilterIterators.close(source);
+        }
         
     }
+
+    /**
+     * An iterator that merges sorted temporary files and a sorted list.
+     * Entries are only read when needed (on demand).
+     * 
+     * @param <K> the entry type
+     */
+    static class MergeIterator<K> implements Iterator<K>, Closeable {
+
+        private final PriorityQueue<SpillReader<K>> readers;
+        private final Iterator<K> memory;
+        private final Comparator<K> orderBy;
+        private K nextInMemory;
+
+        MergeIterator(List<SpillFile<K>> files, List<K> sorted, Comparator<K> orderBy) {
+            this.orderBy = orderBy;
+            readers = new PriorityQueue<SpillReader<K>>(Math.max(1, files.size()),
+                    (a, b) -> orderBy.compare(a.peek(), b.peek()));
+            try {
+                for (SpillFile<K> f : files) {
+                    SpillReader<K> r = f.open();
+                    if (r.peek() != null) {
+                        readers.add(r);
+                    }
+                }
+            } catch (RuntimeException e) {
+                for (SpillFile<K> f : files) {
+                    f.delete();
+                }
+                throw e;
+            }
+            memory = sorted.iterator();
+            nextInMemory = memory.hasNext() ? memory.next() : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextInMemory != null || !readers.isEmpty();
+        }
+
+        @Override
+        public K next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            SpillReader<K> r = readers.peek();
+            if (r == null || (nextInMemory != null && 
+                    orderBy.compare(nextInMemory, r.peek()) <= 0)) {
+                K x = nextInMemory;
+                nextInMemory = memory.hasNext() ? memory.next() : null;
+                return x;
+            }
+            readers.poll();
+            K x = r.pop();
+            if (r.peek() != null) {
+                readers.add(r);
+            }
+            return x;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            for (SpillReader<K> r : readers) {
+                r.close();
+            }
+            readers.clear();
+            nextInMemory = null;
+        }
+
+    }
     
     /**
      * An iterator that ignores the first number of entries. Entries are only
@@ -261,7 +869,7 @@ public class FilterIterators {
      * 
      * @param <K> the entry type
      */
-    static class OffsetIterator<K> implements Iterator<K> {
+    static class OffsetIterator<K> implements Iterator<K>, Closeable {
 
         private final Iterator<K> source;
         private final long offset;
@@ -298,20 +906,28 @@ public class FilterIterators {
         public void remove() {
             throw new UnsupportedOperationException();
         }
+
+        @Override
+        public void close() {
+            init = true;
+            FilterIterators.close(source);
+        }
         
     }
     
     /**
      * An iterator that limits the number of returned entries. Entries are only
-     * read when needed (on demand).
+     * read when needed (on demand). The source is closed once the limit is
+     * reached.
      * 
      * @param <K> the entry type
      */
-    static class LimitIterator<K> implements Iterator<K> {
+    static class LimitIterator<K> implements Iterator<K>, Closeable {
 
         private final Iterator<K> source;
         private final long limit;
         private long count;
+        private boolean closed;
 
         LimitIterator(Iterator<K> source, long limit) {
             this.source = source;
@@ -320,7 +936,11 @@ public class FilterIterators {
         
         @Override
         public boolean hasNext() {
-            return count < limit && source.hasNext();
+            if (count >= limit) {
+                close();
+                return false;
+            }
+            return source.hasNext();
         }
 
         @Override
@@ -336,6 +956,15 @@ public class FilterIterators {
         public void remove() {
             throw new UnsupportedOperationException();
         }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                count = limit;
+                FilterIterators.close(source);
+            }
+        }
         
     }
 
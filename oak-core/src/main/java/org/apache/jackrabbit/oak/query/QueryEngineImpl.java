@@ -37,7 +37,6 @@ import org.apache.jackrabbit.oak.namepath.impl.LocalNameMapper;
 import org.apache.jackrabbit.oak.namepath.impl.NamePathMapperImpl;
 import org.apache.jackrabbit.oak.query.ast.NodeTypeInfoProvider;
 import org.apache.jackrabbit.oak.query.stats.QueryStatsData.QueryExecutionStats;
-import org.apache.jackrabbit.oak.query.xpath.XPathToSQL2Converter;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -170,6 +169,7 @@ public abstract class QueryEngineImpl implements QueryEngine {
 
         QueryExecutionStats stats = settings.getQueryStatsReporter().getQueryExecution(statement, language);
 
+        long start = System.nanoTime();
         SQL2Parser parser = new SQL2Parser(mapper, nodeTypes, settings, stats);
         if (language.endsWith(NO_LITERALS)) {
             language = language.substring(0, language.length() - NO_LITERALS.length());
@@ -187,8 +187,7 @@ public abstract class QueryEngineImpl implements QueryEngine {
             parser.setSupportSQL1(true);
             q = parser.parse(statement, false);
         } else if (XPATH.equals(language)) {
-            XPathToSQL2Converter converter = new XPathToSQL2Converter();
-            String sql2 = converter.convert(statement);
+            String sql2 = settings.getStatementCache().convertXPath(statement);
             LOG.debug("XPath > SQL2: {}", sql2);
             try {
                 // OAK-874: No artificial XPath selector name in wildcards
@@ -234,6 +233,7 @@ public abstract class QueryEngineImpl implements QueryEngine {
                 throw e2;
             }
         }
+        settings.getStatementCache().parsed(System.nanoTime() - start);
 
         return queries;
     }
@@ -282,7 +282,9 @@ public abstract class QueryEngineImpl implements QueryEngine {
         try {
             long start = System.nanoTime();
             Query query = prepareAndSelect(queries);
-            query.getQueryExecutionStats().execute(System.nanoTime() - start);
+            long planNanos = System.nanoTime() - start;
+            context.getSettings().getStatementCache().planned(planNanos);
+            query.getQueryExecutionStats().execute(planNanos);
             mdc = setupMDC(query);
             return query.executeQuery();
         } finally {
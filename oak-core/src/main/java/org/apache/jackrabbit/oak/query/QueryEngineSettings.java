@@ -19,9 +19,19 @@
 package org.apache.jackrabbit.oak.query;
 
 import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.jackrabbit.oak.api.StrictPathRestriction;
 import org.apache.jackrabbit.oak.api.jmx.QueryEngineSettingsMBean;
+import org.apache.jackrabbit.oak.query.index.StatisticsCardinalityEstimator;
+import org.apache.jackrabbit.oak.query.plan.CardinalityEstimator;
 import org.apache.jackrabbit.oak.query.stats.QueryStatsMBean;
 import org.apache.jackrabbit.oak.query.stats.QueryStatsMBeanImpl;
 import org.apache.jackrabbit.oak.query.stats.QueryStatsReporter;
@@ -29,6 +39,8 @@ import org.apache.jackrabbit.oak.spi.query.QueryLimits;
 import org.apache.jackrabbit.oak.stats.StatisticsProvider;
 import org.jetbrains.annotations.NotNull;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 /**
  * Settings of the query engine.
  */
@@ -76,6 +88,85 @@ public class QueryEngineSettings implements QueryEngineSettingsMBean, QueryLimit
     private boolean sql2Optimisation = 
             Boolean.parseBoolean(System.getProperty(SQL2_OPTIMISATION_FLAG, "true"));
 
+    /**
+     * Whether equi-joins that would otherwise traverse the repository for
+     * each row of the left hand side are executed as hash joins.
+     * {@code -Doak.query.hashJoin}
+     */
+    public static final String OAK_QUERY_HASH_JOIN = "oak.query.hashJoin";
+
+    private boolean hashJoin = Boolean.getBoolean(OAK_QUERY_HASH_JOIN);
+
+    /**
+     * The maximum number of rows in the hash table of a hash join. If there
+     * are more rows, the join is executed as a nested loop join.
+     * {@code -Doak.query.hashJoinMaxRows}
+     */
+    public static final int DEFAULT_HASH_JOIN_MAX_ROWS = Integer.getInteger("oak.query.hashJoinMaxRows", 100000);
+
+    private int hashJoinMaxRows = DEFAULT_HASH_JOIN_MAX_ROWS;
+
+    /**
+     * Whether the subqueries of a union query are read concurrently.
+     * {@code -Doak.query.parallelUnion}
+     */
+    public static final String OAK_QUERY_PARALLEL_UNION = "oak.query.parallelUnion";
+
+    private boolean parallelUnion = Boolean.getBoolean(OAK_QUERY_PARALLEL_UNION);
+
+    /**
+     * The maximum number of threads used to read subqueries concurrently.
+     * {@code -Doak.query.parallelUnionThreads}
+     */
+    public static final int DEFAULT_PARALLEL_UNION_THREADS = Integer.getInteger("oak.query.parallelUnionThreads", 4);
+
+
+    /**
+     * The number of result rows for which the nodes are loaded with one bulk
+     * read, if the node store supports it. 0 to disable prefetching.
+     * {@code -Doak.query.prefetchCount}
+     */
+    public static final int DEFAULT_PREFETCH_COUNT = Integer.getInteger("oak.query.prefetchCount", 0);
+
+    private int prefetchCount = DEFAULT_PREFETCH_COUNT;
+
+    /**
+     * Whether rows returned by an index are checked against the node type
+     * and property restrictions of the query concurrently, in batches.
+     * {@code -Doak.query.parallelFilter}
+     */
+    public static final String OAK_QUERY_PARALLEL_FILTER = "oak.query.parallelFilter";
+
+    private boolean parallelFilter = Boolean.getBoolean(OAK_QUERY_PARALLEL_FILTER);
+
+    /**
+     * The number of rows that are checked concurrently.
+     * {@code -Doak.query.parallelFilterBatchSize}
+     */
+    public static final int DEFAULT_PARALLEL_FILTER_BATCH_SIZE = Integer.getInteger("oak.query.parallelFilterBatchSize", 256);
+
+    private int parallelFilterBatchSize = DEFAULT_PARALLEL_FILTER_BATCH_SIZE;
+
+    /**
+     * The parallelism of the pool used to check rows concurrently.
+     * {@code -Doak.query.parallelFilterThreads}
+     */
+    public static final int DEFAULT_PARALLEL_FILTER_THREADS = Integer.getInteger("oak.query.parallelFilterThreads",
+            Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Whether the values of a query are read from the index (without reading
+     * the nodes), if the index plan covers all properties used by the query,
+     * and the session can read the whole subtree. For indexes that are
+     * updated asynchronously, the values and rows are those of the last
+     * index update. {@code -Doak.query.coveringIndex}
+     */
+    public static final String OAK_QUERY_COVERING_INDEX = "oak.query.coveringIndex";
+
+    private boolean coveringIndex = Boolean.getBoolean(OAK_QUERY_COVERING_INDEX);
+
+    private CardinalityEstimator cardinalityEstimator = new StatisticsCardinalityEstimator();
+
     private static final String OAK_FAST_QUERY_SIZE = "oak.fastQuerySize";
     public static final boolean DEFAULT_FAST_QUERY_SIZE = Boolean.getBoolean(OAK_FAST_QUERY_SIZE);
     private boolean fastQuerySize = DEFAULT_FAST_QUERY_SIZE;
@@ -84,6 +175,8 @@ public class QueryEngineSettings implements QueryEngineSettingsMBean, QueryLimit
 
     private final QueryStatsMBeanImpl queryStats = new QueryStatsMBeanImpl(this);
 
+    private final StatementCache statementCache = new StatementCache();
+
     /**
      * StatisticsProvider used to record query side metrics.
      */
@@ -178,6 +271,126 @@ public class QueryEngineSettings implements QueryEngineSettingsMBean, QueryLimit
         return sql2Optimisation;
     }
 
+    public boolean isHashJoin() {
+        return hashJoin;
+    }
+
+    public void setHashJoin(boolean hashJoin) {
+        this.hashJoin = hashJoin;
+    }
+
+    public int getHashJoinMaxRows() {
+        return hashJoinMaxRows;
+    }
+
+    public void setHashJoinMaxRows(int hashJoinMaxRows) {
+        this.hashJoinMaxRows = hashJoinMaxRows;
+    }
+
+    public boolean isParallelUnion() {
+        return parallelUnion;
+    }
+
+    public void setParallelUnion(boolean parallelUnion) {
+        this.parallelUnion = parallelUnion;
+    }
+
+    /**
+     * Get the executor used to read subqueries concurrently. The executor is
+     * shared by all instances. The threads are daemon threads that stop when
+     * idle. If all threads are busy and the queue is full, tasks are run by
+     * the calling thread.
+     *
+     * @return the executor
+     */
+    public ExecutorService getQueryExecutor() {
+        return QueryExecutorHolder.EXECUTOR;
+    }
+
+    private static class QueryExecutorHolder {
+
+        static final ExecutorService EXECUTOR = createQueryExecutor();
+
+        private static ExecutorService createQueryExecutor() {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    DEFAULT_PARALLEL_UNION_THREADS, DEFAULT_PARALLEL_UNION_THREADS,
+                    60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(16 * DEFAULT_PARALLEL_UNION_THREADS),
+                    new ThreadFactoryBuilder().setDaemon(true).setNameFormat("oak-query-%d").build(),
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+
+    public int getPrefetchCount() {
+        return prefetchCount;
+    }
+
+    public void setPrefetchCount(int prefetchCount) {
+        this.prefetchCount = prefetchCount;
+    }
+
+    public boolean isParallelFilter() {
+        return parallelFilter;
+    }
+
+    public void setParallelFilter(boolean parallelFilter) {
+        this.parallelFilter = parallelFilter;
+    }
+
+    public int getParallelFilterBatchSize() {
+        return parallelFilterBatchSize;
+    }
+
+    public void setParallelFilterBatchSize(int parallelFilterBatchSize) {
+        this.parallelFilterBatchSize = parallelFilterBatchSize;
+    }
+
+    /**
+     * Get the pool used to check rows concurrently. The pool is shared by all
+     * instances. The worker threads are daemon threads that stop when idle.
+     *
+     * @return the pool
+     */
+    public ForkJoinPool getFilterPool() {
+        return FilterPoolHolder.POOL;
+    }
+
+    private static class FilterPoolHolder {
+
+        static final ForkJoinPool POOL = createFilterPool();
+
+        private static ForkJoinPool createFilterPool() {
+            final AtomicInteger count = new AtomicInteger();
+            return new ForkJoinPool(DEFAULT_PARALLEL_FILTER_THREADS, new ForkJoinWorkerThreadFactory() {
+                @Override
+                public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                    ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    t.setDaemon(true);
+                    t.setName("oak-query-filter-" + count.getAndIncrement());
+                    return t;
+                }
+            }, null, false);
+        }
+    }
+
+    public boolean isCoveringIndex() {
+        return coveringIndex;
+    }
+
+    public void setCoveringIndex(boolean coveringIndex) {
+        this.coveringIndex = coveringIndex;
+    }
+
+    public CardinalityEstimator getCardinalityEstimator() {
+        return cardinalityEstimator;
+    }
+
+    public void setCardinalityEstimator(@NotNull CardinalityEstimator cardinalityEstimator) {
+        this.cardinalityEstimator = cardinalityEstimator;
+    }
+
     public QueryStatsMBean getQueryStats() {
         return queryStats;
     }
@@ -186,6 +399,10 @@ public class QueryEngineSettings implements QueryEngineSettingsMBean, QueryLimit
         return queryStats;
     }
 
+    public StatementCache getStatementCache() {
+        return statementCache;
+    }
+
     public StatisticsProvider getStatisticsProvider() {
         return statisticsProvider;
     }
@@ -221,6 +438,11 @@ public class QueryEngineSettings implements QueryEngineSettingsMBean, QueryLimit
                 ", fullTextComparisonWithoutIndex=" + fullTextComparisonWithoutIndex +
                 ", sql2Optimisation=" + sql2Optimisation +
                 ", fastQuerySize=" + fastQuerySize +
+                ", hashJoin=" + hashJoin +
+                ", parallelUnion=" + parallelUnion +
+                ", prefetchCount=" + prefetchCount +
+                ", parallelFilter=" + parallelFilter +
+                ", coveringIndex=" + coveringIndex +
                 ", classNamesIgnoredInCallTrace=" + Arrays.toString(classNamesIgnoredInCallTrace) +
                 '}';
     }
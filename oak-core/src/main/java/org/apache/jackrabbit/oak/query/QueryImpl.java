@@ -28,6 +28,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 
@@ -100,6 +101,7 @@ import org.apache.jackrabbit.oak.stats.HistogramStats;
 import org.apache.jackrabbit.oak.stats.StatisticsProvider;
 import org.apache.jackrabbit.oak.stats.StatsOptions;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -177,6 +179,12 @@ public class QueryImpl implements Query {
     private long size = -1;
     private boolean prepared;
     private ExecutionContext context;
+
+    /**
+     * The context used to read the rows, if the rows are read by another
+     * thread than the caller (see {@link UnionQueryImpl}), or null.
+     */
+    private ExecutionContext concurrentContext;
     
     /**
      * whether the object has been initialised or not
@@ -624,8 +632,20 @@ public class QueryImpl implements Query {
         }
         long localLimit = limit.orElse(Long.MAX_VALUE);
         long localOffset = offset.orElse(0L);
+        FilterIterators.Spill<ResultRowImpl> spill = null;
+        // a spilled distinct returns the rows grouped by partition,
+        // so it can not be used if the index returns the rows in order
+        boolean orderedByIndex = orderBy == null && orderings != null && orderings.length > 0;
+        if (FilterIterators.Spill.DEFAULT_THRESHOLD > 0 && !orderedByIndex) {
+            spill = new ResultRowImpl.RowSpill(this, FilterIterators.Spill.DEFAULT_THRESHOLD) {
+                @Override
+                protected void spilled(int count) {
+                    stats.spill(count);
+                }
+            };
+        }
         Iterator<ResultRowImpl> it =
-                FilterIterators.newCombinedFilter(rowIt, distinct, localLimit, localOffset, orderBy, settings);
+                FilterIterators.newCombinedFilter(rowIt, distinct, localLimit, localOffset, orderBy, settings, spill);
         if (orderBy != null) {
             // this will force the rows to be read, so that the size is known
             it.hasNext();
@@ -748,6 +768,7 @@ public class QueryImpl implements Query {
             double bestCost = Double.POSITIVE_INFINITY;
             ExecutionPlan bestPlan = null;
             SourceImpl best = null;
+            boolean rowCountKnown = false;
             for (int i = 0; i < sources.size(); i++) {
                 SourceImpl test = buildJoin(result, sources.get(i), conditions);
                 if (test == null) {
@@ -762,11 +783,26 @@ public class QueryImpl implements Query {
                     bestIndex = i;
                     best = test;
                 }
+                if (testPlan instanceof SelectorExecutionPlan &&
+                        ((SelectorExecutionPlan) testPlan).getEstimatedRowCount() >= 0) {
+                    rowCountKnown = true;
+                }
                 if (!potentiallySlowTraversalQuery) {
                     isPotentiallySlowJoin = false;
                 }
                 test.unprepare();
             }
+            if (result == null && rowCountKnown) {
+                // with statistics, the cheapest selector is not necessarily
+                // the best one to start with, as it might return many rows
+                int first = getBestFirstSelector(sources, conditions);
+                if (first >= 0 && first != bestIndex) {
+                    bestIndex = first;
+                    best = sources.get(first);
+                    bestPlan = best.prepare();
+                    best.unprepare();
+                }
+            }
             available.add(sources.remove(bestIndex));
             result = best;
             best.prepare(bestPlan);
@@ -777,6 +813,39 @@ public class QueryImpl implements Query {
         isSortedByIndex = canSortByIndex();
     }
     
+    /**
+     * Get the selector to start the join with, by joining each selector with
+     * each other selector, so that the number of rows of the first selector
+     * is taken into account.
+     * 
+     * @param sources the selectors
+     * @param conditions the join conditions
+     * @return the index of the selector, or -1 if no two selectors can be joined
+     */
+    private static int getBestFirstSelector(List<SourceImpl> sources, List<JoinConditionImpl> conditions) {
+        int bestIndex = -1;
+        double bestCost = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < sources.size(); i++) {
+            for (int j = 0; j < sources.size(); j++) {
+                if (i == j) {
+                    continue;
+                }
+                SourceImpl test = buildJoin(sources.get(i), sources.get(j), conditions);
+                if (test == null) {
+                    // no join condition
+                    continue;
+                }
+                double cost = test.prepare().getEstimatedCost();
+                test.unprepare();
+                if (bestIndex < 0 || cost < bestCost) {
+                    bestIndex = i;
+                    bestCost = cost;
+                }
+            }
+        }
+        return bestIndex;
+    }
+
     private static SourceImpl buildJoin(SourceImpl result, SourceImpl last, List<JoinConditionImpl> conditions) {
         if (result == null) {
             return last;
@@ -1096,6 +1165,22 @@ public class QueryImpl implements Query {
         List<? extends QueryIndex> queryIndexes = MINIMAL_COST_ORDERING
                 .sortedCopy(indexProvider.getQueryIndexes(rootState));
         List<OrderEntry> sortOrder = getSortOrder(filter); 
+
+        StatementCache statementCache = settings.getStatementCache();
+        String planKey = null;
+        long indexVersion = 0;
+        if (statementCache.isPlanCacheEnabled()) {
+            planKey = statement + "\n" + filter.getSelector().getSelectorName() + "\n" + filter
+                    + "\nsort=" + sortOrder + ", max=" + maxEntryCount + ", traversal=" + traversalEnabled;
+            indexVersion = StatementCache.getIndexDefinitionVersion(rootState, filter.getPath());
+            SelectorExecutionPlan cached = getCachedSelectorExecutionPlan(rootState, filter,
+                    queryIndexes, sortOrder, maxEntryCount, statementCache.getPlan(planKey, indexVersion));
+            statementCache.planLookup(cached != null);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
         for (int i = 0; i < queryIndexes.size(); i++) {
             QueryIndex index = queryIndexes.get(i);
             double minCost = index.getMinimumCost();
@@ -1120,18 +1205,7 @@ public class QueryImpl implements Query {
                         filter, sortOrder, rootState);
                 cost = Double.POSITIVE_INFINITY;
                 for (IndexPlan p : ipList) {
-                    
-                    long entryCount = p.getEstimatedEntryCount();
-                    if (p.getSupportsPathRestriction()) {
-                        entryCount = scaleEntryCount(rootState, filter, entryCount);
-                    }
-                    if (sortOrder == null || p.getSortOrder() != null) {
-                        // if the query is unordered, or
-                        // if the query contains "order by" and the index can sort on that,
-                        // then we don't need to read all entries from the index
-                        entryCount = Math.min(maxEntryCount, entryCount);
-                    }
-                    double c = p.getCostPerExecution() + entryCount * p.getCostPerEntry();
+                    double c = getCost(rootState, filter, sortOrder, maxEntryCount, p);
 
                     if (LOG.isDebugEnabled()) {
                         String plan = advIndex.getPlanDescription(p, rootState);
@@ -1206,24 +1280,119 @@ public class QueryImpl implements Query {
         }
 
         if (potentiallySlowTraversalQuery || bestIndex == null) {
-            // Log warning for fulltext queries without index, since these cannot return results
-            if(!filter.getFulltextConditions().isEmpty()) { 
-                LOG.warn("Fulltext query without index for filter {}; no results will be returned", filter);
-            } else {
-                LOG.debug("no proper index was found for filter {}", filter);      
-            }
-            
-            StatisticsProvider statisticsProvider = getSettings().getStatisticsProvider();
-            if (statisticsProvider != null) {
-                HistogramStats histogram = statisticsProvider.getHistogram(INDEX_UNAVAILABLE, StatsOptions.METRICS_ONLY);
-                if (histogram != null) {
-                    histogram.update(1);
+            reportNoIndex(filter);
+        }
+
+        if (planKey != null && bestIndex != null) {
+            statementCache.putPlan(planKey, indexVersion, bestIndex.getIndexName(),
+                    bestPlan == null ? null : bestPlan.getPlanName(), potentiallySlowTraversalQuery);
+        }
+        return new SelectorExecutionPlan(filter.getSelector(), bestIndex,
+                bestPlan, bestCost, estimateRowCount(rootState, filter));
+    }
+
+    /**
+     * Get the plan of the index that was chosen before for the same filter,
+     * without asking the other indexes.
+     *
+     * @return the plan, or null if there is no cached entry, or if the index
+     *         is no longer able to answer the filter
+     */
+    @Nullable
+    private SelectorExecutionPlan getCachedSelectorExecutionPlan(
+            NodeState rootState, FilterImpl filter, List<? extends QueryIndex> queryIndexes,
+            List<OrderEntry> sortOrder, long maxEntryCount, @Nullable StatementCache.CachedPlan cached) {
+        if (cached == null) {
+            return null;
+        }
+        QueryIndex bestIndex = null;
+        IndexPlan bestPlan = null;
+        double bestCost = Double.POSITIVE_INFINITY;
+        TraversingIndex traversingIndex = new TraversingIndex();
+        if (traversingIndex.getIndexName().equals(cached.getIndexName())) {
+            bestCost = traversingIndex.getCost(filter, rootState);
+            bestIndex = traversingIndex;
+        } else {
+            for (QueryIndex index : queryIndexes) {
+                if (!cached.getIndexName().equals(index.getIndexName())) {
+                    continue;
+                }
+                if (index instanceof AdvancedQueryIndex) {
+                    for (IndexPlan p : ((AdvancedQueryIndex) index).getPlans(filter, sortOrder, rootState)) {
+                        if (!Objects.equals(cached.getPlanName(), p.getPlanName())) {
+                            continue;
+                        }
+                        double c = getCost(rootState, filter, sortOrder, maxEntryCount, p);
+                        if (c < bestCost) {
+                            bestCost = c;
+                            bestIndex = index;
+                            bestPlan = p;
+                        }
+                    }
+                } else {
+                    double c = index.getCost(filter, rootState);
+                    if (c < bestCost) {
+                        bestCost = c;
+                        bestIndex = index;
+                        bestPlan = null;
+                    }
                 }
             }
         }
-
+        if (bestIndex == null || bestCost == Double.POSITIVE_INFINITY) {
+            return null;
+        }
+        if (LOG.isDebugEnabled()) {
+            logDebug("cached index " + cached.getIndexName() + " with cost " + bestCost);
+        }
+        // as decided when the entry was cached: traversal may also have
+        // been cheaper than an index that was found
+        potentiallySlowTraversalQuery = cached.isPotentiallySlowTraversal();
+        if (potentiallySlowTraversalQuery) {
+            reportNoIndex(filter);
+        }
         return new SelectorExecutionPlan(filter.getSelector(), bestIndex,
-                bestPlan, bestCost);
+                bestPlan, bestCost, estimateRowCount(rootState, filter));
+    }
+
+    private double getCost(NodeState rootState, FilterImpl filter, List<OrderEntry> sortOrder,
+                           long maxEntryCount, IndexPlan p) {
+        long entryCount = p.getEstimatedEntryCount();
+        if (p.getSupportsPathRestriction()) {
+            entryCount = scaleEntryCount(rootState, filter, entryCount);
+        }
+        if (sortOrder == null || p.getSortOrder() != null) {
+            // if the query is unordered, or
+            // if the query contains "order by" and the index can sort on that,
+            // then we don't need to read all entries from the index
+            entryCount = Math.min(maxEntryCount, entryCount);
+        }
+        return p.getCostPerExecution() + entryCount * p.getCostPerEntry();
+    }
+
+    private long estimateRowCount(NodeState rootState, FilterImpl filter) {
+        if (selectors.size() > 1) {
+            // only needed to compare join orders
+            return settings.getCardinalityEstimator().estimateRowCount(filter, rootState);
+        }
+        return -1;
+    }
+
+    private void reportNoIndex(FilterImpl filter) {
+        // Log warning for fulltext queries without index, since these cannot return results
+        if(!filter.getFulltextConditions().isEmpty()) { 
+            LOG.warn("Fulltext query without index for filter {}; no results will be returned", filter);
+        } else {
+            LOG.debug("no proper index was found for filter {}", filter);      
+        }
+        
+        StatisticsProvider statisticsProvider = getSettings().getStatisticsProvider();
+        if (statisticsProvider != null) {
+            HistogramStats histogram = statisticsProvider.getHistogram(INDEX_UNAVAILABLE, StatsOptions.METRICS_ONLY);
+            if (histogram != null) {
+                histogram.update(1);
+            }
+        }
     }
     
     private long scaleEntryCount(NodeState rootState, FilterImpl filter, long count) {
@@ -1339,6 +1508,21 @@ public class QueryImpl implements Query {
 
     @Override
     public Tree getTree(String path) {
+        return getTree(context, path);
+    }
+
+    /**
+     * Get the tree at the given path, using the root of the context that
+     * reads the rows. The trees of the result rows are read this way.
+     *
+     * @param path the path
+     * @return the tree, or null if the path is hidden
+     */
+    public Tree getExecutionTree(String path) {
+        return getTree(getExecutionContext(), path);
+    }
+
+    private Tree getTree(ExecutionContext ctx, String path) {
         if (NodeStateUtils.isHiddenPath(path)) {
             if (!warnedHidden) {
                 warnedHidden = true;
@@ -1346,7 +1530,7 @@ public class QueryImpl implements Query {
             }
             return null;
         }
-        return context.getRoot().getTree(path);
+        return ctx.getRoot().getTree(path);
     }
 
     @Override
@@ -1432,8 +1616,26 @@ public class QueryImpl implements Query {
         this.isInternal = isInternal;
     }
 
+    /**
+     * Get the context used to read the rows.
+     *
+     * @return the context
+     */
     public ExecutionContext getExecutionContext() {
-        return context;
+        return concurrentContext != null ? concurrentContext : context;
+    }
+
+    /**
+     * Read the rows using the given context, so that the rows can be read by
+     * another thread than the caller. The rows returned by
+     * {@link #getRows()} then contain trees of that context, and
+     * {@link #getTree(String)} still uses the context of the caller.
+     *
+     * @param concurrentContext the context, or null to use the context of
+     *            the caller
+     */
+    void setConcurrentContext(ExecutionContext concurrentContext) {
+        this.concurrentContext = concurrentContext;
     }
     
     /**
@@ -1588,4 +1790,8 @@ public class QueryImpl implements Query {
         return stats;
     }
 
+    boolean[] getDistinctColumns() {
+        return distinctColumns;
+    }
+
 }
@@ -18,11 +18,13 @@ package org.apache.jackrabbit.oak.query;
 
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 import org.apache.jackrabbit.oak.api.Result;
 import org.apache.jackrabbit.oak.api.ResultRow;
 import org.apache.jackrabbit.oak.query.ast.ColumnImpl;
 import org.apache.jackrabbit.oak.query.ast.SelectorImpl;
+import org.apache.jackrabbit.oak.query.stats.QueryStatsData.QueryExecutionStats;
 
 /**
  * A query result.
@@ -69,7 +71,11 @@ public class ResultImpl implements Result {
 
             @Override
             public Iterator<ResultRowImpl> iterator() {
-                return query.getRows();
+                QueryExecutionStats stats = query.getQueryExecutionStats();
+                if (stats == null) {
+                    return query.getRows();
+                }
+                return new MeasuringIterator(query, stats);
             }
 
         };
@@ -85,4 +91,57 @@ public class ResultImpl implements Result {
         return query.getSize(precision, max);
     }
 
+    /**
+     * An iterator that measures the time until the first row is available, and
+     * the time until the result was read to the end.
+     */
+    private static class MeasuringIterator implements Iterator<ResultRowImpl> {
+
+        private final QueryExecutionStats stats;
+        private final Iterator<ResultRowImpl> it;
+        private long nanos;
+        private long rowCount;
+        private boolean started;
+
+        MeasuringIterator(Query query, QueryExecutionStats stats) {
+            this.stats = stats;
+            long start = System.nanoTime();
+            this.it = query.getRows();
+            nanos = System.nanoTime() - start;
+        }
+
+        @Override
+        public boolean hasNext() {
+            long start = System.nanoTime();
+            boolean hasNext = it.hasNext();
+            nanos += System.nanoTime() - start;
+            if (!started) {
+                started = true;
+                stats.executed(nanos);
+            }
+            if (!hasNext) {
+                stats.finished(nanos, rowCount);
+            }
+            return hasNext;
+        }
+
+        @Override
+        public ResultRowImpl next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            long start = System.nanoTime();
+            ResultRowImpl row = it.next();
+            nanos += System.nanoTime() - start;
+            rowCount++;
+            return row;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
 }
@@ -16,14 +16,24 @@
  */
 package org.apache.jackrabbit.oak.query;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 
+import javax.jcr.PropertyType;
+
 import org.apache.jackrabbit.JcrConstants;
 import org.apache.jackrabbit.oak.api.PropertyValue;
 import org.apache.jackrabbit.oak.api.ResultRow;
 import org.apache.jackrabbit.oak.api.Tree;
+import org.apache.jackrabbit.oak.api.Type;
+import org.apache.jackrabbit.oak.commons.json.JsopBuilder;
+import org.apache.jackrabbit.oak.commons.json.JsopReader;
+import org.apache.jackrabbit.oak.commons.json.JsopTokenizer;
+import org.apache.jackrabbit.oak.plugins.memory.PropertyStates;
+import org.apache.jackrabbit.oak.plugins.value.Conversions;
 import org.apache.jackrabbit.oak.query.ast.ColumnImpl;
 import org.apache.jackrabbit.oak.query.ast.OrderingImpl;
 import org.apache.jackrabbit.oak.plugins.memory.PropertyValues;
@@ -65,6 +75,41 @@ public class ResultRowImpl implements ResultRow {
         return orderValues;
     }
 
+    /**
+     * Get the paths of the trees of this row.
+     *
+     * @return the paths, with null for missing trees
+     */
+    String[] getTreePaths() {
+        if (trees == null) {
+            return null;
+        }
+        String[] paths = new String[trees.length];
+        for (int i = 0; i < trees.length; i++) {
+            paths[i] = trees[i] == null ? null : trees[i].getPath();
+        }
+        return paths;
+    }
+
+    /**
+     * Get a copy of this row, with the trees at the given paths read from
+     * the query (see {@link Query#getTree(String)}). This is used if the row
+     * was read by another thread.
+     *
+     * @param paths the paths of the trees
+     * @return the copy
+     */
+    ResultRowImpl withTrees(String[] paths) {
+        if (paths == null) {
+            return this;
+        }
+        Tree[] t = new Tree[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            t[i] = paths[i] == null ? null : query.getTree(paths[i]);
+        }
+        return new ResultRowImpl(query, t, values, distinctValues, orderValues);
+    }
+
     @Override
     public String getPath() {
         return getPath(null);
@@ -277,4 +322,132 @@ public class ResultRowImpl implements ResultRow {
         return new ResultRowImpl(delegate.query, delegate.trees, mappedVals,
                 delegate.distinctValues, delegate.orderValues);
     }
-}
\ No newline at end of file
+
+    /**
+     * Writes result rows to, and reads them from, temporary files. A row is
+     * stored as the paths of its trees and its column and order values. Trees
+     * are read again from the query root. Rows with binary values are kept in
+     * memory.
+     */
+    static class RowSpill extends FilterIterators.Spill<ResultRowImpl> {
+
+        private final QueryImpl query;
+
+        RowSpill(QueryImpl query, int threshold) {
+            super(threshold);
+            this.query = query;
+        }
+
+        @Override
+        protected String write(ResultRowImpl row) {
+            JsopBuilder buff = new JsopBuilder();
+            buff.array();
+            for (String p : row.getPaths()) {
+                buff.value(p);
+            }
+            buff.endArray();
+            if (!writeValues(buff, row.values)) {
+                return null;
+            }
+            if (row.orderValues == null) {
+                buff.value((String) null);
+            } else if (!writeValues(buff, row.orderValues)) {
+                return null;
+            }
+            return buff.toString();
+        }
+
+        private static boolean writeValues(JsopBuilder buff, PropertyValue[] values) {
+            buff.array();
+            for (PropertyValue v : values) {
+                if (v == null) {
+                    buff.value((String) null);
+                    continue;
+                }
+                int tag = v.getType().tag();
+                if (tag == PropertyType.BINARY || tag == PropertyType.UNDEFINED) {
+                    return false;
+                }
+                buff.array().value(tag).value(v.isArray());
+                for (String s : v.getValue(Type.STRINGS)) {
+                    buff.value(s);
+                }
+                buff.endArray();
+            }
+            buff.endArray();
+            return true;
+        }
+
+        @Override
+        protected ResultRowImpl read(String line) {
+            JsopTokenizer t = new JsopTokenizer(line);
+            t.read('[');
+            List<Tree> trees = new ArrayList<Tree>();
+            if (!t.matches(']')) {
+                do {
+                    trees.add(t.matches(JsopReader.NULL) ? null : query.getExecutionTree(t.readString()));
+                } while (t.matches(','));
+                t.read(']');
+            }
+            t.read(',');
+            PropertyValue[] values = readValues(t);
+            t.read(',');
+            PropertyValue[] orderValues = t.matches(JsopReader.NULL) ? null : readValues(t);
+            return new ResultRowImpl(query, trees.toArray(new Tree[0]), values,
+                    query.getDistinctColumns(), orderValues);
+        }
+
+        private static PropertyValue[] readValues(JsopTokenizer t) {
+            t.read('[');
+            List<PropertyValue> values = new ArrayList<PropertyValue>();
+            if (!t.matches(']')) {
+                do {
+                    values.add(t.matches(JsopReader.NULL) ? null : readValue(t));
+                } while (t.matches(','));
+                t.read(']');
+            }
+            return values.toArray(new PropertyValue[0]);
+        }
+
+        private static PropertyValue readValue(JsopTokenizer t) {
+            t.read('[');
+            int tag = Integer.parseInt(t.read(JsopReader.NUMBER));
+            t.read(',');
+            boolean isArray = t.matches(JsopReader.TRUE);
+            if (!isArray) {
+                t.read(JsopReader.FALSE);
+            }
+            List<String> list = new ArrayList<String>();
+            while (t.matches(',')) {
+                list.add(t.readString());
+            }
+            t.read(']');
+            if (!isArray) {
+                return PropertyValues.create(
+                        PropertyStates.createProperty("", list.get(0), tag));
+            }
+            List<Object> converted = new ArrayList<Object>(list.size());
+            for (String value : list) {
+                converted.add(convert(value, tag));
+            }
+            return PropertyValues.create(
+                    PropertyStates.createProperty("", converted, Type.fromTag(tag, true)));
+        }
+
+        private static Object convert(String value, int tag) {
+            switch (tag) {
+            case PropertyType.LONG:
+                return Conversions.convert(value).toLong();
+            case PropertyType.DOUBLE:
+                return Conversions.convert(value).toDouble();
+            case PropertyType.BOOLEAN:
+                return Conversions.convert(value).toBoolean();
+            case PropertyType.DECIMAL:
+                return Conversions.convert(value).toDecimal();
+            default:
+                return value;
+            }
+        }
+
+    }
+}
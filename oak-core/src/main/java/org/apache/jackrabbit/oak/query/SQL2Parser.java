@@ -1229,12 +1229,12 @@ public class SQL2Parser {
             if (types[i] == CHAR_SPECIAL_2) {
                 i++;
             }
-            currentToken = statement.substring(start, i);
+            currentToken = SpecialTokens.get(statement, statementChars, start, i);
             currentTokenType = KEYWORD;
             parseIndex = i;
             return;
         case CHAR_SPECIAL_1:
-            currentToken = statement.substring(start, i);
+            currentToken = SpecialTokens.get(statement, statementChars, start, i);
             switch (c) {
             case '$':
                 currentTokenType = PARAMETER;
@@ -1330,13 +1330,18 @@ public class SQL2Parser {
     private void readString(int i, char end) throws ParseException {
         char[] chars = statementChars;
         String result = null;
+        StringBuilder buff = null;
         while (true) {
             for (int begin = i;; i++) {
                 if (chars[i] == end) {
                     if (result == null) {
                         result = statement.substring(begin, i);
                     } else {
-                        result += statement.substring(begin - 1, i);
+                        // an escaped quote: the quote is included
+                        if (buff == null) {
+                            buff = new StringBuilder(result);
+                        }
+                        buff.append(chars, begin - 1, i - begin + 1);
                     }
                     break;
                 }
@@ -1346,6 +1351,9 @@ public class SQL2Parser {
             }
             i++;
         }
+        if (buff != null) {
+            result = buff.toString();
+        }
         currentToken = "'";
         if (end != ']') {
             checkLiterals(false);
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.query;
+
+/**
+ * The tokens of special characters (operators and punctuation), shared by
+ * the SQL-2 parser and the XPath converter, so that reading them doesn't
+ * create a new string each time.
+ */
+public final class SpecialTokens {
+
+    /**
+     * The tokens that consist of one ASCII character.
+     */
+    private static final String[] SINGLE_CHAR_TOKENS = new String[128];
+
+    static {
+        for (char c = 0; c < SINGLE_CHAR_TOKENS.length; c++) {
+            SINGLE_CHAR_TOKENS[c] = String.valueOf(c);
+        }
+    }
+
+    private SpecialTokens() {
+    }
+
+    /**
+     * Get the token for the special characters between start and end. The
+     * token is only created if it is not a single character, or one of the
+     * common two-character operators.
+     *
+     * @param statement the statement
+     * @param chars the characters of the statement
+     * @param start the index of the first character
+     * @param end the index after the last character
+     * @return the token
+     */
+    public static String get(String statement, char[] chars, int start, int end) {
+        char c = chars[start];
+        if (end - start == 1) {
+            if (c < SINGLE_CHAR_TOKENS.length) {
+                return SINGLE_CHAR_TOKENS[c];
+            }
+        } else if (end - start == 2) {
+            switch (c) {
+            case '<':
+                switch (chars[start + 1]) {
+                case '=':
+                    return "<=";
+                case '>':
+                    return "<>";
+                }
+                break;
+            case '>':
+                if (chars[start + 1] == '=') {
+                    return ">=";
+                }
+                break;
+            case '!':
+                if (chars[start + 1] == '=') {
+                    return "!=";
+                }
+                break;
+            }
+        }
+        return statement.substring(start, end);
+    }
+
+}
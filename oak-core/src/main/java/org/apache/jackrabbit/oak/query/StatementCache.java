@@ -0,0 +1,329 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.query;
+
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jcr.PropertyType;
+
+import org.apache.jackrabbit.oak.api.PropertyState;
+import org.apache.jackrabbit.oak.api.Type;
+import org.apache.jackrabbit.oak.commons.PathUtils;
+import org.apache.jackrabbit.oak.query.ast.JoinConditionImpl;
+import org.apache.jackrabbit.oak.query.xpath.XPathToSQL2Converter;
+import org.apache.jackrabbit.oak.spi.state.ChildNodeEntry;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.jetbrains.annotations.Nullable;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Bounded caches shared by all query engine instances using the same
+ * settings:
+ * <ul>
+ * <li>XPath statements converted to SQL-2.</li>
+ * <li>The index chosen for a filter, for both XPath and SQL-2 statements,
+ * if enabled. An entry is only used while the index definitions along the
+ * path of the filter are unchanged, and for a limited time, as the cost of
+ * an index also depends on the content. When a cached entry is used, only
+ * the chosen index is asked for its plan, instead of all indexes.</li>
+ * </ul>
+ * Parsed queries are not cached, as they depend on the namespace mappings
+ * and node types of the session, and keep per-execution state (bind
+ * variables, limit, execution context).
+ * <p>
+ * In addition, this class keeps track of the time spent parsing and planning
+ * queries.
+ */
+public class StatementCache {
+
+    /**
+     * The maximum number of cached statements. {@code -Doak.query.statementCacheSize}
+     */
+    static final int DEFAULT_SIZE = Integer.getInteger("oak.query.statementCacheSize", 1000);
+
+    /**
+     * How long the index chosen for a filter is reused, in seconds. 0 (the
+     * default) disables caching the chosen index.
+     * {@code -Doak.query.planCacheSeconds}
+     */
+    static final int DEFAULT_PLAN_SECONDS = Integer.getInteger("oak.query.planCacheSeconds", 0);
+
+    private static final String INDEX_DEFINITIONS_NAME = "oak:index";
+
+    private final Cache<String, String> xpathToSql2;
+
+    private final Cache<String, CachedPlan> plans;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong parseCount = new AtomicLong();
+    private final AtomicLong parseNanos = new AtomicLong();
+    private final AtomicLong planCount = new AtomicLong();
+    private final AtomicLong planNanos = new AtomicLong();
+    private final AtomicLong planHitCount = new AtomicLong();
+    private final AtomicLong planMissCount = new AtomicLong();
+
+    public StatementCache() {
+        this(DEFAULT_SIZE);
+    }
+
+    public StatementCache(int size) {
+        this(size, DEFAULT_PLAN_SECONDS);
+    }
+
+    public StatementCache(int size, int planSeconds) {
+        xpathToSql2 = CacheBuilder.newBuilder().maximumSize(size).build();
+        if (planSeconds > 0) {
+            plans = CacheBuilder.newBuilder().maximumSize(size)
+                    .expireAfterWrite(planSeconds, TimeUnit.SECONDS).build();
+        } else {
+            plans = null;
+        }
+    }
+
+    /**
+     * Convert the XPath statement to SQL-2, or get the result of a previous
+     * conversion of the same statement.
+     *
+     * @param statement the XPath statement
+     * @return the SQL-2 statement
+     * @throws ParseException if the statement could not be converted
+     */
+    public String convertXPath(String statement) throws ParseException {
+        String sql2 = xpathToSql2.getIfPresent(statement);
+        if (sql2 != null) {
+            hitCount.incrementAndGet();
+            return sql2;
+        }
+        missCount.incrementAndGet();
+        // statements that can not be converted are not cached, so that
+        // the exception is thrown again
+        sql2 = new XPathToSQL2Converter().convert(statement);
+        xpathToSql2.put(statement, sql2);
+        return sql2;
+    }
+
+    boolean isPlanCacheEnabled() {
+        return plans != null;
+    }
+
+    /**
+     * Get the index chosen before for the same filter, if the index
+     * definitions did not change since.
+     *
+     * @param key the filter, sort order and other planning options
+     * @param indexVersion see {@link #getIndexDefinitionVersion(NodeState, String)}
+     * @return the cached entry, or null
+     */
+    @Nullable
+    CachedPlan getPlan(String key, long indexVersion) {
+        CachedPlan plan = plans == null ? null : plans.getIfPresent(key);
+        if (plan == null || plan.indexVersion != indexVersion) {
+            return null;
+        }
+        return plan;
+    }
+
+    void putPlan(String key, long indexVersion, String indexName, @Nullable String planName,
+            boolean potentiallySlowTraversal) {
+        if (plans != null) {
+            plans.put(key, new CachedPlan(indexVersion, indexName, planName, potentiallySlowTraversal));
+        }
+    }
+
+    void planLookup(boolean hit) {
+        if (hit) {
+            planHitCount.incrementAndGet();
+        } else {
+            planMissCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Get a fingerprint of the index definitions that apply to the given
+     * path: the definitions in the "oak:index" nodes of the root, the path,
+     * and its ancestors, including their child nodes (for example index
+     * rules). Hidden properties and nodes are ignored, as they are updated
+     * while indexing.
+     *
+     * @param root the root node
+     * @param path the path of the filter
+     * @return the fingerprint
+     */
+    static long getIndexDefinitionVersion(NodeState root, @Nullable String path) {
+        NodeState node = root;
+        long version = addIndexDefinitions(0, node);
+        if (path != null && PathUtils.isAbsolute(path)
+                && !path.startsWith(JoinConditionImpl.SPECIAL_PATH_PREFIX)) {
+            for (String name : PathUtils.elements(path)) {
+                node = node.getChildNode(name);
+                if (!node.exists()) {
+                    break;
+                }
+                version = addIndexDefinitions(version, node);
+            }
+        }
+        return version;
+    }
+
+    private static long addIndexDefinitions(long version, NodeState node) {
+        NodeState definitions = node.getChildNode(INDEX_DEFINITIONS_NAME);
+        if (!definitions.exists()) {
+            return version;
+        }
+        for (ChildNodeEntry e : definitions.getChildNodeEntries()) {
+            version = addDefinition(version, e.getName(), e.getNodeState());
+        }
+        return version;
+    }
+
+    private static long addDefinition(long version, String name, NodeState node) {
+        version = 31 * version + name.hashCode();
+        for (PropertyState p : node.getProperties()) {
+            if (p.getName().startsWith(":") || p.getType().tag() == PropertyType.BINARY) {
+                continue;
+            }
+            version = 31 * version + p.getName().hashCode();
+            for (String v : p.getValue(Type.STRINGS)) {
+                version = 31 * version + v.hashCode();
+            }
+        }
+        for (ChildNodeEntry e : node.getChildNodeEntries()) {
+            if (!e.getName().startsWith(":")) {
+                version = addDefinition(version, e.getName(), e.getNodeState());
+            }
+        }
+        return version;
+    }
+
+    void parsed(long nanos) {
+        parseCount.incrementAndGet();
+        parseNanos.addAndGet(nanos);
+    }
+
+    void planned(long nanos) {
+        planCount.incrementAndGet();
+        planNanos.addAndGet(nanos);
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public double getHitRate() {
+        long hits = hitCount.get();
+        long requests = hits + missCount.get();
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+
+    public long getSize() {
+        return xpathToSql2.size();
+    }
+
+    public long getParseCount() {
+        return parseCount.get();
+    }
+
+    public long getParseTimeNanos() {
+        return parseNanos.get();
+    }
+
+    public long getPlanCount() {
+        return planCount.get();
+    }
+
+    public long getPlanTimeNanos() {
+        return planNanos.get();
+    }
+
+    public long getPlanHitCount() {
+        return planHitCount.get();
+    }
+
+    public long getPlanMissCount() {
+        return planMissCount.get();
+    }
+
+    /**
+     * Reset the statistics. Cached statements are kept.
+     */
+    public void resetStats() {
+        hitCount.set(0);
+        missCount.set(0);
+        parseCount.set(0);
+        parseNanos.set(0);
+        planCount.set(0);
+        planNanos.set(0);
+        planHitCount.set(0);
+        planMissCount.set(0);
+    }
+
+    /**
+     * Remove all cached statements and chosen indexes.
+     */
+    public void invalidateAll() {
+        xpathToSql2.invalidateAll();
+        if (plans != null) {
+            plans.invalidateAll();
+        }
+    }
+
+    /**
+     * The index (and plan) chosen for a filter.
+     */
+    static final class CachedPlan {
+
+        private final long indexVersion;
+        private final String indexName;
+        private final String planName;
+        private final boolean potentiallySlowTraversal;
+
+        CachedPlan(long indexVersion, String indexName, @Nullable String planName,
+                boolean potentiallySlowTraversal) {
+            this.indexVersion = indexVersion;
+            this.indexName = indexName;
+            this.planName = planName;
+            this.potentiallySlowTraversal = potentiallySlowTraversal;
+        }
+
+        /**
+         * Whether no index was able to answer the filter, and traversing
+         * is potentially slow.
+         */
+        boolean isPotentiallySlowTraversal() {
+            return potentiallySlowTraversal;
+        }
+
+        String getIndexName() {
+            return indexName;
+        }
+
+        @Nullable
+        String getPlanName() {
+            return planName;
+        }
+    }
+
+}
@@ -13,14 +13,20 @@
  */
 package org.apache.jackrabbit.oak.query;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.jackrabbit.oak.api.PropertyValue;
 import org.apache.jackrabbit.oak.api.Result;
@@ -46,10 +52,21 @@ import com.google.common.collect.PeekingIterator;
 
 /**
  * Represents a union query.
+ * <p>
+ * If enabled in the settings, the subqueries are read concurrently: each
+ * subquery is read in batches using the query executor, one batch ahead of the
+ * consumer, with its own root on the same state, and the rows are then merged
+ * as usual.
  */
 public class UnionQueryImpl implements Query {
     
     private static final Logger LOG = LoggerFactory.getLogger(UnionQueryImpl.class);
+
+    /**
+     * The number of rows read at once per subquery, if the subqueries are
+     * read concurrently.
+     */
+    static final int PREFETCH_BATCH_SIZE = 100;
     
     private final boolean unionAll;
     private final Query left, right;
@@ -62,6 +79,12 @@ public class UnionQueryImpl implements Query {
     private long size = -1;
     private final QueryEngineSettings settings;
     private boolean isInternal;
+
+    /**
+     * The index of the first subquery of this union within the statement.
+     * Nested unions are numbered depth-first.
+     */
+    private int branchOffset;
     
     UnionQueryImpl(final boolean unionAll, final Query left, final Query right,
                    final QueryEngineSettings settings) {
@@ -311,7 +334,23 @@ public class UnionQueryImpl implements Query {
         boolean distinct = !unionAll;
         Comparator<ResultRowImpl> orderBy = ResultRowImpl.getComparator(orderings);
 
-        FacetMerger facetMerger = new FacetMerger(left, right);
+        FacetMerger facetMerger;
+        Closeable branches = null;
+        if (settings.isParallelUnion() && !measure) {
+            ColumnImpl[] cols = left.getColumns();
+            int rightOffset = branchOffset + getBranchCount(left);
+            Iterator<ResultRowImpl> l = getBranchRows(left, branchOffset);
+            Iterator<ResultRowImpl> r = getBranchRows(right, rightOffset);
+            branches = () -> {
+                FilterIterators.close(l);
+                FilterIterators.close(r);
+            };
+            facetMerger = new FacetMerger(cols, l, r);
+        } else {
+            readByCaller(left);
+            readByCaller(right);
+            facetMerger = new FacetMerger(left, right);
+        }
 
         Iterator<ResultRowImpl> it;
         final Iterator<ResultRowImpl> leftRows = facetMerger.getLeftIterator();;
@@ -331,6 +370,11 @@ public class UnionQueryImpl implements Query {
             // So use mergeSorted here.
             it = Iterators.mergeSorted(ImmutableList.of(leftIter, rightIter), orderBy);
         }
+        if (branches != null) {
+            // stop reading the subqueries once the limit is reached,
+            // or if the caller closes the iterator
+            it = new ClosingIterator(it, branches);
+        }
 
         it = FilterIterators.newCombinedFilter(it, distinct, limit.orElse(Long.MAX_VALUE), offset.orElse(0L), null, settings);
 
@@ -373,6 +417,43 @@ public class UnionQueryImpl implements Query {
         return it;     
     }
 
+    private static int getBranchCount(Query q) {
+        if (q instanceof UnionQueryImpl) {
+            UnionQueryImpl u = (UnionQueryImpl) q;
+            return getBranchCount(u.left) + getBranchCount(u.right);
+        }
+        return 1;
+    }
+
+    private Iterator<ResultRowImpl> getBranchRows(Query q, int branch) {
+        if (q instanceof UnionQueryImpl) {
+            // the subqueries of the nested union are read concurrently;
+            // the nested union itself is merged by the calling thread,
+            // so that tasks never wait for other tasks
+            UnionQueryImpl u = (UnionQueryImpl) q;
+            u.branchOffset = branch;
+            return u.getRows();
+        }
+        if (!(q instanceof QueryImpl)) {
+            return q.getRows();
+        }
+        QueryImpl query = (QueryImpl) q;
+        readByCaller(query);
+        ExecutionContext context = query.getExecutionContext().newConcurrentContext();
+        if (context == null) {
+            // for example, if there are transient changes
+            return query.getRows();
+        }
+        query.setConcurrentContext(context);
+        return new PrefetchIterator(query, branch, settings.getQueryExecutor());
+    }
+
+    private static void readByCaller(Query q) {
+        if (q instanceof QueryImpl) {
+            ((QueryImpl) q).setConcurrentContext(null);
+        }
+    }
+
     @Override
     public void setInternal(boolean isInternal) {
         this.isInternal = isInternal;
@@ -434,19 +515,194 @@ public class UnionQueryImpl implements Query {
         return left.getQueryExecutionStats();
     }
 
+    /**
+     * An iterator over the rows of a subquery that reads the rows in batches
+     * using an executor. The next batch is read while the current batch is
+     * consumed. At most one task per subquery is submitted at any time, so
+     * that no task is left waiting if the consumer stops early.
+     * <p>
+     * The subquery reads the rows with its own root (see
+     * {@link ExecutionContext#newConcurrentContext()}), which is only used by
+     * the task. The trees of the returned rows are read again from the root
+     * of the caller. Closing the iterator stops reading the subquery.
+     */
+    static class PrefetchIterator extends AbstractIterator<ResultRowImpl> implements Closeable {
+
+        private final QueryImpl query;
+        private final int branch;
+        private final ExecutorService executor;
+        private Iterator<ResultRowImpl> rows;
+        private Future<List<BranchRow>> next;
+        private Iterator<BranchRow> current = Collections.emptyIterator();
+        private boolean end;
+        private volatile boolean closed;
+
+        /**
+         * Whether a task was submitted that did not finish yet. Guarded by
+         * this.
+         */
+        private boolean running;
+
+        PrefetchIterator(QueryImpl query, int branch, ExecutorService executor) {
+            this.query = query;
+            this.branch = branch;
+            this.executor = executor;
+            submit();
+        }
+
+        private void submit() {
+            synchronized (this) {
+                running = true;
+            }
+            next = executor.submit(this::fetch);
+        }
+
+        private List<BranchRow> fetch() {
+            long nanos = System.nanoTime();
+            try {
+                if (rows == null) {
+                    rows = query.getRows();
+                }
+                List<BranchRow> batch = new ArrayList<BranchRow>(PREFETCH_BATCH_SIZE);
+                while (!closed && batch.size() < PREFETCH_BATCH_SIZE && rows.hasNext()) {
+                    ResultRowImpl row = rows.next();
+                    batch.add(new BranchRow(row, row.getTreePaths()));
+                }
+                return batch;
+            } finally {
+                QueryExecutionStats stats = query.getQueryExecutionStats();
+                if (stats != null) {
+                    stats.unionBranch(branch, System.nanoTime() - nanos);
+                }
+                synchronized (this) {
+                    running = false;
+                    if (closed) {
+                        closeRows();
+                    }
+                }
+            }
+        }
+
+        @Override
+        protected ResultRowImpl computeNext() {
+            while (!current.hasNext()) {
+                if (end || closed) {
+                    return endOfData();
+                }
+                List<BranchRow> batch = getNextBatch();
+                if (batch.size() < PREFETCH_BATCH_SIZE) {
+                    end = true;
+                } else {
+                    submit();
+                }
+                current = batch.iterator();
+            }
+            BranchRow b = current.next();
+            return b.row.withTrees(b.paths);
+        }
+
+        private List<BranchRow> getNextBatch() {
+            try {
+                return next.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while reading " + query, e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException("Could not read " + query, cause);
+            } finally {
+                next = null;
+            }
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                if (next != null && next.cancel(false)) {
+                    // the task didn't start
+                    running = false;
+                }
+                next = null;
+                if (!running) {
+                    closeRows();
+                }
+            }
+            current = Collections.emptyIterator();
+        }
+
+        private void closeRows() {
+            if (rows != null) {
+                FilterIterators.close(rows);
+                rows = null;
+            }
+        }
+
+        /**
+         * A row read by the task, with the paths of its trees.
+         */
+        private static class BranchRow {
+
+            final ResultRowImpl row;
+            final String[] paths;
+
+            BranchRow(ResultRowImpl row, String[] paths) {
+                this.row = row;
+                this.paths = paths;
+            }
+        }
+    }
+
+    /**
+     * An iterator that closes the subqueries of a union when it is closed.
+     */
+    static class ClosingIterator implements Iterator<ResultRowImpl>, Closeable {
+
+        private final Iterator<ResultRowImpl> source;
+        private final Closeable branches;
+
+        ClosingIterator(Iterator<ResultRowImpl> source, Closeable branches) {
+            this.source = source;
+            this.branches = branches;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return source.hasNext();
+        }
+
+        @Override
+        public ResultRowImpl next() {
+            return source.next();
+        }
+
+        @Override
+        public void close() throws IOException {
+            branches.close();
+        }
+    }
+
     static class FacetMerger {
 
         private final Iterator<ResultRowImpl> leftIterator;
         private final Iterator<ResultRowImpl> rightIterator;
 
         FacetMerger(Query left, Query right) {
-            ColumnImpl[] columns = left.getColumns();
+            this(left.getColumns(), left.getRows(), right.getRows());
+        }
+
+        FacetMerger(ColumnImpl[] columns, Iterator<ResultRowImpl> lIter, Iterator<ResultRowImpl> rIter) {
             String[] columnNames = new String[columns.length];
             Arrays.setAll(columnNames, i -> columns[i].getColumnName());
 
-            Iterator<ResultRowImpl> lIter = left.getRows();
-            Iterator<ResultRowImpl> rIter = right.getRows();
-
             if (!hasFacets(columnNames) || !bothHaveRows(lIter, rIter)) {
                 this.leftIterator = lIter;
                 this.rightIterator = rIter;
@@ -60,6 +60,38 @@ public class EquiJoinConditionImpl extends JoinConditionImpl {
         selector2 = source.getExistingSelector(selector2Name);
     }
 
+    /**
+     * Get the value of the join property of the given selector for the
+     * current row.
+     * 
+     * @param s the selector (one of the two selectors of this condition)
+     * @return the value, or null if not set
+     */
+    PropertyValue currentProperty(SelectorImpl s) {
+        if (s == selector1) {
+            return selector1.currentProperty(property1Name);
+        } else if (s == selector2) {
+            return selector2.currentProperty(property2Name);
+        }
+        throw new IllegalArgumentException("Unknown selector " + s);
+    }
+
+    /**
+     * Get the other selector of this condition.
+     * 
+     * @param s the selector
+     * @return the other selector, or null if the given selector is not one
+     *         of the selectors of this condition
+     */
+    SelectorImpl getOtherSelector(SelectorImpl s) {
+        if (s == selector1) {
+            return selector2;
+        } else if (s == selector2) {
+            return selector1;
+        }
+        return null;
+    }
+
     @Override
     public boolean evaluate() {
         // 6.7.8 EquiJoinCondition
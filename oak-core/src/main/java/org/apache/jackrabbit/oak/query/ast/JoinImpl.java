@@ -16,19 +16,42 @@ package org.apache.jackrabbit.oak.query.ast;
 import static org.apache.jackrabbit.oak.query.ast.AstElementFactory.copyElementAndCheckReference;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import org.apache.jackrabbit.oak.api.PropertyValue;
 import org.apache.jackrabbit.oak.api.Result.SizePrecision;
+import org.apache.jackrabbit.oak.api.Type;
 import org.apache.jackrabbit.oak.query.plan.ExecutionPlan;
 import org.apache.jackrabbit.oak.query.plan.JoinExecutionPlan;
+import org.apache.jackrabbit.oak.query.plan.JoinExecutionPlan.Strategy;
+import org.apache.jackrabbit.oak.query.plan.SelectorExecutionPlan;
 import org.apache.jackrabbit.oak.spi.query.Filter;
+import org.apache.jackrabbit.oak.spi.query.IndexRow;
 import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Sets;
 
 /**
  * A join. This object contains the left hand side source, the right hand side
  * source, the join type, and the join condition.
+ * <p>
+ * By default, the join is executed as a nested loop: for each row of the left
+ * hand side, the right hand side is executed, restricted by the join
+ * condition. If enabled, an equi-join where the right hand side is a selector
+ * that can only evaluate the join condition by traversal is executed as a hash
+ * join instead: the right hand side is read once into a hash table.
  */
 public class JoinImpl extends SourceImpl {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JoinImpl.class);
+
     private final JoinConditionImpl joinCondition;
     private JoinType joinType;
     private SourceImpl left;
@@ -42,6 +65,24 @@ public class JoinImpl extends SourceImpl {
     
     private JoinExecutionPlan plan;
 
+    /**
+     * The rows of the right hand side by value of the join property, for a
+     * hash join (built on demand).
+     */
+    private Map<String, List<IndexRow>> hashTable;
+
+    /**
+     * The type of all join property values of the hash table, or null if the
+     * table is empty. Only values of this type are looked up in the table.
+     */
+    private Type<?> hashTableType;
+
+    /**
+     * Whether the hash table could not be built (too many rows, or values of
+     * different types), so that a nested loop is used.
+     */
+    private boolean hashJoinFallback;
+
     public JoinImpl(SourceImpl left, SourceImpl right, JoinType joinType,
             JoinConditionImpl joinCondition) {
         this.left = left;
@@ -107,6 +148,9 @@ public class JoinImpl extends SourceImpl {
             append(right.getPlan(rootState)).
             append(" on ").
             append(joinCondition);
+        if (plan != null && plan.getStrategy() == Strategy.HASH) {
+            buff.append(" /* hash join */");
+        }
         return buff.toString();
     }
 
@@ -133,6 +177,8 @@ public class JoinImpl extends SourceImpl {
         left.unprepare();
         right.unprepare();
         plan = null;
+        hashTable = null;
+        hashTableType = null;
     }
     
     private void applyJoinConditions() {
@@ -176,6 +222,10 @@ public class JoinImpl extends SourceImpl {
         applyJoinConditions();
         left.prepare(joinPlan.getLeftPlan());
         right.prepare(joinPlan.getRightPlan());
+        if (joinPlan.getStrategy() == Strategy.HASH) {
+            ((SelectorImpl) right).prepareHashJoin(
+                    (SelectorExecutionPlan) joinPlan.getHashJoinPlan());
+        }
     }
 
     @Override
@@ -190,11 +240,49 @@ public class JoinImpl extends SourceImpl {
         // on the left selector)
         ExecutionPlan leftPlan = left.prepare();
         ExecutionPlan rightPlan = right.prepare();
-        double cost = leftPlan.getEstimatedCost() + 2 * rightPlan.getEstimatedCost();
-        plan = new JoinExecutionPlan(this, leftPlan, rightPlan, cost);
+        double leftCost = leftPlan.getEstimatedCost();
+        double rightCost = rightPlan.getEstimatedCost();
+        double cost = leftCost + 2 * rightCost;
+        if (leftPlan instanceof SelectorExecutionPlan) {
+            // if statistics are available, we know how often
+            // the right selector is executed
+            long leftRows = ((SelectorExecutionPlan) leftPlan).getEstimatedRowCount();
+            if (leftRows >= 0) {
+                cost = leftCost + Math.max(1, leftRows) * rightCost;
+            }
+        }
+        if (Double.isInfinite(leftCost) || Double.isInfinite(rightCost) || Double.isNaN(cost)) {
+            // a selector that can't be executed makes the join infinitely
+            // expensive, so that costs are always comparable
+            cost = Double.POSITIVE_INFINITY;
+        }
+        if (canUseHashJoin()) {
+            // the right selector is read only once
+            SelectorExecutionPlan hashJoinPlan = ((SelectorImpl) right).prepareHashJoin();
+            cost = leftPlan.getEstimatedCost() + hashJoinPlan.getEstimatedCost();
+            plan = new JoinExecutionPlan(this, leftPlan, rightPlan, cost,
+                    Strategy.HASH, hashJoinPlan);
+        } else {
+            plan = new JoinExecutionPlan(this, leftPlan, rightPlan, cost);
+        }
         return plan;
     }
 
+    private boolean canUseHashJoin() {
+        if (!(joinCondition instanceof EquiJoinConditionImpl) || !(right instanceof SelectorImpl)) {
+            return false;
+        }
+        SelectorImpl s = (SelectorImpl) right;
+        if (!s.getQuery().getSettings().isHashJoin()) {
+            return false;
+        }
+        if (((EquiJoinConditionImpl) joinCondition).getOtherSelector(s) == null) {
+            return false;
+        }
+        // if the join condition can use an index, a nested loop is fast
+        return s.isTraversingJoin();
+    }
+
     @Override
     public SelectorImpl getSelector(String selectorName) {
         SelectorImpl s = left.getSelector(selectorName);
@@ -209,6 +297,9 @@ public class JoinImpl extends SourceImpl {
         this.rootState = rootState;
         leftNeedExecute = true;
         end = false;
+        hashTable = null;
+        hashTableType = null;
+        hashJoinFallback = false;
     }
 
     @Override
@@ -255,7 +346,7 @@ public class JoinImpl extends SourceImpl {
                 rightNeedExecute = true;
             }
             if (rightNeedExecute) {
-                right.execute(rootState);
+                executeRight();
                 foundJoinedRow = false;
                 rightNeedExecute = false;
             }
@@ -275,6 +366,118 @@ public class JoinImpl extends SourceImpl {
         }
     }
     
+    private void executeRight() {
+        if (plan != null && plan.getStrategy() == Strategy.HASH && !hashJoinFallback) {
+            if (hashTable == null) {
+                buildHashTable();
+            }
+            if (hashTable != null) {
+                List<IndexRow> candidates = getHashJoinCandidates();
+                if (candidates != null) {
+                    ((SelectorImpl) right).executeHashJoinProbe(candidates);
+                    return;
+                }
+            }
+        }
+        right.execute(rootState);
+    }
+
+    private void buildHashTable() {
+        SelectorImpl s = (SelectorImpl) right;
+        EquiJoinConditionImpl c = (EquiJoinConditionImpl) joinCondition;
+        int maxRows = s.getQuery().getSettings().getHashJoinMaxRows();
+        Map<String, List<IndexRow>> table = new HashMap<String, List<IndexRow>>();
+        Type<?> tableType = null;
+        s.executeHashJoinBuild(rootState);
+        int count = 0;
+        while (s.next()) {
+            if (++count > maxRows) {
+                LOG.debug("More than {} rows for the hash join {}, using a nested loop", maxRows, this);
+                hashJoinFallback = true;
+                return;
+            }
+            PropertyValue v = c.currentProperty(s);
+            if (v == null) {
+                // can never match
+                continue;
+            }
+            Type<?> type = getBaseType(v);
+            if (!isHashKeyType(type) || (tableType != null && type != tableType)) {
+                // the join condition converts values, so that values with
+                // a different text representation can match
+                LOG.debug("Join property of type {} for the hash join {}, using a nested loop", type, this);
+                hashJoinFallback = true;
+                return;
+            }
+            tableType = type;
+            IndexRow row = s.currentIndexRow();
+            for (String key : Sets.newLinkedHashSet(v.getValue(Type.STRINGS))) {
+                List<IndexRow> list = table.get(key);
+                if (list == null) {
+                    list = new ArrayList<IndexRow>();
+                    table.put(key, list);
+                }
+                list.add(row);
+            }
+        }
+        hashTable = table;
+        hashTableType = tableType;
+    }
+
+    private static Type<?> getBaseType(PropertyValue v) {
+        Type<?> type = v.getType();
+        return type.isArray() ? type.getBaseType() : type;
+    }
+
+    /**
+     * Whether two values of this type match exactly if their text
+     * representation is equal. This is not the case for numbers (1 and 1.0),
+     * dates (time zones), and binaries.
+     *
+     * @param type the base type
+     * @return true if values can be looked up by their text representation
+     */
+    private static boolean isHashKeyType(Type<?> type) {
+        return type == Type.STRING || type == Type.NAME || type == Type.PATH ||
+                type == Type.REFERENCE || type == Type.WEAKREFERENCE || type == Type.URI;
+    }
+
+    /**
+     * Get the rows of the right hand side that could match the current row of
+     * the left hand side. The join condition is evaluated for each of them.
+     * 
+     * @return the candidate rows, or null if the value of the left hand side
+     *         has a different type than the values in the hash table, in
+     *         which case the right hand side needs to be read
+     */
+    private List<IndexRow> getHashJoinCandidates() {
+        EquiJoinConditionImpl c = (EquiJoinConditionImpl) joinCondition;
+        PropertyValue v = c.currentProperty(c.getOtherSelector((SelectorImpl) right));
+        if (v == null || hashTable.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (getBaseType(v) != hashTableType) {
+            return null;
+        }
+        if (!v.isArray()) {
+            List<IndexRow> list = hashTable.get(v.getValue(Type.STRING));
+            return list == null ? Collections.<IndexRow>emptyList() : list;
+        }
+        List<IndexRow> result = new ArrayList<IndexRow>();
+        Set<IndexRow> added = Collections.newSetFromMap(new IdentityHashMap<IndexRow, Boolean>());
+        for (String key : v.getValue(Type.STRINGS)) {
+            List<IndexRow> list = hashTable.get(key);
+            if (list != null) {
+                for (IndexRow row : list) {
+                    if (added.add(row)) {
+                        result.add(row);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
     @Override
     public boolean isOuterJoinRightHandSide() {
         return left.isOuterJoinRightHandSide() || right.isOuterJoinRightHandSide();
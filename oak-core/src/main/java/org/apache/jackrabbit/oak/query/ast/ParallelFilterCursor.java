@@ -0,0 +1,305 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.query.ast;
+
+import static org.apache.jackrabbit.JcrConstants.JCR_MIXINTYPES;
+import static org.apache.jackrabbit.JcrConstants.JCR_PRIMARYTYPE;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javax.jcr.PropertyType;
+
+import org.apache.jackrabbit.oak.api.PropertyState;
+import org.apache.jackrabbit.oak.api.PropertyValue;
+import org.apache.jackrabbit.oak.api.Result.SizePrecision;
+import org.apache.jackrabbit.oak.plugins.index.Cursors;
+import org.apache.jackrabbit.oak.plugins.memory.PropertyValues;
+import org.apache.jackrabbit.oak.query.QueryEngineSettings;
+import org.apache.jackrabbit.oak.query.index.FilterImpl;
+import org.apache.jackrabbit.oak.spi.query.Cursor;
+import org.apache.jackrabbit.oak.spi.query.Filter.PropertyRestriction;
+import org.apache.jackrabbit.oak.spi.query.IndexRow;
+import org.apache.jackrabbit.oak.spi.query.QueryConstants;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.apache.jackrabbit.oak.spi.state.NodeStateUtils;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A cursor that reads rows of the wrapped cursor in batches, and removes rows
+ * that can not match the selector. The rows of a batch are checked
+ * concurrently on a fork-join pool, and the order of the rows is kept.
+ * <p>
+ * Only the conditions that can be checked on the (immutable and thread-safe)
+ * base node state are checked: whether the node exists, the node type, and
+ * "is not null" and equality restrictions on properties of the node. The
+ * selector still evaluates all constraints and the access rights of the
+ * remaining rows, as the permission provider of a session can only be used
+ * by one thread.
+ */
+class ParallelFilterCursor extends Cursors.AbstractCursor {
+
+    /**
+     * Below this number of rows, a task checks the rows itself instead of
+     * splitting the work.
+     */
+    private static final int SPLIT_THRESHOLD = 16;
+
+    private final SelectorImpl selector;
+    private final Cursor cursor;
+    private final RowFilter filter;
+    private final ForkJoinPool pool;
+    private final QueryEngineSettings settings;
+    private final int batchSize;
+    private final Deque<IndexRow> buffer;
+    private long readCount;
+
+    private ParallelFilterCursor(SelectorImpl selector, Cursor cursor,
+            RowFilter filter, QueryEngineSettings settings) {
+        this.selector = selector;
+        this.cursor = cursor;
+        this.filter = filter;
+        this.settings = settings;
+        this.pool = settings.getFilterPool();
+        this.batchSize = Math.max(1, settings.getParallelFilterBatchSize());
+        this.buffer = new ArrayDeque<IndexRow>(batchSize);
+    }
+
+    /**
+     * Wrap the cursor, if there is anything that can be checked concurrently.
+     *
+     * @param selector the selector
+     * @param cursor the cursor to wrap
+     * @param f the filter of the selector
+     * @param rootState the base state
+     * @return the wrapped cursor, or the cursor itself
+     */
+    static Cursor wrap(SelectorImpl selector, Cursor cursor, FilterImpl f, NodeState rootState) {
+        RowFilter filter = RowFilter.create(selector, f, rootState);
+        if (filter == null) {
+            return cursor;
+        }
+        return new ParallelFilterCursor(selector, cursor, filter,
+                selector.getQuery().getSettings());
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (buffer.isEmpty()) {
+            if (!fetch()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public IndexRow next() {
+        if (!hasNext()) {
+            throw new IllegalStateException("This cursor is closed");
+        }
+        return buffer.poll();
+    }
+
+    private boolean fetch() {
+        List<IndexRow> rows = new ArrayList<IndexRow>(batchSize);
+        while (rows.size() < batchSize && cursor.hasNext()) {
+            rows.add(cursor.next());
+            Cursors.checkReadLimit(++readCount, settings);
+        }
+        if (rows.isEmpty()) {
+            return false;
+        }
+        boolean[] accepted = new boolean[rows.size()];
+        pool.invoke(new FilterTask(filter, rows, accepted, 0, rows.size()));
+        int rejected = 0;
+        for (int i = 0; i < accepted.length; i++) {
+            if (accepted[i]) {
+                buffer.add(rows.get(i));
+            } else {
+                rejected++;
+            }
+        }
+        if (rejected > 0) {
+            selector.skipped(rejected);
+        }
+        return true;
+    }
+
+    @Override
+    public long getSize(SizePrecision precision, long max) {
+        return cursor.getSize(precision, max);
+    }
+
+    /**
+     * Checks a range of rows, splitting the range if it is large.
+     */
+    private static class FilterTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final RowFilter filter;
+        private final List<IndexRow> rows;
+        private final boolean[] accepted;
+        private final int start, end;
+
+        FilterTask(RowFilter filter, List<IndexRow> rows, boolean[] accepted, int start, int end) {
+            this.filter = filter;
+            this.rows = rows;
+            this.accepted = accepted;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= SPLIT_THRESHOLD) {
+                for (int i = start; i < end; i++) {
+                    accepted[i] = filter.accept(rows.get(i));
+                }
+                return;
+            }
+            int mid = (start + end) >>> 1;
+            invokeAll(new FilterTask(filter, rows, accepted, start, mid),
+                    new FilterTask(filter, rows, accepted, mid, end));
+        }
+
+    }
+
+    /**
+     * The conditions of a selector that can be checked concurrently. All
+     * conditions are necessary conditions: a row that is rejected could not
+     * possibly match the selector.
+     */
+    static class RowFilter {
+
+        private final NodeState rootState;
+        private final Set<String> primaryTypes;
+        private final Set<String> mixinTypes;
+        private final List<String> notNull;
+        private final List<PropertyRestriction> equality;
+
+        private RowFilter(NodeState rootState, Set<String> primaryTypes,
+                Set<String> mixinTypes, List<String> notNull,
+                List<PropertyRestriction> equality) {
+            this.rootState = rootState;
+            this.primaryTypes = primaryTypes;
+            this.mixinTypes = mixinTypes;
+            this.notNull = notNull;
+            this.equality = equality;
+        }
+
+        /**
+         * Create the filter for a selector.
+         *
+         * @return the filter, or null if there is nothing to check
+         */
+        @Nullable
+        static RowFilter create(SelectorImpl selector, FilterImpl f, NodeState rootState) {
+            List<String> notNull = new ArrayList<String>();
+            List<PropertyRestriction> equality = new ArrayList<PropertyRestriction>();
+            for (PropertyRestriction pr : f.getPropertyRestrictions()) {
+                if (!isNodeProperty(pr.propertyName) || pr.propertyType != PropertyType.UNDEFINED) {
+                    continue;
+                }
+                if (pr.isNotNullRestriction()) {
+                    notNull.add(pr.propertyName);
+                } else if (pr.first != null && pr.first.equals(pr.last)
+                        && pr.firstIncluding && pr.lastIncluding
+                        && pr.list == null && !pr.isLike && !pr.isNot) {
+                    equality.add(pr);
+                }
+            }
+            if (selector.matchesAllTypes() && notNull.isEmpty() && equality.isEmpty()) {
+                // existence alone is checked by the selector anyway
+                return null;
+            }
+            return new RowFilter(rootState,
+                    selector.matchesAllTypes() ? null : selector.getPrimaryTypes(),
+                    selector.matchesAllTypes() ? null : selector.getMixinTypes(),
+                    notNull, equality);
+        }
+
+        private static boolean isNodeProperty(String propertyName) {
+            // relative properties, functions, and pseudo properties
+            // such as jcr:path, jcr:score, and rep:excerpt are skipped
+            return propertyName.indexOf('/') < 0
+                    && propertyName.indexOf('*') < 0
+                    && !propertyName.startsWith(":")
+                    && !propertyName.startsWith("rep:")
+                    && !propertyName.startsWith("oak:")
+                    && !propertyName.equals(QueryConstants.JCR_PATH)
+                    && !propertyName.equals(QueryConstants.JCR_SCORE);
+        }
+
+        boolean accept(IndexRow row) {
+            if (row.isVirtualRow()) {
+                return true;
+            }
+            String path = row.getPath();
+            if (path == null) {
+                return true;
+            }
+            NodeState node = NodeStateUtils.getNode(rootState, path);
+            if (!node.exists()) {
+                return false;
+            }
+            if (primaryTypes != null && !matchesType(node)) {
+                return false;
+            }
+            for (String name : notNull) {
+                if (!node.hasProperty(name)) {
+                    return false;
+                }
+            }
+            for (PropertyRestriction pr : equality) {
+                PropertyState p = node.getProperty(pr.propertyName);
+                if (p == null) {
+                    return false;
+                }
+                PropertyValue v = PropertyValues.create(p);
+                // values of other types are converted by the selector;
+                // only compare values of the same type here
+                if (v.getType().tag() == pr.first.getType().tag()
+                        && !PropertyValues.match(v, pr.first)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean matchesType(NodeState node) {
+            String primaryType = node.getName(JCR_PRIMARYTYPE);
+            if (primaryType != null && primaryTypes.contains(primaryType)) {
+                return true;
+            }
+            for (String mixin : node.getNames(JCR_MIXINTYPES)) {
+                if (mixinTypes.contains(mixin)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+    }
+
+}
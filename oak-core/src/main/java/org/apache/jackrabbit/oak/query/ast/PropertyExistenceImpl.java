@@ -68,6 +68,10 @@ public class PropertyExistenceImpl extends ConstraintImpl {
         return quote(selectorName) + '.' + quote(propertyName) + " is not null";
     }
 
+    public String getPropertyName() {
+        return propertyName;
+    }
+
     public void bindSelector(SourceImpl source) {
         selector = source.getExistingSelector(selectorName);
     }
@@ -103,6 +103,10 @@ public class PropertyInexistenceImpl extends ConstraintImpl {
         return quote(selectorName) + '.' + quote(propertyName) + " is null";
     }
 
+    public String getPropertyName() {
+        return propertyName;
+    }
+
     public void bindSelector(SourceImpl source) {
         selector = source.getExistingSelector(selectorName);
     }
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.query.ast;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.jackrabbit.oak.spi.query.QueryConstants;
+
+/**
+ * Collects the (normalized) names of the properties a single-selector query
+ * reads from the nodes of its selector, to find out whether an index covers
+ * the query. Properties that are not read from the node itself (relative
+ * properties, or properties with wildcards), and full-text conditions, make
+ * the query not coverable.
+ */
+class PropertyUsageVisitor extends AstVisitorBase {
+
+    private final SelectorImpl selector;
+    private final boolean fulltextIndex;
+    private final Set<String> properties = new HashSet<String>();
+    private boolean coverable = true;
+
+    /**
+     * Create a visitor.
+     *
+     * @param selector the selector
+     * @param fulltextIndex whether full-text conditions are evaluated by the
+     *            index
+     */
+    PropertyUsageVisitor(SelectorImpl selector, boolean fulltextIndex) {
+        this.selector = selector;
+        this.fulltextIndex = fulltextIndex;
+    }
+
+    /**
+     * Whether all properties the query reads are returned by the index.
+     *
+     * @param covered the covered properties
+     * @return true if the query is covered
+     */
+    boolean isCoveredBy(Set<String> covered) {
+        if (!coverable) {
+            return false;
+        }
+        for (String p : properties) {
+            if (!covered.contains(p) && !isPseudoProperty(p)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether the value of the given property is not read from the node,
+     * but from the path or the index row.
+     *
+     * @param oakPropertyName the property name
+     * @return true for pseudo-properties such as jcr:path
+     */
+    static boolean isPseudoProperty(String oakPropertyName) {
+        return oakPropertyName.equals(QueryConstants.JCR_PATH)
+                || oakPropertyName.equals(QueryConstants.JCR_SCORE)
+                || oakPropertyName.equals(QueryConstants.OAK_SCORE_EXPLANATION)
+                || oakPropertyName.equals(QueryConstants.REP_SPELLCHECK)
+                || oakPropertyName.equals(QueryConstants.REP_SUGGEST)
+                || oakPropertyName.equals(QueryConstants.REP_EXCERPT)
+                || oakPropertyName.startsWith(QueryConstants.REP_EXCERPT + "(")
+                || oakPropertyName.startsWith(QueryConstants.REP_FACET + "(");
+    }
+
+    private void use(String propertyName) {
+        String pn = selector.normalizePropertyName(propertyName);
+        if (isPseudoProperty(pn)) {
+            return;
+        }
+        if (pn.indexOf('/') >= 0 || pn.indexOf('*') >= 0) {
+            coverable = false;
+        }
+        properties.add(pn);
+    }
+
+    @Override
+    public boolean visit(ColumnImpl node) {
+        use(node.getPropertyName());
+        return true;
+    }
+
+    @Override
+    public boolean visit(PropertyValueImpl node) {
+        use(node.getPropertyName());
+        return true;
+    }
+
+    @Override
+    public boolean visit(PropertyExistenceImpl node) {
+        use(node.getPropertyName());
+        return true;
+    }
+
+    @Override
+    public boolean visit(PropertyInexistenceImpl node) {
+        use(node.getPropertyName());
+        return true;
+    }
+
+    @Override
+    public boolean visit(FullTextSearchImpl node) {
+        if (!fulltextIndex) {
+            coverable = false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean visit(BindVariableValueImpl node) {
+        return true;
+    }
+
+    @Override
+    public boolean visit(ChildNodeImpl node) {
+        return true;
+    }
+
+    @Override
+    public boolean visit(ChildNodeJoinConditionImpl node) {
+        return true;
+    }
+
+    @Override
+    public boolean visit(DescendantNodeImpl node) {
+        return true;
+    }
+
+    @Override
+    public boolean visit(DescendantNodeJoinConditionImpl node) {
+        return true;
+    }
+
+    @Override
+    public boolean visit(EquiJoinConditionImpl node) {
+        return true;
+    }
+
+    @Override
+    public boolean visit(FullTextSearchScoreImpl node) {
+        return true;
+    }
+
+    @Override
+    public boolean visit(LiteralImpl node) {
+        return true;
+    }
+
+    @Override
+    public boolean visit(NodeLocalNameImpl node) {
+        return true;
+    }
+
+    @Override
+    public boolean visit(NodeNameImpl node) {
+        return true;
+    }
+
+    @Override
+    public boolean visit(PathImpl node) {
+        return true;
+    }
+
+    @Override
+    public boolean visit(SameNodeImpl node) {
+        return true;
+    }
+
+    @Override
+    public boolean visit(SameNodeJoinConditionImpl node) {
+        return true;
+    }
+
+    @Override
+    public boolean visit(SelectorImpl node) {
+        return true;
+    }
+
+}
@@ -20,10 +20,13 @@ package org.apache.jackrabbit.oak.query.ast;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.collect.Lists.newArrayList;
+import static org.apache.jackrabbit.JcrConstants.JCR_MIXINTYPES;
+import static org.apache.jackrabbit.JcrConstants.JCR_PRIMARYTYPE;
 import static org.apache.jackrabbit.JcrConstants.NT_BASE;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -31,6 +34,7 @@ import java.util.concurrent.TimeUnit;
 import org.apache.jackrabbit.oak.api.PropertyState;
 import org.apache.jackrabbit.oak.api.PropertyValue;
 import org.apache.jackrabbit.oak.api.Result.SizePrecision;
+import org.apache.jackrabbit.oak.api.Root;
 import org.apache.jackrabbit.oak.api.Tree;
 import org.apache.jackrabbit.oak.api.Type;
 import org.apache.jackrabbit.oak.commons.LazyValue;
@@ -39,6 +43,7 @@ import org.apache.jackrabbit.oak.core.ImmutableRoot;
 import org.apache.jackrabbit.oak.plugins.memory.PropertyBuilder;
 import org.apache.jackrabbit.oak.plugins.metric.util.StatsProviderUtil;
 import org.apache.jackrabbit.oak.plugins.tree.TreeUtil;
+import org.apache.jackrabbit.oak.plugins.tree.factories.TreeFactory;
 import org.apache.jackrabbit.oak.query.ExecutionContext;
 import org.apache.jackrabbit.oak.query.QueryEngineSettings;
 import org.apache.jackrabbit.oak.query.QueryImpl;
@@ -46,9 +51,11 @@ import org.apache.jackrabbit.oak.query.QueryOptions;
 import org.apache.jackrabbit.oak.query.RuntimeNodeTraversalException;
 import org.apache.jackrabbit.oak.spi.query.fulltext.FullTextExpression;
 import org.apache.jackrabbit.oak.query.index.FilterImpl;
+import org.apache.jackrabbit.oak.query.index.TraversingIndex;
 import org.apache.jackrabbit.oak.query.plan.ExecutionPlan;
 import org.apache.jackrabbit.oak.query.plan.SelectorExecutionPlan;
 import org.apache.jackrabbit.oak.spi.query.Cursor;
+import org.apache.jackrabbit.oak.spi.query.Filter.PathRestriction;
 import org.apache.jackrabbit.oak.plugins.index.Cursors;
 import org.apache.jackrabbit.oak.plugins.index.IndexConstants;
 import org.apache.jackrabbit.oak.spi.query.IndexRow;
@@ -56,8 +63,12 @@ import org.apache.jackrabbit.oak.plugins.memory.PropertyValues;
 import org.apache.jackrabbit.oak.spi.query.QueryConstants;
 import org.apache.jackrabbit.oak.spi.query.QueryIndex;
 import org.apache.jackrabbit.oak.spi.query.QueryIndex.AdvancedQueryIndex;
+import org.apache.jackrabbit.oak.spi.query.QueryIndex.FulltextQueryIndex;
 import org.apache.jackrabbit.oak.spi.query.QueryIndex.IndexPlan;
+import org.apache.jackrabbit.oak.spi.security.authorization.permission.PermissionProvider;
+import org.apache.jackrabbit.oak.spi.security.authorization.permission.TreePermission;
 import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.apache.jackrabbit.oak.spi.state.PrefetchNodeStore;
 import org.apache.jackrabbit.oak.stats.StatsOptions;
 import org.apache.jackrabbit.oak.stats.TimerStats;
 import org.apache.jackrabbit.oak.stats.CounterStats;
@@ -105,6 +116,18 @@ public class SelectorImpl extends SourceImpl {
      */
     private JoinConditionImpl joinCondition;
 
+    /**
+     * The plan to read all rows without the join condition, if this selector
+     * is the right hand side of a hash join, or null.
+     */
+    private SelectorExecutionPlan hashJoinPlan;
+
+    /**
+     * Whether the join condition is currently ignored (while building the
+     * hash table of a hash join).
+     */
+    private boolean ignoreJoinCondition;
+
     /**
      * The node type associated with the {@link #nodeTypeName}
      */
@@ -177,6 +200,12 @@ public class SelectorImpl extends SourceImpl {
     private IndexRow currentRow;
     private int scanCount;
 
+    /**
+     * The properties that are read from the index rows (without reading the
+     * nodes) for the current execution, or null if the nodes are read.
+     */
+    private Set<String> coveredProperties;
+
     private String planIndexName;
     private TimerStats timerDuration;
 
@@ -274,6 +303,7 @@ public class SelectorImpl extends SourceImpl {
         selectorConstraints.clear();
         isParent = false;
         joinCondition = null;
+        hashJoinPlan = null;
         allJoinConditions.clear();
     }
     
@@ -314,6 +344,83 @@ public class SelectorImpl extends SourceImpl {
     public SelectorExecutionPlan getExecutionPlan() {
         return plan;
     }
+
+    /**
+     * Prepare reading all rows of this selector without the join condition,
+     * so that the rows can be used to build the hash table of a hash join.
+     * 
+     * @return the plan
+     */
+    SelectorExecutionPlan prepareHashJoin() {
+        if (hashJoinPlan == null) {
+            hashJoinPlan = query.getBestSelectorExecutionPlan(createFilter(true, false));
+        }
+        return hashJoinPlan;
+    }
+
+    void prepareHashJoin(SelectorExecutionPlan p) {
+        if (p.getSelector() != this) {
+            throw new IllegalArgumentException("Not a plan for this selector");
+        }
+        hashJoinPlan = p;
+    }
+
+    /**
+     * Whether the join condition can only be evaluated by traversing the
+     * repository for each row of the other side of the join.
+     * 
+     * @return true if the join condition can not use an index
+     */
+    boolean isTraversingJoin() {
+        QueryIndex index = plan == null ? null : plan.getIndex();
+        return index == null || index instanceof TraversingIndex;
+    }
+
+    /**
+     * Execute the query without the join condition, to read all rows for the
+     * hash table of a hash join. The rows are read using {@link #next()} and
+     * {@link #currentIndexRow()}.
+     * 
+     * @param rootState the root state
+     */
+    void executeHashJoinBuild(NodeState rootState) {
+        long start = startTimer();
+        try {
+            ignoreJoinCondition = true;
+            executeInternal(rootState, hashJoinPlan, false);
+        } finally {
+            stopTimer(start, true);
+        }
+    }
+
+    /**
+     * Iterate over the given rows (read before using
+     * {@link #executeHashJoinBuild(NodeState)}). The join condition is
+     * evaluated again for each row.
+     * 
+     * @param rows the rows
+     */
+    void executeHashJoinProbe(List<IndexRow> rows) {
+        ignoreJoinCondition = false;
+        final Iterator<IndexRow> it = rows.iterator();
+        cursor = new Cursors.AbstractCursor() {
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public IndexRow next() {
+                return it.next();
+            }
+
+        };
+    }
+
+    IndexRow currentIndexRow() {
+        return currentRow;
+    }
     
     @Override
     public void setQueryConstraint(ConstraintImpl queryConstraint) {
@@ -341,33 +448,164 @@ public class SelectorImpl extends SourceImpl {
     public void execute(NodeState rootState) {
         long start = startTimer();
         try {
-            executeInternal(rootState);
+            ignoreJoinCondition = false;
+            executeInternal(rootState, plan, true);
         } finally {
             stopTimer(start, true);
         }
     }
     
-    private void executeInternal(NodeState rootState) {
-        QueryIndex index = plan.getIndex();
+    private void executeInternal(NodeState rootState, SelectorExecutionPlan selectorPlan,
+            boolean withJoinCondition) {
+        QueryIndex index = selectorPlan.getIndex();
         timerDuration = null;
+        coveredProperties = null;
         if (index == null) {
             cursor = Cursors.newPathCursor(new ArrayList<String>(), query.getSettings());
             planIndexName = "traverse";
+            query.getQueryExecutionStats().index(planIndexName);
             return;
         }
-        IndexPlan p = plan.getIndexPlan();
+        IndexPlan p = selectorPlan.getIndexPlan();
+        FilterImpl f = createFilter(false, withJoinCondition);
         if (p != null) {
             planIndexName = p.getPlanName();
-            p.setFilter(createFilter(false));
+            p.setFilter(f);
             AdvancedQueryIndex adv = (AdvancedQueryIndex) index;
             cursor = adv.query(p, rootState);
         } else {
-            FilterImpl f = createFilter(false);
             planIndexName = index.getIndexName(f, rootState);
             cursor = index.query(f, rootState);
         }
+        query.getQueryExecutionStats().index(planIndexName);
+        if (canUseCoveringIndex(selectorPlan, f, rootState)) {
+            coveredProperties = selectorPlan.getIndexPlan().getCoveredProperties();
+        }
+        // the nodes are prefetched before the rows are checked concurrently
+        int prefetchCount = query.getSettings().getPrefetchCount();
+        if (prefetchCount > 0) {
+            PrefetchNodeStore store = query.getExecutionContext().getPrefetchNodeStore();
+            if (store != PrefetchNodeStore.NOOP) {
+                cursor = Cursors.newPrefetchCursor(cursor, store, rootState, prefetchCount,
+                        getMaxRowCount());
+            }
+        }
+        if (canFilterInParallel()) {
+            cursor = ParallelFilterCursor.wrap(this, cursor, f, rootState);
+        }
+    }
+
+    /**
+     * Get the number of rows of this selector that are needed, if the query
+     * has a limit and returns the rows in the order of the index.
+     *
+     * @return the limit plus the offset, or Long.MAX_VALUE if all rows
+     *         might be needed
+     */
+    private long getMaxRowCount() {
+        if (query.getSource() != this || !query.getLimit().isPresent()) {
+            return Long.MAX_VALUE;
+        }
+        OrderingImpl[] orderings = query.getOrderings();
+        if (orderings != null && orderings.length > 0 && !query.isSortedByIndex()) {
+            // all rows are read to sort them
+            return Long.MAX_VALUE;
+        }
+        return QueryImpl.saturatedAdd(query.getLimit().get(), query.getOffset().orElse(0L));
     }
     
+    /**
+     * Whether rows can be checked concurrently. This is only the case for
+     * queries with a single selector, and if there are no transient changes,
+     * as the rows are checked on the base state.
+     */
+    private boolean canFilterInParallel() {
+        if (!query.getSettings().isParallelFilter()) {
+            return false;
+        }
+        if (isParent || joinCondition != null || !allJoinConditions.isEmpty()) {
+            return false;
+        }
+        Root root = query.getExecutionContext().getRoot();
+        return root != null && !root.hasPendingChanges();
+    }
+
+    /**
+     * Whether the index plan returns the values of all properties used by
+     * the query. This is only supported for queries with a single selector.
+     *
+     * @param selectorPlan the plan
+     * @return true if the plan covers the query
+     */
+    private boolean isCoveringPlan(SelectorExecutionPlan selectorPlan) {
+        if (!query.getSettings().isCoveringIndex() || query.getSource() != this) {
+            return false;
+        }
+        IndexPlan p = selectorPlan.getIndexPlan();
+        if (p == null || p.isDelayed()) {
+            // the values of an asynchronous index may be stale, and the
+            // nodes may have been removed
+            return false;
+        }
+        Set<String> covered = p.getCoveredProperties();
+        if (covered.isEmpty()) {
+            return false;
+        }
+        if (!matchesAllTypes && !(covered.contains(JCR_PRIMARYTYPE) && covered.contains(JCR_MIXINTYPES))) {
+            return false;
+        }
+        PropertyUsageVisitor v = new PropertyUsageVisitor(this,
+                selectorPlan.getIndex() instanceof FulltextQueryIndex);
+        v.visit(query);
+        return v.isCoveredBy(covered);
+    }
+
+    /**
+     * Whether the nodes don't need to be read for this execution: the plan
+     * covers the query, there are no transient changes, and the session can
+     * read all nodes (and properties) below the path of the filter.
+     */
+    private boolean canUseCoveringIndex(SelectorExecutionPlan selectorPlan,
+            FilterImpl f, NodeState rootState) {
+        if (!isCoveringPlan(selectorPlan)) {
+            return false;
+        }
+        ExecutionContext context = query.getExecutionContext();
+        Root root = context.getRoot();
+        PermissionProvider permissionProvider = context.getPermissionProvider();
+        if (root == null || root.hasPendingChanges() || permissionProvider == null) {
+            return false;
+        }
+        String path = "/";
+        PathRestriction restriction = f.getPathRestriction();
+        if (restriction == PathRestriction.EXACT
+                || restriction == PathRestriction.ALL_CHILDREN
+                || restriction == PathRestriction.DIRECT_CHILDREN) {
+            path = f.getPath();
+        }
+        NodeState state = rootState;
+        TreePermission tp = permissionProvider.getTreePermission(
+                TreeFactory.createReadOnlyTree(state), TreePermission.EMPTY);
+        for (String name : PathUtils.elements(path)) {
+            if (tp.canReadAll()) {
+                return true;
+            }
+            state = state.getChildNode(name);
+            tp = tp.getChildPermission(name, state);
+        }
+        return tp.canReadAll();
+    }
+
+    /**
+     * Count rows that were removed by the {@link ParallelFilterCursor}.
+     *
+     * @param count the number of rows
+     */
+    void skipped(int count) {
+        scanCount += count;
+        query.getQueryExecutionStats().scan(count, scanCount);
+    }
+
     private long startTimer() {
         if (TIMER_DISABLED) {
             return -1;
@@ -423,6 +661,11 @@ public class SelectorImpl extends SourceImpl {
             buff.append(" where ").append(new AndImpl(selectorConstraints).toString());
         }
         buff.append(" */");
+        if (plan != null && isCoveringPlan(plan)) {
+            // the nodes are only skipped at execution time
+            // if the session can read the whole subtree
+            buff.append(" /* covering */");
+        }
         return buff.toString();
     }
 
@@ -453,9 +696,13 @@ public class SelectorImpl extends SourceImpl {
      */
     @Override
     public FilterImpl createFilter(boolean preparing) {
+        return createFilter(preparing, true);
+    }
+
+    private FilterImpl createFilter(boolean preparing, boolean withJoinCondition) {
         FilterImpl f = new FilterImpl(this, query.getStatement(), query.getSettings());
         f.setPreparing(preparing);
-        if (joinCondition != null) {
+        if (joinCondition != null && withJoinCondition) {
             joinCondition.restrict(f);
         }
         // rep:excerpt handling: create a (fake) restriction
@@ -550,7 +797,9 @@ public class SelectorImpl extends SourceImpl {
                 // where [a].[jcr:path] = $path"
                 // because not checking would reveal existence
                 // of the child node
-                if (!getCachedTree(currentRow.getPath()).exists()) {
+                // (not needed with a covering index, as then the
+                // session can read all nodes)
+                if (coveredProperties == null && !getCachedTree(currentRow.getPath()).exists()) {
                     continue;
                 }
             }
@@ -595,13 +844,16 @@ public class SelectorImpl extends SourceImpl {
                 return false;
             }
         }
-        if (joinCondition != null && !joinCondition.evaluate()) {
+        if (joinCondition != null && !ignoreJoinCondition && !joinCondition.evaluate()) {
             return false;
         }
         return true;
     }
 
     private boolean evaluateTypeMatch() {
+        if (coveredProperties != null) {
+            return evaluateCoveredTypeMatch();
+        }
         CachedTree ct = getCachedTree(currentRow.getPath());
         if (!ct.exists()) {
             return false;
@@ -623,6 +875,22 @@ public class SelectorImpl extends SourceImpl {
         return false; 
     }
 
+    private boolean evaluateCoveredTypeMatch() {
+        PropertyValue primaryType = currentRow.getValue(JCR_PRIMARYTYPE);
+        if (primaryType != null && primaryTypes.contains(primaryType.getValue(Type.STRING))) {
+            return true;
+        }
+        PropertyValue mixins = currentRow.getValue(JCR_MIXINTYPES);
+        if (mixins != null) {
+            for (String mixinName : mixins.getValue(Type.STRINGS)) {
+                if (mixinTypes.contains(mixinName)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * Get the current absolute Oak path (normalized).
      *
@@ -701,6 +969,19 @@ public class SelectorImpl extends SourceImpl {
     }
 
     private PropertyValue currentOakProperty(String oakPropertyName, Integer propertyType) {
+        if (coveredProperties != null && currentRow != null && !currentRow.isVirtualRow()) {
+            if (coveredProperties.contains(oakPropertyName)) {
+                PropertyValue result = currentRow.getValue(oakPropertyName);
+                if (result == null || propertyType != null && result.getType().tag() != propertyType) {
+                    return null;
+                }
+                return result;
+            }
+            if (PropertyUsageVisitor.isPseudoProperty(oakPropertyName)) {
+                // read from the path or the index row
+                return currentOakProperty(null, oakPropertyName, propertyType);
+            }
+        }
         boolean asterisk = oakPropertyName.indexOf('*') >= 0;
         if (asterisk) {
             Tree t = currentTree();
@@ -771,7 +1052,8 @@ public class SelectorImpl extends SourceImpl {
     
     private PropertyValue currentOakProperty(Tree t, String oakPropertyName, Integer propertyType) {
         PropertyValue result;
-        if ((t == null || !t.exists()) && (currentRow == null || !currentRow.isVirtualRow())) {
+        boolean covered = coveredProperties != null && PropertyUsageVisitor.isPseudoProperty(oakPropertyName);
+        if (!covered && (t == null || !t.exists()) && (currentRow == null || !currentRow.isVirtualRow())) {
             return null;
         }
         if (oakPropertyName.equals(QueryConstants.JCR_PATH)) {
@@ -935,7 +1217,7 @@ public class SelectorImpl extends SourceImpl {
 
         private CachedTree(@NotNull String path, @NotNull QueryImpl query) {
             this.path = path;
-            this.tree = query.getTree(path);
+            this.tree = query.getExecutionTree(path);
             this.ctx = query.getExecutionContext();
             this.readOnlyTree = new LazyValue<Tree>() {
                 @Override
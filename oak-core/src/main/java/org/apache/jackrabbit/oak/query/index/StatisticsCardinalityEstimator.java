@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.query.index;
+
+import org.apache.jackrabbit.oak.plugins.index.counter.jmx.NodeCounter;
+import org.apache.jackrabbit.oak.query.ast.JoinConditionImpl;
+import org.apache.jackrabbit.oak.query.plan.CardinalityEstimator;
+import org.apache.jackrabbit.oak.spi.query.Filter;
+import org.apache.jackrabbit.oak.spi.query.Filter.PathRestriction;
+import org.apache.jackrabbit.oak.spi.query.Filter.PropertyRestriction;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+
+/**
+ * A cardinality estimator that uses the data of the node counter index: the
+ * number of nodes below the path, and the property statistics (number of nodes
+ * with a property, and number of distinct values). The estimate is only
+ * available if statistics are collected for at least one of the restricted
+ * properties.
+ */
+public class StatisticsCardinalityEstimator implements CardinalityEstimator {
+
+    /**
+     * The assumed selectivity of a range or "like" condition.
+     */
+    private static final double RANGE_SELECTIVITY = 1.0 / 3;
+
+    @Override
+    public long estimateRowCount(Filter filter, NodeState rootState) {
+        if (filter.isAlwaysFalse()) {
+            return 0;
+        }
+        long nodeCount = getNodeCount(filter, rootState);
+        if (nodeCount < 0) {
+            return -1;
+        }
+        long totalCount = NodeCounter.getEstimatedNodeCount(rootState, "/", true);
+        if (totalCount <= 0) {
+            return -1;
+        }
+        boolean known = false;
+        double rows = nodeCount;
+        for (PropertyRestriction pr : filter.getPropertyRestrictions()) {
+            double selectivity = getSelectivity(pr, totalCount, rootState);
+            if (selectivity >= 0) {
+                known = true;
+                rows *= selectivity;
+            }
+        }
+        if (!known) {
+            return -1;
+        }
+        return nodeCount == 0 ? 0 : Math.max(1, Math.round(rows));
+    }
+
+    private static long getNodeCount(Filter filter, NodeState rootState) {
+        String path = filter.getPath();
+        PathRestriction restriction = filter.getPathRestriction();
+        switch (restriction) {
+        case EXACT:
+        case PARENT:
+            return 1;
+        case NO_RESTRICTION:
+            return NodeCounter.getEstimatedNodeCount(rootState, "/", true);
+        case ALL_CHILDREN:
+        case DIRECT_CHILDREN:
+            if (path.startsWith(JoinConditionImpl.SPECIAL_PATH_PREFIX)) {
+                // the path is only known when executing the query
+                return -1;
+            }
+            long count = NodeCounter.getEstimatedNodeCount(rootState, path, true);
+            if (count > 0 && restriction == PathRestriction.DIRECT_CHILDREN) {
+                // same as in the traversing index
+                count = count / 2;
+            }
+            return count;
+        default:
+            throw new IllegalArgumentException("Unknown restriction: " + restriction);
+        }
+    }
+
+    /**
+     * Get the fraction of all nodes that match the restriction.
+     * 
+     * @return the fraction, or -1 if unknown
+     */
+    private static double getSelectivity(PropertyRestriction pr, long totalCount, NodeState rootState) {
+        long count = NodeCounter.getEstimatedPropertyCount(rootState, pr.propertyName);
+        if (count < 0) {
+            return -1;
+        }
+        double withProperty = Math.min(1.0, (double) count / totalCount);
+        if (pr.isNullRestriction()) {
+            return 1 - withProperty;
+        }
+        if (pr.isNotNullRestriction()) {
+            return withProperty;
+        }
+        long distinct = NodeCounter.getEstimatedDistinctValueCount(rootState, pr.propertyName);
+        if (pr.isNot) {
+            return distinct <= 1 ? withProperty : withProperty * (1 - 1.0 / distinct);
+        }
+        if (pr.list != null) {
+            if (distinct <= 0) {
+                return withProperty;
+            }
+            return withProperty * Math.min(1.0, (double) pr.list.size() / distinct);
+        }
+        if (pr.first != null && pr.first.equals(pr.last) && pr.firstIncluding && pr.lastIncluding) {
+            return distinct <= 0 ? withProperty : withProperty / distinct;
+        }
+        return withProperty * RANGE_SELECTIVITY;
+    }
+
+}
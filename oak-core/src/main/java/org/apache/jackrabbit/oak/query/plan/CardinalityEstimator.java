@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.query.plan;
+
+import org.apache.jackrabbit.oak.spi.query.Filter;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+
+/**
+ * Estimates the number of rows a selector returns, taking all its conditions
+ * into account. This is used to compare join orders.
+ */
+public interface CardinalityEstimator {
+
+    /**
+     * An estimator that never knows the number of rows.
+     */
+    CardinalityEstimator UNKNOWN = new CardinalityEstimator() {
+        @Override
+        public long estimateRowCount(Filter filter, NodeState rootState) {
+            return -1;
+        }
+    };
+
+    /**
+     * Estimate the number of nodes that match all conditions of the filter.
+     * 
+     * @param filter the filter
+     * @param rootState the root state
+     * @return the estimated number of rows, or -1 if unknown
+     */
+    long estimateRowCount(Filter filter, NodeState rootState);
+
+}
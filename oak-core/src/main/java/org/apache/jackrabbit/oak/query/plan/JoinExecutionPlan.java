@@ -24,15 +24,43 @@ import org.apache.jackrabbit.oak.query.ast.JoinImpl;
  */
 public class JoinExecutionPlan implements ExecutionPlan {
 
+    /**
+     * How the rows of both sides of the join are combined.
+     */
+    public enum Strategy {
+
+        /**
+         * For each row of the left hand side, the right hand side is
+         * executed, restricted by the join condition.
+         */
+        NESTED_LOOP,
+
+        /**
+         * The right hand side is read once, without the join condition, into
+         * a hash table that is keyed by the value of the join property.
+         */
+        HASH
+
+    }
+
     private final JoinImpl join;
     private final ExecutionPlan leftPlan, rightPlan;
     private final double estimatedCost;
+    private final Strategy strategy;
+    private final ExecutionPlan hashJoinPlan;
     
     public JoinExecutionPlan(JoinImpl join, ExecutionPlan leftPlan, ExecutionPlan rightPlan, double estimatedCost) {
+        this(join, leftPlan, rightPlan, estimatedCost, Strategy.NESTED_LOOP, null);
+    }
+
+    public JoinExecutionPlan(JoinImpl join, ExecutionPlan leftPlan, ExecutionPlan rightPlan, double estimatedCost,
+            Strategy strategy, ExecutionPlan hashJoinPlan) {
         this.join = join;
         this.leftPlan = leftPlan;
         this.rightPlan = rightPlan;
         this.estimatedCost = estimatedCost;
+        this.strategy = strategy;
+        this.hashJoinPlan = hashJoinPlan;
     }
     
     @Override
@@ -52,4 +80,18 @@ public class JoinExecutionPlan implements ExecutionPlan {
         return rightPlan;
     }
 
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Get the plan to read the right hand side without the join condition,
+     * for a hash join.
+     * 
+     * @return the plan, or null if this is not a hash join
+     */
+    public ExecutionPlan getHashJoinPlan() {
+        return hashJoinPlan;
+    }
+
 }
@@ -34,12 +34,19 @@ public class SelectorExecutionPlan implements ExecutionPlan {
     private final double estimatedCost;
     private final QueryIndex index;
     private final IndexPlan plan;
+    private final long estimatedRowCount;
 
     public SelectorExecutionPlan(SelectorImpl selector, QueryIndex index, IndexPlan plan, double estimatedCost) {
+        this(selector, index, plan, estimatedCost, -1);
+    }
+
+    public SelectorExecutionPlan(SelectorImpl selector, QueryIndex index, IndexPlan plan, double estimatedCost,
+            long estimatedRowCount) {
         this.selector = selector;
         this.index = index;
         this.estimatedCost = estimatedCost;
         this.plan = plan;
+        this.estimatedRowCount = estimatedRowCount;
     }
     
     @Override
@@ -47,6 +54,16 @@ public class SelectorExecutionPlan implements ExecutionPlan {
         return estimatedCost;
     }
 
+    /**
+     * Get the estimated number of rows after applying all conditions of the
+     * selector.
+     * 
+     * @return the estimated number of rows, or -1 if unknown
+     */
+    public long getEstimatedRowCount() {
+        return estimatedRowCount;
+    }
+
     public SelectorImpl getSelector() {
         return selector;
     }
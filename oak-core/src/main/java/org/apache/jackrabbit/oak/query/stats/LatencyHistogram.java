@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.query.stats;
+
+/**
+ * A histogram of durations, with buckets of logarithmically increasing size
+ * (similar to a HDR histogram). Each power of two is split into 8 buckets, so
+ * that the relative error of a percentile is at most 12.5%. The resolution is
+ * one microsecond, and the largest duration that can be told apart is about
+ * one hour; longer durations are counted in the last bucket.
+ */
+public class LatencyHistogram {
+
+    /**
+     * The number of bits used for the buckets within a power of two.
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The number of bits of the largest value (in microseconds).
+     */
+    private static final int MAX_BITS = 32;
+
+    private static final int BUCKET_COUNT =
+            (MAX_BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long count;
+    private long sumNanos;
+    private long maxNanos;
+
+    /**
+     * Record a duration.
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public synchronized void record(long nanos) {
+        nanos = Math.max(0, nanos);
+        counts[getBucket(nanos / 1000)]++;
+        count++;
+        sumNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getSumNanos() {
+        return sumNanos;
+    }
+
+    public synchronized long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * Get the duration at the given percentile. The value is the upper bound
+     * of the bucket, but at most the largest recorded duration.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the duration in nanoseconds, or 0 if nothing was recorded
+     */
+    public synchronized long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * Math.min(100, Math.max(0, percentile)) / 100);
+        rank = Math.max(1, rank);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(maxNanos, getUpperBound(i) * 1000);
+            }
+        }
+        return maxNanos;
+    }
+
+    static int getBucket(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int bits = 64 - Long.numberOfLeadingZeros(micros);
+        if (bits > MAX_BITS) {
+            return BUCKET_COUNT - 1;
+        }
+        int sub = (int) (micros >>> (bits - SUB_BUCKET_BITS - 1)) & (SUB_BUCKETS - 1);
+        return (bits - SUB_BUCKET_BITS) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Get the largest value (in microseconds) that falls into the bucket.
+     *
+     * @param bucket the bucket
+     * @return the largest value
+     */
+    static long getUpperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int bits = bucket / SUB_BUCKETS + SUB_BUCKET_BITS;
+        int sub = bucket % SUB_BUCKETS;
+        int shift = bits - SUB_BUCKET_BITS - 1;
+        return (((long) (SUB_BUCKETS + sub + 1)) << shift) - 1;
+    }
+
+}
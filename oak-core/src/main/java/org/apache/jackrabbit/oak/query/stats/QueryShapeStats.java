@@ -0,0 +1,398 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.query.stats;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jackrabbit.oak.commons.json.JsopBuilder;
+
+/**
+ * The statistics of all queries with the same shape. The shape of a query is
+ * the statement with all literals (strings, numbers, and paths) replaced with
+ * a question mark, so that queries that only differ in the values they search
+ * for are counted together.
+ * <p>
+ * The duration of each phase of a query is kept in a histogram:
+ * <ul>
+ * <li>plan: parsing the statement and asking the indexes for their cost,</li>
+ * <li>execute: from the start of the iteration until the first row is
+ * available (this includes sorting, if the index doesn't sort),</li>
+ * <li>read: from the start until the end of the iteration (only recorded
+ * if the result was read to the end).</li>
+ * </ul>
+ * The rows read from the index and the rows returned are also counted when
+ * the result was read to the end.
+ */
+public class QueryShapeStats {
+
+    private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+    /**
+     * The percentiles as quantiles (as used by Prometheus).
+     */
+    private static final String[] QUANTILES = { "0.5", "0.9", "0.99", "0.999" };
+
+    private static final String PROMETHEUS_DURATION = "oak_query_shape_duration_seconds";
+    private static final String PROMETHEUS_ROWS_SCANNED = "oak_query_shape_rows_scanned_total";
+    private static final String PROMETHEUS_ROWS_RETURNED = "oak_query_shape_rows_returned_total";
+
+    private final String shape;
+    private final String language;
+    private final LatencyHistogram planHistogram = new LatencyHistogram();
+    private final LatencyHistogram executeHistogram = new LatencyHistogram();
+    private final LatencyHistogram readHistogram = new LatencyHistogram();
+    private long executeCount;
+    private long lastExecutedMillis;
+    private String lastIndex;
+
+    /**
+     * Rows returned by the index (including rows that were then filtered out).
+     */
+    private long totalRowsScanned;
+
+    /**
+     * Rows returned to the caller.
+     */
+    private long totalRowsReturned;
+
+    public QueryShapeStats(String shape, String language) {
+        this.shape = shape;
+        this.language = language;
+    }
+
+    public String getKey() {
+        return getKey(shape, language);
+    }
+
+    static String getKey(String shape, String language) {
+        return shape + "/" + language;
+    }
+
+    public String getShape() {
+        return shape;
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    public synchronized long getExecuteCount() {
+        return executeCount;
+    }
+
+    public synchronized long getLastExecutedMillis() {
+        return lastExecutedMillis;
+    }
+
+    /**
+     * The name of the index (or indexes, for joins and unions) used by the
+     * last execution.
+     *
+     * @return the index names, or null if not known yet
+     */
+    public synchronized String getLastIndex() {
+        return lastIndex;
+    }
+
+    public synchronized long getTotalRowsScanned() {
+        return totalRowsScanned;
+    }
+
+    public synchronized long getTotalRowsReturned() {
+        return totalRowsReturned;
+    }
+
+    public LatencyHistogram getPlanHistogram() {
+        return planHistogram;
+    }
+
+    public LatencyHistogram getExecuteHistogram() {
+        return executeHistogram;
+    }
+
+    public LatencyHistogram getReadHistogram() {
+        return readHistogram;
+    }
+
+    void planned(long nanos) {
+        synchronized (this) {
+            executeCount++;
+            lastExecutedMillis = System.currentTimeMillis();
+        }
+        planHistogram.record(nanos);
+    }
+
+    void executed(long nanos) {
+        executeHistogram.record(nanos);
+    }
+
+    void read(long nanos, long rowsScanned, long rowsReturned, String index) {
+        readHistogram.record(nanos);
+        rowsRead(rowsScanned, rowsReturned, index);
+    }
+
+    synchronized void rowsRead(long rowsScanned, long rowsReturned, String index) {
+        totalRowsScanned += rowsScanned;
+        totalRowsReturned += rowsReturned;
+        if (index != null) {
+            lastIndex = index;
+        }
+    }
+
+    @Override
+    public String toString() {
+        JsopBuilder json = new JsopBuilder().object().
+            key("shape").value(shape).
+            key("language").value(language).
+            key("lastExecutedMillis").value(QueryStatsData.getTimeString(getLastExecutedMillis())).
+            key("executeCount").value(getExecuteCount()).
+            key("index").value(getLastIndex()).
+            key("totalRowsScanned").value(getTotalRowsScanned()).
+            key("totalRowsReturned").value(getTotalRowsReturned());
+        appendHistogram(json, "plan", planHistogram);
+        appendHistogram(json, "execute", executeHistogram);
+        appendHistogram(json, "read", readHistogram);
+        json.endObject();
+        return json.toString();
+    }
+
+    private static void appendHistogram(JsopBuilder json, String phase, LatencyHistogram h) {
+        json.key(phase).object().
+            key("count").value(h.getCount()).
+            key("totalMicros").value(TimeUnit.NANOSECONDS.toMicros(h.getSumNanos())).
+            key("maxMicros").value(TimeUnit.NANOSECONDS.toMicros(h.getMaxNanos()));
+        for (double p : PERCENTILES) {
+            json.key("p" + formatPercentile(p)).value(
+                    TimeUnit.NANOSECONDS.toMicros(h.getValueAtPercentile(p)));
+        }
+        json.endObject();
+    }
+
+    /**
+     * Append the statistics in the Prometheus text exposition format. All
+     * samples of a metric need to be grouped, so the durations (summaries in
+     * seconds, per phase) and the row counters of all shapes are appended one
+     * metric at a time.
+     *
+     * @param buff the target buffer
+     * @param list the statistics
+     */
+    static void appendPrometheus(StringBuilder buff, Iterable<QueryShapeStats> list) {
+        appendPrometheusHeader(buff, PROMETHEUS_DURATION, "summary",
+                "Duration of the plan, execute, and read phase of queries, per query shape.");
+        for (QueryShapeStats s : list) {
+            String labels = s.getPrometheusLabels();
+            appendPrometheus(buff, labels, "plan", s.planHistogram);
+            appendPrometheus(buff, labels, "execute", s.executeHistogram);
+            appendPrometheus(buff, labels, "read", s.readHistogram);
+        }
+        appendPrometheusHeader(buff, PROMETHEUS_ROWS_SCANNED, "counter",
+                "Rows returned by the index, per query shape.");
+        for (QueryShapeStats s : list) {
+            buff.append(PROMETHEUS_ROWS_SCANNED).append('{').append(s.getPrometheusLabels()).
+                    append("} ").append(s.getTotalRowsScanned()).append('\n');
+        }
+        appendPrometheusHeader(buff, PROMETHEUS_ROWS_RETURNED, "counter",
+                "Rows returned to the caller, per query shape.");
+        for (QueryShapeStats s : list) {
+            buff.append(PROMETHEUS_ROWS_RETURNED).append('{').append(s.getPrometheusLabels()).
+                    append("} ").append(s.getTotalRowsReturned()).append('\n');
+        }
+    }
+
+    private String getPrometheusLabels() {
+        String index = getLastIndex();
+        return "shape=\"" + escapeLabel(shape) + "\"," +
+                "language=\"" + escapeLabel(language) + "\"," +
+                "index=\"" + escapeLabel(index == null ? "" : index) + "\"";
+    }
+
+    private static void appendPrometheusHeader(StringBuilder buff, String name,
+            String type, String help) {
+        buff.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        buff.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void appendPrometheus(StringBuilder buff, String labels,
+            String phase, LatencyHistogram h) {
+        String l = labels + ",phase=\"" + phase + "\"";
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            buff.append(PROMETHEUS_DURATION).append('{').append(l).
+                    append(",quantile=\"").append(QUANTILES[i]).append("\"} ").
+                    append(toSeconds(h.getValueAtPercentile(PERCENTILES[i]))).append('\n');
+        }
+        buff.append(PROMETHEUS_DURATION).append("_sum{").append(l).append("} ").
+                append(toSeconds(h.getSumNanos())).append('\n');
+        buff.append(PROMETHEUS_DURATION).append("_count{").append(l).append("} ").
+                append(h.getCount()).append('\n');
+    }
+
+    private static double toSeconds(long nanos) {
+        return nanos / 1_000_000_000.0;
+    }
+
+    private static String formatPercentile(double p) {
+        return p == Math.rint(p) ? Long.toString((long) p) : Double.toString(p);
+    }
+
+    static String escapeLabel(String value) {
+        StringBuilder buff = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '\\':
+                buff.append("\\\\");
+                break;
+            case '"':
+                buff.append("\\\"");
+                break;
+            case '\n':
+                buff.append("\\n");
+                break;
+            default:
+                buff.append(c);
+            }
+        }
+        return buff.toString();
+    }
+
+    /**
+     * Get the shape of a statement: string literals, numbers, and paths are
+     * replaced with "?", and whitespace is collapsed. Bind variables, property
+     * names, and node type names are kept.
+     *
+     * @param statement the statement (SQL-2, SQL, or XPath)
+     * @return the shape
+     */
+    public static String getShape(String statement) {
+        int len = statement.length();
+        StringBuilder buff = new StringBuilder(len);
+        boolean space = false;
+        for (int i = 0; i < len;) {
+            char c = statement.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = buff.length() > 0;
+                i++;
+                continue;
+            }
+            if (space) {
+                buff.append(' ');
+                space = false;
+            }
+            if (c == '\'' || c == '"') {
+                // string literal; a doubled quote is an escaped quote
+                int j = i + 1;
+                while (j < len) {
+                    if (statement.charAt(j) == c) {
+                        if (j + 1 < len && statement.charAt(j + 1) == c) {
+                            j += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    j++;
+                }
+                buff.append(c).append('?').append(c);
+                i = j + 1;
+            } else if (c == '[' && i + 1 < len && statement.charAt(i + 1) == '/') {
+                // SQL-2 path, as in "isdescendantnode([/content])"
+                int j = statement.indexOf(']', i);
+                buff.append("[?]");
+                i = j < 0 ? len : j + 1;
+            } else if (isDigit(c) && !isIdentifierPart(buff)) {
+                int j = i + 1;
+                while (j < len) {
+                    char d = statement.charAt(j);
+                    if (isDigit(d) || d == '.') {
+                        j++;
+                    } else if ((d == 'e' || d == 'E') && j + 1 < len) {
+                        // exponent, as in 1e-3
+                        char n = statement.charAt(j + 1);
+                        j += (n == '+' || n == '-') ? 2 : 1;
+                    } else {
+                        break;
+                    }
+                }
+                buff.append('?');
+                i = j;
+            } else if (statement.startsWith(XPATH_ROOT, i)) {
+                // XPath path, as in "/jcr:root/content/a//*"
+                int start = i + XPATH_ROOT.length();
+                int end = getXPathPathEnd(statement, start);
+                buff.append(XPATH_ROOT);
+                if (end > start) {
+                    buff.append('?');
+                }
+                i = end;
+            } else {
+                buff.append(c);
+                i++;
+            }
+        }
+        return buff.toString();
+    }
+
+    private static final String XPATH_ROOT = "/jcr:root/";
+
+    private static int getXPathPathEnd(String statement, int start) {
+        int len = statement.length();
+        int i = start;
+        while (i < len) {
+            char c = statement.charAt(i);
+            if (c == '/') {
+                if (i + 1 >= len) {
+                    break;
+                }
+                char n = statement.charAt(i + 1);
+                if (n == '/' || n == '*' || n == '(' || n == '@'
+                        || statement.startsWith("element(", i + 1)
+                        || statement.startsWith("text(", i + 1)
+                        || statement.startsWith("rep:excerpt(", i + 1)
+                        || statement.startsWith("jcr:deref(", i + 1)) {
+                    break;
+                }
+            } else if (c == '[' || c == '(' || c == '*' || Character.isWhitespace(c)) {
+                break;
+            }
+            i++;
+        }
+        if (i < len && statement.charAt(i) != '/') {
+            // the last segment is a node name test, as in "/jcr:root/a/b[...]";
+            // keep the name, but not the path
+            int last = statement.lastIndexOf('/', i - 1);
+            if (last >= start) {
+                return last;
+            }
+            return start;
+        }
+        return i;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isIdentifierPart(StringBuilder buff) {
+        if (buff.length() == 0) {
+            return false;
+        }
+        char last = buff.charAt(buff.length() - 1);
+        return Character.isLetterOrDigit(last) || last == '_' || last == ':'
+                || last == '$';
+    }
+
+}
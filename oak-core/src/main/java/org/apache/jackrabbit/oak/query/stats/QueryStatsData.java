@@ -16,7 +16,14 @@
  */
 package org.apache.jackrabbit.oak.query.stats;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
 import org.apache.jackrabbit.oak.commons.json.JsopBuilder;
+import org.apache.jackrabbit.oak.plugins.metric.util.StatsProviderUtil;
 
 public class QueryStatsData {
     
@@ -42,8 +49,22 @@ public class QueryStatsData {
     private long planNanos;
     private long readNanos;
     private long maxTimeNanos;
+    private long spillCount;
+    private long totalRowsSpilled;
+
+    /**
+     * The time spent reading each subquery of a union query that was read
+     * concurrently, in the order of the subqueries in the statement.
+     */
+    private long[] unionBranchNanos = new long[0];
     private boolean captureStackTraces;
 
+    /**
+     * The shape of the query (the statement without literals), computed when
+     * needed.
+     */
+    private volatile String shape;
+
     public QueryStatsData(String query, String language) {
         this.query = query;
         this.language = language;
@@ -52,6 +73,19 @@ public class QueryStatsData {
     public String getKey() {
         return query + "/" + language;
     }
+
+    /**
+     * The shape of the statement (the statement without literals).
+     *
+     * @return the shape
+     */
+    public String getShape() {
+        String s = shape;
+        if (s == null) {
+            s = shape = QueryShapeStats.getShape(query);
+        }
+        return s;
+    }
     
     /**
      * The maximum CPU time needed to run one query.
@@ -91,6 +125,30 @@ public class QueryStatsData {
         return totalRowsScanned;
     }
 
+    /**
+     * The number of temporary files written because a sort or distinct
+     * operation did not fit in memory.
+     * 
+     * @return the number of temporary files
+     */
+    public long getSpillCount() {
+        return spillCount;
+    }
+
+    public long getTotalRowsSpilled() {
+        return totalRowsSpilled;
+    }
+
+    /**
+     * The time spent reading each subquery of a union query, if the
+     * subqueries were read concurrently.
+     * 
+     * @return the time in nanoseconds, in the order of the subqueries
+     */
+    public synchronized long[] getUnionBranchNanos() {
+        return unionBranchNanos.clone();
+    }
+
     public String getLanguage() {
         return language;
     }
@@ -113,7 +171,7 @@ public class QueryStatsData {
     
     @Override
     public String toString() {
-        return new JsopBuilder().object().
+        JsopBuilder json = new JsopBuilder().object().
             key("createdMillis").value(getTimeString(createdMillis)).
             key("lastExecutedMillis").value(getTimeString(lastExecutedMillis)).
             key("executeCount").value(executeCount).
@@ -124,11 +182,19 @@ public class QueryStatsData {
             key("planNanos").value(planNanos).
             key("readNanos").value(readNanos).
             key("maxTimeNanos").value(maxTimeNanos).
+            key("spillCount").value(spillCount).
+            key("totalRowsSpilled").value(totalRowsSpilled).
+            key("unionBranchNanos").array();
+        for (long nanos : getUnionBranchNanos()) {
+            json.value(nanos);
+        }
+        json.endArray().
             key("internal").value(internal).
             key("query").value(query).
             key("language").value(language).
             key("lastThreadName").value(lastThreadName).
-        endObject().toString();
+        endObject();
+        return json.toString();
     }
     
     public static final String getTimeString(long timeMillis) {
@@ -144,7 +210,29 @@ public class QueryStatsData {
         private final String SLOW_QUERY_COUNT_NAME = "SLOW_QUERY_COUNT";
         private final int SLOW_QUERY_LIMIT_SCANNED =
                 Integer.getInteger("oak.query.slowScanLimit", 100000);
-        
+
+        /**
+         * The statistics of the shape of the query, or null if not collected.
+         */
+        private QueryShapeStats shapeStats;
+        private StatsProviderUtil statsProviderUtil;
+        private long executionPlanNanos;
+        private long executionRowsScanned;
+        private final Set<String> indexNames = new LinkedHashSet<String>();
+        private boolean executed;
+        private boolean finished;
+
+        /**
+         * Collect the statistics of the query shape as well.
+         *
+         * @param shapeStats the statistics of the shape
+         * @param statsProviderUtil to export the durations of each phase
+         */
+        void setShapeStats(QueryShapeStats shapeStats, StatsProviderUtil statsProviderUtil) {
+            this.shapeStats = shapeStats;
+            this.statsProviderUtil = statsProviderUtil;
+        }
+
         public void execute(long nanos) {
             QueryRecorder.record(query, internal);
             executeCount++;
@@ -152,6 +240,72 @@ public class QueryStatsData {
             time += nanos;
             planNanos += nanos;
             maxTimeNanos = Math.max(maxTimeNanos, time);
+            executionPlanNanos = nanos;
+            if (shapeStats != null) {
+                shapeStats.planned(nanos);
+            }
+        }
+
+        /**
+         * Record the index used by a selector of this query.
+         *
+         * @param indexName the name of the index, or "traverse"
+         */
+        public void index(String indexName) {
+            synchronized (QueryStatsData.this) {
+                indexNames.add(indexName);
+            }
+        }
+
+        /**
+         * Record the time until the first row was available.
+         *
+         * @param nanos the time in nanoseconds
+         */
+        public void executed(long nanos) {
+            synchronized (QueryStatsData.this) {
+                if (executed || shapeStats == null) {
+                    return;
+                }
+                executed = true;
+            }
+            shapeStats.executed(nanos);
+            String index = getIndexNames();
+            updateTimer("QUERY_PLAN_TIME", index, executionPlanNanos);
+            updateTimer("QUERY_EXECUTE_TIME", index, nanos);
+        }
+
+        /**
+         * Record that the result was read to the end.
+         *
+         * @param nanos the time spent reading the result, in nanoseconds
+         * @param rowsReturned the number of rows returned to the caller
+         */
+        public void finished(long nanos, long rowsReturned) {
+            long rowsScanned;
+            synchronized (QueryStatsData.this) {
+                if (finished || shapeStats == null) {
+                    return;
+                }
+                finished = true;
+                rowsScanned = executionRowsScanned;
+            }
+            String index = getIndexNames();
+            shapeStats.read(nanos, rowsScanned, rowsReturned, index);
+            updateTimer("QUERY_READ_TIME", index, nanos);
+        }
+
+        private String getIndexNames() {
+            synchronized (QueryStatsData.this) {
+                return indexNames.isEmpty() ? null : String.join(",", indexNames);
+            }
+        }
+
+        private void updateTimer(String name, String index, long nanos) {
+            // the shape is not used as a label, to limit the number of metrics
+            statsProviderUtil.getTimerStats().apply(name,
+                    Collections.singletonMap("index", index == null ? "" : index)).
+                    update(nanos, TimeUnit.NANOSECONDS);
         }
 
         public void setInternal(boolean b) {
@@ -170,16 +324,43 @@ public class QueryStatsData {
         }
 
         public void read(long count, long max, long nanos) {
-            totalRowsRead += count;
-            maxRowsRead = Math.max(maxRowsRead, max);
-            time += nanos;
-            readNanos += nanos;
-            maxTimeNanos = Math.max(maxTimeNanos, time);
+            synchronized (QueryStatsData.this) {
+                totalRowsRead += count;
+                maxRowsRead = Math.max(maxRowsRead, max);
+                time += nanos;
+                readNanos += nanos;
+                maxTimeNanos = Math.max(maxTimeNanos, time);
+            }
         }
 
         public void scan(long count, long max) {
-            totalRowsScanned += count;
-            maxRowsScanned = Math.max(maxRowsScanned, max);
+            synchronized (QueryStatsData.this) {
+                totalRowsScanned += count;
+                maxRowsScanned = Math.max(maxRowsScanned, max);
+                executionRowsScanned += count;
+            }
+        }
+
+        public void spill(long count) {
+            synchronized (QueryStatsData.this) {
+                spillCount++;
+                totalRowsSpilled += count;
+            }
+        }
+
+        /**
+         * Record the time spent reading a subquery of a union query.
+         * 
+         * @param branch the index of the subquery within the statement
+         * @param nanos the time in nanoseconds
+         */
+        public void unionBranch(int branch, long nanos) {
+            synchronized (QueryStatsData.this) {
+                if (branch >= unionBranchNanos.length) {
+                    unionBranchNanos = Arrays.copyOf(unionBranchNanos, branch + 1);
+                }
+                unionBranchNanos[branch] += nanos;
+            }
         }
     }
 
@@ -40,6 +40,20 @@ public interface QueryStatsMBean {
 
     @Description("Get all data as Json.")
     String asJson();
+
+    /**
+     * Get the statistics per query shape (the statement with literals
+     * removed): the duration of the plan, execute, and read phase as
+     * percentiles, the rows read from the index versus the rows returned, and
+     * the index used.
+     *
+     * @return the statistics as Json
+     */
+    @Description("Get the statistics per query shape (the statement with literals removed) as Json.")
+    String getQueryShapesAsJson();
+
+    @Description("Get the statistics per query shape in the Prometheus text format.")
+    String getQueryShapesAsPrometheus();
    
     @Description("Reset the statistics (clear the list of queries).")
     void resetStats();
@@ -54,5 +68,29 @@ public interface QueryStatsMBean {
     void setCaptureStackTraces(boolean captureStackTraces);
     
     boolean getCaptureStackTraces();
+
+    @Description("Get the number of XPath statements found in the statement cache.")
+    long getStatementCacheHitCount();
+
+    @Description("Get the number of XPath statements that had to be converted to SQL-2.")
+    long getStatementCacheMissCount();
+
+    @Description("Get the ratio of statement cache hits to all statement cache requests.")
+    double getStatementCacheHitRate();
+
+    @Description("Get the total time spent parsing queries, in milliseconds.")
+    long getParseTimeMillis();
+
+    @Description("Get the total time spent planning queries (asking the indexes for their cost), in milliseconds.")
+    long getPlanTimeMillis();
+
+    @Description("Get the number of planned queries.")
+    long getPlanCount();
+
+    @Description("Get the number of selectors planned with the index chosen before for the same filter.")
+    long getPlanCacheHitCount();
+
+    @Description("Get the number of selectors planned by asking all indexes.")
+    long getPlanCacheMissCount();
     
 }
@@ -19,7 +19,10 @@ package org.apache.jackrabbit.oak.query.stats;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
 
 import javax.management.openmbean.CompositeDataSupport;
 import javax.management.openmbean.CompositeType;
@@ -31,6 +34,7 @@ import javax.management.openmbean.TabularDataSupport;
 import javax.management.openmbean.TabularType;
 
 import org.apache.jackrabbit.oak.commons.jmx.AnnotatedStandardMBean;
+import org.apache.jackrabbit.oak.plugins.metric.util.StatsProviderUtil;
 import org.apache.jackrabbit.oak.query.QueryEngineSettings;
 import org.apache.jackrabbit.oak.query.stats.QueryStatsData.QueryExecutionStats;
 import org.slf4j.Logger;
@@ -48,9 +52,14 @@ public class QueryStatsMBeanImpl extends AnnotatedStandardMBean
             Integer.getInteger("oak.query.slowLimit", 100);
     private final int MAX_QUERY_SIZE =
             Integer.getInteger("oak.query.maxQuerySize", 2048);
+    private final int MAX_QUERY_SHAPES =
+            Integer.getInteger("oak.query.shapes", 1000);
     private final ConcurrentSkipListMap<String, QueryStatsData> statistics = 
             new ConcurrentSkipListMap<String, QueryStatsData>();
+    private final ConcurrentHashMap<String, QueryShapeStats> shapes =
+            new ConcurrentHashMap<String, QueryShapeStats>();
     private final QueryEngineSettings settings;
+    private StatsProviderUtil statsProviderUtil;
     private boolean captureStackTraces;
     private int evictionCount;
 
@@ -92,9 +101,53 @@ public class QueryStatsMBeanImpl extends AnnotatedStandardMBean
         return asTabularData(list);
     }
 
+    @Override
+    public String getQueryShapesAsJson() {
+        StringBuilder buff = new StringBuilder();
+        buff.append("[\n");
+        int i = 0;
+        for (QueryShapeStats s : getQueryShapes()) {
+            if (i++ > 0) {
+                buff.append(",\n");
+            }
+            buff.append(s.toString());
+        }
+        return buff.append("\n]\n").toString();
+    }
+
+    @Override
+    public String getQueryShapesAsPrometheus() {
+        StringBuilder buff = new StringBuilder();
+        QueryShapeStats.appendPrometheus(buff, getQueryShapes());
+        return buff.toString();
+    }
+
+    /**
+     * Get the statistics per query shape, the ones that took most of the time
+     * (planning, and reading the result) first.
+     *
+     * @return the list
+     */
+    List<QueryShapeStats> getQueryShapes() {
+        ArrayList<QueryShapeStats> list = new ArrayList<QueryShapeStats>(shapes.values());
+        Collections.sort(list, new Comparator<QueryShapeStats>() {
+            @Override
+            public int compare(QueryShapeStats o1, QueryShapeStats o2) {
+                return -Long.compare(getTotalNanos(o1), getTotalNanos(o2));
+            }
+        });
+        return list;
+    }
+
+    private static long getTotalNanos(QueryShapeStats s) {
+        return s.getPlanHistogram().getSumNanos() + s.getReadHistogram().getSumNanos();
+    }
+
     @Override
     public void resetStats() {
         statistics.clear();
+        shapes.clear();
+        settings.getStatementCache().resetStats();
     }
     
     @Override
@@ -107,6 +160,46 @@ public class QueryStatsMBeanImpl extends AnnotatedStandardMBean
         return captureStackTraces;
     }
     
+    @Override
+    public long getStatementCacheHitCount() {
+        return settings.getStatementCache().getHitCount();
+    }
+
+    @Override
+    public long getStatementCacheMissCount() {
+        return settings.getStatementCache().getMissCount();
+    }
+
+    @Override
+    public double getStatementCacheHitRate() {
+        return settings.getStatementCache().getHitRate();
+    }
+
+    @Override
+    public long getParseTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(settings.getStatementCache().getParseTimeNanos());
+    }
+
+    @Override
+    public long getPlanTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(settings.getStatementCache().getPlanTimeNanos());
+    }
+
+    @Override
+    public long getPlanCount() {
+        return settings.getStatementCache().getPlanCount();
+    }
+
+    @Override
+    public long getPlanCacheHitCount() {
+        return settings.getStatementCache().getPlanHitCount();
+    }
+
+    @Override
+    public long getPlanCacheMissCount() {
+        return settings.getStatementCache().getPlanMissCount();
+    }
+
     @Override
     public String asJson() {
         ArrayList<QueryStatsData> list = new ArrayList<QueryStatsData>(statistics.values());
@@ -149,7 +242,53 @@ public class QueryStatsMBeanImpl extends AnnotatedStandardMBean
             stats = s2;
         }
         stats.setCaptureStackTraces(captureStackTraces);
-        return stats.new QueryExecutionStats();
+        QueryExecutionStats execution = stats.new QueryExecutionStats();
+        if (MAX_QUERY_SHAPES > 0) {
+            execution.setShapeStats(getShapeStats(stats.getShape(), language),
+                    getStatsProviderUtil());
+        }
+        return execution;
+    }
+
+    private QueryShapeStats getShapeStats(String shape, String language) {
+        if (shapes.size() > MAX_QUERY_SHAPES) {
+            evictShapes();
+        }
+        String key = QueryShapeStats.getKey(shape, language);
+        QueryShapeStats s = shapes.get(key);
+        if (s == null) {
+            s = new QueryShapeStats(shape, language);
+            QueryShapeStats s2 = shapes.putIfAbsent(key, s);
+            if (s2 != null) {
+                s = s2;
+            }
+        }
+        return s;
+    }
+
+    private StatsProviderUtil getStatsProviderUtil() {
+        StatsProviderUtil util = statsProviderUtil;
+        if (util == null) {
+            util = statsProviderUtil = new StatsProviderUtil(settings.getStatisticsProvider());
+        }
+        return util;
+    }
+
+    /**
+     * Remove the shapes that were not executed for the longest time, so that
+     * half of the maximum number of shapes remains.
+     */
+    private void evictShapes() {
+        ArrayList<QueryShapeStats> list = new ArrayList<QueryShapeStats>(shapes.values());
+        Collections.sort(list, new Comparator<QueryShapeStats>() {
+            @Override
+            public int compare(QueryShapeStats o1, QueryShapeStats o2) {
+                return -Long.compare(o1.getLastExecutedMillis(), o2.getLastExecutedMillis());
+            }
+        });
+        for (int i = MAX_QUERY_SHAPES / 2; i < list.size(); i++) {
+            shapes.remove(list.get(i).getKey());
+        }
     }
 
     private void evict() {
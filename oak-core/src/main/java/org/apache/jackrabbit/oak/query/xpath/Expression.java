@@ -156,6 +156,36 @@ abstract class Expression {
         return null;
     }
 
+    /**
+     * Append the SQL-2 representation of this expression to the buffer.
+     * Expressions that contain other expressions append them to the same
+     * buffer, instead of concatenating their string representations.
+     *
+     * @param buff the target buffer
+     * @return the buffer
+     */
+    StringBuilder appendTo(StringBuilder buff) {
+        return buff.append(toString());
+    }
+
+    /**
+     * Append the expression, in parenthesis if the precedence is lower than
+     * the given precedence.
+     *
+     * @param buff the target buffer
+     * @param e the expression
+     * @param precedence the precedence of the enclosing expression
+     */
+    static void appendTo(StringBuilder buff, Expression e, int precedence) {
+        if (e.getPrecedence() < precedence) {
+            buff.append('(');
+            e.appendTo(buff);
+            buff.append(')');
+        } else {
+            e.appendTo(buff);
+        }
+    }
+
     /**
      * A literal expression.
      */
@@ -264,50 +294,44 @@ abstract class Expression {
     
         @Override
         public String toString() {
-            String leftExpr;
-            boolean leftExprIsName;
-            if (left == null) {
-                leftExprIsName = false;
-                leftExpr = "";
-            } else {
-                leftExprIsName = left.isName();
-                leftExpr = left.toString();
-                if (left.getPrecedence() < precedence) {
-                    leftExpr = "(" + leftExpr + ")";
+            return appendTo(new StringBuilder()).toString();
+        }
+
+        @Override
+        StringBuilder appendTo(StringBuilder buff) {
+            String nameLiteral = null;
+            if (left != null && right != null && left.isName() && !"like".equals(operator)) {
+                // need to de-escape _x0020_ and so on
+                if (!(right instanceof Literal)) {
+                    throw new IllegalArgumentException(
+                            "Can only compare a name against a string literal, not " + right);
                 }
+                Literal l = (Literal) right;
+                String raw = l.rawText;
+                String decoded = ISO9075.decode(raw);
+                String encoded = ISO9075.encode(decoded);
+                if (!encoded.equalsIgnoreCase(raw)) {
+                    // a condition that can not possibly be true
+                    buff.append("upper(");
+                    appendTo(buff, left, precedence);
+                    return buff.append(") = 'never matches'");
+                }
+                nameLiteral = SQL2Parser.escapeStringLiteral(decoded);
             }
-            boolean impossible = false;
-            String rightExpr;
-            if (right == null) {
-                rightExpr = "";
-            } else {
-                if (leftExprIsName && !"like".equals(operator)) {
-                    // need to de-escape _x0020_ and so on
-                    if (!(right instanceof Literal)) {
-                        throw new IllegalArgumentException(
-                                "Can only compare a name against a string literal, not " + right);
-                    }
-                    Literal l = (Literal) right;
-                    String raw = l.rawText;
-                    String decoded = ISO9075.decode(raw);
-                    String encoded = ISO9075.encode(decoded);
-                    rightExpr = SQL2Parser.escapeStringLiteral(decoded);
-                    if (!encoded.equalsIgnoreCase(raw)) {
-                        // nothing can potentially match
-                        impossible = true;
-                    }
+            if (left != null) {
+                appendTo(buff, left, precedence);
+                buff.append(' ');
+            }
+            buff.append(operator);
+            if (right != null) {
+                buff.append(' ');
+                if (nameLiteral != null && right.getPrecedence() >= precedence) {
+                    buff.append(nameLiteral);
                 } else {
-                    rightExpr = right.toString();
+                    appendTo(buff, right, precedence);
                 }
-                if (right.getPrecedence() < precedence) {
-                    rightExpr = "(" + right + ")";
-                }
-            }
-            if (impossible) {
-                // a condition that can not possibly be true
-                return "upper(" + leftExpr + ") = 'never matches'";
             }
-            return (leftExpr + " " + operator + " " + rightExpr).trim();
+            return buff;
         }
     
         @Override
@@ -433,15 +457,19 @@ abstract class Expression {
     
         @Override
         public String toString() {
-            StringBuilder buff = new StringBuilder();
-            buff.append(left).append(" in(");
+            return appendTo(new StringBuilder()).toString();
+        }
+
+        @Override
+        StringBuilder appendTo(StringBuilder buff) {
+            left.appendTo(buff).append(" in(");
             for (int i = 0; i < list.size(); i++) {
                 if (i > 0) {
                     buff.append(", ");
                 }
-                buff.append(list.get(i));
+                list.get(i).appendTo(buff);
             }
-            return buff.append(')').toString();
+            return buff.append(')');
         }
     
         @Override
@@ -535,7 +563,12 @@ abstract class Expression {
     
         @Override
         public String toString() {
-            StringBuilder buff = new StringBuilder("contains(");
+            return appendTo(new StringBuilder()).toString();
+        }
+
+        @Override
+        StringBuilder appendTo(StringBuilder buff) {
+            buff.append("contains(");
             Expression l = left;
             if (l instanceof Property) {
                 Property p = (Property) l;
@@ -543,9 +576,9 @@ abstract class Expression {
                     l = new Property(p.selector, p.name + "/*", true);
                 }
             }
-            buff.append(l);
-            buff.append(", ").append(right).append(')');
-            return buff.toString();
+            l.appendTo(buff);
+            buff.append(", ");
+            return right.appendTo(buff).append(')');
         }
     
         @Override
@@ -581,10 +614,15 @@ abstract class Expression {
     
         @Override
         public String toString() {
-            StringBuilder buff = new StringBuilder("native(");
-            buff.append(selector);
-            buff.append(", ").append(language).append(", ").append(expression).append(')');
-            return buff.toString();
+            return appendTo(new StringBuilder()).toString();
+        }
+
+        @Override
+        StringBuilder appendTo(StringBuilder buff) {
+            buff.append("native(");
+            buff.append(selector).append(", ");
+            language.appendTo(buff).append(", ");
+            return expression.appendTo(buff).append(')');
         }
     
         @Override
@@ -618,10 +656,14 @@ abstract class Expression {
     
         @Override
         public String toString() {
-            StringBuilder buff = new StringBuilder("similar(");
-            buff.append(property);
-            buff.append(", ").append(path).append(')');
-            return buff.toString();
+            return appendTo(new StringBuilder()).toString();
+        }
+
+        @Override
+        StringBuilder appendTo(StringBuilder buff) {
+            buff.append("similar(");
+            property.appendTo(buff).append(", ");
+            return path.appendTo(buff).append(')');
         }
     
         @Override
@@ -649,10 +691,13 @@ abstract class Expression {
 
         @Override
         public String toString() {
-            StringBuilder buff = new StringBuilder("spellcheck(");
-            buff.append(term);
-            buff.append(')');
-            return buff.toString();
+            return appendTo(new StringBuilder()).toString();
+        }
+
+        @Override
+        StringBuilder appendTo(StringBuilder buff) {
+            buff.append("spellcheck(");
+            return term.appendTo(buff).append(')');
         }
 
         @Override
@@ -680,10 +725,13 @@ abstract class Expression {
 
         @Override
         public String toString() {
-            StringBuilder buff = new StringBuilder("suggest(");
-            buff.append(term);
-            buff.append(')');
-            return buff.toString();
+            return appendTo(new StringBuilder()).toString();
+        }
+
+        @Override
+        StringBuilder appendTo(StringBuilder buff) {
+            buff.append("suggest(");
+            return term.appendTo(buff).append(')');
         }
 
         @Override
@@ -712,16 +760,19 @@ abstract class Expression {
     
         @Override
         public String toString() {
-            StringBuilder buff = new StringBuilder(name);
-            buff.append('(');
+            return appendTo(new StringBuilder()).toString();
+        }
+
+        @Override
+        StringBuilder appendTo(StringBuilder buff) {
+            buff.append(name).append('(');
             for (int i = 0; i < params.size(); i++) {
                 if (i > 0) {
                     buff.append(", ");
                 }
-                buff.append(params.get(i).toString());
+                params.get(i).appendTo(buff);
             }
-            buff.append(')');
-            return buff.toString();
+            return buff.append(')');
         }
     
         @Override
@@ -754,10 +805,13 @@ abstract class Expression {
     
         @Override
         public String toString() {
-            StringBuilder buff = new StringBuilder("cast(");
-            buff.append(expr.toString());
-            buff.append(" as ").append(type).append(')');
-            return buff.toString();
+            return appendTo(new StringBuilder()).toString();
+        }
+
+        @Override
+        StringBuilder appendTo(StringBuilder buff) {
+            buff.append("cast(");
+            return expr.appendTo(buff).append(" as ").append(type).append(')');
         }
     
         @Override
@@ -26,7 +26,15 @@ class Order {
 
     @Override
     public String toString() {
-        return expr + (descending ? " desc" : "");
+        return appendTo(new StringBuilder()).toString();
+    }
+
+    StringBuilder appendTo(StringBuilder buff) {
+        expr.appendTo(buff);
+        if (descending) {
+            buff.append(" desc");
+        }
+        return buff;
     }
 
 }
\ No newline at end of file
@@ -161,8 +161,16 @@ public class Statement {
     
     @Override
     public String toString() {
-        StringBuilder buff = new StringBuilder();
-        
+        return appendTo(new StringBuilder()).toString();
+    }
+
+    /**
+     * Append the SQL-2 statement to the buffer.
+     *
+     * @param buff the target buffer
+     * @return the buffer
+     */
+    StringBuilder appendTo(StringBuilder buff) {
         // explain | measure ...
         if (explain) {
             buff.append("explain ");
@@ -173,24 +181,23 @@ public class Statement {
         
         // select ...
         buff.append("select ");
-        buff.append(new Expression.Property(columnSelector, QueryConstants.JCR_PATH, false).toString());
+        new Expression.Property(columnSelector, QueryConstants.JCR_PATH, false).appendTo(buff);
         if (selectors.size() > 1) {
             buff.append(" as ").append('[').append(QueryConstants.JCR_PATH).append(']');
         }
         buff.append(", ");
-        buff.append(new Expression.Property(columnSelector, QueryConstants.JCR_SCORE, false).toString());
+        new Expression.Property(columnSelector, QueryConstants.JCR_SCORE, false).appendTo(buff);
         if (selectors.size() > 1) {
             buff.append(" as ").append('[').append(QueryConstants.JCR_SCORE).append(']');
         }
         if (columnList.isEmpty()) {
             buff.append(", ");
-            buff.append(new Expression.Property(columnSelector, "*", false).toString());
+            new Expression.Property(columnSelector, "*", false).appendTo(buff);
         } else {
             for (int i = 0; i < columnList.size(); i++) {
                 buff.append(", ");
                 Expression e = columnList.get(i);
-                String columnName = e.toString();
-                buff.append(columnName);
+                e.appendTo(buff);
                 if (selectors.size() > 1) {
                     buff.append(" as [").append(e.getColumnAliasName()).append("]");
                 }
@@ -208,15 +215,17 @@ public class Statement {
             if (nodeType == null) {
                 nodeType = "nt:base";
             }
-            buff.append('[' + nodeType + ']').append(" as ").append(s.name);
+            buff.append('[').append(nodeType).append(']').append(" as ").append(s.name);
             if (s.joinCondition != null) {
-                buff.append(" on ").append(s.joinCondition);
+                buff.append(" on ");
+                s.joinCondition.appendTo(buff);
             }
         }
         
         // where ...
         if (where != null) {
-            buff.append(" where ").append(where.toString());
+            buff.append(" where ");
+            where.appendTo(buff);
         }
         
         // order by ...
@@ -226,13 +235,13 @@ public class Statement {
                 if (i > 0) {
                     buff.append(", ");
                 }
-                buff.append(orderList.get(i));
+                orderList.get(i).appendTo(buff);
             }
         }
         appendQueryOptions(buff, queryOptions);
         // leave original xpath string as a comment
         appendXPathAsComment(buff, xpathQuery);
-        return buff.toString();        
+        return buff;
     }
     
     /**
@@ -322,8 +331,7 @@ public class Statement {
         }
         
         @Override
-        public String toString() {
-            StringBuilder buff = new StringBuilder();
+        StringBuilder appendTo(StringBuilder buff) {
             // explain | measure ...
             if (explain) {
                 buff.append("explain ");
@@ -331,7 +339,8 @@ public class Statement {
             if (measure) {
                 buff.append("measure ");
             }
-            buff.append(s1).append(" union ").append(s2);
+            s1.appendTo(buff).append(" union ");
+            s2.appendTo(buff);
             // order by ...
             if (orderList != null && !orderList.isEmpty()) {
                 buff.append(" order by ");
@@ -339,13 +348,13 @@ public class Statement {
                     if (i > 0) {
                         buff.append(", ");
                     }
-                    buff.append(orderList.get(i));
+                    orderList.get(i).appendTo(buff);
                 }
             }
             appendQueryOptions(buff, queryOptions);
             // leave original xpath string as a comment
             appendXPathAsComment(buff, xpathQuery);
-            return buff.toString();
+            return buff;
         }
         
     }
@@ -381,8 +390,10 @@ public class Statement {
         }
         buff.append(" /* xpath: ");
         // the xpath query may contain the "end comment" marker
-        String xpathEscaped = xpath.replaceAll("\\*\\/", "* /");
-        buff.append(xpathEscaped);
+        if (xpath.indexOf("*/") >= 0) {
+            xpath = xpath.replace("*/", "* /");
+        }
+        buff.append(xpath);
         buff.append(" */");        
     }
 
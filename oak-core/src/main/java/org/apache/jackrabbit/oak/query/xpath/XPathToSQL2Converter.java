@@ -25,6 +25,7 @@ import java.util.Optional;
 import org.apache.jackrabbit.oak.commons.PathUtils;
 import org.apache.jackrabbit.oak.query.QueryOptions;
 import org.apache.jackrabbit.oak.query.QueryOptions.Traversal;
+import org.apache.jackrabbit.oak.query.SpecialTokens;
 import org.apache.jackrabbit.oak.query.xpath.Statement.UnionStatement;
 import org.apache.jackrabbit.util.ISO9075;
 import org.slf4j.Logger;
@@ -1028,12 +1029,12 @@ public class XPathToSQL2Converter {
             if (types[i] == CHAR_SPECIAL_2) {
                 i++;
             }
-            currentToken = statement.substring(start, i);
+            currentToken = SpecialTokens.get(statement, statementChars, start, i);
             currentTokenType = KEYWORD;
             parseIndex = i;
             break;
         case CHAR_SPECIAL_1:
-            currentToken = statement.substring(start, i);
+            currentToken = SpecialTokens.get(statement, statementChars, start, i);
             switch (c) {
             case '+':
                 currentTokenType = PLUS;
@@ -1108,13 +1109,18 @@ public class XPathToSQL2Converter {
     private void readString(int i, char end) throws ParseException {
         char[] chars = statementChars;
         String result = null;
+        StringBuilder buff = null;
         while (true) {
             for (int begin = i;; i++) {
                 if (chars[i] == end) {
                     if (result == null) {
                         result = statement.substring(begin, i);
                     } else {
-                        result += statement.substring(begin - 1, i);
+                        // an escaped quote: the quote is included
+                        if (buff == null) {
+                            buff = new StringBuilder(result);
+                        }
+                        buff.append(chars, begin - 1, i - begin + 1);
                     }
                     break;
                 }
@@ -1124,6 +1130,9 @@ public class XPathToSQL2Converter {
             }
             i++;
         }
+        if (buff != null) {
+            result = buff.toString();
+        }
         currentToken = result;
         parseIndex = i;
         currentTokenType = VALUE_STRING;
@@ -16,18 +16,24 @@
  */
 package org.apache.jackrabbit.oak.plugins.index;
 
+import static org.apache.jackrabbit.oak.plugins.memory.EmptyNodeState.EMPTY_NODE;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 
 import org.apache.jackrabbit.oak.api.PropertyValue;
 import org.apache.jackrabbit.oak.api.Result.SizePrecision;
 import org.apache.jackrabbit.oak.query.QueryEngineSettings;
 import org.apache.jackrabbit.oak.spi.query.Cursor;
 import org.apache.jackrabbit.oak.spi.query.IndexRow;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.apache.jackrabbit.oak.spi.state.PrefetchNodeStore;
+import org.jetbrains.annotations.NotNull;
 import org.junit.Test;
 
 /**
@@ -67,6 +73,31 @@ public class CursorsTest {
         }
     }
 
+    @Test
+    public void prefetchCursor() {
+        final List<String> batches = new ArrayList<String>();
+        PrefetchNodeStore store = new PrefetchNodeStore() {
+            @Override
+            public void prefetch(@NotNull Collection<String> paths, @NotNull NodeState rootState) {
+                batches.add(paths.toString());
+            }
+        };
+        Cursor a = new SimpleCursor("1:", "/a", "/b", "/c", "/d", "/e");
+        Cursor c = Cursors.newPrefetchCursor(a, store, EMPTY_NODE, 2);
+        assertEquals("1:/a", c.next().toString());
+        assertEquals("[[/a, /b]]", batches.toString());
+        assertEquals("1:/b, 1:/c, 1:/d, 1:/e", list(c));
+        assertEquals("[[/a, /b], [/c, /d], [/e]]", batches.toString());
+        assertFalse(c.hasNext());
+
+        // only 3 rows are needed: rows after that are read one at a time
+        batches.clear();
+        a = new SimpleCursor("1:", "/a", "/b", "/c", "/d", "/e");
+        c = Cursors.newPrefetchCursor(a, store, EMPTY_NODE, 2, 3);
+        assertEquals("1:/a, 1:/b, 1:/c, 1:/d, 1:/e", list(c));
+        assertEquals("[[/a, /b], [/c], [/d], [/e]]", batches.toString());
+    }
+
     static String list(Cursor c) {
         StringBuilder buff = new StringBuilder();
         while (c.hasNext()) {
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.index.counter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class HyperLogLogTest {
+
+    @Test
+    public void estimate() {
+        for (int count : new int[] { 0, 1, 10, 100, 1000, 10000, 100000 }) {
+            HyperLogLog hll = new HyperLogLog();
+            for (int i = 0; i < count; i++) {
+                hll.add("value" + i);
+                // duplicates don't change the estimate
+                hll.add("value" + i);
+            }
+            long estimate = hll.estimate();
+            assertTrue(count + " estimated as " + estimate,
+                    Math.abs(estimate - count) <= Math.max(1, count / 7));
+        }
+    }
+
+    @Test
+    public void serializeAndMerge() {
+        HyperLogLog a = new HyperLogLog();
+        HyperLogLog b = new HyperLogLog();
+        for (int i = 0; i < 2000; i++) {
+            a.add("x" + i);
+            b.add("x" + (i + 1000));
+        }
+        HyperLogLog c = HyperLogLog.deserialize(a.serialize());
+        assertEquals(a.estimate(), c.estimate());
+        c.merge(b);
+        long estimate = c.estimate();
+        assertTrue("3000 estimated as " + estimate, Math.abs(estimate - 3000) <= 450);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mergeDifferentSize() {
+        new HyperLogLog(1024).merge(new HyperLogLog(2048));
+    }
+
+}
@@ -17,6 +17,7 @@
 package org.apache.jackrabbit.oak.plugins.index.counter;
 
 import static org.apache.jackrabbit.oak.api.QueryEngine.NO_MAPPINGS;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
@@ -34,9 +35,11 @@ import org.apache.jackrabbit.oak.api.Result;
 import org.apache.jackrabbit.oak.api.ResultRow;
 import org.apache.jackrabbit.oak.api.Root;
 import org.apache.jackrabbit.oak.api.Tree;
+import org.apache.jackrabbit.oak.api.Type;
 import org.apache.jackrabbit.oak.commons.json.JsonObject;
 import org.apache.jackrabbit.oak.commons.json.JsopTokenizer;
 import org.apache.jackrabbit.oak.plugins.index.AsyncIndexUpdate;
+import org.apache.jackrabbit.oak.plugins.index.counter.jmx.NodeCounter;
 import org.apache.jackrabbit.oak.plugins.index.property.PropertyIndexEditorProvider;
 import org.apache.jackrabbit.oak.plugins.memory.MemoryNodeStore;
 import org.apache.jackrabbit.oak.InitialContent;
@@ -49,6 +52,8 @@ import org.jetbrains.annotations.Nullable;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.common.collect.ImmutableList;
+
 /**
  * A test case for the node counter index.
  */
@@ -104,6 +109,33 @@ public class NodeCounterIndexTest {
         assertTrue(getCost("/jcr:root//*") >= 1.0E8);
     }
     
+    @Test
+    public void propertyStatistics() throws Exception {
+        root.getTree("/oak:index/counter").setProperty(
+                NodeCounterEditorProvider.PROPERTY_STATISTICS, ImmutableList.of("color"), Type.STRINGS);
+        Tree t = root.getTree("/").addChild("test");
+        for (int i = 0; i < 1000; i++) {
+            t.addChild("n" + i).setProperty("color", "c" + (i % 10));
+        }
+        root.commit();
+        assertEquals(-1, NodeCounter.getEstimatedPropertyCount(nodeStore.getRoot(), "color"));
+
+        runAsyncIndex();
+        assertEquals(1000, NodeCounter.getEstimatedPropertyCount(nodeStore.getRoot(), "color"));
+        assertEquals(10, NodeCounter.getEstimatedDistinctValueCount(nodeStore.getRoot(), "color"));
+        assertEquals(-1, NodeCounter.getEstimatedPropertyCount(nodeStore.getRoot(), "size"));
+
+        // incremental updates
+        for (int i = 0; i < 100; i++) {
+            t.getChild("n" + i).removeProperty("color");
+        }
+        t.getChild("n100").setProperty("color", "new");
+        root.commit();
+        runAsyncIndex();
+        assertEquals(900, NodeCounter.getEstimatedPropertyCount(nodeStore.getRoot(), "color"));
+        assertEquals(11, NodeCounter.getEstimatedDistinctValueCount(nodeStore.getRoot(), "color"));
+    }
+
     private double getCost(String xpath) throws ParseException {
         String plan = executeXPathQuery("explain measure " + xpath);
         String cost = plan.substring(plan.lastIndexOf('{'));
@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.jackrabbit.oak.InitialContent;
+import org.apache.jackrabbit.oak.Oak;
+import org.apache.jackrabbit.oak.api.ContentRepository;
+import org.apache.jackrabbit.oak.api.PropertyValue;
+import org.apache.jackrabbit.oak.api.Result.SizePrecision;
+import org.apache.jackrabbit.oak.api.Tree;
+import org.apache.jackrabbit.oak.plugins.memory.PropertyValues;
+import org.apache.jackrabbit.oak.spi.query.Cursor;
+import org.apache.jackrabbit.oak.spi.query.Filter;
+import org.apache.jackrabbit.oak.spi.query.IndexRow;
+import org.apache.jackrabbit.oak.spi.query.QueryIndex;
+import org.apache.jackrabbit.oak.spi.query.QueryIndexProvider;
+import org.apache.jackrabbit.oak.spi.security.OpenSecurityProvider;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.apache.jackrabbit.oak.spi.whiteboard.DefaultWhiteboard;
+import org.apache.jackrabbit.oak.spi.whiteboard.Whiteboard;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Tests reading the values of a query from an index that covers the query,
+ * without reading the nodes.
+ */
+public class CoveringIndexTest extends AbstractQueryTest {
+
+    private static final String QUERY =
+            "select [jcr:path], [title] from [nt:base] where [title] is not null";
+
+    private final QueryEngineSettings settings = new QueryEngineSettings();
+
+    private final TitleIndex index = new TitleIndex();
+
+    @Override
+    protected ContentRepository createRepository() {
+        settings.setCoveringIndex(true);
+        // the settings are only used as a whole if registered as a service
+        Whiteboard whiteboard = new DefaultWhiteboard();
+        whiteboard.register(QueryEngineSettings.class, settings, Collections.emptyMap());
+        return new Oak()
+                .with(whiteboard)
+                .with(new OpenSecurityProvider())
+                .with(new InitialContent())
+                .with(new TitleIndexProvider(index))
+                .createContentRepository();
+    }
+
+    @Before
+    public void createContent() throws Exception {
+        Tree content = root.getTree("/").addChild("content");
+        content.addChild("a").setProperty("title", "a");
+        content.addChild("b").setProperty("title", "b");
+        root.commit();
+    }
+
+    @Test
+    public void covering() {
+        // the values are read from the index, and the node that doesn't
+        // exist is not filtered out, as the nodes are not read
+        assertEquals(ImmutableList.of(
+                "/content/a, index-a",
+                "/content/b, index-b",
+                "/content/gone, index-gone"),
+                executeQuery(QUERY, SQL2, false));
+        assertTrue(explain(QUERY).contains("/* covering */"));
+    }
+
+    @Test
+    public void disabled() {
+        settings.setCoveringIndex(false);
+        assertEquals(ImmutableList.of(
+                "/content/a, a",
+                "/content/b, b"),
+                executeQuery(QUERY, SQL2, false));
+        assertFalse(explain(QUERY).contains("/* covering */"));
+    }
+
+    @Test
+    public void notCovered() {
+        String query = "select [jcr:path], [title] from [nt:base] " +
+                "where [title] is not null and [other] is null";
+        assertEquals(ImmutableList.of(
+                "/content/a, a",
+                "/content/b, b"),
+                executeQuery(query, SQL2, false));
+        assertFalse(explain(query).contains("/* covering */"));
+
+        query = "select [jcr:path], [title] from [nt:unstructured] " +
+                "where [title] is not null";
+        assertFalse(explain(query).contains("/* covering */"));
+    }
+
+    @Test
+    public void delayed() {
+        // the values of an asynchronous index may be stale
+        index.delayed = true;
+        assertEquals(ImmutableList.of(
+                "/content/a, a",
+                "/content/b, b"),
+                executeQuery(QUERY, SQL2, false));
+        assertFalse(explain(QUERY).contains("/* covering */"));
+    }
+
+    @Test
+    public void transientChanges() throws Exception {
+        root.getTree("/content/a").setProperty("x", "1");
+        assertEquals(ImmutableList.of(
+                "/content/a, a",
+                "/content/b, b"),
+                executeQuery(QUERY, SQL2, false));
+    }
+
+    private String explain(String query) {
+        return executeQuery("explain " + query, SQL2, false).get(0);
+    }
+
+    private static class TitleIndexProvider implements QueryIndexProvider {
+
+        private final TitleIndex index;
+
+        TitleIndexProvider(TitleIndex index) {
+            this.index = index;
+        }
+
+        @NotNull
+        @Override
+        public List<? extends QueryIndex> getQueryIndexes(NodeState nodeState) {
+            return ImmutableList.of(index);
+        }
+
+    }
+
+    /**
+     * An index on the property "title", which returns the values with a
+     * prefix, and also returns a row for a node that doesn't exist.
+     */
+    private static class TitleIndex implements QueryIndex, QueryIndex.AdvancedQueryIndex {
+
+        boolean delayed;
+
+        @Override
+        public double getMinimumCost() {
+            return 1;
+        }
+
+        @Override
+        public double getCost(Filter filter, NodeState rootState) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        @Override
+        public Cursor query(Filter filter, NodeState rootState) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String getPlan(Filter filter, NodeState rootState) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String getIndexName() {
+            return "title";
+        }
+
+        @Override
+        public List<IndexPlan> getPlans(Filter filter, List<OrderEntry> sortOrder, NodeState rootState) {
+            if (filter.getPropertyRestriction("title") == null) {
+                return ImmutableList.of();
+            }
+            return ImmutableList.of(new IndexPlan.Builder()
+                    .setCostPerExecution(1)
+                    .setCostPerEntry(1)
+                    .setEstimatedEntryCount(3)
+                    .setFilter(filter)
+                    .setDelayed(delayed)
+                    .setCoveredProperties(ImmutableSet.of("title"))
+                    .setPlanName("title")
+                    .build());
+        }
+
+        @Override
+        public String getPlanDescription(IndexPlan plan, NodeState root) {
+            return "title";
+        }
+
+        @Override
+        public Cursor query(IndexPlan plan, NodeState rootState) {
+            final Iterator<String> names = ImmutableList.of("a", "b", "gone").iterator();
+            return new Cursor() {
+
+                @Override
+                public boolean hasNext() {
+                    return names.hasNext();
+                }
+
+                @Override
+                public IndexRow next() {
+                    final String name = names.next();
+                    return new IndexRow() {
+
+                        @Override
+                        public boolean isVirtualRow() {
+                            return false;
+                        }
+
+                        @Override
+                        public String getPath() {
+                            return "/content/" + name;
+                        }
+
+                        @Override
+                        public PropertyValue getValue(String columnName) {
+                            if ("title".equals(columnName)) {
+                                return PropertyValues.newString("index-" + name);
+                            }
+                            return null;
+                        }
+
+                    };
+                }
+
+                @Override
+                public long getSize(SizePrecision precision, long max) {
+                    return -1;
+                }
+
+            };
+        }
+
+    }
+
+}
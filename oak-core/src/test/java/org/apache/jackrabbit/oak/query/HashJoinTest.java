@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.jackrabbit.oak.InitialContent;
+import org.apache.jackrabbit.oak.Oak;
+import org.apache.jackrabbit.oak.api.ContentRepository;
+import org.apache.jackrabbit.oak.api.Tree;
+import org.apache.jackrabbit.oak.api.Type;
+import org.apache.jackrabbit.oak.spi.security.OpenSecurityProvider;
+import org.apache.jackrabbit.oak.spi.whiteboard.DefaultWhiteboard;
+import org.apache.jackrabbit.oak.spi.whiteboard.Whiteboard;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Tests the hash join strategy for equi-joins that would otherwise traverse
+ * the repository for each row of the left hand side.
+ */
+public class HashJoinTest extends AbstractQueryTest {
+
+    private static final String INNER_JOIN =
+            "select [p].[jcr:path], [c].[jcr:path] from [nt:base] as [p] " +
+            "inner join [nt:base] as [c] on [p].[id] = [c].[p] " +
+            "where isdescendantnode([p], '/parents') and isdescendantnode([c], '/children')";
+
+    private static final String LEFT_OUTER_JOIN =
+            "select [p].[jcr:path], [c].[jcr:path] from [nt:base] as [p] " +
+            "left outer join [nt:base] as [c] on [p].[id] = [c].[p] " +
+            "where isdescendantnode([p], '/parents')";
+
+    private final QueryEngineSettings settings = new QueryEngineSettings();
+
+    @Override
+    protected ContentRepository createRepository() {
+        settings.setHashJoin(true);
+        // the settings are only used as a whole if registered as a service
+        Whiteboard whiteboard = new DefaultWhiteboard();
+        whiteboard.register(QueryEngineSettings.class, settings, Collections.emptyMap());
+        return new Oak()
+                .with(whiteboard)
+                .with(new OpenSecurityProvider())
+                .with(new InitialContent())
+                .createContentRepository();
+    }
+
+    @Before
+    public void createContent() throws Exception {
+        Tree parents = root.getTree("/").addChild("parents");
+        parents.addChild("p1").setProperty("id", "1");
+        parents.addChild("p2").setProperty("id", "2");
+        parents.addChild("p3").setProperty("id", "3");
+        parents.addChild("p4").setProperty("id", "5");
+        Tree children = root.getTree("/").addChild("children");
+        children.addChild("c1").setProperty("p", "1");
+        children.addChild("c2").setProperty("p", "1");
+        children.addChild("c3").setProperty("p", ImmutableList.of("2", "3", "3"), Type.STRINGS);
+        children.addChild("c4").setProperty("p", "4");
+        children.addChild("c5");
+        root.commit();
+    }
+
+    @Test
+    public void innerJoin() {
+        List<String> expected = ImmutableList.of(
+                "/parents/p1, /children/c1",
+                "/parents/p1, /children/c2",
+                "/parents/p2, /children/c3",
+                "/parents/p3, /children/c3");
+        assertEquals(expected, executeQuery(INNER_JOIN, SQL2, false));
+        assertTrue(explain(INNER_JOIN).contains("/* hash join */"));
+
+        settings.setHashJoin(false);
+        assertEquals(expected, executeQuery(INNER_JOIN, SQL2, false));
+        assertFalse(explain(INNER_JOIN).contains("/* hash join */"));
+    }
+
+    @Test
+    public void leftOuterJoin() {
+        List<String> expected = ImmutableList.of(
+                "/parents/p1, /children/c1",
+                "/parents/p1, /children/c2",
+                "/parents/p2, /children/c3",
+                "/parents/p3, /children/c3",
+                "/parents/p4, null");
+        assertEquals(expected, executeQuery(LEFT_OUTER_JOIN, SQL2, false));
+        assertTrue(explain(LEFT_OUTER_JOIN).contains("/* hash join */"));
+    }
+
+    @Test
+    public void fallbackToNestedLoop() {
+        settings.setHashJoinMaxRows(1);
+        List<String> expected = ImmutableList.of(
+                "/parents/p1, /children/c1",
+                "/parents/p1, /children/c2",
+                "/parents/p2, /children/c3",
+                "/parents/p3, /children/c3");
+        assertEquals(expected, executeQuery(INNER_JOIN, SQL2, false));
+    }
+
+    @Test
+    public void mixedTypes() throws Exception {
+        Tree parents = root.getTree("/").addChild("mixedParents");
+        parents.addChild("long").setProperty("id", 1L);
+        parents.addChild("double").setProperty("id", 2.0d);
+        parents.addChild("decimal").setProperty("id", new BigDecimal("3.0"));
+        parents.addChild("date").setProperty("id", "2020-01-01T00:00:00.000Z", Type.DATE);
+        parents.addChild("string").setProperty("id", "5");
+        Tree children = root.getTree("/").addChild("mixedChildren");
+        children.addChild("double").setProperty("p", 1.0d);
+        children.addChild("long").setProperty("p", 2L);
+        children.addChild("decimal").setProperty("p", new BigDecimal("3.00"));
+        children.addChild("date").setProperty("p", "2020-01-01T01:00:00.000+01:00", Type.DATE);
+        children.addChild("string").setProperty("p", "5");
+        Tree strings = root.getTree("/").addChild("stringChildren");
+        strings.addChild("c1").setProperty("p", "1");
+        strings.addChild("c2").setProperty("p", "2.0");
+        strings.addChild("c5").setProperty("p", "5");
+        root.commit();
+
+        // values of different types on the right hand side
+        String mixed = "select [p].[jcr:path], [c].[jcr:path] from [nt:base] as [p] " +
+                "inner join [nt:base] as [c] on [p].[id] = [c].[p] " +
+                "where isdescendantnode([p], '/mixedParents') and isdescendantnode([c], '/mixedChildren')";
+        // strings on the right hand side, different types on the left hand side
+        String leftMixed = "select [p].[jcr:path], [c].[jcr:path] from [nt:base] as [p] " +
+                "inner join [nt:base] as [c] on [p].[id] = [c].[p] " +
+                "where isdescendantnode([p], '/mixedParents') and isdescendantnode([c], '/stringChildren')";
+        for (String query : ImmutableList.of(mixed, leftMixed)) {
+            settings.setHashJoin(false);
+            List<String> nestedLoop = executeQuery(query, SQL2, false);
+            assertFalse(nestedLoop.isEmpty());
+            settings.setHashJoin(true);
+            assertTrue(explain(query).contains("/* hash join */"));
+            assertEquals(nestedLoop, executeQuery(query, SQL2, false));
+        }
+    }
+
+    private String explain(String query) {
+        return executeQuery("explain " + query, SQL2, false).get(0);
+    }
+
+}
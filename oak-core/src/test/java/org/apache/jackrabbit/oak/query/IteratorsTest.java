@@ -21,11 +21,16 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
@@ -194,6 +199,130 @@ public class IteratorsTest {
 
 }
 
+    @Test
+    public void sortSpill() {
+        Random r = new Random(1);
+        Integer[] list = new Integer[1000];
+        for (int i = 0; i < list.length; i++) {
+            list[i] = r.nextInt(500);
+        }
+        Integer[] sorted = list.clone();
+        Arrays.sort(sorted);
+
+        IntSpill spill = new IntSpill(100);
+        Iterator<Integer> it = FilterIterators.newSort(it(list), INT_COMP, Integer.MAX_VALUE, settings, spill);
+        assertEquals(toString(it(sorted)), toString(it));
+        assertEquals(10, spill.files.get());
+        assertEquals(1000, spill.rows.get());
+
+        // top-k: the list is truncated instead of spilled
+        spill = new IntSpill(100);
+        it = FilterIterators.newSort(it(list), INT_COMP, 10, settings, spill);
+        assertEquals(toString(it(Arrays.copyOf(sorted, 10))), toString(it));
+        assertEquals(0, spill.files.get());
+
+        // more than the threshold, but limited
+        spill = new IntSpill(100);
+        it = FilterIterators.newSort(it(list), INT_COMP, 150, settings, spill);
+        assertEquals(toString(it(Arrays.copyOf(sorted, 150))), toString(it));
+        assertEquals(10, spill.files.get());
+    }
+
+    @Test
+    public void distinctSpill() {
+        Random r = new Random(1);
+        Integer[] list = new Integer[1000];
+        for (int i = 0; i < list.length; i++) {
+            list[i] = r.nextInt(500);
+        }
+        IntSpill spill = new IntSpill(100);
+        Iterator<Integer> it = FilterIterators.newDistinct(it(list), settings, spill);
+        Set<Integer> expected = new LinkedHashSet<Integer>(Arrays.asList(list));
+        List<Integer> result = Lists.newArrayList(it);
+        assertEquals(expected.size(), result.size());
+        assertEquals(expected, new HashSet<Integer>(result));
+        // the first entries are returned in the original order
+        assertEquals(Lists.newArrayList(expected).subList(0, 100), result.subList(0, 100));
+        assertTrue(spill.files.get() > 0);
+    }
+
+    @Test
+    public void combinedSpill() {
+        IntSpill spill = new IntSpill(2);
+        assertEquals("2, 3", 
+                toString(FilterIterators.newCombinedFilter(
+                it(3, 3, 2, 1, 3, 4, 1), true, 2, 1, INT_COMP, settings, spill)));
+        assertTrue(spill.files.get() > 0);
+    }
+
+    @Test
+    public void spillFilesDeleted() {
+        Integer[] list = new Integer[1000];
+        for (int i = 0; i < list.length; i++) {
+            list[i] = list.length - i;
+        }
+
+        // all entries read
+        IntSpill spill = new IntSpill(100);
+        Iterator<Integer> it = FilterIterators.newSort(it(list), INT_COMP, Integer.MAX_VALUE, settings, spill);
+        Lists.newArrayList(it);
+        assertEquals(10, spill.files.get());
+        assertEquals(0, spill.getFileCount());
+
+        // limit reached while merging
+        spill = new IntSpill(100);
+        it = FilterIterators.newLimit(
+                FilterIterators.newSort(it(list), INT_COMP, Integer.MAX_VALUE, settings, spill), 5);
+        assertEquals("1, 2, 3, 4, 5", toString(it));
+        assertEquals(10, spill.files.get());
+        assertEquals(0, spill.getFileCount());
+
+        // distinct, closed before all entries are read
+        spill = new IntSpill(100);
+        it = FilterIterators.newCombinedFilter(it(list), true, Long.MAX_VALUE, 0, null, settings, spill);
+        for (int i = 0; i < 100; i++) {
+            it.next();
+        }
+        assertEquals(FilterIterators.DistinctIterator.PARTITIONS, spill.getFileCount());
+        FilterIterators.close(it);
+        assertEquals(0, spill.getFileCount());
+        assertFalse(it.hasNext());
+
+        // sort, abandoned: the files are deleted when the spill is closed
+        spill = new IntSpill(100);
+        it = FilterIterators.newSort(it(list), INT_COMP, Integer.MAX_VALUE, settings, spill);
+        it.next();
+        assertEquals(10, spill.getFileCount());
+        spill.close();
+        assertEquals(0, spill.getFileCount());
+    }
+
+    private static class IntSpill extends FilterIterators.Spill<Integer> {
+
+        final AtomicInteger files = new AtomicInteger();
+        final AtomicInteger rows = new AtomicInteger();
+
+        IntSpill(int threshold) {
+            super(threshold);
+        }
+
+        @Override
+        protected String write(Integer entry) {
+            return entry.toString();
+        }
+
+        @Override
+        protected Integer read(String line) {
+            return Integer.valueOf(line);
+        }
+
+        @Override
+        protected void spilled(int count) {
+            files.incrementAndGet();
+            rows.addAndGet(count);
+        }
+    }
+
     private static <K> Iterator<K> it(K... x) {
         return Collections.unmodifiableCollection(Lists.newArrayList(x)).iterator();
     }
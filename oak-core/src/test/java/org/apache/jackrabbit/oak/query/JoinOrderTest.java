@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.query;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import org.apache.jackrabbit.oak.InitialContent;
+import org.apache.jackrabbit.oak.Oak;
+import org.apache.jackrabbit.oak.api.ContentRepository;
+import org.apache.jackrabbit.oak.api.Tree;
+import org.apache.jackrabbit.oak.query.plan.CardinalityEstimator;
+import org.apache.jackrabbit.oak.spi.query.Filter;
+import org.apache.jackrabbit.oak.spi.security.OpenSecurityProvider;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.apache.jackrabbit.oak.spi.whiteboard.DefaultWhiteboard;
+import org.apache.jackrabbit.oak.spi.whiteboard.Whiteboard;
+import org.junit.Test;
+
+/**
+ * Tests the join order chosen with and without statistics about the number
+ * of rows of each selector.
+ */
+public class JoinOrderTest extends AbstractQueryTest {
+
+    private static final String JOIN =
+            "select [a].[jcr:path], [b].[jcr:path] from [nt:base] as [a] " +
+            "inner join [nt:base] as [b] on [a].[x] = [b].[y] " +
+            "where isdescendantnode([a], '/a/b') and isdescendantnode([b], '/b')";
+
+    private final QueryEngineSettings settings = new QueryEngineSettings();
+
+    @Override
+    protected ContentRepository createRepository() {
+        // the settings are only used as a whole if registered as a service
+        Whiteboard whiteboard = new DefaultWhiteboard();
+        whiteboard.register(QueryEngineSettings.class, settings, Collections.emptyMap());
+        return new Oak()
+                .with(whiteboard)
+                .with(new OpenSecurityProvider())
+                .with(new InitialContent())
+                .createContentRepository();
+    }
+
+    @Test
+    public void orderChangesWithStatistics() throws Exception {
+        // traversal costs are only known for existing nodes
+        Tree ab = root.getTree("/").addChild("a").addChild("b");
+        ab.addChild("c1");
+        Tree b = root.getTree("/").addChild("b");
+        for (int i = 0; i < 10; i++) {
+            b.addChild("c" + i);
+        }
+        root.commit();
+
+        // without statistics, the selector with the lower cost is read first
+        // (traversing "/a/b" is cheaper than traversing "/b")
+        String plan = explain(JOIN);
+        assertTrue(plan, plan.startsWith("[nt:base] as [a] "));
+
+        // many rows below "/a/b", but only one below "/b"
+        settings.setCardinalityEstimator(new CardinalityEstimator() {
+            @Override
+            public long estimateRowCount(Filter filter, NodeState rootState) {
+                return "/b".equals(filter.getPath()) ? 1 : 1000000;
+            }
+        });
+        plan = explain(JOIN);
+        assertTrue(plan, plan.startsWith("[nt:base] as [b] "));
+
+        // statistics only for "/b": reading [b] first is cheaper, as for
+        // each row of [a] (without statistics) two rows of [b] are expected
+        settings.setCardinalityEstimator(new CardinalityEstimator() {
+            @Override
+            public long estimateRowCount(Filter filter, NodeState rootState) {
+                return "/b".equals(filter.getPath()) ? 1 : -1;
+            }
+        });
+        plan = explain(JOIN);
+        assertTrue(plan, plan.startsWith("[nt:base] as [b] "));
+    }
+
+    private String explain(String query) {
+        return executeQuery("explain " + query, SQL2, false).get(0);
+    }
+
+}
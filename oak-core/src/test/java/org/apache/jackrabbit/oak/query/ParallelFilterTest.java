@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.jackrabbit.oak.InitialContent;
+import org.apache.jackrabbit.oak.Oak;
+import org.apache.jackrabbit.oak.api.ContentRepository;
+import org.apache.jackrabbit.oak.api.Tree;
+import org.apache.jackrabbit.oak.api.Type;
+import org.apache.jackrabbit.oak.spi.security.OpenSecurityProvider;
+import org.apache.jackrabbit.oak.spi.whiteboard.DefaultWhiteboard;
+import org.apache.jackrabbit.oak.spi.whiteboard.Whiteboard;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests checking the rows returned by an index concurrently.
+ */
+public class ParallelFilterTest extends AbstractQueryTest {
+
+    private final QueryEngineSettings settings = new QueryEngineSettings();
+
+    @Override
+    protected ContentRepository createRepository() {
+        settings.setParallelFilter(true);
+        settings.setParallelFilterBatchSize(7);
+        // the settings are only used as a whole if registered as a service
+        Whiteboard whiteboard = new DefaultWhiteboard();
+        whiteboard.register(QueryEngineSettings.class, settings, Collections.emptyMap());
+        return new Oak()
+                .with(whiteboard)
+                .with(new OpenSecurityProvider())
+                .with(new InitialContent())
+                .createContentRepository();
+    }
+
+    @Before
+    public void createContent() throws Exception {
+        Tree test = root.getTree("/").addChild("test");
+        for (int i = 0; i < 100; i++) {
+            Tree t = test.addChild("n" + i);
+            t.setProperty("jcr:primaryType", i % 3 == 0 ? "nt:folder" : "nt:unstructured", Type.NAME);
+            if (i % 2 == 0) {
+                t.setProperty("x", "v" + (i % 5));
+            }
+            if (i % 7 == 0) {
+                t.setProperty("y", (long) i);
+            }
+        }
+        root.commit();
+    }
+
+    @Test
+    public void sameResult() {
+        assertSameResult("select [jcr:path] from [nt:folder] " +
+                "where isdescendantnode('/test')");
+        assertSameResult("select [jcr:path] from [nt:base] " +
+                "where isdescendantnode('/test') and [x] is not null");
+        assertSameResult("select [jcr:path] from [nt:unstructured] " +
+                "where isdescendantnode('/test') and [x] = 'v2'");
+        assertSameResult("select [jcr:path] from [nt:base] " +
+                "where isdescendantnode('/test') and [y] = 14");
+        assertSameResult("select [jcr:path] from [nt:base] " +
+                "where isdescendantnode('/test') and [y] = '14'");
+        assertSameResult("select [jcr:path] from [nt:base] " +
+                "where isdescendantnode('/test') and [x] = 'v2' and [y] is not null");
+    }
+
+    @Test
+    public void scanCount() {
+        String query = "select [jcr:path] from [nt:base] " +
+                "where isdescendantnode('/test') and [y] is not null";
+        assertEquals(15, executeQuery(query, SQL2, false).size());
+        String json = settings.getQueryStats().asJson();
+        // the same as without checking concurrently: the traversal also
+        // counts the node "/test"
+        assertTrue(json, json.contains("\"totalRowsScanned\":101,"));
+    }
+
+    @Test
+    public void readLimit() {
+        settings.setLimitReads(10);
+        try {
+            executeQuery("select [jcr:path] from [nt:base] " +
+                    "where isdescendantnode('/test') and [x] = 'v2'", SQL2, false);
+            fail();
+        } catch (RuntimeNodeTraversalException e) {
+            // expected
+        } finally {
+            settings.setLimitReads(Long.MAX_VALUE);
+        }
+    }
+
+    @Test
+    public void sharedPool() {
+        assertSame(settings.getFilterPool(), new QueryEngineSettings().getFilterPool());
+    }
+
+    private void assertSameResult(String query) {
+        settings.setParallelFilter(false);
+        List<String> expected = executeQuery(query, SQL2, false, true);
+        settings.setParallelFilter(true);
+        List<String> result = executeQuery(query, SQL2, false, true);
+        assertTrue(query, !expected.isEmpty());
+        assertEquals(query, expected, result);
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.query;
+
+import static org.apache.jackrabbit.oak.plugins.memory.EmptyNodeState.EMPTY_NODE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.text.ParseException;
+
+import org.apache.jackrabbit.oak.query.stats.QueryStatsMBean;
+import org.apache.jackrabbit.oak.query.xpath.XPathToSQL2Converter;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.junit.Test;
+
+public class StatementCacheTest {
+
+    @Test
+    public void hitsAndMisses() throws ParseException {
+        StatementCache cache = new StatementCache(10);
+        String xpath = "//*[@foo = 'bar']";
+        String expected = new XPathToSQL2Converter().convert(xpath);
+        assertEquals(expected, cache.convertXPath(xpath));
+        assertEquals(expected, cache.convertXPath(xpath));
+        assertEquals(expected, cache.convertXPath(xpath));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getSize());
+
+        cache.invalidateAll();
+        assertEquals(expected, cache.convertXPath(xpath));
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void bounded() throws ParseException {
+        StatementCache cache = new StatementCache(10);
+        for (int i = 0; i < 100; i++) {
+            cache.convertXPath("//*[@foo = " + i + "]");
+        }
+        assertEquals(10, cache.getSize());
+    }
+
+    @Test
+    public void invalidStatementNotCached() {
+        StatementCache cache = new StatementCache(10);
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.convertXPath("//*[@foo = ");
+                fail("ParseException expected");
+            } catch (ParseException e) {
+                // expected
+            }
+        }
+        assertEquals(0, cache.getSize());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void statsMBean() throws ParseException {
+        QueryEngineSettings settings = new QueryEngineSettings();
+        QueryStatsMBean bean = settings.getQueryStats();
+        StatementCache cache = settings.getStatementCache();
+        cache.convertXPath("//*");
+        cache.convertXPath("//*");
+        cache.planned(2000000);
+        assertEquals(1, bean.getStatementCacheHitCount());
+        assertEquals(1, bean.getStatementCacheMissCount());
+        assertEquals(0.5, bean.getStatementCacheHitRate(), 0.0001);
+        assertEquals(1, bean.getPlanCount());
+        assertEquals(2, bean.getPlanTimeMillis());
+
+        bean.resetStats();
+        assertEquals(0, bean.getStatementCacheHitCount());
+        assertEquals(0, bean.getPlanCount());
+    }
+
+    @Test
+    public void plans() {
+        StatementCache cache = new StatementCache(10, 60);
+        assertNull(cache.getPlan("q", 1));
+        cache.putPlan("q", 1, "property", null, false);
+        StatementCache.CachedPlan plan = cache.getPlan("q", 1);
+        assertNotNull(plan);
+        assertEquals("property", plan.getIndexName());
+        assertNull(plan.getPlanName());
+        assertFalse(plan.isPotentiallySlowTraversal());
+        // whether no index was found is kept with the entry
+        cache.putPlan("t", 1, "traverse", null, true);
+        assertTrue(cache.getPlan("t", 1).isPotentiallySlowTraversal());
+        // the index definitions changed
+        assertNull(cache.getPlan("q", 2));
+
+        cache.invalidateAll();
+        assertNull(cache.getPlan("q", 1));
+
+        StatementCache disabled = new StatementCache(10, 0);
+        assertFalse(disabled.isPlanCacheEnabled());
+        disabled.putPlan("q", 1, "property", null, false);
+        assertNull(disabled.getPlan("q", 1));
+        // opt-in
+        assertFalse(new StatementCache(10).isPlanCacheEnabled());
+    }
+
+    @Test
+    public void indexDefinitionVersion() {
+        NodeBuilder builder = EMPTY_NODE.builder();
+        builder.child("oak:index").child("foo").setProperty("type", "property");
+        builder.child("content").child("oak:index").child("bar").setProperty("type", "lucene");
+        NodeState root = builder.getNodeState();
+        long rootVersion = StatementCache.getIndexDefinitionVersion(root, "/");
+        long contentVersion = StatementCache.getIndexDefinitionVersion(root, "/content/a");
+        assertNotEquals(rootVersion, contentVersion);
+        assertEquals(rootVersion, StatementCache.getIndexDefinitionVersion(root, "/other"));
+
+        // hidden properties are updated while indexing
+        builder.child("content").child("oak:index").child("bar").setProperty(":status", "done");
+        root = builder.getNodeState();
+        assertEquals(contentVersion, StatementCache.getIndexDefinitionVersion(root, "/content/a"));
+
+        builder.child("content").child("oak:index").child("bar").setProperty("type", "disabled");
+        root = builder.getNodeState();
+        assertNotEquals(contentVersion, StatementCache.getIndexDefinitionVersion(root, "/content/a"));
+        assertEquals(rootVersion, StatementCache.getIndexDefinitionVersion(root, "/"));
+
+        // changes in child nodes, for example index rules, are included,
+        // but not in hidden nodes
+        contentVersion = StatementCache.getIndexDefinitionVersion(root, "/content/a");
+        builder.child("content").child("oak:index").child("bar").child(":data").setProperty("x", "1");
+        root = builder.getNodeState();
+        assertEquals(contentVersion, StatementCache.getIndexDefinitionVersion(root, "/content/a"));
+        builder.child("content").child("oak:index").child("bar").child("indexRules")
+                .child("nt:base").child("properties").child("title").setProperty("propertyIndex", true);
+        root = builder.getNodeState();
+        assertNotEquals(contentVersion, StatementCache.getIndexDefinitionVersion(root, "/content/a"));
+    }
+
+}
@@ -22,6 +22,7 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -50,6 +51,8 @@ import org.apache.jackrabbit.oak.query.ast.SelectorImpl;
 import org.apache.jackrabbit.oak.query.ast.SourceImpl;
 import org.apache.jackrabbit.oak.query.stats.QueryStatsData;
 import org.apache.jackrabbit.oak.spi.security.OpenSecurityProvider;
+import org.apache.jackrabbit.oak.spi.whiteboard.DefaultWhiteboard;
+import org.apache.jackrabbit.oak.spi.whiteboard.Whiteboard;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -65,10 +68,13 @@ public class UnionQueryTest extends AbstractQueryTest {
         store = new MemoryNodeStore();
         qeSettings = new QueryEngineSettings();
 
+        // the settings are only used as a whole if registered as a service
+        Whiteboard whiteboard = new DefaultWhiteboard();
+        whiteboard.register(QueryEngineSettings.class, qeSettings, Collections.emptyMap());
         return new Oak(store)
+                .with(whiteboard)
                 .with(new OpenSecurityProvider())
                 .with(new InitialContent())
-                .with(qeSettings)
                 .createContentRepository();
     }
 
@@ -362,6 +368,65 @@ public class UnionQueryTest extends AbstractQueryTest {
         }
     }
 
+    @Test
+    public void parallelUnion() throws Exception {
+        Tree t = root.getTree("/UnionQueryTest").addChild("many");
+        for (int i = 0; i < 3 * UnionQueryImpl.PREFETCH_BATCH_SIZE; i++) {
+            t.addChild("n" + i).setProperty("x", (long) (i % 3));
+        }
+        root.commit();
+        String x0 = "select [jcr:path] from [nt:base] where [x] = 0";
+        String x1 = "select [jcr:path] from [nt:base] where [x] = 1";
+        String under = "select [jcr:path] from [nt:base] where isdescendantnode('/UnionQueryTest')";
+        String[] queries = {
+                x0 + " union " + x1,
+                x0 + " union " + x1 + " order by [jcr:path] desc",
+                x0 + " union " + x1 + " union " + under,
+                under + " union " + x1,
+                under + " union all " + x1
+        };
+        for (String q : queries) {
+            qeSettings.setParallelUnion(false);
+            List<String> expected = executeQuery(q, SQL2, true, true);
+            qeSettings.setParallelUnion(true);
+            assertEquals(q, expected, executeQuery(q, SQL2, true, true));
+        }
+        assertTrue(qeSettings.getQueryStats().asJson().matches("(?s).*\"unionBranchNanos\":\\[\\d+,\\d+\\].*"));
+        qeSettings.setParallelUnion(false);
+    }
+
+    @Test
+    public void parallelUnionLimit() throws Exception {
+        Tree t = root.getTree("/UnionQueryTest").addChild("many");
+        for (int i = 0; i < 3 * UnionQueryImpl.PREFETCH_BATCH_SIZE; i++) {
+            t.addChild("n" + i).setProperty("x", (long) (i % 3));
+        }
+        root.commit();
+        String q = "select [jcr:path] from [nt:base] where [x] = 0 " +
+                "union select [jcr:path] from [nt:base] where [x] = 1 " +
+                "order by [jcr:path]";
+        List<String> expected = Lists.newArrayList();
+        for (ResultRow row : qe.executeQuery(q, SQL2, 5, 0,
+                QueryEngine.NO_BINDINGS, QueryEngine.NO_MAPPINGS).getRows()) {
+            expected.add(row.getPath());
+        }
+        assertEquals(5, expected.size());
+        qeSettings.setParallelUnion(true);
+        try {
+            List<String> paths = Lists.newArrayList();
+            for (ResultRow row : qe.executeQuery(q, SQL2, 5, 0,
+                    QueryEngine.NO_BINDINGS, QueryEngine.NO_MAPPINGS).getRows()) {
+                paths.add(row.getPath());
+                // the trees of the rows can be read by the caller
+                assertEquals(root.getTree(row.getPath()).getProperty("x").getValue(Type.LONG),
+                        row.getTree(null).getProperty("x").getValue(Type.LONG));
+            }
+            assertEquals(expected, paths);
+        } finally {
+            qeSettings.setParallelUnion(false);
+        }
+    }
+
     private QueryImpl createQuery (String statement, ConstraintImpl c, SourceImpl sImpl) throws Exception {
 
         NamePathMapper namePathMapper = new NamePathMapperImpl(new GlobalNameMapper(root));
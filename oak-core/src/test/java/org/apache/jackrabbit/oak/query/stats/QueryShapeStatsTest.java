@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.query.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.apache.jackrabbit.oak.query.QueryEngineSettings;
+import org.apache.jackrabbit.oak.query.stats.QueryStatsData.QueryExecutionStats;
+import org.junit.Test;
+
+public class QueryShapeStatsTest {
+
+    @Test
+    public void shape() {
+        // SQL-2
+        assertEquals("select [jcr:path] from [nt:base] where [x] = '?' and [y] > ?",
+                QueryShapeStats.getShape("select [jcr:path]  from [nt:base]\n" +
+                        "where [x] = 'it''s' and [y] > 1.5e-3"));
+        assertEquals("select * from [nt:base] as a where isdescendantnode(a, [?]) " +
+                "and a.[p1] = $p and a.[n] = -?",
+                QueryShapeStats.getShape("select * from [nt:base] as a " +
+                        "where isdescendantnode(a, [/content/a]) " +
+                        "and a.[p1] = $p and a.[n] = -10"));
+        assertEquals("select * from [nt:base] where contains(*, \"?\")",
+                QueryShapeStats.getShape("select * from [nt:base] where contains(*, \"hello world\")"));
+
+        // XPath
+        assertEquals("/jcr:root//element(*, nt:base)[@x = '?']",
+                QueryShapeStats.getShape("/jcr:root//element(*, nt:base)[@x = 'a']"));
+        assertEquals("/jcr:root/?//*[@x = ?]",
+                QueryShapeStats.getShape("/jcr:root/content/a//*[@x = 1]"));
+        assertEquals("/jcr:root/?/element(*, nt:base)",
+                QueryShapeStats.getShape("/jcr:root/content/a/element(*, nt:base)"));
+        assertEquals("/jcr:root/?/b[@x]",
+                QueryShapeStats.getShape("/jcr:root/content/a/b[@x]"));
+        assertEquals("/jcr:root/content[@x]",
+                QueryShapeStats.getShape("/jcr:root/content[@x]"));
+        assertEquals("/jcr:root/?",
+                QueryShapeStats.getShape("/jcr:root/content/a"));
+    }
+
+    @Test
+    public void histogram() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.getValueAtPercentile(50));
+        for (int i = 1; i <= 1000; i++) {
+            h.record(i * 1000000L);
+        }
+        assertEquals(1000, h.getCount());
+        assertEquals(1000000000L, h.getMaxNanos());
+        assertEquals(500500000000L, h.getSumNanos());
+        assertWithin(500000000L, h.getValueAtPercentile(50));
+        assertWithin(990000000L, h.getValueAtPercentile(99));
+        assertEquals(1000000000L, h.getValueAtPercentile(100));
+        assertWithin(1000000L, h.getValueAtPercentile(0));
+
+        // each value falls into the bucket with the next larger upper bound
+        for (long micros = 0; micros < 100000; micros++) {
+            int bucket = LatencyHistogram.getBucket(micros);
+            assertTrue(micros <= LatencyHistogram.getUpperBound(bucket));
+            if (bucket > 0) {
+                assertTrue(micros > LatencyHistogram.getUpperBound(bucket - 1));
+            }
+        }
+    }
+
+    private static void assertWithin(long expected, long value) {
+        // 12.5% relative error
+        assertTrue(expected + " " + value, value >= expected && value <= expected * 1.125);
+    }
+
+    @Test
+    public void queryExecution() {
+        QueryStatsMBeanImpl bean = new QueryStatsMBeanImpl(new QueryEngineSettings());
+        for (int i = 0; i < 10; i++) {
+            QueryExecutionStats stats = bean.getQueryExecution(
+                    "select * from [nt:base] where [x] = " + i, "JCR-SQL2");
+            stats.execute(1000000);
+            stats.index("x");
+            stats.scan(10, 10);
+            stats.read(2, 2, 3000000);
+            stats.executed(2000000);
+            stats.finished(5000000, 2);
+            // only counted once
+            stats.finished(5000000, 2);
+        }
+        // not read to the end
+        QueryExecutionStats stats = bean.getQueryExecution(
+                "select * from [nt:base] where [x] = 10", "JCR-SQL2");
+        stats.execute(1000000);
+
+        List<QueryShapeStats> shapes = bean.getQueryShapes();
+        assertEquals(1, shapes.size());
+        QueryShapeStats s = shapes.get(0);
+        assertEquals("select * from [nt:base] where [x] = ?", s.getShape());
+        assertEquals(11, s.getExecuteCount());
+        assertEquals(11, s.getPlanHistogram().getCount());
+        assertEquals(10, s.getExecuteHistogram().getCount());
+        assertEquals(10, s.getReadHistogram().getCount());
+        assertEquals(100, s.getTotalRowsScanned());
+        assertEquals(20, s.getTotalRowsReturned());
+        assertEquals("x", s.getLastIndex());
+
+        String json = bean.getQueryShapesAsJson();
+        assertTrue(json, json.contains("\"totalRowsScanned\":100,\"totalRowsReturned\":20"));
+        assertTrue(json, json.contains("\"read\":{\"count\":10,\"totalMicros\":50000,\"maxMicros\":5000"));
+
+        String text = bean.getQueryShapesAsPrometheus();
+        String labels = "shape=\"select * from [nt:base] where [x] = ?\"," +
+                "language=\"JCR-SQL2\",index=\"x\"";
+        assertTrue(text, text.contains("# TYPE oak_query_shape_duration_seconds summary\n"));
+        assertTrue(text, text.contains("oak_query_shape_duration_seconds_count{" +
+                labels + ",phase=\"read\"} 10\n"));
+        assertTrue(text, text.contains("oak_query_shape_duration_seconds_sum{" +
+                labels + ",phase=\"read\"} 0.05\n"));
+        assertTrue(text, text.contains("oak_query_shape_rows_scanned_total{" + labels + "} 100\n"));
+        assertTrue(text, text.contains("oak_query_shape_rows_returned_total{" + labels + "} 20\n"));
+
+        bean.resetStats();
+        assertEquals(0, bean.getQueryShapes().size());
+    }
+
+    @Test
+    public void escapeLabel() {
+        assertEquals("a\\\"b\\\\c\\nd", QueryShapeStats.escapeLabel("a\"b\\c\nd"));
+    }
+
+}
@@ -133,6 +133,20 @@ public class LuceneDocumentMaker extends FulltextDocumentMaker<Document> {
         doc.add(f);
     }
 
+    @Override
+    protected boolean indexStoredValue(Document doc, PropertyState property, String pname) {
+        Type<?> type = property.getType();
+        doc.add(new StoredField(FieldNames.createStoredTypeFieldName(pname), type.toString()));
+        // binary values are not stored, they are read from the node
+        if (type.tag() != Type.BINARY.tag()) {
+            String name = FieldNames.createStoredValueFieldName(pname);
+            for (int i = 0; i < property.count(); i++) {
+                doc.add(new StoredField(name, property.getValue(Type.STRING, i)));
+            }
+        }
+        return true;
+    }
+
     @Override
     protected void indexNotNullProperty(Document doc, PropertyDefinition pd) {
         doc.add(new StringField(FieldNames.NOT_NULL_PROPS, pd.name, Field.Store.NO));
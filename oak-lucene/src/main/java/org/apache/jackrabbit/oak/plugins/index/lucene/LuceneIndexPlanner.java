@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.index.lucene;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.jackrabbit.oak.plugins.index.search.IndexNode;
+import org.apache.jackrabbit.oak.plugins.index.search.spi.query.FulltextIndexPlanner;
+import org.apache.jackrabbit.oak.spi.query.Filter;
+import org.apache.jackrabbit.oak.spi.query.QueryIndex.OrderEntry;
+
+import static org.apache.jackrabbit.oak.plugins.index.IndexConstants.ASYNC_PROPERTY_NAME;
+
+/**
+ * The planner of the Lucene property index. The index returns the stored
+ * values of properties with the rows (see {@link LuceneDocumentMaker}).
+ */
+class LuceneIndexPlanner extends FulltextIndexPlanner {
+
+    private final IndexNode indexNode;
+
+    LuceneIndexPlanner(IndexNode indexNode, String indexPath, Filter filter, List<OrderEntry> sortOrder) {
+        super(indexNode, indexPath, filter, sortOrder);
+        this.indexNode = indexNode;
+    }
+
+    @Override
+    protected Set<String> getCoveredProperties() {
+        // the stored values of an asynchronous index (including nrt and sync
+        // lanes) may be stale, so they are only returned if the index is
+        // updated within the commit
+        if (isDelayed()) {
+            return Collections.emptySet();
+        }
+        return indexNode.getDefinition().getStoredValueProperties();
+    }
+
+    @Override
+    protected boolean isDelayed() {
+        // an index without async lane is updated within the commit
+        return indexNode.getDefinition().getDefinitionNodeState().hasProperty(ASYNC_PROPERTY_NAME);
+    }
+}
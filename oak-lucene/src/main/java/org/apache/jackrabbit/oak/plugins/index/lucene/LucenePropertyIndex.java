@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -44,6 +45,7 @@ import com.google.common.collect.Iterators;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Queues;
 import com.google.common.collect.Sets;
+import org.apache.jackrabbit.oak.api.PropertyState;
 import org.apache.jackrabbit.oak.api.PropertyValue;
 import org.apache.jackrabbit.oak.api.Type;
 import org.apache.jackrabbit.oak.commons.PathUtils;
@@ -68,8 +70,13 @@ import org.apache.jackrabbit.oak.plugins.index.search.IndexNode;
 import org.apache.jackrabbit.oak.plugins.index.search.PropertyDefinition;
 import org.apache.jackrabbit.oak.plugins.index.search.SizeEstimator;
 import org.apache.jackrabbit.oak.plugins.index.search.spi.query.FulltextIndex;
+import org.apache.jackrabbit.oak.plugins.index.search.spi.query.FulltextIndexPlanner;
 import org.apache.jackrabbit.oak.plugins.index.search.spi.query.FulltextIndexPlanner.PlanResult;
 import org.apache.jackrabbit.oak.plugins.index.search.spi.query.FulltextIndexPlanner.PropertyIndexResult;
+import org.apache.jackrabbit.oak.plugins.memory.MultiStringPropertyState;
+import org.apache.jackrabbit.oak.plugins.memory.PropertyStates;
+import org.apache.jackrabbit.oak.plugins.memory.PropertyValues;
+import org.apache.jackrabbit.oak.plugins.memory.StringPropertyState;
 import org.apache.jackrabbit.oak.spi.query.fulltext.FullTextAnd;
 import org.apache.jackrabbit.oak.spi.query.fulltext.FullTextContains;
 import org.apache.jackrabbit.oak.spi.query.fulltext.FullTextExpression;
@@ -248,6 +255,11 @@ public class LucenePropertyIndex extends FulltextIndex {
         return "lucene-property";
     }
 
+    @Override
+    protected FulltextIndexPlanner getPlanner(IndexNode indexNode, String path, Filter filter, List<OrderEntry> sortOrder) {
+        return new LuceneIndexPlanner(indexNode, path, filter, sortOrder);
+    }
+
     @Override
     public Cursor query(final IndexPlan plan, NodeState rootState) {
         if (plan.isDeprecated()) {
@@ -257,6 +269,7 @@ public class LucenePropertyIndex extends FulltextIndex {
         final Filter filter = plan.getFilter();
         final Sort sort = getSort(plan);
         final PlanResult pr = getPlanResult(plan);
+        final Set<String> storedFields = getStoredFieldNames(plan.getCoveredProperties());
         QueryLimits settings = filter.getQueryLimits();
         LuceneResultRowIterator rItr = new LuceneResultRowIterator() {
             private final Deque<FulltextResultRow> queue = Queues.newArrayDeque();
@@ -287,11 +300,18 @@ public class LucenePropertyIndex extends FulltextIndex {
                                                    FacetProvider facetProvider,
                                                    String explanation) throws IOException {
                 IndexReader reader = searcher.getIndexReader();
-                //TODO Look into usage of field cache for retrieving the path
-                //instead of reading via reader if no of docs in index are limited
-                PathStoredFieldVisitor visitor = new PathStoredFieldVisitor();
-                reader.document(doc.doc, visitor);
-                String path = visitor.getPath();
+                Document document = null;
+                String path;
+                if (storedFields.isEmpty()) {
+                    //TODO Look into usage of field cache for retrieving the path
+                    //instead of reading via reader if no of docs in index are limited
+                    PathStoredFieldVisitor visitor = new PathStoredFieldVisitor();
+                    reader.document(doc.doc, visitor);
+                    path = visitor.getPath();
+                } else {
+                    document = reader.document(doc.doc, storedFields);
+                    path = document.get(FieldNames.PATH);
+                }
                 if (path != null) {
                     if ("".equals(path)) {
                         path = "/";
@@ -315,9 +335,12 @@ public class LucenePropertyIndex extends FulltextIndex {
 
                     boolean shouldIncludeForHierarchy = shouldInclude(path, plan);
                     LOG.trace("Matched path {}; shouldIncludeForHierarchy: {}", path, shouldIncludeForHierarchy);
-                    return shouldIncludeForHierarchy? new FulltextResultRow(path, doc.score, excerpts,
-                            facetProvider, explanation)
-                        : null;
+                    if (!shouldIncludeForHierarchy) {
+                        return null;
+                    }
+                    Map<String, PropertyValue> values = document == null ? null
+                            : getStoredValues(document, plan.getCoveredProperties(), rootState, path);
+                    return new FulltextResultRow(path, doc.score, excerpts, facetProvider, explanation, values);
                 }
                 return null;
             }
@@ -1588,6 +1611,61 @@ public class LucenePropertyIndex extends FulltextIndex {
         }
     }
 
+    private static Set<String> getStoredFieldNames(Set<String> coveredProperties) {
+        if (coveredProperties.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> names = Sets.newHashSet(FieldNames.PATH);
+        for (String name : coveredProperties) {
+            names.add(FieldNames.createStoredTypeFieldName(name));
+            names.add(FieldNames.createStoredValueFieldName(name));
+        }
+        return names;
+    }
+
+    /**
+     * Get the values of the given properties from the stored fields of the
+     * document. Binary values are not stored, so they are read from the node.
+     */
+    private static Map<String, PropertyValue> getStoredValues(Document document, Set<String> names,
+                                                             NodeState rootState, String path) {
+        Map<String, PropertyValue> values = new HashMap<>();
+        for (String name : names) {
+            String typeName = document.get(FieldNames.createStoredTypeFieldName(name));
+            if (typeName == null) {
+                // the node doesn't have the property
+                continue;
+            }
+            Type<?> type = Type.fromString(typeName);
+            PropertyState property;
+            if (type.tag() == PropertyType.BINARY) {
+                property = NodeStateUtils.getNode(rootState, path).getProperty(name);
+            } else {
+                String[] v = document.getValues(FieldNames.createStoredValueFieldName(name));
+                property = PropertyStates.convert(type.isArray()
+                        ? MultiStringPropertyState.stringProperty(name, Arrays.asList(v))
+                        : StringPropertyState.stringProperty(name, v[0]), type);
+            }
+            PropertyValue value = PropertyValues.create(property);
+            if (value != null) {
+                values.put(name, value);
+            }
+        }
+        return values;
+    }
+
+    private static Map<String, PropertyValue> readValues(NodeState rootState, String path, Set<String> names) {
+        NodeState node = NodeStateUtils.getNode(rootState, path);
+        Map<String, PropertyValue> values = new HashMap<>();
+        for (String name : names) {
+            PropertyValue value = PropertyValues.create(node.getProperty(name));
+            if (value != null) {
+                values.put(name, value);
+            }
+        }
+        return values;
+    }
+
     private static Query newDepthQuery(String path, PlanResult planResult) {
         int depth = PathUtils.getDepth(path) + planResult.getParentDepth() + 1;
         return NumericRangeQuery.newIntRange(FieldNames.PATH_DEPTH, depth, depth, true, true);
@@ -1617,8 +1695,11 @@ public class LucenePropertyIndex extends FulltextIndex {
 
         //No need for path restriction evaluation as thats taken care by PropertyIndex impl itself
         //via content mirror strategy
+        //The rows are not read from the index documents, so the values are read from the nodes
+        Set<String> coveredProperties = plan.getCoveredProperties();
         FluentIterable<FulltextResultRow> propIndex = paths
-            .transform(path -> new FulltextResultRow(path, 0, null, null, null));
+            .transform(path -> new FulltextResultRow(path, 0, null, null, null,
+                    coveredProperties.isEmpty() ? null : readValues(rootState, path, coveredProperties)));
 
         //Property index itr should come first
         return Iterators.concat(propIndex.iterator(), itr);
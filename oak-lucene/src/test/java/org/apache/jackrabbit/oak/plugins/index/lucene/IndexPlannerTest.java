@@ -530,6 +530,27 @@ public class IndexPlannerTest {
         assertNull(plan);
     }
 
+    @Test
+    public void coveredPropertiesOnlyWithoutAsync() throws Exception{
+        LuceneIndexDefinitionBuilder defnb = new LuceneIndexDefinitionBuilder();
+        defnb.indexRule("nt:base").property("foo").propertyIndex().storeValue();
+        FilterImpl filter = createFilter("nt:base");
+        filter.restrictProperty("foo", Operator.EQUAL, PropertyValues.newString("a"));
+
+        // the stored values of an async index may be stale
+        LuceneIndexNode node = createIndexNode(new LuceneIndexDefinition(root, defnb.build(), "/foo"));
+        QueryIndex.IndexPlan plan = new LuceneIndexPlanner(node, "/foo", filter,
+                Collections.<OrderEntry>emptyList()).getPlan();
+        assertTrue(plan.isDelayed());
+        assertTrue(plan.getCoveredProperties().isEmpty());
+
+        defnb.noAsync();
+        node = createIndexNode(new LuceneIndexDefinition(root, defnb.build(), "/foo"));
+        plan = new LuceneIndexPlanner(node, "/foo", filter, Collections.<OrderEntry>emptyList()).getPlan();
+        assertFalse(plan.isDelayed());
+        assertEquals(of("foo"), plan.getCoveredProperties());
+    }
+
     @Test
     public void indexedButZeroWeightProps() throws Exception{
         LuceneIndexDefinitionBuilder defnb = new LuceneIndexDefinitionBuilder();
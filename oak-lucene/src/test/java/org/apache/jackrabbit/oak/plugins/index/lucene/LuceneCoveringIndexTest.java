@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.index.lucene;
+
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
+import java.util.Iterator;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.jackrabbit.oak.InitialContentHelper;
+import org.apache.jackrabbit.oak.Oak;
+import org.apache.jackrabbit.oak.api.Blob;
+import org.apache.jackrabbit.oak.api.ContentRepository;
+import org.apache.jackrabbit.oak.api.PropertyValue;
+import org.apache.jackrabbit.oak.api.Result;
+import org.apache.jackrabbit.oak.api.ResultRow;
+import org.apache.jackrabbit.oak.api.Tree;
+import org.apache.jackrabbit.oak.api.Type;
+import org.apache.jackrabbit.oak.plugins.index.lucene.util.LuceneIndexDefinitionBuilder;
+import org.apache.jackrabbit.oak.plugins.index.search.util.IndexDefinitionBuilder;
+import org.apache.jackrabbit.oak.plugins.memory.MemoryNodeStore;
+import org.apache.jackrabbit.oak.query.AbstractQueryTest;
+import org.apache.jackrabbit.oak.query.QueryEngineSettings;
+import org.apache.jackrabbit.oak.spi.commit.Observer;
+import org.apache.jackrabbit.oak.spi.query.QueryIndexProvider;
+import org.apache.jackrabbit.oak.spi.security.OpenSecurityProvider;
+import org.apache.jackrabbit.oak.spi.whiteboard.Whiteboard;
+import org.junit.Test;
+
+import static org.apache.jackrabbit.oak.api.QueryEngine.NO_BINDINGS;
+import static org.apache.jackrabbit.oak.plugins.index.IndexConstants.INDEX_DEFINITIONS_NAME;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests reading the values of a query from the stored fields of a Lucene
+ * index that is updated within the commit, without reading the nodes.
+ */
+public class LuceneCoveringIndexTest extends AbstractQueryTest {
+
+    private static final String QUERY = "select [jcr:path], [title], [count], [tags], [data] " +
+            "from [nt:base] where [type] = 'x'";
+
+    private final QueryEngineSettings settings = new QueryEngineSettings();
+
+    @Override
+    protected void createTestIndexNode() throws Exception {
+        IndexDefinitionBuilder idxb = new LuceneIndexDefinitionBuilder().noAsync();
+        IndexDefinitionBuilder.IndexRule rule = idxb.indexRule("nt:base");
+        rule.property("type").propertyIndex().storeValue();
+        rule.property("title").propertyIndex().storeValue();
+        rule.property("count").propertyIndex().storeValue();
+        rule.property("tags").propertyIndex().storeValue();
+        rule.property("data").storeValue();
+        rule.property("other").propertyIndex();
+        idxb.build(root.getTree("/").addChild(INDEX_DEFINITIONS_NAME).addChild("test"));
+        root.commit();
+    }
+
+    @Override
+    protected ContentRepository createRepository() {
+        settings.setCoveringIndex(true);
+        LuceneIndexProvider provider = new LuceneIndexProvider();
+        Oak oak = new Oak(new MemoryNodeStore(InitialContentHelper.INITIAL_CONTENT));
+        // the settings are only used as a whole if registered as a service
+        Whiteboard whiteboard = oak.getWhiteboard();
+        whiteboard.register(QueryEngineSettings.class, settings, Collections.emptyMap());
+        return oak.with(whiteboard)
+                .with(new OpenSecurityProvider())
+                .with((QueryIndexProvider) provider)
+                .with((Observer) provider)
+                .with(new LuceneIndexEditorProvider())
+                .createContentRepository();
+    }
+
+    @Test
+    public void storedValues() throws Exception {
+        Blob blob = root.createBlob(new ByteArrayInputStream(new byte[] {1, 2, 3}));
+        Tree content = root.getTree("/").addChild("content");
+        Tree a = content.addChild("a");
+        a.setProperty("type", "x");
+        a.setProperty("title", "a");
+        a.setProperty("count", 1L);
+        a.setProperty("tags", ImmutableList.of("t1", "t2"), Type.STRINGS);
+        a.setProperty("data", blob);
+        Tree b = content.addChild("b");
+        b.setProperty("type", "x");
+        b.setProperty("title", "b");
+        content.addChild("c").setProperty("type", "y");
+        root.commit();
+
+        assertTrue(explain(QUERY).contains("/* covering */"));
+
+        Result result = executeQuery(QUERY, SQL2, NO_BINDINGS);
+        Iterator<? extends ResultRow> rows = result.getRows().iterator();
+        ResultRow row = rows.next();
+        if (!"/content/a".equals(row.getPath())) {
+            row = rows.next();
+        }
+        assertEquals("/content/a", row.getPath());
+        assertEquals("a", row.getValue("title").getValue(Type.STRING));
+        PropertyValue count = row.getValue("count");
+        assertEquals(Type.LONG, count.getType());
+        assertEquals(1L, (long) count.getValue(Type.LONG));
+        assertEquals(ImmutableList.of("t1", "t2"), row.getValue("tags").getValue(Type.STRINGS));
+        // binary values are not stored, but read from the node
+        assertEquals(Type.BINARY, row.getValue("data").getType());
+        assertEquals(blob.length(), row.getValue("data").getValue(Type.BINARY).length());
+
+        assertEquals(ImmutableList.of("/content/a", "/content/b"), executeQuery(QUERY, SQL2, true));
+        assertEquals(ImmutableList.of("b, null, null"), executeQuery(
+                "select [title], [count], [tags] from [nt:base] where [type] = 'x' and [title] = 'b'",
+                SQL2, false));
+    }
+
+    @Test
+    public void notCovered() throws Exception {
+        Tree a = root.getTree("/").addChild("content").addChild("a");
+        a.setProperty("type", "x");
+        a.setProperty("other", "1");
+        root.commit();
+
+        String query = "select [jcr:path] from [nt:base] where [type] = 'x' and [other] = '1'";
+        assertFalse(explain(query).contains("/* covering */"));
+        assertEquals(ImmutableList.of("/content/a"), executeQuery(query, SQL2, true));
+
+        settings.setCoveringIndex(false);
+        assertFalse(explain(QUERY).contains("/* covering */"));
+    }
+
+    private String explain(String query) {
+        return executeQuery("explain " + query, SQL2, false).get(0);
+    }
+
+}
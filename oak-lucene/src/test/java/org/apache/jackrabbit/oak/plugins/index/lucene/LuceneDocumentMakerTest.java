@@ -19,15 +19,20 @@
 
 package org.apache.jackrabbit.oak.plugins.index.lucene;
 
+import com.google.common.collect.ImmutableSet;
 import org.apache.jackrabbit.oak.api.Type;
 import org.apache.jackrabbit.oak.plugins.index.lucene.util.LuceneIndexDefinitionBuilder;
+import org.apache.jackrabbit.oak.plugins.index.search.FieldNames;
 import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
 import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.apache.lucene.document.Document;
 import org.junit.Test;
 
 import static java.util.Arrays.asList;
 import static org.apache.jackrabbit.oak.InitialContentHelper.INITIAL_CONTENT;
 import static org.apache.jackrabbit.oak.plugins.memory.EmptyNodeState.EMPTY_NODE;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
@@ -62,4 +67,26 @@ public class LuceneDocumentMakerTest {
         assertNull(docMaker.makeDocument(test.getNodeState()));
     }
 
+    @Test
+    public void storedValues() throws Exception{
+        builder.indexRule("nt:base").property("foo").propertyIndex().storeValue();
+        builder.indexRule("nt:base").property("bar").propertyIndex().storeValue();
+        builder.indexRule("nt:base").property("baz").propertyIndex();
+
+        LuceneIndexDefinition defn = LuceneIndexDefinition.newBuilder(root, builder.build(), "/foo").build();
+        assertEquals(ImmutableSet.of("foo", "bar"), defn.getStoredValueProperties());
+        LuceneDocumentMaker docMaker = new LuceneDocumentMaker(defn,
+                defn.getApplicableIndexingRule("nt:base"), "/x");
+
+        NodeBuilder test = EMPTY_NODE.builder();
+        test.setProperty("foo", asList(1L, 2L), Type.LONGS);
+        test.setProperty("baz", "x");
+
+        Document doc = docMaker.makeDocument(test.getNodeState());
+        assertNotNull(doc);
+        assertEquals("LONGS", doc.get(FieldNames.createStoredTypeFieldName("foo")));
+        assertArrayEquals(new String[] {"1", "2"}, doc.getValues(FieldNames.createStoredValueFieldName("foo")));
+        assertNull(doc.get(FieldNames.createStoredTypeFieldName("bar")));
+        assertNull(doc.get(FieldNames.createStoredTypeFieldName("baz")));
+    }
 }
\ No newline at end of file
@@ -21,9 +21,11 @@ package org.apache.jackrabbit.oak.spi.query;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.jetbrains.annotations.Nullable;
@@ -283,6 +285,20 @@ public interface QueryIndex {
          */
         boolean includesNodeData();
 
+        /**
+         * The names of the properties whose values the cursor returns for
+         * each row, using {@link IndexRow#getValue(String)}. The value of a
+         * property must be returned as stored in the node, or null if the
+         * node doesn't have the property. If all properties used by the
+         * query are covered, the query engine may skip reading the nodes,
+         * unless the plan is {@link #isDelayed() delayed}.
+         *
+         * @return the names of the covered properties (may be empty)
+         */
+        default Set<String> getCoveredProperties() {
+            return Collections.emptySet();
+        }
+
         /**
          * The sort order of the returned entries, or null if unsorted.
          *
@@ -379,6 +395,7 @@ public interface QueryIndex {
             protected boolean isDelayed;
             protected boolean isFulltextIndex;
             protected boolean includesNodeData;
+            protected Set<String> coveredProperties = Collections.emptySet();
             protected List<OrderEntry> sortOrder;
             protected NodeState definition;
             protected PropertyRestriction propRestriction;
@@ -441,6 +458,12 @@ public interface QueryIndex {
                 return this;
             }
 
+            public Builder setCoveredProperties(Set<String> coveredProperties) {
+                this.coveredProperties = Collections.unmodifiableSet(
+                        new HashSet<String>(coveredProperties));
+                return this;
+            }
+
             public Builder setSortOrder(List<OrderEntry> sortOrder) {
                 this.sortOrder = sortOrder;
                 return this;
@@ -499,6 +522,8 @@ public interface QueryIndex {
                             Builder.this.isFulltextIndex;
                     private final boolean includesNodeData =
                             Builder.this.includesNodeData;
+                    private final Set<String> coveredProperties =
+                            Builder.this.coveredProperties;
                     private final List<OrderEntry> sortOrder =
                             Builder.this.sortOrder == null ?
                             null : new ArrayList<OrderEntry>(
@@ -535,6 +560,7 @@ public interface QueryIndex {
                             + " isDelayed : %s,"
                             + " isFulltextIndex : %s,"
                             + " includesNodeData : %s,"
+                            + " coveredProperties : %s,"
                             + " sortOrder : %s,"
                             + " definition : %s,"
                             + " propertyRestriction : %s,"
@@ -550,6 +576,7 @@ public interface QueryIndex {
                             isDelayed,
                             isFulltextIndex,
                             includesNodeData,
+                            coveredProperties,
                             sortOrder,
                             definition,
                             propRestriction,
@@ -601,6 +628,11 @@ public interface QueryIndex {
                         return includesNodeData;
                     }
 
+                    @Override
+                    public Set<String> getCoveredProperties() {
+                        return coveredProperties;
+                    }
+
                     @Override
                     public List<OrderEntry> getSortOrder() {
                         return sortOrder;
@@ -98,6 +98,8 @@ public class RevisionsCommand implements Command {
         final OptionSpec<Long> timeLimit;
         final OptionSpec<Long> olderThan;
         final OptionSpec<Double> delay;
+        final OptionSpec<Integer> deleteThreads;
+        final OptionSpec<Long> checkpointInterval;
         final OptionSpec<?> continuous;
         final OptionSpec<?> verbose;
 
@@ -113,6 +115,13 @@ public class RevisionsCommand implements Command {
             delay = parser
                     .accepts("delay", "introduce delays to reduce impact on system").withRequiredArg()
                     .ofType(Double.class).defaultsTo(0.0);
+            deleteThreads = parser
+                    .accepts("deleteThreads", "number of threads removing documents").withRequiredArg()
+                    .ofType(Integer.class).defaultsTo(1);
+            checkpointInterval = parser
+                    .accepts("checkpointInterval", "persist progress every n seconds of the collected " +
+                            "time interval (0 disables checkpoints)").withRequiredArg()
+                    .ofType(Long.class).defaultsTo(0L);
             timeLimit = parser
                     .accepts("timeLimit", "cancel garbage collection after n seconds").withRequiredArg()
                     .ofType(Long.class).defaultsTo(-1L);
@@ -151,6 +160,14 @@ public class RevisionsCommand implements Command {
             return delay.value(options);
         }
 
+        int getDeleteThreads() {
+            return deleteThreads.value(options);
+        }
+
+        long getCheckpointInterval() {
+            return checkpointInterval.value(options);
+        }
+
         long getTimeLimit() {
             return timeLimit.value(options);
         }
@@ -229,7 +246,9 @@ public class RevisionsCommand implements Command {
         VersionGarbageCollector gc = createVersionGC(builder.build(), gcSupport);
 
         VersionGCOptions gcOptions = gc.getOptions();
-        gcOptions = gcOptions.withDelayFactor(options.getDelay());
+        gcOptions = gcOptions.withDelayFactor(options.getDelay())
+                .withDeleteThreads(options.getDeleteThreads())
+                .withCheckpointInterval(TimeUnit.SECONDS, options.getCheckpointInterval());
         if (options.runOnce()) {
             gcOptions = gcOptions.withMaxIterations(1);
         }
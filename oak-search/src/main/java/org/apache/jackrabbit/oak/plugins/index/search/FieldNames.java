@@ -111,6 +111,17 @@ public final class FieldNames {
      */
     public static final String FUNCTION_PREFIX = "function*";
 
+    /**
+     * Prefix for all field names that contain the stored values of a property.
+     */
+    public static final String STORED_VALUE_PREFIX = ":value:";
+
+    /**
+     * Prefix for all field names that contain the type of a property whose
+     * values are stored.
+     */
+    public static final String STORED_TYPE_PREFIX = ":valueType:";
+
     /**
      * Used to select only the PATH field from the lucene documents
      */
@@ -129,6 +140,14 @@ public final class FieldNames {
         return ":dv" + name;
     }
 
+    public static String createStoredValueFieldName(String pname) {
+        return STORED_VALUE_PREFIX + pname;
+    }
+
+    public static String createStoredTypeFieldName(String pname) {
+        return STORED_TYPE_PREFIX + pname;
+    }
+
     public static String createAnalyzedFieldName(String pname) {
         return ANALYZED_FIELD_PREFIX + pname;
     }
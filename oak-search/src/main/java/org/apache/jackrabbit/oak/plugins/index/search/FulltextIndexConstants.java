@@ -283,6 +283,12 @@ public interface FulltextIndexConstants {
      */
     String PROP_SIMILARITY_TAGS = "similarityTags";
 
+    /**
+     * whether the property values are stored in the index, so that queries can
+     * read them from the index rows instead of reading the nodes
+     */
+    String PROP_STORE_VALUE = "storeValue";
+
     /**
      * Property definition config indicating that null check support should be
      * enabled for this property
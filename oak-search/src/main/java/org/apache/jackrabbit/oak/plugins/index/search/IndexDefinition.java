@@ -275,6 +275,8 @@ public class IndexDefinition implements Aggregate.AggregateMapper {
 
     private final boolean spellcheckEnabled;
 
+    private final Set<String> storedValueProperties;
+
     private final String indexPath;
 
     private final boolean nrtIndexMode;
@@ -479,6 +481,7 @@ public class IndexDefinition implements Aggregate.AggregateMapper {
 
             this.suggestEnabled = evaluateSuggestionEnabled();
             this.spellcheckEnabled = evaluateSpellcheckEnabled();
+            this.storedValueProperties = evaluateStoredValueProperties();
             this.nrtIndexMode = supportsNRTIndexing(defn);
             this.syncIndexMode = supportsSyncIndexing(defn);
             this.syncPropertyIndexes = definedRules.stream().anyMatch(ir -> !ir.syncProps.isEmpty());
@@ -940,6 +943,35 @@ public class IndexDefinition implements Aggregate.AggregateMapper {
         return spellcheckEnabled;
     }
 
+    private Set<String> evaluateStoredValueProperties() {
+        // the values must be stored whatever rule a node is indexed with
+        Set<String> result = null;
+        for (IndexingRule indexingRule : definedRules) {
+            Set<String> names = newHashSet();
+            for (PropertyDefinition propertyDefinition : indexingRule.propConfigs.values()) {
+                if (propertyDefinition.storeValue) {
+                    names.add(propertyDefinition.name);
+                }
+            }
+            if (result == null) {
+                result = names;
+            } else {
+                result.retainAll(names);
+            }
+        }
+        return result == null ? Collections.<String>emptySet() : ImmutableSet.copyOf(result);
+    }
+
+    /**
+     * Get the names of the properties whose values are stored in the index,
+     * for all indexing rules.
+     *
+     * @return the property names (an empty set if none)
+     */
+    public Set<String> getStoredValueProperties() {
+        return storedValueProperties;
+    }
+
     public String getIndexPath() {
         return indexPath;
     }
@@ -136,6 +136,13 @@ public class PropertyDefinition {
 
     public final boolean similarityRerank;
     public final boolean similarityTags;
+
+    /**
+     * Whether the values of the property are stored in the index. This is only
+     * supported for properties that are neither relative nor a regular expression.
+     */
+    public final boolean storeValue;
+
     private final int similaritySearchDVS;
 
     public PropertyDefinition(IndexingRule idxDefn, String nodeName, NodeState defn) {
@@ -171,6 +178,8 @@ public class PropertyDefinition {
         this.useInSimilarity = getOptionalValueIfIndexed(defn, FulltextIndexConstants.PROP_USE_IN_SIMILARITY, false);
         this.similarityRerank = getOptionalValueIfIndexed(defn, FulltextIndexConstants.PROP_SIMILARITY_RERANK, true);
         this.similarityTags = getOptionalValueIfIndexed(defn, FulltextIndexConstants.PROP_SIMILARITY_TAGS, false);
+        this.storeValue = !isRegexp && !relative
+                && getOptionalValueIfIndexed(defn, FulltextIndexConstants.PROP_STORE_VALUE, false);
         this.nullCheckEnabled = getOptionalValueIfIndexed(defn, FulltextIndexConstants.PROP_NULL_CHECK_ENABLED, false);
         this.notNullCheckEnabled = getOptionalValueIfIndexed(defn, FulltextIndexConstants.PROP_NOT_NULL_CHECK_ENABLED, false);
         this.excludeFromAggregate = getOptionalValueIfIndexed(defn, FulltextIndexConstants.PROP_EXCLUDE_FROM_AGGREGATE, false);
@@ -260,6 +269,7 @@ public class PropertyDefinition {
                 ", ordered=" + ordered +
                 ", useInSuggest=" + useInSuggest+
                 ", useInSimilarity=" + useInSimilarity+
+                ", storeValue=" + storeValue +
                 ", nullCheckEnabled=" + nullCheckEnabled +
                 ", notNullCheckEnabled=" + notNullCheckEnabled +
                 ", function=" + function +
@@ -165,6 +165,10 @@ public abstract class FulltextDocumentMaker<D> implements DocumentMaker<D> {
                 dirty |= addTypedOrderedFields(document, property, pname, pd);
             }
 
+            if (pd.storeValue) {
+                dirty |= indexStoredValue(document, property, pname);
+            }
+
             dirty |= indexProperty(path, document, state, property, pname, pd);
 
             facet |= pd.facet;
@@ -327,6 +331,16 @@ public abstract class FulltextDocumentMaker<D> implements DocumentMaker<D> {
         return true;
     }
 
+    /**
+     * Stores the values of the property in the document, so that they can be
+     * returned with the query results. By default, the values are not stored.
+     *
+     * @return true if the values were stored
+     */
+    protected boolean indexStoredValue(D doc, PropertyState property, String pname) {
+        return false;
+    }
+
     protected abstract boolean indexSimilarityTag(D doc, PropertyState property);
 
     protected abstract void indexSimilarityBinaries(D doc, PropertyDefinition pd, Blob blob) throws IOException;
@@ -340,10 +340,21 @@ public abstract class FulltextIndex implements AdvancedQueryIndex, QueryIndex, N
         public final boolean isVirutal;
         public final Map<String, String> excerpts;
         public final String explanation;
+        /**
+         * The values of the covered properties of the plan (see
+         * {@link IndexPlan#getCoveredProperties()}), or null if none.
+         */
+        public final Map<String, PropertyValue> values;
         private final FacetProvider facetProvider;
 
         public FulltextResultRow(String path, double score, Map<String, String> excerpts,
                                  FacetProvider facetProvider, String explanation) {
+            this(path, score, excerpts, facetProvider, explanation, null);
+        }
+
+        public FulltextResultRow(String path, double score, Map<String, String> excerpts,
+                                 FacetProvider facetProvider, String explanation,
+                                 Map<String, PropertyValue> values) {
             this.explanation = explanation;
             this.excerpts = excerpts;
             this.facetProvider = facetProvider;
@@ -351,6 +362,7 @@ public abstract class FulltextIndex implements AdvancedQueryIndex, QueryIndex, N
             this.path = path;
             this.score = score;
             this.suggestion = null;
+            this.values = values;
         }
 
         public FulltextResultRow(String suggestion, long weight) {
@@ -365,6 +377,7 @@ public abstract class FulltextIndex implements AdvancedQueryIndex, QueryIndex, N
             this.excerpts = null;
             this.facetProvider = null;
             this.explanation = null;
+            this.values = null;
         }
 
         public FulltextResultRow(String suggestion) {
@@ -460,6 +473,8 @@ public abstract class FulltextIndex implements AdvancedQueryIndex, QueryIndex, N
         @Override
         public IndexRow next() {
             final IndexRow pathRow = pathCursor.next();
+            // the cursor might be read ahead before the values of this row are read
+            final FulltextResultRow currentRow = this.currentRow;
             return new IndexRow() {
 
                 @Override
@@ -499,6 +514,9 @@ public abstract class FulltextIndex implements AdvancedQueryIndex, QueryIndex, N
                             return PropertyValues.newString(excerpt);
                         }
                     }
+                    if (currentRow.values != null && currentRow.values.containsKey(columnName)) {
+                        return currentRow.values.get(columnName);
+                    }
                     if (columnName.startsWith(QueryConstants.REP_FACET)) {
                         try {
                             List<Facet> facets = currentRow.getFacets(numberOfFacets, columnName);
@@ -356,6 +356,11 @@ public class FulltextIndexPlanner {
                 }
             }
 
+            // with a transformed path, the rows are not the indexed nodes
+            if (!result.isPathTransformed() && getPathPrefix().isEmpty()) {
+                plan.setCoveredProperties(getCoveredProperties());
+            }
+
             return plan.setCostPerEntry(definition.getCostPerEntry() / costPerEntryFactor);
         }
 
@@ -783,7 +788,7 @@ public class FulltextIndexPlanner {
                 .setFilter(filter)
                 .setPathPrefix(getPathPrefix())
                 .setSupportsPathRestriction(definition.evaluatePathRestrictions())
-                .setDelayed(true) //Lucene is always async
+                .setDelayed(isDelayed())
                 .setDeprecated(definition.isDeprecated())
                 .setAttribute(FulltextIndex.ATTR_PLAN_RESULT, result)
                 .setEstimatedEntryCount(estimatedEntryCount())
@@ -916,6 +921,26 @@ public class FulltextIndexPlanner {
         return pr.first != null && pr.first == pr.last;
     }
 
+    /**
+     * Get the properties whose values the index returns with each row. By
+     * default, the index does not return property values.
+     *
+     * @return the property names
+     */
+    protected Set<String> getCoveredProperties() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * Whether the index may lag behind the repository. By default, the index
+     * is updated asynchronously.
+     *
+     * @return whether the index is delayed
+     */
+    protected boolean isDelayed() {
+        return true;
+    }
+
     protected List<OrderEntry> createSortOrder(IndexDefinition.IndexingRule rule) {
         if (sortOrder == null) {
             return Collections.emptyList();
@@ -410,6 +410,11 @@ public class IndexDefinitionBuilder {
             return this;
         }
 
+        public PropertyRule storeValue() {
+            propTree.setProperty(FulltextIndexConstants.PROP_STORE_VALUE, true);
+            return this;
+        }
+
         public PropertyRule analyzed() {
             propTree.setProperty(FulltextIndexConstants.PROP_ANALYZED, true);
             return this;
@@ -24,6 +24,10 @@ import org.apache.jackrabbit.oak.plugins.document.cache.CacheInvalidationStats;
 class BackgroundReadStats {
     CacheInvalidationStats cacheStats;
     long readHead;
+    long readJournal;
+    long sortChanges;
+    long numJournalEntries;
+    long numInvalidateBatches;
     long cacheInvalidationTime;
     long populateDiffCache;
     long lock;
@@ -41,6 +45,10 @@ class BackgroundReadStats {
         return  "ReadStats{" +
                 "cacheStats:" + cacheStatsMsg +
                 ", head:" + readHead +
+                ", journal:" + readJournal +
+                ", sort:" + sortChanges +
+                ", numJournalEntries:" + numJournalEntries +
+                ", numInvalidateBatches:" + numInvalidateBatches +
                 ", cache:" + cacheInvalidationTime +
                 ", diff: " + populateDiffCache +
                 ", lock:" + lock +
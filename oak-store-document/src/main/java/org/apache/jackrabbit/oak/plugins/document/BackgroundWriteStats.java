@@ -23,6 +23,9 @@ class BackgroundWriteStats {
 
     long clean;
     long split;
+    long splitDocs;
+    long splitSizeBefore;
+    long splitSizeAfter;
     long refresh;
     long sweep;
     long lock;
@@ -35,6 +38,9 @@ class BackgroundWriteStats {
     public String toString() {
         return "clean:" + clean +
                 ", split:" + split +
+                ", splitDocs:" + splitDocs +
+                ", splitSizeBefore:" + splitSizeBefore +
+                ", splitSizeAfter:" + splitSizeAfter +
                 ", refresh:" + refresh +
                 ", sweep:" + sweep +
                 ", lock:" + lock +
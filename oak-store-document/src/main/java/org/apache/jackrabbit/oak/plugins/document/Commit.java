@@ -48,7 +48,6 @@ import static org.apache.jackrabbit.oak.plugins.document.Collection.JOURNAL;
 import static org.apache.jackrabbit.oak.plugins.document.Collection.NODES;
 import static org.apache.jackrabbit.oak.plugins.document.Document.MOD_COUNT;
 import static org.apache.jackrabbit.oak.plugins.document.NodeDocument.COLLISIONS;
-import static org.apache.jackrabbit.oak.plugins.document.NodeDocument.SPLIT_CANDIDATE_THRESHOLD;
 
 /**
  * A higher level object representing a commit.
@@ -199,6 +198,15 @@ public class Commit {
      * @throws DocumentStoreException if the commit cannot be applied.
      */
     void apply() throws ConflictException, DocumentStoreException {
+        DocumentStoreCaller previous = DocumentStoreCaller.enter(DocumentStoreCaller.COMMIT);
+        try {
+            applyWithCaller();
+        } finally {
+            DocumentStoreCaller.exit(previous);
+        }
+    }
+
+    private void applyWithCaller() throws ConflictException, DocumentStoreException {
         boolean success = false;
         RevisionVector baseRev = getBaseRevision();
         boolean isBranch = baseRev != null && baseRev.isBranch();
@@ -531,7 +539,7 @@ public class Commit {
         if (doc == null) {
             return;
         }
-        if (doc.getMemory() > SPLIT_CANDIDATE_THRESHOLD || doc.hasBinary()) {
+        if (nodeStore.getSplitPolicy().isSplitCandidate(doc)) {
             nodeStore.addSplitCandidate(doc.getId());
         }
     }
@@ -22,6 +22,7 @@ import org.apache.jackrabbit.oak.api.Type;
 import org.apache.jackrabbit.oak.json.BlobSerializer;
 import org.apache.jackrabbit.oak.json.JsonSerializer;
 import org.apache.jackrabbit.oak.plugins.document.bundlor.BundlingHandler;
+import org.apache.jackrabbit.oak.plugins.document.bundlor.BundlingRecommender;
 import org.apache.jackrabbit.oak.plugins.document.bundlor.DocumentBundlor;
 import org.apache.jackrabbit.oak.spi.state.NodeState;
 import org.apache.jackrabbit.oak.spi.state.NodeStateDiff;
@@ -46,20 +47,33 @@ class CommitDiff implements NodeStateDiff {
 
     private final BundlingHandler bundlingHandler;
 
+    private final BundlingRecommender recommender;
+
+    /**
+     * Whether the node of this diff is added with the commit.
+     */
+    private final boolean added;
+
     CommitDiff(@NotNull BundlingHandler bundlingHandler,
+               @NotNull BundlingRecommender recommender,
                @NotNull CommitBuilder commitBuilder,
                @NotNull BlobSerializer blobs) {
         this(checkNotNull(commitBuilder),
                 checkNotNull(bundlingHandler),
+                checkNotNull(recommender), false,
                 new JsopBuilder(), checkNotNull(blobs));
     }
 
     private CommitDiff(CommitBuilder commitBuilder,
                        BundlingHandler bundlingHandler,
+                       BundlingRecommender recommender,
+                       boolean added,
                        JsopBuilder builder,
                        BlobSerializer blobs) {
         this.commit = commitBuilder;
         this.bundlingHandler = bundlingHandler;
+        this.recommender = recommender;
+        this.added = added;
         this.builder = builder;
         this.blobs = blobs;
         performBundlingRelatedOperations();
@@ -88,10 +102,15 @@ class CommitDiff implements NodeStateDiff {
         BundlingHandler child = bundlingHandler.childAdded(name, after);
         if (child.isBundlingRoot()) {
             commit.addNode(child.getRootBundlePath());
+            recommender.documentAccessed(after);
+            if (added) {
+                // parent and child documents are written together
+                recommender.childDocumentAccessed(bundlingHandler.getNodeState(), name);
+            }
         }
         setOrTouchChildrenFlag(child);
         return after.compareAgainstBaseState(EMPTY_NODE,
-                new CommitDiff(commit, child, builder, blobs));
+                new CommitDiff(commit, child, recommender, true, builder, blobs));
     }
 
     @Override
@@ -103,7 +122,7 @@ class CommitDiff implements NodeStateDiff {
         //would still impact even though new nodetype does not have bundling enabled
         BundlingHandler child = bundlingHandler.childChanged(name, before, after);
         return after.compareAgainstBaseState(before,
-                new CommitDiff(commit, child, builder, blobs));
+                new CommitDiff(commit, child, recommender, false, builder, blobs));
     }
 
     @Override
@@ -113,7 +132,7 @@ class CommitDiff implements NodeStateDiff {
             commit.removeNode(child.getRootBundlePath(), before);
         }
         return MISSING_NODE.compareAgainstBaseState(before,
-                new CommitDiff(commit, child, builder, blobs));
+                new CommitDiff(commit, child, recommender, false, builder, blobs));
     }
 
     /**
@@ -0,0 +1,432 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.google.common.cache.Cache;
+
+import org.apache.jackrabbit.oak.cache.CacheStats;
+import org.apache.jackrabbit.oak.cache.CacheValue;
+import org.apache.jackrabbit.oak.plugins.document.util.RevisionsKey;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A diff cache, which keeps all changes of a revision range in a single
+ * compressed entry. The changes are sorted by path, which means the changes
+ * of a subtree are stored next to each other. The entry is split into
+ * compressed blocks and indexed by the first path of each block, which
+ * allows a lookup to decompress a single block.
+ * <p>
+ * Changes for a path without an own entry are inferred from the nearest
+ * ancestor path with changes in the same revision range. The path is
+ * unchanged if the changes of the ancestor do not mention the child on the
+ * way to the path.
+ */
+public class CompressedDiffCache extends DiffCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CompressedDiffCache.class);
+
+    /**
+     * Limit is arbitrary for now i.e. 16 MB. Same as in LocalDiffCache.
+     */
+    private static final int MAX_ENTRY_SIZE = 16 * 1024 * 1024;
+
+    private final Cache<RevisionsKey, ChangeSet> diffCache;
+    private final CacheStats diffCacheStats;
+
+    CompressedDiffCache(DocumentNodeStoreBuilder<?> builder) {
+        this.diffCache = builder.buildCompressedDiffCache();
+        this.diffCacheStats = new CacheStats(diffCache,
+                "Document-CompressedDiff",
+                builder.getWeigher(), builder.getCompressedDiffCacheSize());
+    }
+
+    @Override
+    public String getChanges(@NotNull RevisionVector from,
+                             @NotNull RevisionVector to,
+                             @NotNull Path path,
+                             @Nullable Loader loader) {
+        ChangeSet changes = diffCache.getIfPresent(new RevisionsKey(from, to));
+        String result = changes != null ? changes.getChanges(path) : null;
+        if (result == null && loader != null) {
+            result = loader.call();
+        }
+        return result;
+    }
+
+    @NotNull
+    @Override
+    public Entry newEntry(final @NotNull RevisionVector from,
+                          final @NotNull RevisionVector to,
+                          boolean local /*ignored*/) {
+        return new Entry() {
+            private final SortedMap<Path, String> changesPerPath = new TreeMap<>();
+            private long size;
+
+            @Override
+            public void append(@NotNull Path path, @NotNull String changes) {
+                if (exceedsSize()) {
+                    return;
+                }
+                size += path.length() + changes.length();
+                changesPerPath.put(path, changes);
+            }
+
+            @Override
+            public boolean done() {
+                if (exceedsSize()) {
+                    return false;
+                }
+                RevisionsKey key = new RevisionsKey(from, to);
+                ChangeSet existing = diffCache.getIfPresent(key);
+                if (existing != null) {
+                    // merge with changes from an entry with a different scope
+                    SortedMap<Path, String> merged = existing.getAllChanges();
+                    merged.putAll(changesPerPath);
+                    changesPerPath.clear();
+                    changesPerPath.putAll(merged);
+                }
+                diffCache.put(key, ChangeSet.create(changesPerPath));
+                LOG.debug("Adding cache entry from {} to {}", from, to);
+                return true;
+            }
+
+            private boolean exceedsSize() {
+                return size > MAX_ENTRY_SIZE;
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    public Iterable<CacheStats> getStats() {
+        return Collections.singleton(diffCacheStats);
+    }
+
+    @Override
+    public void invalidateAll() {
+        diffCache.invalidateAll();
+    }
+
+    //-----------------------------< internal >---------------------------------
+
+    /**
+     * The changes of a revision range in compressed blocks.
+     */
+    public static final class ChangeSet implements CacheValue {
+
+        /**
+         * Number of paths per compressed block.
+         */
+        static final int BLOCK_SIZE = 64;
+
+        /**
+         * The first path of each block.
+         */
+        private final Path[] index;
+
+        private final byte[][] blocks;
+
+        /**
+         * The most recently decoded block.
+         */
+        private volatile DecodedBlock lastDecoded;
+
+        private ChangeSet(Path[] index, byte[][] blocks) {
+            this.index = index;
+            this.blocks = blocks;
+        }
+
+        /**
+         * Creates a change set from changes sorted by path.
+         *
+         * @param changes the changes per path.
+         * @return the change set.
+         */
+        @NotNull
+        static ChangeSet create(@NotNull SortedMap<Path, String> changes) {
+            int numBlocks = (changes.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            Path[] index = new Path[numBlocks];
+            byte[][] blocks = new byte[numBlocks][];
+            List<Map.Entry<Path, String>> block = new ArrayList<>(BLOCK_SIZE);
+            int i = 0;
+            for (Map.Entry<Path, String> e : changes.entrySet()) {
+                block.add(e);
+                if (block.size() == BLOCK_SIZE) {
+                    index[i] = block.get(0).getKey();
+                    blocks[i++] = compress(block);
+                    block.clear();
+                }
+            }
+            if (!block.isEmpty()) {
+                index[i] = block.get(0).getKey();
+                blocks[i] = compress(block);
+            }
+            return new ChangeSet(index, blocks);
+        }
+
+        /**
+         * Returns the changes for the given path. If this change set does
+         * not have an entry for the path, then the changes are inferred from
+         * the nearest ancestor with an entry.
+         *
+         * @param path the path.
+         * @return the changes or {@code null} if unknown.
+         */
+        @Nullable
+        String getChanges(@NotNull Path path) {
+            String changes = find(path);
+            if (changes != null) {
+                return changes;
+            }
+            Path child = path;
+            Path parent = path.getParent();
+            while (parent != null) {
+                String parentChanges = find(parent);
+                if (parentChanges != null) {
+                    return isChildChanged(parentChanges, child.getName()) ? null : "";
+                }
+                child = parent;
+                parent = parent.getParent();
+            }
+            return null;
+        }
+
+        /**
+         * @return all changes in this change set sorted by path.
+         */
+        @NotNull
+        SortedMap<Path, String> getAllChanges() {
+            SortedMap<Path, String> changes = new TreeMap<>();
+            for (byte[] block : blocks) {
+                DecodedBlock decoded = decompress(block);
+                for (int i = 0; i < decoded.paths.length; i++) {
+                    changes.put(PathTrie.fromString(decoded.paths[i]), decoded.changes[i]);
+                }
+            }
+            return changes;
+        }
+
+        @NotNull
+        public byte[] asBytes() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (DataOutputStream data = new DataOutputStream(out)) {
+                data.writeInt(blocks.length);
+                for (int i = 0; i < blocks.length; i++) {
+                    writeString(data, index[i].toString());
+                    data.writeInt(blocks[i].length);
+                    data.write(blocks[i]);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return out.toByteArray();
+        }
+
+        @NotNull
+        public static ChangeSet fromBytes(@NotNull byte[] bytes) {
+            try (DataInputStream data = new DataInputStream(new ByteArrayInputStream(bytes))) {
+                int numBlocks = data.readInt();
+                Path[] index = new Path[numBlocks];
+                byte[][] blocks = new byte[numBlocks][];
+                for (int i = 0; i < numBlocks; i++) {
+                    index[i] = PathTrie.fromString(readString(data));
+                    blocks[i] = new byte[data.readInt()];
+                    data.readFully(blocks[i]);
+                }
+                return new ChangeSet(index, blocks);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Malformed change set", e);
+            }
+        }
+
+        @Override
+        public int getMemory() {
+            long memory = 32 + 16L * blocks.length;
+            for (int i = 0; i < blocks.length; i++) {
+                memory += index[i].getMemory() + blocks[i].length;
+            }
+            return (int) Math.min(memory, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (obj instanceof ChangeSet) {
+                ChangeSet other = (ChangeSet) obj;
+                return Arrays.equals(index, other.index)
+                        && Arrays.deepEquals(blocks, other.blocks);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(index);
+        }
+
+        @Override
+        public String toString() {
+            return getAllChanges().toString();
+        }
+
+        private String find(Path path) {
+            int blockIndex = Arrays.binarySearch(index, path);
+            if (blockIndex < 0) {
+                // insertion point minus one is the block that may
+                // contain the path
+                blockIndex = -blockIndex - 2;
+                if (blockIndex < 0) {
+                    return null;
+                }
+            }
+            DecodedBlock decoded = lastDecoded;
+            if (decoded == null || decoded.blockIndex != blockIndex) {
+                decoded = decompress(blocks[blockIndex]);
+                decoded.blockIndex = blockIndex;
+                lastDecoded = decoded;
+            }
+            String p = path.toString();
+            for (int i = 0; i < decoded.paths.length; i++) {
+                if (decoded.paths[i].equals(p)) {
+                    return decoded.changes[i];
+                }
+            }
+            return null;
+        }
+
+        private static boolean isChildChanged(String parentChanges, String name) {
+            return !parseJsopDiff(parentChanges, new Diff() {
+                @Override
+                public boolean childNodeAdded(String n) {
+                    return !name.equals(n);
+                }
+
+                @Override
+                public boolean childNodeChanged(String n) {
+                    return !name.equals(n);
+                }
+
+                @Override
+                public boolean childNodeDeleted(String n) {
+                    return !name.equals(n);
+                }
+            });
+        }
+
+        /**
+         * Compresses a block of changes. Paths are front coded: each path
+         * is written as the length of the prefix shared with the previous
+         * path followed by the remaining characters.
+         */
+        private static byte[] compress(List<Map.Entry<Path, String>> block) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (DataOutputStream data = new DataOutputStream(new DeflaterOutputStream(out))) {
+                data.writeInt(block.size());
+                String previous = "";
+                for (Map.Entry<Path, String> e : block) {
+                    String p = e.getKey().toString();
+                    int prefix = commonPrefixLength(previous, p);
+                    data.writeInt(prefix);
+                    writeString(data, p.substring(prefix));
+                    writeString(data, e.getValue());
+                    previous = p;
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return out.toByteArray();
+        }
+
+        private static DecodedBlock decompress(byte[] block) {
+            try (DataInputStream data = new DataInputStream(
+                    new InflaterInputStream(new ByteArrayInputStream(block)))) {
+                int size = data.readInt();
+                String[] paths = new String[size];
+                String[] changes = new String[size];
+                String previous = "";
+                for (int i = 0; i < size; i++) {
+                    int prefix = data.readInt();
+                    paths[i] = previous.substring(0, prefix) + readString(data);
+                    changes[i] = readString(data);
+                    previous = paths[i];
+                }
+                return new DecodedBlock(paths, changes);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Malformed change set block", e);
+            }
+        }
+
+        private static int commonPrefixLength(String s1, String s2) {
+            int len = Math.min(s1.length(), s2.length());
+            int i = 0;
+            while (i < len && s1.charAt(i) == s2.charAt(i)) {
+                i++;
+            }
+            return i;
+        }
+
+        private static void writeString(DataOutputStream data, String s)
+                throws IOException {
+            byte[] bytes = s.getBytes(UTF_8);
+            data.writeInt(bytes.length);
+            data.write(bytes);
+        }
+
+        private static String readString(DataInputStream data)
+                throws IOException {
+            byte[] bytes = new byte[data.readInt()];
+            data.readFully(bytes);
+            return new String(bytes, UTF_8);
+        }
+    }
+
+    private static final class DecodedBlock {
+
+        final String[] paths;
+
+        final String[] changes;
+
+        int blockIndex;
+
+        DecodedBlock(String[] paths, String[] changes) {
+            this.paths = paths;
+            this.changes = changes;
+        }
+    }
+}
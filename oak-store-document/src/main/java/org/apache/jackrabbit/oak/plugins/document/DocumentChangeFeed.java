@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document;
+
+import java.io.Closeable;
+import java.util.Set;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A feed of changes written to a {@link DocumentStore}. Unlike polling the
+ * store, a change feed pushes the ids of modified documents to registered
+ * listeners as soon as the store becomes aware of the modification. This
+ * includes modifications done by other processes sharing the same store, e.g.
+ * a MongoDB based implementation may use change streams to implement this
+ * feed.
+ * <p>
+ * A change feed is a notification mechanism only. Listeners must not assume
+ * every change is reported (e.g. when the feed was interrupted) and must not
+ * rely on the order of notifications. Implementations may call listeners while
+ * holding internal locks, hence listeners must return quickly and must not
+ * call back into the store.
+ *
+ * @see DocumentStore#getChangeFeed()
+ */
+public interface DocumentChangeFeed {
+
+    /**
+     * Registers a listener with this change feed.
+     *
+     * @param listener the listener to register.
+     * @return a {@link Closeable} to unregister the listener again.
+     */
+    @NotNull
+    Closeable addListener(@NotNull Listener listener);
+
+    /**
+     * A listener for changes reported by a {@link DocumentChangeFeed}.
+     */
+    interface Listener {
+
+        /**
+         * Called when a document was created or modified.
+         *
+         * @param collection the collection of the modified document.
+         * @param id the id of the modified document.
+         * @param revisions the revisions of the modification as far as known
+         *          to the change feed. This includes the revisions of
+         *          modified revisioned properties like {@code _revisions} or
+         *          {@code _lastRev}. The set may be empty.
+         */
+        void modified(@NotNull Collection<?> collection,
+                      @NotNull String id,
+                      @NotNull Set<Revision> revisions);
+
+        /**
+         * Called when a document was removed. The default implementation
+         * does nothing.
+         *
+         * @param collection the collection of the removed document.
+         * @param id the id of the removed document.
+         */
+        default void removed(@NotNull Collection<?> collection,
+                             @NotNull String id) {
+        }
+    }
+}
@@ -34,6 +34,7 @@ import org.apache.jackrabbit.oak.commons.json.JsopTokenizer;
 import org.apache.jackrabbit.oak.api.PropertyState;
 import org.apache.jackrabbit.oak.commons.json.JsopWriter;
 import org.apache.jackrabbit.oak.json.JsonSerializer;
+import org.apache.jackrabbit.oak.plugins.document.bundlor.BundlingRecommender;
 import org.apache.jackrabbit.oak.plugins.document.bundlor.BundlorUtils;
 import org.apache.jackrabbit.oak.plugins.document.bundlor.DocumentBundlor;
 import org.apache.jackrabbit.oak.plugins.document.bundlor.Matcher;
@@ -517,7 +518,13 @@ public class DocumentNodeState extends AbstractDocumentNodeState implements Cach
             return null;
         }
 
-        return store.getNode(new Path(getPath(), childNodeName), lastRevision);
+        Path childPath = new Path(getPath(), childNodeName);
+        BundlingRecommender recommender = store.getBundlingRecommender();
+        if (recommender.isEnabled()
+                && store.getNodeCache().getIfPresent(new PathRev(childPath, lastRevision)) == null) {
+            recommender.childDocumentAccessed(this, childNodeName);
+        }
+        return store.getNode(childPath, lastRevision);
     }
 
     @Nullable
@@ -27,6 +27,7 @@ import static java.util.concurrent.TimeUnit.MICROSECONDS;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.apache.jackrabbit.oak.api.CommitFailedException.OAK;
+import static org.apache.jackrabbit.oak.commons.IOUtils.closeQuietly;
 import static org.apache.jackrabbit.oak.plugins.document.Collection.JOURNAL;
 import static org.apache.jackrabbit.oak.plugins.document.Collection.NODES;
 import static org.apache.jackrabbit.oak.plugins.document.DocumentNodeStoreBuilder.MANY_CHILDREN_THRESHOLD;
@@ -57,6 +58,9 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -79,6 +83,7 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 
 import org.apache.jackrabbit.oak.api.PropertyState;
@@ -88,12 +93,14 @@ import org.apache.jackrabbit.oak.plugins.blob.ReferencedBlob;
 import org.apache.jackrabbit.oak.plugins.document.Branch.BranchCommit;
 import org.apache.jackrabbit.oak.plugins.document.bundlor.BundledDocumentDiffer;
 import org.apache.jackrabbit.oak.plugins.document.bundlor.BundlingConfigHandler;
+import org.apache.jackrabbit.oak.plugins.document.bundlor.BundlingRecommender;
 import org.apache.jackrabbit.oak.plugins.document.bundlor.DocumentBundlor;
 import org.apache.jackrabbit.oak.plugins.document.persistentCache.PersistentCache;
 import org.apache.jackrabbit.oak.plugins.document.persistentCache.broadcast.DynamicBroadcastConfig;
 import org.apache.jackrabbit.oak.plugins.document.util.ReadOnlyDocumentStoreWrapperFactory;
 import org.apache.jackrabbit.oak.plugins.document.util.SystemPropertySupplier;
 import org.apache.jackrabbit.oak.spi.blob.BlobStore;
+import org.apache.jackrabbit.oak.commons.concurrent.ExecutorCloser;
 import org.apache.jackrabbit.oak.commons.json.JsopStream;
 import org.apache.jackrabbit.oak.commons.json.JsopWriter;
 import org.apache.jackrabbit.oak.api.Blob;
@@ -120,6 +127,7 @@ import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
 import org.apache.jackrabbit.oak.spi.state.NodeState;
 import org.apache.jackrabbit.oak.spi.state.NodeStateDiff;
 import org.apache.jackrabbit.oak.spi.state.NodeStore;
+import org.apache.jackrabbit.oak.spi.state.PrefetchNodeStore;
 import org.apache.jackrabbit.oak.spi.whiteboard.Whiteboard;
 import org.apache.jackrabbit.oak.stats.Clock;
 import org.apache.jackrabbit.oak.commons.PerfLogger;
@@ -133,7 +141,8 @@ import org.slf4j.LoggerFactory;
  * Implementation of a NodeStore on {@link DocumentStore}.
  */
 public final class DocumentNodeStore
-        implements NodeStore, RevisionContext, Observable, Clusterable, NodeStateDiffer {
+        implements NodeStore, RevisionContext, Observable, Clusterable, NodeStateDiffer,
+        PrefetchNodeStore {
 
     private static final Logger LOG = LoggerFactory.getLogger(DocumentNodeStore.class);
 
@@ -212,6 +221,22 @@ public final class DocumentNodeStore
     static final long DEFAULT_MAX_SERVER_TIME_DIFFERENCE = 2000L;
     private final long maxTimeDiffMillis = SystemPropertySupplier.create("oak.documentMK.maxServerTimeDiffMillis", DEFAULT_MAX_SERVER_TIME_DIFFERENCE).loggingTo(LOG).get();
 
+    /**
+     * The number of threads reading journal entries of other cluster nodes
+     * and invalidating cache entries in parallel. A value of 1 disables
+     * parallel reads.
+     */
+    private final int backgroundReadThreads = SystemPropertySupplier.create("oak.documentMK.backgroundReadThreads", 4)
+            .loggingTo(LOG).get();
+
+    /**
+     * Whether a background read is triggered by changes of other cluster
+     * nodes pushed by the {@link DocumentChangeFeed} of the store (if
+     * supported), in addition to the periodic background read.
+     */
+    private final boolean changeFeedEnabled = SystemPropertySupplier.create("oak.documentMK.changeFeed", Boolean.TRUE)
+            .loggingTo(LOG).get();
+
     /**
      * The document store without potentially lease checking wrapper.
      */
@@ -321,6 +346,18 @@ public final class DocumentNodeStore
 
     private Thread backgroundReadThread;
 
+    /**
+     * Registration of the listener with the {@link DocumentChangeFeed} of the
+     * store, or {@code null} if there is none.
+     */
+    private Closeable changeFeedRegistration;
+
+    /**
+     * Executor for tasks reading the journal and invalidating the cache in
+     * parallel, or {@code null} if disabled.
+     */
+    private ExecutorService backgroundReadExecutor;
+
     /**
      * Monitor object to synchronize background reads.
      */
@@ -514,8 +551,19 @@ public final class DocumentNodeStore
 
     private final BundlingConfigHandler bundlingConfigHandler = new BundlingConfigHandler();
 
+    /**
+     * Records co-access of parent and child documents to recommend bundling
+     * patterns. Disabled by default.
+     */
+    private final BundlingRecommender bundlingRecommender = new BundlingRecommender();
+
     private final BundledDocumentDiffer bundledDocDiffer = new BundledDocumentDiffer(this);
 
+    /**
+     * Decides when documents are split.
+     */
+    private final SplitPolicy splitPolicy;
+
     private final JournalPropertyHandlerFactory journalPropertyHandlerFactory;
 
     private final int updateLimit;
@@ -592,6 +640,16 @@ public final class DocumentNodeStore
             clusterNodeInfo.setLeaseFailureHandler(builder.getLeaseFailureHandler());
         }
         String threadNamePostfix = "(" + clusterId + ")";
+        if (backgroundReadThreads > 1) {
+            ThreadPoolExecutor tpe = new ThreadPoolExecutor(backgroundReadThreads,
+                    backgroundReadThreads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(),
+                    new ThreadFactoryBuilder().setDaemon(true)
+                            .setNameFormat("DocumentNodeStore background read worker-%d " + threadNamePostfix)
+                            .build());
+            tpe.allowCoreThreadTimeOut(true);
+            backgroundReadExecutor = tpe;
+        }
         leaseUpdateThread = new Thread(new BackgroundLeaseUpdate(this, stopLeaseUpdateThread),
                 "DocumentNodeStore lease update thread " + threadNamePostfix);
         leaseUpdateThread.setDaemon(true);
@@ -604,6 +662,7 @@ public final class DocumentNodeStore
         }
 
         this.journalPropertyHandlerFactory = builder.getJournalPropertyHandlerFactory();
+        this.splitPolicy = createSplitPolicy(builder);
         this.store = s;
         this.changes = newJournalEntry();
         this.branches = new UnmergedBranches();
@@ -701,10 +760,15 @@ public final class DocumentNodeStore
         commitQueue.setStatisticsCollector(nodeStoreStatsCollector);
         batchCommitQueue = new BatchCommitQueue(store);
         // prepare background threads
-        backgroundReadThread = new Thread(
-                new BackgroundReadOperation(this, isDisposed),
+        BackgroundReadOperation backgroundRead = new BackgroundReadOperation(this, isDisposed);
+        backgroundReadThread = new Thread(backgroundRead,
                 "DocumentNodeStore background read thread " + threadNamePostfix);
         backgroundReadThread.setDaemon(true);
+        DocumentChangeFeed changeFeed = s.getChangeFeed();
+        if (changeFeedEnabled && changeFeed != null) {
+            changeFeedRegistration = changeFeed.addListener(
+                    new RootChangeListener(backgroundRead, clusterId));
+        }
         backgroundUpdateThread = new Thread(
                 new BackgroundUpdateOperation(this, isDisposed),
                 "DocumentNodeStore background update thread " + threadNamePostfix);
@@ -813,6 +877,8 @@ public final class DocumentNodeStore
 
         if (!builder.isBundlingDisabled()) {
             bundlingConfigHandler.initialize(this, executor);
+            bundlingRecommender.setEnabled(SystemPropertySupplier.create(
+                    "oak.documentMK.bundlingRecommender", Boolean.FALSE).loggingTo(LOG).get());
         }
     }
 
@@ -825,6 +891,10 @@ public final class DocumentNodeStore
             return;
         }
 
+        if (changeFeedRegistration != null) {
+            closeQuietly(changeFeedRegistration);
+        }
+
         // notify background threads waiting on isDisposed
         synchronized (isDisposed) {
             isDisposed.notifyAll();
@@ -835,6 +905,10 @@ public final class DocumentNodeStore
                 backgroundSweepThread,
                 backgroundSweep2Thread);
 
+        if (backgroundReadExecutor != null) {
+            new ExecutorCloser(backgroundReadExecutor).close();
+        }
+
         DocumentStoreException ex = null;
 
         // create a tombstone commit revision after isDisposed is set to true.
@@ -1165,6 +1239,15 @@ public final class DocumentNodeStore
         return journalPushThreshold;
     }
 
+    /**
+     * @return the executor for reading the journal and invalidating the
+     *      cache in parallel or {@code null} if parallel reads are disabled.
+     */
+    @Nullable
+    Executor getBackgroundReadExecutor() {
+        return backgroundReadExecutor;
+    }
+
     void setJournalPushThreshold(int journalPushThreshold) {
         this.journalPushThreshold = journalPushThreshold;
     }
@@ -1267,21 +1350,26 @@ public final class DocumentNodeStore
         checkNotNull(path);
         final long start = PERFLOG.start();
         try {
-            PathRev key = new PathRev(path, rev);
-            DocumentNodeState node = nodeCache.get(key, new Callable<DocumentNodeState>() {
-                @Override
-                public DocumentNodeState call() throws Exception {
-                    boolean nodeDoesNotExist = checkNodeNotExistsFromChildrenCache(path, rev);
-                    if (nodeDoesNotExist){
-                        return missing;
-                    }
-                    DocumentNodeState n = readNode(path, rev);
-                    if (n == null) {
-                        n = missing;
+            DocumentNodeState node = nodeCache.getIfPresent(new PathRev(path, rev));
+            if (node == null) {
+                // use canonical path in the key of a new cache
+                // entry, lookups work with any equal path
+                PathRev key = new PathRev(PathTrie.canonicalize(path), rev);
+                node = nodeCache.get(key, new Callable<DocumentNodeState>() {
+                    @Override
+                    public DocumentNodeState call() throws Exception {
+                        boolean nodeDoesNotExist = checkNodeNotExistsFromChildrenCache(path, rev);
+                        if (nodeDoesNotExist){
+                            return missing;
+                        }
+                        DocumentNodeState n = readNode(path, rev);
+                        if (n == null) {
+                            n = missing;
+                        }
+                        return n;
                     }
-                    return n;
-                }
-            });
+                });
+            }
             final DocumentNodeState result = node == missing
                     || node.equals(missing) ? null : node;
             PERFLOG.end(start, 1, "getNode: path={}, rev={}", path, rev);
@@ -1293,6 +1381,31 @@ public final class DocumentNodeStore
         }
     }
 
+    /**
+     * Loads the documents of the given nodes with bulk reads into the
+     * document store cache. The node states are then built from the cached
+     * documents when they are read. Documents that are already cached are
+     * not read again.
+     *
+     * @param paths the paths of the nodes.
+     * @param rootState the root state. Must be a state of this store,
+     *          otherwise nothing is prefetched.
+     */
+    @Override
+    public void prefetch(@NotNull java.util.Collection<String> paths,
+                         @NotNull NodeState rootState) {
+        if (!(rootState instanceof DocumentNodeState) || paths.isEmpty()) {
+            return;
+        }
+        List<String> ids = new ArrayList<>(paths.size());
+        for (String p : paths) {
+            ids.add(getIdFromPath(p));
+        }
+        final long start = PERFLOG.start();
+        store.prefetch(NODES, ids);
+        PERFLOG.end(start, 1, "prefetch: {} nodes", ids.size());
+    }
+
     @NotNull
     DocumentNodeState.Children getChildren(@NotNull final AbstractDocumentNodeState parent,
                                            @NotNull final String name,
@@ -1445,7 +1558,7 @@ public final class DocumentNodeStore
         return transform(getChildren(parent, name, limit).children, new Function<String, DocumentNodeState>() {
             @Override
             public DocumentNodeState apply(String input) {
-                Path p = new Path(parent.getPath(), input);
+                Path p = PathTrie.child(parent.getPath(), input);
                 DocumentNodeState result = getNode(p, readRevision);
                 if (result == null) {
                     // This is very unexpected situation - parent's child list
@@ -1500,7 +1613,11 @@ public final class DocumentNodeStore
                     path, readRevision);
             return null;
         }
+        splitPolicy.documentRead(doc);
         final DocumentNodeState result = doc.getNodeAtRevision(this, readRevision, lastRevision);
+        if (result != null) {
+            bundlingRecommender.documentAccessed(result);
+        }
         PERFLOG.end(start, 1, "readNode: path={}, readRevision={}", path, readRevision);
         return result;
     }
@@ -1509,6 +1626,15 @@ public final class DocumentNodeStore
         return bundlingConfigHandler;
     }
 
+    public BundlingRecommender getBundlingRecommender() {
+        return bundlingRecommender;
+    }
+
+    @NotNull
+    SplitPolicy getSplitPolicy() {
+        return splitPolicy;
+    }
+
     /**
      * Apply the changes of a node to the cache.
      *
@@ -2182,6 +2308,7 @@ public final class DocumentNodeStore
         if (readOnlyMode || isDisposed.get()) {
             return;
         }
+        DocumentStoreCaller previous = DocumentStoreCaller.enter(DocumentStoreCaller.BACKGROUND_UPDATE);
         try {
             internalRunBackgroundUpdateOperations();
         } catch (RuntimeException e) {
@@ -2190,6 +2317,8 @@ public final class DocumentNodeStore
             }
             LOG.warn("Background update operation failed (will be retried with next run): " + e.toString(), e);
             throw e;
+        } finally {
+            DocumentStoreCaller.exit(previous);
         }
     }
 
@@ -2204,7 +2333,8 @@ public final class DocumentNodeStore
             long cleanTime = clock.getTime() - time;
             time = clock.getTime();
             // split documents (does not create new revisions)
-            backgroundSplit();
+            BackgroundWriteStats splitStats = new BackgroundWriteStats();
+            backgroundSplit(splitStats);
             long splitTime = clock.getTime() - time;
             time = clock.getTime();
             maybeRefreshHeadRevision();
@@ -2213,6 +2343,9 @@ public final class DocumentNodeStore
             stats = backgroundWrite();
             stats.refresh = refreshTime;
             stats.split = splitTime;
+            stats.splitDocs = splitStats.splitDocs;
+            stats.splitSizeBefore = splitStats.splitSizeBefore;
+            stats.splitSizeAfter = splitStats.splitSizeAfter;
             stats.clean = cleanTime;
             stats.totalWriteTime = clock.getTime() - start;
             String msg = "Background operations stats ({})";
@@ -2229,6 +2362,7 @@ public final class DocumentNodeStore
         if (isDisposed.get()) {
             return;
         }
+        DocumentStoreCaller previous = DocumentStoreCaller.enter(DocumentStoreCaller.BACKGROUND_READ);
         try {
             internalRunBackgroundReadOperations();
         } catch (RuntimeException e) {
@@ -2237,6 +2371,8 @@ public final class DocumentNodeStore
             }
             LOG.warn("Background read operation failed: " + e.toString(), e);
             throw e;
+        } finally {
+            DocumentStoreCaller.exit(previous);
         }
     }
 
@@ -2260,6 +2396,7 @@ public final class DocumentNodeStore
         if (readOnlyMode || isDisposed.get()) {
             return;
         }
+        DocumentStoreCaller previous = DocumentStoreCaller.enter(DocumentStoreCaller.BACKGROUND_SWEEP);
         try {
             internalRunBackgroundSweepOperation();
         } catch (RuntimeException e) {
@@ -2268,6 +2405,8 @@ public final class DocumentNodeStore
             }
             LOG.warn("Background sweep operation failed (will be retried with next run): " + e.toString(), e);
             throw e;
+        } finally {
+            DocumentStoreCaller.exit(previous);
         }
     }
 
@@ -2486,7 +2625,7 @@ public final class DocumentNodeStore
         }
     }
 
-    private void backgroundSplit() {
+    private void backgroundSplit(@NotNull BackgroundWriteStats stats) {
         final int initialCapacity = getCreateOrUpdateBatchSize() + 4;
         Set<Path> invalidatedPaths = new HashSet<>(initialCapacity);
         Set<Path> pathsToInvalidate = new HashSet<>(initialCapacity);
@@ -2521,7 +2660,8 @@ public final class DocumentNodeStore
                 continue;
             }
             cleanCollisions(doc, collisionGarbageBatchSize);
-            Iterator<UpdateOp> it = doc.split(this, head, binarySize).iterator();
+            Iterator<UpdateOp> it = doc.split(this, head, binarySize,
+                    splitPolicy.getNumRevsThreshold(doc)).iterator();
             while(it.hasNext()) {
                 UpdateOp op = it.next();
                 Path path = doc.getPath();
@@ -2537,6 +2677,9 @@ public final class DocumentNodeStore
                     splitOpsPhase1.add(op);
                 } else {
                     splitOpsPhase2.add(op);
+                    stats.splitDocs++;
+                    stats.splitSizeBefore += doc.getMemory();
+                    stats.splitSizeAfter += getMemoryAfter(doc, op);
                 }
             }
             if (splitOpsPhase1.size() >= getCreateOrUpdateBatchSize()
@@ -2559,6 +2702,18 @@ public final class DocumentNodeStore
             batchSplit(splitOpsPhase2);
         }
         splitCandidates.keySet().removeAll(removeCandidates);
+        splitPolicy.splitDone();
+    }
+
+    /**
+     * Returns the estimated size of the main document after the split, by
+     * applying the split operation to a copy of the document in memory.
+     */
+    private long getMemoryAfter(@NotNull NodeDocument doc, @NotNull UpdateOp mainOp) {
+        NodeDocument after = NODES.newDocument(store);
+        doc.deepCopy(after);
+        UpdateUtils.applyChanges(after, mainOp);
+        return after.getMemory();
     }
 
     private void invalidatePaths(@NotNull Set<Path> pathsToInvalidate) {
@@ -3519,6 +3674,17 @@ public final class DocumentNodeStore
         return mbean;
     }
 
+    private static SplitPolicy createSplitPolicy(DocumentNodeStoreBuilder<?> builder) {
+        SplitPolicy policy = builder.getSplitPolicy();
+        if (policy == null) {
+            boolean readCost = SystemPropertySupplier.create(
+                    "oak.documentMK.readCostSplitPolicy", Boolean.FALSE).loggingTo(LOG).get();
+            policy = readCost ? new ReadCostSplitPolicy() : SplitPolicy.DEFAULT;
+        }
+        LOG.info("Using split policy {}", policy);
+        return policy;
+    }
+
     private DocumentNodeStoreMBean createMBean(DocumentNodeStoreBuilder<?> builder) {
         return new DocumentNodeStoreMBeanImpl(this,
                 builder.getStatisticsProvider().getStats(),
@@ -3531,6 +3697,8 @@ public final class DocumentNodeStore
         private final AtomicBoolean isDisposed;
         private final Supplier<Integer> delaySupplier;
         private boolean failing;
+        // guarded by isDisposed
+        private boolean triggered;
 
         NodeStoreTask(final DocumentNodeStore nodeStore,
                       final AtomicBoolean isDisposed,
@@ -3556,16 +3724,35 @@ public final class DocumentNodeStore
 
         protected abstract void execute(@NotNull DocumentNodeStore nodeStore);
 
+        /**
+         * Triggers an execution of this task without waiting for the
+         * remaining delay.
+         */
+        void trigger() {
+            synchronized (isDisposed) {
+                triggered = true;
+                isDisposed.notifyAll();
+            }
+        }
+
         @Override
         public void run() {
             int delay = delaySupplier.get();
             while (delay != 0 && !isDisposed.get()) {
                 synchronized (isDisposed) {
-                    try {
-                        isDisposed.wait(delay);
-                    } catch (InterruptedException e) {
-                        // ignore
+                    long end = System.currentTimeMillis() + delay;
+                    long remaining = delay;
+                    // other tasks may be triggered, hence wait
+                    // until this task is triggered or delay expired
+                    while (!triggered && !isDisposed.get() && remaining > 0) {
+                        try {
+                            isDisposed.wait(remaining);
+                        } catch (InterruptedException e) {
+                            break;
+                        }
+                        remaining = end - System.currentTimeMillis();
                     }
+                    triggered = false;
                 }
                 DocumentNodeStore nodeStore = ref.get();
                 if (nodeStore != null) {
@@ -3621,6 +3808,41 @@ public final class DocumentNodeStore
         }
     }
 
+    /**
+     * Triggers the background read when the {@link DocumentChangeFeed}
+     * reports a change of the root document by another cluster node. Other
+     * cluster nodes update the root document when they publish their changes
+     * in the background update.
+     */
+    private static class RootChangeListener implements DocumentChangeFeed.Listener {
+
+        private static final String ROOT_ID = Utils.getIdFromPath(ROOT);
+
+        private final NodeStoreTask backgroundRead;
+
+        private final int clusterId;
+
+        RootChangeListener(NodeStoreTask backgroundRead, int clusterId) {
+            this.backgroundRead = backgroundRead;
+            this.clusterId = clusterId;
+        }
+
+        @Override
+        public void modified(@NotNull Collection<?> collection,
+                             @NotNull String id,
+                             @NotNull Set<Revision> revisions) {
+            if (collection != NODES || !ROOT_ID.equals(id)) {
+                return;
+            }
+            for (Revision r : revisions) {
+                if (r.getClusterId() != clusterId) {
+                    backgroundRead.trigger();
+                    return;
+                }
+            }
+        }
+    }
+
     /**
      * Background sweep operation.
      */
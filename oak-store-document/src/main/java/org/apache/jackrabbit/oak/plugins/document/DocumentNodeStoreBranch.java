@@ -285,6 +285,7 @@ class DocumentNodeStoreBranch implements NodeStoreBranch {
             public void with(@NotNull CommitBuilder commitBuilder) {
                 CommitDiff diff = new CommitDiff(
                         store.getBundlingConfigHandler().newBundlingHandler(),
+                        store.getBundlingRecommender(),
                         commitBuilder, store.getBlobSerializer());
                 toPersist.compareAgainstBaseState(base, diff);
                 stats.numDocuments += diff.getNumChanges();
@@ -42,6 +42,8 @@ import org.apache.jackrabbit.oak.plugins.blob.BlobStoreStats;
 import org.apache.jackrabbit.oak.plugins.blob.CachingBlobStore;
 import org.apache.jackrabbit.oak.plugins.blob.ReferencedBlob;
 import org.apache.jackrabbit.oak.plugins.document.cache.NodeDocumentCache;
+import org.apache.jackrabbit.oak.plugins.document.cache.OffHeapDocumentCache;
+import org.apache.jackrabbit.oak.plugins.document.cache.OffHeapDocumentCacheStats;
 import org.apache.jackrabbit.oak.plugins.document.locks.NodeDocumentLocks;
 import org.apache.jackrabbit.oak.plugins.document.memory.MemoryDocumentStore;
 import org.apache.jackrabbit.oak.plugins.document.persistentCache.CacheType;
@@ -122,6 +124,8 @@ public class DocumentNodeStoreBuilder<T extends DocumentNodeStoreBuilder<T>> {
     private boolean isReadOnlyMode = false;
     private Weigher<CacheValue, CacheValue> weigher = new EmpiricalWeigher();
     private long memoryCacheSize = DEFAULT_MEMORY_CACHE_SIZE;
+    private long offHeapDocumentCacheSize = 0;
+    private long compressedDiffCacheSize = 0;
     private int nodeCachePercentage = DEFAULT_NODE_CACHE_PERCENTAGE;
     private int prevDocCachePercentage = DEFAULT_PREV_DOC_CACHE_PERCENTAGE;
     private int childrenCachePercentage = DEFAULT_CHILDREN_CACHE_PERCENTAGE;
@@ -141,12 +145,14 @@ public class DocumentNodeStoreBuilder<T extends DocumentNodeStoreBuilder<T>> {
     private StatisticsProvider statisticsProvider = StatisticsProvider.NOOP;
     private BlobStoreStats blobStoreStats;
     private CacheStats blobStoreCacheStats;
+    private OffHeapDocumentCacheStats offHeapDocumentCacheStats;
     private DocumentStoreStatsCollector documentStoreStatsCollector;
     private DocumentNodeStoreStatsCollector nodeStoreStatsCollector;
     private Map<String, PersistentCacheStats> persistentCacheStats = new HashMap<>();
     private boolean bundlingDisabled;
     private JournalPropertyHandlerFactory journalPropertyHandlerFactory =
             new JournalPropertyHandlerFactory();
+    private SplitPolicy splitPolicy;
     private int updateLimit = UPDATE_LIMIT;
     private int commitValueCacheSize = 10000;
     private boolean cacheEmptyCommitValue = false;
@@ -401,6 +407,44 @@ public class DocumentNodeStoreBuilder<T extends DocumentNodeStoreBuilder<T>> {
         return thisBuilder();
     }
 
+    /**
+     * Sets the size in bytes of the off-heap tier for documents evicted from
+     * the on-heap document cache. The tier is disabled when set to zero,
+     * which is the default.
+     *
+     * @param offHeapDocumentCacheSize the size in bytes.
+     * @return this builder.
+     */
+    public T setOffHeapDocumentCacheSize(long offHeapDocumentCacheSize) {
+        checkArgument(offHeapDocumentCacheSize >= 0);
+        this.offHeapDocumentCacheSize = offHeapDocumentCacheSize;
+        return thisBuilder();
+    }
+
+    public long getOffHeapDocumentCacheSize() {
+        return offHeapDocumentCacheSize;
+    }
+
+    /**
+     * Sets the size of the diff cache tier, which keeps the compressed
+     * changes of an external revision range in a single entry. The tier is
+     * in addition to the diff cache sized with
+     * {@link #memoryCacheDistribution(int, int, int, int)}. It is disabled
+     * when set to zero, which is the default.
+     *
+     * @param compressedDiffCacheSize the size in bytes.
+     * @return this builder.
+     */
+    public T setCompressedDiffCacheSize(long compressedDiffCacheSize) {
+        checkArgument(compressedDiffCacheSize >= 0);
+        this.compressedDiffCacheSize = compressedDiffCacheSize;
+        return thisBuilder();
+    }
+
+    public long getCompressedDiffCacheSize() {
+        return compressedDiffCacheSize;
+    }
+
     public T memoryCacheDistribution(int nodeCachePercentage,
                                      int prevDocCachePercentage,
                                      int childrenCachePercentage,
@@ -520,6 +564,16 @@ public class DocumentNodeStoreBuilder<T extends DocumentNodeStoreBuilder<T>> {
         return blobStoreCacheStats;
     }
 
+    /**
+     * @return the statistics of the off-heap document cache or {@code null}
+     *          if the off-heap document cache is disabled or no document
+     *          store was built yet.
+     */
+    @Nullable
+    public OffHeapDocumentCacheStats getOffHeapDocumentCacheStats() {
+        return offHeapDocumentCacheStats;
+    }
+
     public Clock getClock() {
         return clock;
     }
@@ -560,6 +614,26 @@ public class DocumentNodeStoreBuilder<T extends DocumentNodeStoreBuilder<T>> {
         return journalPropertyHandlerFactory;
     }
 
+    /**
+     * Sets the policy that decides when documents are split. When not set,
+     * the {@link DocumentNodeStore} uses the {@link SplitPolicy#DEFAULT}
+     * policy, or a policy driven by the read cost of documents if the
+     * system property {@code oak.documentMK.readCostSplitPolicy} is
+     * {@code true}.
+     *
+     * @param policy the split policy.
+     * @return this builder.
+     */
+    public T setSplitPolicy(@NotNull SplitPolicy policy) {
+        splitPolicy = checkNotNull(policy);
+        return thisBuilder();
+    }
+
+    @Nullable
+    public SplitPolicy getSplitPolicy() {
+        return splitPolicy;
+    }
+
     public T setUpdateLimit(int limit) {
         updateLimit = limit;
         return thisBuilder();
@@ -667,6 +741,10 @@ public class DocumentNodeStoreBuilder<T extends DocumentNodeStoreBuilder<T>> {
         return buildCache(CacheType.LOCAL_DIFF, getLocalDiffCacheSize(), null, null);
     }
 
+    public Cache<RevisionsKey, CompressedDiffCache.ChangeSet> buildCompressedDiffCache() {
+        return buildCache(CacheType.COMPRESSED_DIFF, getCompressedDiffCacheSize(), null, null);
+    }
+
     public Cache<CacheValue, NodeDocument> buildDocumentCache(DocumentStore docStore) {
         return buildCache(CacheType.DOCUMENT, getDocumentCacheSize(), null, docStore);
     }
@@ -676,13 +754,19 @@ public class DocumentNodeStoreBuilder<T extends DocumentNodeStoreBuilder<T>> {
     }
 
     public NodeDocumentCache buildNodeDocumentCache(DocumentStore docStore, NodeDocumentLocks locks) {
-        Cache<CacheValue, NodeDocument> nodeDocumentsCache = buildDocumentCache(docStore);
+        OffHeapDocumentCache offHeapCache = null;
+        if (offHeapDocumentCacheSize > 0) {
+            offHeapCache = new OffHeapDocumentCache(docStore, offHeapDocumentCacheSize);
+            offHeapDocumentCacheStats = new OffHeapDocumentCacheStats(offHeapCache);
+        }
+        Cache<CacheValue, NodeDocument> nodeDocumentsCache = buildCache(
+                CacheType.DOCUMENT, getDocumentCacheSize(), null, docStore, offHeapCache);
         CacheStats nodeDocumentsCacheStats = new CacheStats(nodeDocumentsCache, "Document-Documents", getWeigher(), getDocumentCacheSize());
 
         Cache<StringValue, NodeDocument> prevDocumentsCache = buildPrevDocumentsCache(docStore);
         CacheStats prevDocumentsCacheStats = new CacheStats(prevDocumentsCache, "Document-PrevDocuments", getWeigher(), getPrevDocumentCacheSize());
 
-        return new NodeDocumentCache(nodeDocumentsCache, nodeDocumentsCacheStats, prevDocumentsCache, prevDocumentsCacheStats, locks);
+        return new NodeDocumentCache(nodeDocumentsCache, nodeDocumentsCacheStats, prevDocumentsCache, prevDocumentsCacheStats, locks, offHeapCache);
     }
 
     /**
@@ -717,10 +801,23 @@ public class DocumentNodeStoreBuilder<T extends DocumentNodeStoreBuilder<T>> {
             long maxWeight,
             DocumentNodeStore docNodeStore,
             DocumentStore docStore) {
+        return buildCache(cacheType, maxWeight, docNodeStore, docStore, null);
+    }
+
+    private <K extends CacheValue, V extends CacheValue> Cache<K, V> buildCache(
+            CacheType cacheType,
+            long maxWeight,
+            DocumentNodeStore docNodeStore,
+            DocumentStore docStore,
+            EvictionListener<K, V> evictionListener) {
         Set<EvictionListener<K, V>> listeners = new CopyOnWriteArraySet<EvictionListener<K,V>>();
+        if (evictionListener != null) {
+            listeners.add(evictionListener);
+        }
         Cache<K, V> cache = buildCache(cacheType.name(), maxWeight, listeners);
         PersistentCache p = null;
-        if (cacheType == CacheType.DIFF || cacheType == CacheType.LOCAL_DIFF) {
+        if (cacheType == CacheType.DIFF || cacheType == CacheType.LOCAL_DIFF
+                || cacheType == CacheType.COMPRESSED_DIFF) {
             // use separate journal cache if configured
             p = getJournalCache();
         }
@@ -77,6 +77,10 @@ public interface DocumentNodeStoreMBean {
             @Name("clusterId")
             int clusterId);
 
+    @Description("Returns the progress of a currently running last revision\n" +
+            "recovery or the outcome and duration of the most recently finished one.")
+    String getLastRevRecoveryStatus();
+
     @Description("Invalidates all the caches used by the DocumentNodeStore: DiffCache, NodeCache and NodeChildrenCache.")
     String cleanAllCaches();
 
@@ -100,4 +104,27 @@ public interface DocumentNodeStoreMBean {
                     "that are more recent than the revision checkpoint.")
             @Name("force")
             boolean force);
+
+    @Description("Enables or disables recording of parent and child document\n" +
+            "accesses by node type. The recorded statistics are used for\n" +
+            "bundling recommendations. Enabling discards previously recorded statistics.")
+    String recordBundlingStatistics(
+            @Description("Whether recording is enabled.")
+            @Name("enabled")
+            boolean enabled);
+
+    @Description("Returns bundling patterns per node type recommended based on\n" +
+            "the recorded document accesses, with the estimated number of\n" +
+            "document reads saved if the child nodes had been bundled.")
+    String[] getBundlingRecommendations();
+
+    @Description("Returns the bundling patterns for the given node type: the\n" +
+            "configured patterns with the recommended patterns added. The bundling\n" +
+            "configuration is not modified. To apply the patterns, set them as the\n" +
+            "pattern property of the node type in the bundling configuration.\n" +
+            "Only nodes added afterwards are bundled.")
+    String[] getBundlingPatterns(
+            @Description("The name of the node type.")
+            @Name("nodeType")
+            String nodeType);
 }
@@ -31,7 +31,12 @@ import org.apache.jackrabbit.api.stats.RepositoryStatistics;
 import org.apache.jackrabbit.api.stats.TimeSeries;
 import org.apache.jackrabbit.oak.commons.PathUtils;
 import org.apache.jackrabbit.oak.commons.jmx.AnnotatedStandardMBean;
+import org.apache.jackrabbit.oak.plugins.document.bundlor.BundlingConfigHandler;
+import org.apache.jackrabbit.oak.plugins.document.bundlor.BundlingRecommender;
+import org.apache.jackrabbit.oak.plugins.document.bundlor.BundlingRecommender.Recommendation;
 import org.apache.jackrabbit.oak.plugins.document.util.Utils;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.apache.jackrabbit.oak.spi.state.NodeStateUtils;
 import org.apache.jackrabbit.stats.TimeSeriesStatsUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -237,6 +242,11 @@ final class DocumentNodeStoreMBeanImpl extends AnnotatedStandardMBean implements
         return sum;
     }
 
+    @Override
+    public String getLastRevRecoveryStatus() {
+        return nodeStore.getLastRevRecoveryAgent().getRecoveryStatus();
+    }
+
     private List<NodeDocument> getChildDocs(String path) { 
         Path pathRef = Path.fromString(path);
         final String to = Utils.getKeyUpperLimit(pathRef);
@@ -298,4 +308,37 @@ final class DocumentNodeStoreMBeanImpl extends AnnotatedStandardMBean implements
         }
     }
 
+    @Override
+    public String recordBundlingStatistics(boolean enabled) {
+        BundlingRecommender recommender = nodeStore.getBundlingRecommender();
+        if (enabled) {
+            recommender.reset();
+        }
+        recommender.setEnabled(enabled);
+        return "Recording of bundling statistics " + (enabled ? "enabled." : "disabled.");
+    }
+
+    @Override
+    public String[] getBundlingRecommendations() {
+        return toArray(transform(nodeStore.getBundlingRecommender().getRecommendations(),
+                new Function<Recommendation, String>() {
+            @Override
+            public String apply(Recommendation input) {
+                return input.toString();
+            }
+        }), String.class);
+    }
+
+    @Override
+    public String[] getBundlingPatterns(String nodeType) {
+        for (Recommendation r : nodeStore.getBundlingRecommender().getRecommendations()) {
+            if (r.getNodeType().equals(nodeType)) {
+                NodeState config = NodeStateUtils.getNode(nodeStore.getRoot(),
+                        BundlingConfigHandler.CONFIG_PATH);
+                return toArray(BundlingRecommender.getPatterns(config, r), String.class);
+            }
+        }
+        return new String[0];
+    }
+
 }
@@ -61,6 +61,7 @@ import org.apache.jackrabbit.oak.api.Descriptors;
 import org.apache.jackrabbit.oak.api.jmx.CacheStatsMBean;
 import org.apache.jackrabbit.oak.api.jmx.CheckpointMBean;
 import org.apache.jackrabbit.oak.api.jmx.PersistentCacheStatsMBean;
+import org.apache.jackrabbit.oak.cache.AbstractCacheStats;
 import org.apache.jackrabbit.oak.cache.CacheStats;
 import org.apache.jackrabbit.oak.plugins.document.VersionGarbageCollector.VersionGCStats;
 import org.apache.jackrabbit.oak.plugins.document.mongo.MongoDocumentNodeStoreBuilder;
@@ -747,6 +748,10 @@ public class DocumentNodeStoreService {
             registerCacheStatsMBean(mkBuilder.getBlobStoreCacheStats());
         }
 
+        if (mkBuilder.getOffHeapDocumentCacheStats() != null) {
+            registerCacheStatsMBean(mkBuilder.getOffHeapDocumentCacheStats());
+        }
+
         if (mkBuilder.getDocumentStoreStatsCollector() instanceof DocumentStoreStatsMBean) {
             addRegistration(
                     registerMBean(whiteboard,
@@ -810,7 +815,7 @@ public class DocumentNodeStoreService {
         }
     }
 
-    private void registerCacheStatsMBean(CacheStats cacheStats) {
+    private void registerCacheStatsMBean(AbstractCacheStats cacheStats) {
         addRegistration(registerMBean(whiteboard, CacheStatsMBean.class,
                 cacheStats, CacheStatsMBean.TYPE, cacheStats.getName()));
     }
@@ -29,6 +29,9 @@ import org.apache.jackrabbit.oak.stats.TimerStats;
 
 public class DocumentNodeStoreStats implements DocumentNodeStoreStatsCollector {
     private static final String BGR_READ_HEAD = "DOCUMENT_NS_BGR_READ_HEAD";
+    private static final String BGR_READ_JOURNAL = "DOCUMENT_NS_BGR_READ_JOURNAL";
+    private static final String BGR_SORT_CHANGES = "DOCUMENT_NS_BGR_SORT_CHANGES";
+    private static final String BGR_NUM_JOURNAL_ENTRIES_HISTO = "DOCUMENT_NS_BGR_NUM_JOURNAL_ENTRIES_HISTO";
     private static final String BGR_CACHE_INVALIDATE = "DOCUMENT_NS_BGR_CACHE_INVALIDATE";
     private static final String BGR_DIFF_CACHE = "DOCUMENT_NS_BGR_DIFF_CACHE";
     private static final String BGR_LOCK = "DOCUMENT_NS_BGR_LOCK";
@@ -40,6 +43,9 @@ public class DocumentNodeStoreStats implements DocumentNodeStoreStatsCollector {
 
     private static final String BGW_CLEAN = "DOCUMENT_NS_BGW_CLEAN";
     private static final String BGW_SPLIT = "DOCUMENT_NS_BGW_SPLIT";
+    static final String BGW_SPLIT_DOCS = "DOCUMENT_NS_BGW_SPLIT_DOCS";
+    static final String BGW_SPLIT_SIZE_BEFORE = "DOCUMENT_NS_BGW_SPLIT_SIZE_BEFORE";
+    static final String BGW_SPLIT_SIZE_AFTER = "DOCUMENT_NS_BGW_SPLIT_SIZE_AFTER";
     private static final String BGW_WRITE = "DOCUMENT_NS_BGW_LOCK";
     private static final String BGW_SWEEP = "DOCUMENT_NS_BGW_SWEEP";
     static final String BGW_NUM = "DOCUMENT_NS_BGW_NUM";
@@ -67,6 +73,9 @@ public class DocumentNodeStoreStats implements DocumentNodeStoreStatsCollector {
 
     // background read
     private final TimerStats readHead;
+    private final TimerStats readJournal;
+    private final TimerStats readSortChanges;
+    private final HistogramStats numJournalEntriesHisto;
     private final TimerStats readCacheInvalidate;
     private final TimerStats readDiffCache;
     private final TimerStats readLock;
@@ -79,6 +88,9 @@ public class DocumentNodeStoreStats implements DocumentNodeStoreStatsCollector {
     // background update
     private final TimerStats writeClean;
     private final TimerStats writeSplit;
+    private final MeterStats splitDocs;
+    private final MeterStats splitSizeBefore;
+    private final MeterStats splitSizeAfter;
     private final TimerStats writeSweep;
     private final HistogramStats writeNum;
     private final TimerStats writeWrite;
@@ -110,6 +122,9 @@ public class DocumentNodeStoreStats implements DocumentNodeStoreStatsCollector {
 
     public DocumentNodeStoreStats(StatisticsProvider sp) {
         readHead = sp.getTimer(BGR_READ_HEAD, StatsOptions.METRICS_ONLY);
+        readJournal = sp.getTimer(BGR_READ_JOURNAL, StatsOptions.METRICS_ONLY);
+        readSortChanges = sp.getTimer(BGR_SORT_CHANGES, StatsOptions.METRICS_ONLY);
+        numJournalEntriesHisto = sp.getHistogram(BGR_NUM_JOURNAL_ENTRIES_HISTO, StatsOptions.METRICS_ONLY);
         readCacheInvalidate = sp.getTimer(BGR_CACHE_INVALIDATE, StatsOptions.METRICS_ONLY);
         readDiffCache = sp.getTimer(BGR_DIFF_CACHE, StatsOptions.METRICS_ONLY);
         readLock = sp.getTimer(BGR_LOCK, StatsOptions.METRICS_ONLY);
@@ -121,6 +136,9 @@ public class DocumentNodeStoreStats implements DocumentNodeStoreStatsCollector {
 
         writeClean = sp.getTimer(BGW_CLEAN, StatsOptions.METRICS_ONLY);
         writeSplit = sp.getTimer(BGW_SPLIT, StatsOptions.METRICS_ONLY);
+        splitDocs = sp.getMeter(BGW_SPLIT_DOCS, StatsOptions.METRICS_ONLY);
+        splitSizeBefore = sp.getMeter(BGW_SPLIT_SIZE_BEFORE, StatsOptions.METRICS_ONLY);
+        splitSizeAfter = sp.getMeter(BGW_SPLIT_SIZE_AFTER, StatsOptions.METRICS_ONLY);
         writeSweep = sp.getTimer(BGW_SWEEP, StatsOptions.METRICS_ONLY);
         writeWrite = sp.getTimer(BGW_WRITE, StatsOptions.METRICS_ONLY);
         writeTotal = sp.getTimer(BGW_TOTAL, StatsOptions.METRICS_ONLY);
@@ -150,6 +168,9 @@ public class DocumentNodeStoreStats implements DocumentNodeStoreStatsCollector {
     @Override
     public void doneBackgroundRead(BackgroundReadStats stats) {
         readHead.update(stats.readHead, TimeUnit.MILLISECONDS);
+        readJournal.update(stats.readJournal, TimeUnit.MILLISECONDS);
+        readSortChanges.update(stats.sortChanges, TimeUnit.MILLISECONDS);
+        numJournalEntriesHisto.update(stats.numJournalEntries);
         readCacheInvalidate.update(stats.cacheInvalidationTime, TimeUnit.MILLISECONDS);
         readDiffCache.update(stats.populateDiffCache, TimeUnit.MILLISECONDS);
         readLock.update(stats.lock, TimeUnit.MILLISECONDS);
@@ -168,6 +189,11 @@ public class DocumentNodeStoreStats implements DocumentNodeStoreStatsCollector {
     public void doneBackgroundUpdate(BackgroundWriteStats stats) {
         writeClean.update(stats.clean, TimeUnit.MILLISECONDS);
         writeSplit.update(stats.split, TimeUnit.MILLISECONDS);
+        // number of split main documents and their size in bytes
+        // before and after the split
+        splitDocs.mark(stats.splitDocs);
+        splitSizeBefore.mark(stats.splitSizeBefore);
+        splitSizeAfter.mark(stats.splitSizeAfter);
         writeSweep.update(stats.sweep, TimeUnit.MILLISECONDS);
         writeWrite.update(stats.write, TimeUnit.MILLISECONDS);
         writeTotal.update(stats.totalWriteTime, TimeUnit.MILLISECONDS);
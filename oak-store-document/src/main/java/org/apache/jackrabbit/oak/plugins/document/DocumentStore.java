@@ -133,6 +133,45 @@ public interface DocumentStore {
                                        long startValue,
                                        int limit) throws DocumentStoreException;
 
+    /**
+     * Same as {@link #query(Collection, String, String, String, long, int)},
+     * but the returned documents only need to contain the fields in the given
+     * projection and the {@link Document#ID}. This is intended for internal
+     * background tasks that only look at a few fields of potentially large
+     * documents.
+     * <p>
+     * Implementations may return more fields than requested. The returned
+     * documents are incomplete and must not be used for anything else than
+     * reading the projected fields. They are not put into a cache. The default
+     * implementation returns the complete documents.
+     *
+     * @param <T> the document type
+     * @param collection the collection
+     * @param fromKey the start value (excluding)
+     * @param toKey the end value (excluding)
+     * @param indexedProperty the name of the indexed property (optional)
+     * @param startValue the minimum value of the indexed property
+     * @param limit the maximum number of entries to return
+     * @param projection the names of the fields to return
+     * @return the list (possibly empty)
+     * @throws DocumentStoreException if the operation failed. E.g. because of
+     *          an I/O error.
+     */
+    @NotNull
+    default <T extends Document> List<T> query(Collection<T> collection,
+                                               String fromKey,
+                                               String toKey,
+                                               String indexedProperty,
+                                               long startValue,
+                                               int limit,
+                                               @NotNull List<String> projection)
+            throws DocumentStoreException {
+        if (indexedProperty == null) {
+            return query(collection, fromKey, toKey, limit);
+        }
+        return query(collection, fromKey, toKey, indexedProperty, startValue, limit);
+    }
+
     /**
      * Remove a document. This method does nothing if there is no document
      * with the given key.
@@ -466,4 +505,33 @@ public interface DocumentStore {
     default int getNodeNameLimit() {
         return Utils.NODE_NAME_LIMIT;
     }
+
+    /**
+     * Returns the change feed of this document store or {@code null} if the
+     * implementation does not push changes to listeners. The default
+     * implementation returns {@code null}.
+     *
+     * @return the change feed of this store or {@code null} if not supported.
+     */
+    @Nullable
+    default DocumentChangeFeed getChangeFeed() {
+        return null;
+    }
+
+    /**
+     * Read the documents with the given keys into the cache, if they are not
+     * cached yet, using as few calls to the backend as possible. This is only
+     * a hint: the default implementation does nothing.
+     *
+     * @param <T> the document type
+     * @param collection the collection
+     * @param keys the keys of the documents
+     * @throws DocumentStoreException if the operation failed. E.g. because of
+     *          an I/O error.
+     */
+    default <T extends Document> void prefetch(Collection<T> collection,
+                                               Iterable<String> keys)
+            throws DocumentStoreException {
+        // nothing to do
+    }
 }
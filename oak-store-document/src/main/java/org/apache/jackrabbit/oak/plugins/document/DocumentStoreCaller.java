@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document;
+
+import java.util.concurrent.Callable;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The subsystem on whose behalf the current thread calls the
+ * {@link DocumentStore}. The {@link DocumentStoreStats} attach the caller to
+ * sampled slow operations. Reads on behalf of a session, including reads for
+ * queries, are reported as {@link #OTHER}.
+ * <p>
+ * Usage:
+ * <pre>
+ * DocumentStoreCaller previous = DocumentStoreCaller.enter(DocumentStoreCaller.COMMIT);
+ * try {
+ *     // calls to the DocumentStore
+ * } finally {
+ *     DocumentStoreCaller.exit(previous);
+ * }
+ * </pre>
+ * Tasks that are handed over to another thread need to be wrapped with
+ * {@link #propagate(Runnable)} or {@link #propagate(Callable)}, otherwise
+ * their calls are reported as {@link #OTHER}.
+ */
+public enum DocumentStoreCaller {
+
+    COMMIT,
+    BACKGROUND_READ,
+    BACKGROUND_UPDATE,
+    BACKGROUND_SWEEP,
+    VERSION_GC,
+    JOURNAL_GC,
+    RECOVERY,
+    OTHER;
+
+    private static final ThreadLocal<DocumentStoreCaller> CURRENT = new ThreadLocal<>();
+
+    /**
+     * @return the caller of the current thread or {@link #OTHER} if none is
+     *          set.
+     */
+    @NotNull
+    public static DocumentStoreCaller current() {
+        DocumentStoreCaller caller = CURRENT.get();
+        return caller != null ? caller : OTHER;
+    }
+
+    /**
+     * Sets the caller for the current thread.
+     *
+     * @param caller the caller.
+     * @return the previous caller, to be passed to {@link #exit}.
+     */
+    @Nullable
+    public static DocumentStoreCaller enter(@NotNull DocumentStoreCaller caller) {
+        DocumentStoreCaller previous = CURRENT.get();
+        CURRENT.set(caller);
+        return previous;
+    }
+
+    /**
+     * Restores the caller that was set before the matching {@link #enter}.
+     *
+     * @param previous the value returned by {@link #enter}.
+     */
+    public static void exit(@Nullable DocumentStoreCaller previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Wraps the task so that it runs with the caller of the current thread,
+     * on whatever thread it is executed.
+     *
+     * @param task the task.
+     * @return the wrapped task, or the task itself if no caller is set.
+     */
+    @NotNull
+    public static Runnable propagate(@NotNull Runnable task) {
+        DocumentStoreCaller caller = CURRENT.get();
+        if (caller == null) {
+            return task;
+        }
+        return () -> {
+            DocumentStoreCaller previous = enter(caller);
+            try {
+                task.run();
+            } finally {
+                exit(previous);
+            }
+        };
+    }
+
+    /**
+     * Wraps the task so that it runs with the caller of the current thread,
+     * on whatever thread it is executed.
+     *
+     * @param task the task.
+     * @return the wrapped task, or the task itself if no caller is set.
+     */
+    @NotNull
+    public static <T> Callable<T> propagate(@NotNull Callable<T> task) {
+        DocumentStoreCaller caller = CURRENT.get();
+        if (caller == null) {
+            return task;
+        }
+        return () -> {
+            DocumentStoreCaller previous = enter(caller);
+            try {
+                return task.call();
+            } finally {
+                exit(previous);
+            }
+        };
+    }
+}
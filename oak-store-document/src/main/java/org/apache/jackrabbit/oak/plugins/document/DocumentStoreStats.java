@@ -19,11 +19,15 @@
 package org.apache.jackrabbit.oak.plugins.document;
 
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
 import javax.management.openmbean.CompositeData;
 
 import org.apache.jackrabbit.api.stats.TimeSeries;
+import org.apache.jackrabbit.oak.plugins.document.util.SystemPropertySupplier;
 import org.apache.jackrabbit.oak.plugins.document.util.Utils;
 import org.apache.jackrabbit.oak.stats.MeterStats;
 import org.apache.jackrabbit.oak.stats.StatisticsProvider;
@@ -33,6 +37,8 @@ import org.apache.jackrabbit.stats.TimeSeriesStatsUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.EvictingQueue;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -78,6 +84,26 @@ public class DocumentStoreStats implements DocumentStoreStatsCollector, Document
     static final String JOURNAL_QUERY_TIMER = "DOCUMENT_JOURNAL_QUERY_TIMER";
     static final String JOURNAL_CREATE_TIMER = "DOCUMENT_JOURNAL_CREATE_TIMER";
 
+    static final String SLOW_OPERATIONS = "DOCUMENT_SLOW_OPERATIONS";
+
+    /**
+     * Operations taking longer than this are sampled as slow operations.
+     */
+    static final long SLOW_OPERATION_THRESHOLD_MS = SystemPropertySupplier.create(
+            "oak.documentMK.slowOperationThresholdMs", 100L).get();
+
+    /**
+     * The number of most recent slow operations kept.
+     */
+    static final int MAX_SLOW_OPERATIONS = 100;
+
+    /**
+     * The operations with latency histograms per collection.
+     */
+    enum Operation {
+        FIND, QUERY, CREATE, CREATE_OR_UPDATE, FIND_AND_UPDATE, REMOVE
+    }
+
 
     private final MeterStats findNodesCachedMeter;
     private final MeterStats findNodesMissing;
@@ -109,8 +135,16 @@ public class DocumentStoreStats implements DocumentStoreStatsCollector, Document
     private final MeterStats updateNodeRetryCountMeter;
     private final MeterStats removeNodes;
     private final TimerStats removeNodesTimer;
+    private final ConcurrentMap<Collection<?>, TimerStats[]> latencies = new ConcurrentHashMap<>();
+    private final MeterStats[] slowOperationsByCaller;
+    private final long slowOperationThresholdNanos;
+    private final EvictingQueue<SlowOperation> slowOperations = EvictingQueue.create(MAX_SLOW_OPERATIONS);
 
     public DocumentStoreStats(StatisticsProvider provider) {
+        this(provider, SLOW_OPERATION_THRESHOLD_MS);
+    }
+
+    DocumentStoreStats(StatisticsProvider provider, long slowOperationThresholdMs) {
         statisticsProvider = checkNotNull(provider);
         findNodesCachedMeter = provider.getMeter(NODES_FIND_CACHED, StatsOptions.DEFAULT);
         findNodesMissing = provider.getMeter(NODES_FIND_MISSING, StatsOptions.DEFAULT);
@@ -148,6 +182,14 @@ public class DocumentStoreStats implements DocumentStoreStatsCollector, Document
 
         removeNodes = provider.getMeter(NODES_REMOVE, StatsOptions.DEFAULT);
         removeNodesTimer = provider.getTimer(NODES_REMOVE_TIMER, StatsOptions.METRICS_ONLY);
+
+        DocumentStoreCaller[] callers = DocumentStoreCaller.values();
+        slowOperationsByCaller = new MeterStats[callers.length];
+        for (DocumentStoreCaller caller : callers) {
+            slowOperationsByCaller[caller.ordinal()] = provider.getMeter(
+                    SLOW_OPERATIONS + "_" + caller, StatsOptions.METRICS_ONLY);
+        }
+        slowOperationThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowOperationThresholdMs);
     }
 
     //~------------------------------------------< DocumentStoreStatsCollector >
@@ -163,6 +205,7 @@ public class DocumentStoreStats implements DocumentStoreStatsCollector, Document
     @Override
     public void doneFindUncached(long timeTakenNanos, Collection<? extends Document> collection, String key,
                                  boolean docFound, boolean isSlaveOk) {
+        record(Operation.FIND, collection, timeTakenNanos, key);
         if (collection == Collection.NODES){
             //For now collect time for reads from primary/secondary in same timer
             TimerStats timer;
@@ -192,6 +235,7 @@ public class DocumentStoreStats implements DocumentStoreStatsCollector, Document
     @Override
     public void doneQuery(long timeTakenNanos, Collection<? extends Document> collection, String fromKey, String toKey,
                           boolean indexedProperty, int resultSize, long lockTime, boolean isSlaveOk) {
+        record(Operation.QUERY, collection, timeTakenNanos, fromKey, toKey);
         if (collection == Collection.NODES){
             //Distinguish between query done with filter and without filter
             TimerStats timer = indexedProperty ? queryNodesWithFilterTimer : queryNodesTimer;
@@ -224,6 +268,7 @@ public class DocumentStoreStats implements DocumentStoreStatsCollector, Document
 
     @Override
     public void doneCreate(long timeTakenNanos, Collection<? extends Document> collection, List<String> ids, boolean insertSuccess) {
+        record(Operation.CREATE, collection, timeTakenNanos, ids);
         if (collection == Collection.NODES && insertSuccess){
             for (String id : ids){
                 createNodeMeter.mark();
@@ -243,6 +288,7 @@ public class DocumentStoreStats implements DocumentStoreStatsCollector, Document
     public void doneCreateOrUpdate(long timeTakenNanos,
                                    Collection<? extends Document> collection,
                                    List<String> ids) {
+        record(Operation.CREATE_OR_UPDATE, collection, timeTakenNanos, ids);
         if (collection == Collection.NODES) {
             for (String id : ids){
                 createNodeUpsertMeter.mark();
@@ -258,6 +304,7 @@ public class DocumentStoreStats implements DocumentStoreStatsCollector, Document
     @Override
     public void doneFindAndModify(long timeTakenNanos, Collection<? extends Document> collection, String key, boolean newEntry,
                                   boolean success, int retryCount) {
+        record(Operation.FIND_AND_UPDATE, collection, timeTakenNanos, key);
         if (collection == Collection.NODES){
             if (success) {
                 if (newEntry) {
@@ -283,6 +330,7 @@ public class DocumentStoreStats implements DocumentStoreStatsCollector, Document
     public void doneRemove(long timeTakenNanos,
                            Collection<? extends Document> collection,
                            int removeCount) {
+        record(Operation.REMOVE, collection, timeTakenNanos, removeCount);
         if (collection == Collection.NODES) {
             if (removeCount > 0) {
                 removeNodes.mark(removeCount);
@@ -292,6 +340,74 @@ public class DocumentStoreStats implements DocumentStoreStatsCollector, Document
         perfLog(timeTakenNanos, "remove [{}]", removeCount);
     }
 
+    /**
+     * Records the latency of an operation in the histogram for the collection
+     * and operation, and samples the operation if it was slow. The key is
+     * only converted to a String for slow operations.
+     */
+    private void record(Operation op, Collection<? extends Document> collection,
+                        long timeTakenNanos, Object key) {
+        if (updateLatency(op, collection, timeTakenNanos)) {
+            sample(op, collection, timeTakenNanos, new Object[]{key});
+        }
+    }
+
+    private void record(Operation op, Collection<? extends Document> collection,
+                        long timeTakenNanos, Object key1, Object key2) {
+        if (updateLatency(op, collection, timeTakenNanos)) {
+            sample(op, collection, timeTakenNanos, new Object[]{key1, key2});
+        }
+    }
+
+    private void record(Operation op, Collection<? extends Document> collection,
+                        long timeTakenNanos, int count) {
+        if (updateLatency(op, collection, timeTakenNanos)) {
+            sample(op, collection, timeTakenNanos, new Object[]{count});
+        }
+    }
+
+    /**
+     * @return whether the operation was slow and should be sampled.
+     */
+    private boolean updateLatency(Operation op, Collection<? extends Document> collection,
+                                  long timeTakenNanos) {
+        getLatencyTimers(collection)[op.ordinal()].update(timeTakenNanos, TimeUnit.NANOSECONDS);
+        return timeTakenNanos >= slowOperationThresholdNanos;
+    }
+
+    private void sample(Operation op, Collection<? extends Document> collection,
+                        long timeTakenNanos, Object[] keys) {
+        DocumentStoreCaller caller = DocumentStoreCaller.current();
+        slowOperationsByCaller[caller.ordinal()].mark();
+        SlowOperation slowOp = new SlowOperation(System.currentTimeMillis(), op,
+                collection, timeTakenNanos, caller, Thread.currentThread().getName(), keys);
+        synchronized (slowOperations) {
+            slowOperations.add(slowOp);
+        }
+        perfLog.debug("Slow operation {}", slowOp);
+    }
+
+    private TimerStats[] getLatencyTimers(Collection<? extends Document> collection) {
+        TimerStats[] timers = latencies.get(collection);
+        if (timers == null) {
+            timers = latencies.computeIfAbsent(collection, c -> {
+                Operation[] ops = Operation.values();
+                TimerStats[] t = new TimerStats[ops.length];
+                for (Operation op : ops) {
+                    t[op.ordinal()] = statisticsProvider.getTimer(
+                            getLatencyStatsName(c, op), StatsOptions.METRICS_ONLY);
+                }
+                return t;
+            });
+        }
+        return timers;
+    }
+
+    static String getLatencyStatsName(Collection<?> collection, Operation op) {
+        return "DOCUMENT_" + collection.toString().toUpperCase(Locale.ENGLISH)
+                + "_" + op + "_LATENCY";
+    }
+
     private void perfLog(long timeTakenNanos, String logMessagePrefix, Object... arguments){
         if (!perfLog.isDebugEnabled()){
             return;
@@ -356,6 +472,20 @@ public class DocumentStoreStats implements DocumentStoreStatsCollector, Document
         return queryJournal.getCount();
     }
 
+    @Override
+    public String[] getSlowOperations() {
+        SlowOperation[] ops;
+        synchronized (slowOperations) {
+            ops = slowOperations.toArray(new SlowOperation[0]);
+        }
+        String[] result = new String[ops.length];
+        // most recent first
+        for (int i = 0; i < ops.length; i++) {
+            result[i] = ops[ops.length - 1 - i].toString();
+        }
+        return result;
+    }
+
     @Override
     public CompositeData getFindCachedNodesHistory() {
         return getTimeSeriesData(NODES_FIND_CACHED,
@@ -453,4 +583,59 @@ public class DocumentStoreStats implements DocumentStoreStatsCollector, Document
     private TimeSeries getTimeSeries(String name) {
         return statisticsProvider.getStats().getTimeSeries(name, true);
     }
+
+    private static final class SlowOperation {
+
+        /**
+         * Maximum number of keys of a batch operation included in the
+         * description of a slow operation.
+         */
+        private static final int MAX_KEYS = 10;
+
+        private final long timestamp;
+        private final Operation op;
+        private final Collection<?> collection;
+        private final long timeTakenNanos;
+        private final DocumentStoreCaller caller;
+        private final String thread;
+        private final String keys;
+
+        SlowOperation(long timestamp, Operation op, Collection<?> collection,
+                      long timeTakenNanos, DocumentStoreCaller caller,
+                      String thread, Object[] keys) {
+            this.timestamp = timestamp;
+            this.op = op;
+            this.collection = collection;
+            this.timeTakenNanos = timeTakenNanos;
+            this.caller = caller;
+            this.thread = thread;
+            this.keys = toString(keys);
+        }
+
+        private static String toString(Object[] keys) {
+            StringBuilder sb = new StringBuilder();
+            for (Object k : keys) {
+                if (sb.length() > 0) {
+                    sb.append(", ");
+                }
+                if (k instanceof List) {
+                    List<?> list = (List<?>) k;
+                    sb.append(list.subList(0, Math.min(list.size(), MAX_KEYS)));
+                    if (list.size() > MAX_KEYS) {
+                        sb.append(" (").append(list.size()).append(" keys)");
+                    }
+                } else {
+                    sb.append(k);
+                }
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%tFT%<tT.%<tL %s %s [%s] took %dms, caller=%s, thread=%s",
+                    timestamp, op, collection, keys,
+                    TimeUnit.NANOSECONDS.toMillis(timeTakenNanos), caller, thread);
+        }
+    }
 }
@@ -46,6 +46,14 @@ public interface DocumentStoreStatsMBean {
 
     long getJournalReadCount();
 
+    /**
+     * @return the most recent operations that took longer than the slow
+     *          operation threshold, most recent first. Each entry contains
+     *          the operation, the collection, the keys, the time taken and
+     *          the calling subsystem.
+     */
+    String[] getSlowOperations();
+
     CompositeData getFindCachedNodesHistory();
 
     CompositeData getFindSplitNodesHistory();
@@ -17,11 +17,23 @@
 package org.apache.jackrabbit.oak.plugins.document;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+
 import org.apache.jackrabbit.oak.commons.PathUtils;
 import org.apache.jackrabbit.oak.commons.sort.StringSort;
 import org.apache.jackrabbit.oak.plugins.document.util.Utils;
@@ -32,6 +44,7 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static com.google.common.collect.Iterators.partition;
 import static com.google.common.collect.Sets.newHashSet;
 import static org.apache.jackrabbit.oak.commons.IOUtils.closeQuietly;
 import static org.apache.jackrabbit.oak.plugins.document.Collection.NODES;
@@ -47,6 +60,17 @@ abstract class ExternalChange {
 
     private static final Logger LOG = LoggerFactory.getLogger(ExternalChange.class);
 
+    /**
+     * The number of paths invalidated in a single call when cache entries
+     * are invalidated in parallel.
+     */
+    private static final int INVALIDATE_BATCH_SIZE = 1000;
+
+    /**
+     * The maximum number of batches pending invalidation.
+     */
+    private static final int INVALIDATE_MAX_PENDING_BATCHES = 4;
+
     private final DocumentNodeStore store;
 
     protected final BackgroundReadStats stats;
@@ -55,10 +79,13 @@ abstract class ExternalChange {
 
     private final JournalPropertyHandler journalPropertyHandler;
 
+    private final Executor executor;
+
     ExternalChange(DocumentNodeStore store) {
         this.store = store;
         this.stats = new BackgroundReadStats();
         this.journalPropertyHandler = store.getJournalPropertyHandlerFactory().newHandler();
+        this.executor = store.getBackgroundReadExecutor();
     }
 
     /**
@@ -118,11 +145,13 @@ abstract class ExternalChange {
         };
 
         Map<Integer, Revision> lastRevMap = doc.getLastRev();
+        JournalReader reader = new JournalReader(store.getDocumentStore(), executor);
         try {
             changeSetBuilder = new ChangeSetBuilder(
                     store.getChangeSetMaxItems(), store.getChangeSetMaxDepth());
             RevisionVector headRevision = store.getHeadRevision();
             Set<Revision> externalChanges = newHashSet();
+            List<Iterator<JournalEntry>> journalEntries = Lists.newArrayList();
             for (Map.Entry<Integer, Revision> e : lastRevMap.entrySet()) {
                 int machineId = e.getKey();
                 if (machineId == clusterId) {
@@ -140,25 +169,32 @@ abstract class ExternalChange {
                     // only consider as external change if
                     // the revision changed for the machineId
                     externalChanges.add(r);
-                    // collect external changes
-                    if (externalSort != null) {
-                        // add changes for this particular clusterId to the externalSort
-                        try {
-                            fillExternalChanges(externalSort, invalidate,
-                                    Path.ROOT, last, r,
-                                    store.getDocumentStore(), journalEntryConsumer,
-                                    changeSetBuilder, journalPropertyHandler);
-                        } catch (Exception e1) {
-                            LOG.error("backgroundRead: Exception while reading external changes from journal: " + e1, e1);
-                            closeQuietly(externalSort);
-                            closeQuietly(invalidate);
-                            externalSort = null;
-                            invalidate = null;
-                        }
-                    }
+                    // start reading the journal for this clusterId
+                    journalEntries.add(reader.read(last, r));
+                }
+            }
+
+            long journalTime = clock.getTime();
+            // collect external changes
+            for (Iterator<JournalEntry> entries : journalEntries) {
+                if (externalSort == null) {
+                    break;
+                }
+                // add changes for this particular clusterId to the externalSort
+                try {
+                    stats.numJournalEntries += fillExternalChanges(externalSort, invalidate,
+                            Path.ROOT, entries, journalEntryConsumer,
+                            changeSetBuilder, journalPropertyHandler);
+                } catch (Exception e1) {
+                    LOG.error("backgroundRead: Exception while reading external changes from journal: " + e1, e1);
+                    closeQuietly(externalSort);
+                    closeQuietly(invalidate);
+                    externalSort = null;
+                    invalidate = null;
                 }
             }
 
+            stats.readJournal = clock.getTime() - journalTime;
             stats.readHead = clock.getTime() - time;
             time = clock.getTime();
 
@@ -186,6 +222,7 @@ abstract class ExternalChange {
                 updateHead(externalChanges, doc.getSweepRevisions(), externalSort);
             }
         } finally {
+            reader.close();
             closeQuietly(externalSort);
             closeQuietly(invalidate);
         }
@@ -216,7 +253,53 @@ abstract class ExternalChange {
         if (paths.isEmpty()) {
             return;
         }
+        Clock clock = store.getClock();
+        long time = clock.getTime();
         paths.sort();
-        invalidateCache(paths);
+        stats.sortChanges += clock.getTime() - time;
+        if (executor == null || paths.getSize() <= INVALIDATE_BATCH_SIZE) {
+            invalidateCache(paths);
+            return;
+        }
+        // invalidate batches in parallel, while reading the next batch
+        // of sorted paths
+        Deque<Future<?>> pending = new ArrayDeque<>();
+        try {
+            Iterator<List<String>> batches = partition(paths.getIds(), INVALIDATE_BATCH_SIZE);
+            while (batches.hasNext()) {
+                final List<String> batch = batches.next();
+                if (pending.size() >= INVALIDATE_MAX_PENDING_BATCHES) {
+                    await(pending.removeFirst());
+                }
+                FutureTask<Void> task = new FutureTask<>(
+                        DocumentStoreCaller.propagate(() -> invalidateCache(batch)), null);
+                try {
+                    executor.execute(task);
+                } catch (RejectedExecutionException e) {
+                    task.run();
+                }
+                pending.addLast(task);
+                stats.numInvalidateBatches++;
+            }
+            while (!pending.isEmpty()) {
+                await(pending.removeFirst());
+            }
+        } finally {
+            for (Future<?> f : pending) {
+                f.cancel(false);
+            }
+        }
+    }
+
+    private static void await(Future<?> f) throws IOException {
+        try {
+            f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            Throwables.propagateIfPossible(e.getCause(), IOException.class);
+            throw new IOException(e.getCause());
+        }
     }
 }
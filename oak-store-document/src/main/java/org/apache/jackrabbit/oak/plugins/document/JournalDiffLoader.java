@@ -17,10 +17,14 @@
 package org.apache.jackrabbit.oak.plugins.document;
 
 import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
 
 import org.apache.jackrabbit.oak.cache.CacheStats;
 import org.apache.jackrabbit.oak.commons.sort.StringSort;
@@ -162,15 +166,24 @@ class JournalDiffLoader implements DiffCache.Loader {
             stats.numJournalEntries++;
         }
 
-        for (Revision to : max) {
-            Revision from = min.getRevision(to.getClusterId());
-            if (from == null) {
-                // there is no min revision with this clusterId
-                // use revision with a timestamp of zero
-                from = new Revision(0, 0, to.getClusterId());
+        // fetch journal entries of other cluster nodes in the background
+        // while entries of the first cluster node are processed
+        Executor executor = max.getDimensions() > 1 ? ns.getBackgroundReadExecutor() : null;
+        try (JournalReader reader = new JournalReader(store, executor)) {
+            List<Iterator<JournalEntry>> entries = Lists.newArrayList();
+            for (Revision to : max) {
+                Revision from = min.getRevision(to.getClusterId());
+                if (from == null) {
+                    // there is no min revision with this clusterId
+                    // use revision with a timestamp of zero
+                    from = new Revision(0, 0, to.getClusterId());
+                }
+                entries.add(reader.read(from, to));
+            }
+            for (Iterator<JournalEntry> it : entries) {
+                stats.numJournalEntries += fillExternalChanges(changes, null,
+                        path, it, entry -> {}, null, null);
             }
-            stats.numJournalEntries += fillExternalChanges(changes, null,
-                    path, from, to, ns.getDocumentStore(), entry -> {}, null, null);
         }
     }
 
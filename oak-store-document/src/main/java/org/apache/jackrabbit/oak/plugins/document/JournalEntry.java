@@ -280,66 +280,139 @@ public final class JournalEntry extends Document {
                                    @Nullable JournalPropertyHandler journalPropertyHandler)
             throws IOException {
         checkNotNull(path);
+        return fillExternalChanges(externalChanges, invalidate, path,
+                readEntries(from, to, store), journalEntryConsumer,
+                changeSetBuilder, journalPropertyHandler);
+    }
+
+    /**
+     * Appends the paths of the changes in the given journal entries to the
+     * provided sorter. This method behaves the same as
+     * {@link #fillExternalChanges(StringSort, StringSort, Path, Revision, Revision, DocumentStore, Consumer, ChangeSetBuilder, JournalPropertyHandler)},
+     * except that it consumes already read journal entries. E.g. as returned
+     * by {@link #readEntries(Revision, Revision, DocumentStore)}.
+     *
+     * @param externalChanges the StringSort to which all externally changed paths
+     *               in the journal entries will be added
+     * @param invalidate the StringSort to which paths of documents will be
+     *               added that must be invalidated if cached.
+     * @param path   a path that defines the scope of the changes to read.
+     * @param entries the journal entries.
+     * @param journalEntryConsumer a consumer for the processed journal entries.
+     * @param changeSetBuilder a nullable ChangeSetBuilder to collect changes from
+     *                         the JournalEntry between given revisions
+     * @param journalPropertyHandler a nullable JournalPropertyHandler to read
+     *                               stored journal properties for builders from JournalPropertyService
+     * @return the number of journal entries consumed.
+     * @throws IOException if adding external changes to the {@code StringSort}
+     *          instances fails with an exception.
+     */
+    static int fillExternalChanges(@NotNull StringSort externalChanges,
+                                   @Nullable StringSort invalidate,
+                                   @NotNull Path path,
+                                   @NotNull Iterator<JournalEntry> entries,
+                                   @NotNull Consumer<JournalEntry> journalEntryConsumer,
+                                   @Nullable ChangeSetBuilder changeSetBuilder,
+                                   @Nullable JournalPropertyHandler journalPropertyHandler)
+            throws IOException {
+        int numEntries = 0;
+        while (entries.hasNext()) {
+            fillFromJournalEntry(externalChanges, invalidate, path,
+                    changeSetBuilder, journalPropertyHandler, entries.next(),
+                    journalEntryConsumer);
+            numEntries++;
+        }
+        return numEntries;
+    }
+
+    /**
+     * Reads the journal entries with changes between the two given revisions
+     * (with the same clusterId). If there is no exact match of a journal entry
+     * for the given {@code to} revision, the returned entries will include the
+     * next higher journal entry that contains the revision. The entries are
+     * read lazily in chunks from the store while the returned iterator is
+     * consumed.
+     *
+     * @param from the lower bound of the revision range (exclusive).
+     * @param to   the upper bound of the revision range (inclusive).
+     * @param store the document store to query.
+     * @return the journal entries.
+     */
+    static Iterator<JournalEntry> readEntries(@NotNull Revision from,
+                                              @NotNull Revision to,
+                                              @NotNull final DocumentStore store) {
         checkArgument(checkNotNull(from).getClusterId() == checkNotNull(to).getClusterId());
 
         if (from.compareRevisionTime(to) >= 0) {
-            return 0;
+            return Collections.emptyIterator();
         }
 
         // to is inclusive, but DocumentStore.query() toKey is exclusive
         final String inclusiveToId = asId(to);
-        to = new Revision(to.getTimestamp(), to.getCounter() + 1,
-                to.getClusterId(), to.isBranch());
+        final String toId = asId(new Revision(to.getTimestamp(), to.getCounter() + 1,
+                to.getClusterId(), to.isBranch()));
+        final String maxId = asId(new Revision(Long.MAX_VALUE, 0, to.getClusterId()));
+        final String initialFromId = asId(from);
 
         // read in chunks to support very large sets of changes between
         // subsequent background reads to do this, provide a (TODO eventually configurable)
         // limit for the number of entries to be returned per query if the
         // number of elements returned by the query is exactly the provided
-        // limit, then loop and do subsequent queries
-        final String toId = asId(to);
-        String fromId = asId(from);
-        int numEntries = 0;
-        JournalEntry lastEntry = null;
-        while (true) {
-            if (fromId.equals(inclusiveToId)) {
-                // avoid query if from and to are off by just 1 counter (which
-                // we do due to exclusiveness of query borders) as in this case
-                // the query will always be empty anyway - so avoid doing the
-                // query in the first place
-                break;
-            }
-            List<JournalEntry> partialResult = store.query(JOURNAL, fromId, toId, READ_CHUNK_SIZE);
-            numEntries += partialResult.size();
-            if (!partialResult.isEmpty()) {
-                lastEntry = partialResult.get(partialResult.size() - 1);
-            }
+        // limit, then do subsequent queries
+        return new AbstractIterator<JournalEntry>() {
 
-            for (JournalEntry d : partialResult) {
-                fillFromJournalEntry(externalChanges, invalidate, path,
-                        changeSetBuilder, journalPropertyHandler, d,
-                        journalEntryConsumer);
-            }
-            if (partialResult.size() < READ_CHUNK_SIZE) {
-                break;
+            private String fromId = initialFromId;
+            private Iterator<JournalEntry> chunk = Collections.emptyIterator();
+            private int numEntries;
+            private JournalEntry lastEntry;
+            private boolean chunksDone;
+            private boolean done;
+
+            @Override
+            protected JournalEntry computeNext() {
+                while (!chunk.hasNext()) {
+                    if (!chunksDone) {
+                        readChunk();
+                    } else if (!done) {
+                        done = true;
+                        // check if last processed journal entry covers toId, otherwise
+                        // read next document. also read next journal entry when none
+                        // were read so far
+                        if (numEntries == 0
+                                || (lastEntry != null && !lastEntry.getId().equals(inclusiveToId))) {
+                            chunk = store.query(JOURNAL, inclusiveToId, maxId, 1).iterator();
+                        }
+                    } else {
+                        return endOfData();
+                    }
+                }
+                return chunk.next();
             }
-            // otherwise set 'fromId' to the last entry just processed
-            // that works fine as the query is non-inclusive (ie does not
-            // include the from which we'd otherwise double-process)
-            fromId = partialResult.get(partialResult.size() - 1).getId();
-        }
-        // check if last processed journal entry covers toId, otherwise
-        // read next document. also read next journal entry when none
-        // were read so far
-        if (numEntries == 0
-                || (lastEntry != null && !lastEntry.getId().equals(inclusiveToId))) {
-            String maxId = asId(new Revision(Long.MAX_VALUE, 0, to.getClusterId()));
-            for (JournalEntry d : store.query(JOURNAL, inclusiveToId, maxId, 1)) {
-                fillFromJournalEntry(externalChanges, invalidate, path,
-                        changeSetBuilder, journalPropertyHandler, d, journalEntryConsumer);
-                numEntries++;
+
+            private void readChunk() {
+                if (fromId.equals(inclusiveToId)) {
+                    // avoid query if from and to are off by just 1 counter (which
+                    // we do due to exclusiveness of query borders) as in this case
+                    // the query will always be empty anyway - so avoid doing the
+                    // query in the first place
+                    chunksDone = true;
+                    return;
+                }
+                List<JournalEntry> partialResult = store.query(JOURNAL, fromId, toId, READ_CHUNK_SIZE);
+                numEntries += partialResult.size();
+                if (!partialResult.isEmpty()) {
+                    lastEntry = partialResult.get(partialResult.size() - 1);
+                    // set 'fromId' to the last entry of this chunk
+                    // that works fine as the query is non-inclusive (ie does not
+                    // include the from which we'd otherwise double-process)
+                    fromId = lastEntry.getId();
+                }
+                if (partialResult.size() < READ_CHUNK_SIZE) {
+                    chunksDone = true;
+                }
+                chunk = partialResult.iterator();
             }
-        }
-        return numEntries;
+        };
     }
 
     private static void fillFromJournalEntry(@NotNull StringSort externalChanges,
@@ -645,6 +718,16 @@ public final class JournalEntry extends Document {
         return node;
     }
 
+    /**
+     * Parses the changes recorded in this journal entry, unless already done.
+     * Calling this method is optional, the changes are otherwise parsed when
+     * they are accessed the first time. This allows to parse the changes
+     * on a different thread than the one consuming them.
+     */
+    void parseChanges() {
+        getChanges();
+    }
+
     @NotNull
     private TreeNode getChanges() {
         if (changes == null) {
@@ -76,6 +76,15 @@ public class JournalGarbageCollector {
      * @return the number of entries that have been removed
      */
     public int gc() {
+        DocumentStoreCaller previous = DocumentStoreCaller.enter(DocumentStoreCaller.JOURNAL_GC);
+        try {
+            return gcInternal();
+        } finally {
+            DocumentStoreCaller.exit(previous);
+        }
+    }
+
+    private int gcInternal() {
         DocumentStore ds = ns.getDocumentStore();
         Revision checkpointRev = ns.getCheckpoints().getOldestRevisionToKeep();
         Long keep = null;
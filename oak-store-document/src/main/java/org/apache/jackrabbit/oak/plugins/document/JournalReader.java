@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Lists;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reads journal entries for revision ranges of possibly multiple cluster
+ * nodes. When created with an executor, the entries of each range passed to
+ * {@link #read(Revision, Revision)} are fetched from the store and parsed by a
+ * background task while the caller consumes the entries of a previous range.
+ * The number of entries fetched ahead is bounded per range.
+ * <p>
+ * The iterators returned by {@link #read(Revision, Revision)} must be consumed
+ * in the order they were requested and on a single thread. Without an
+ * executor, the journal entries are read lazily on the calling thread.
+ */
+final class JournalReader implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JournalReader.class);
+
+    /**
+     * The maximum number of journal entries fetched ahead per range.
+     */
+    private static final int PREFETCH_SIZE = 100;
+
+    private final DocumentStore store;
+
+    private final Executor executor;
+
+    private final List<Prefetch> prefetches = Lists.newArrayList();
+
+    JournalReader(@NotNull DocumentStore store,
+                  @Nullable Executor executor) {
+        this.store = checkNotNull(store);
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the journal entries with changes between the two given
+     * revisions. See {@link JournalEntry#readEntries(Revision, Revision, DocumentStore)}
+     * for details.
+     *
+     * @param from the lower bound of the revision range (exclusive).
+     * @param to   the upper bound of the revision range (inclusive).
+     * @return the journal entries.
+     */
+    @NotNull
+    Iterator<JournalEntry> read(@NotNull Revision from,
+                                @NotNull Revision to) {
+        Iterator<JournalEntry> entries = JournalEntry.readEntries(from, to, store);
+        if (executor == null) {
+            return entries;
+        }
+        Prefetch p = new Prefetch(entries);
+        try {
+            executor.execute(DocumentStoreCaller.propagate(p));
+        } catch (RejectedExecutionException e) {
+            LOG.debug("Prefetch of journal entries rejected, reading on calling thread", e);
+            return entries;
+        }
+        prefetches.add(p);
+        return p;
+    }
+
+    /**
+     * Stops all background tasks that are still fetching journal entries.
+     */
+    @Override
+    public void close() {
+        for (Prefetch p : prefetches) {
+            p.close();
+        }
+        prefetches.clear();
+    }
+
+    private static final class Prefetch
+            extends AbstractIterator<JournalEntry>
+            implements Runnable, Closeable {
+
+        private static final Object END = new Object();
+
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(PREFETCH_SIZE);
+
+        private final Iterator<JournalEntry> entries;
+
+        private volatile boolean closed;
+
+        Prefetch(Iterator<JournalEntry> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public void run() {
+            Object last = END;
+            try {
+                while (!closed && entries.hasNext()) {
+                    JournalEntry entry = entries.next();
+                    entry.parseChanges();
+                    put(entry);
+                }
+            } catch (Throwable t) {
+                last = t;
+            }
+            put(last);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            queue.clear();
+        }
+
+        @Override
+        protected JournalEntry computeNext() {
+            Object next;
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw DocumentStoreException.convert(e,
+                        "Interrupted while reading journal entries");
+            }
+            if (next == END) {
+                return endOfData();
+            } else if (next instanceof Throwable) {
+                throw DocumentStoreException.convert((Throwable) next);
+            }
+            return (JournalEntry) next;
+        }
+
+        private void put(Object obj) {
+            boolean interrupted = false;
+            try {
+                while (!closed) {
+                    try {
+                        if (queue.offer(obj, 100, TimeUnit.MILLISECONDS)) {
+                            return;
+                        }
+                    } catch (InterruptedException e) {
+                        // the consumer relies on the END marker
+                        interrupted = true;
+                    }
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
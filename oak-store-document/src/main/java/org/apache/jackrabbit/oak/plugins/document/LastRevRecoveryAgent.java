@@ -18,9 +18,11 @@
  */
 package org.apache.jackrabbit.oak.plugins.document;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.Iterables.filter;
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Maps.filterKeys;
+import static com.google.common.collect.Maps.immutableEntry;
 import static java.util.Collections.singletonList;
 import static org.apache.jackrabbit.oak.plugins.document.util.Utils.asISO8601;
 import static org.apache.jackrabbit.oak.plugins.document.Collection.JOURNAL;
@@ -33,7 +35,11 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
@@ -42,10 +48,13 @@ import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import org.apache.jackrabbit.oak.commons.TimeDurationFormatter;
+import org.apache.jackrabbit.oak.commons.concurrent.ExecutorCloser;
 import org.apache.jackrabbit.oak.plugins.document.bundlor.DocumentBundlor;
 import org.apache.jackrabbit.oak.plugins.document.util.MapFactory;
+import org.apache.jackrabbit.oak.plugins.document.util.SystemPropertySupplier;
 import org.apache.jackrabbit.oak.plugins.document.util.Utils;
 import org.apache.jackrabbit.oak.stats.Clock;
 import org.jetbrains.annotations.NotNull;
@@ -87,6 +96,30 @@ public class LastRevRecoveryAgent {
     // OAK-9535 : recalculate the journal entry size every 4096 elements
     private static final int PSEUDO_BRANCH_COMMIT_FLUSH_CHECK_COUNT = 4096;
 
+    /**
+     * Number of documents or paths processed by a recovery worker at once.
+     */
+    private static final int RECOVERY_BATCH_SIZE = 100;
+
+    private static final int MAX_PENDING_RECOVERY_BATCHES = 16;
+
+    /**
+     * The number of threads used to sweep and recover candidate documents.
+     * Recovery is performed on the calling thread when set to one.
+     */
+    private int recoveryThreads = SystemPropertySupplier.create(
+            "oak.documentMK.recoveryThreads", 1).loggingTo(log).get();
+
+    /**
+     * The currently running recovery or {@code null} if there is none.
+     */
+    private volatile Progress currentRecovery;
+
+    /**
+     * The most recently finished recovery or {@code null} if there is none.
+     */
+    private volatile Progress lastRecovery;
+
     public LastRevRecoveryAgent(DocumentStore store,
                                 RevisionContext revisionContext,
                                 MissingLastRevSeeker seeker,
@@ -103,6 +136,42 @@ public class LastRevRecoveryAgent {
                 i -> {});
     }
 
+    /**
+     * Sets the number of threads used to sweep and recover candidate
+     * documents. The candidates are split into batches of consecutive
+     * documents, which are processed concurrently. The results are merged
+     * in the order of the candidates. With a single thread, recovery is
+     * performed on the calling thread.
+     *
+     * @param recoveryThreads the number of threads.
+     */
+    public void setRecoveryThreads(int recoveryThreads) {
+        checkArgument(recoveryThreads > 0);
+        this.recoveryThreads = recoveryThreads;
+    }
+
+    public int getRecoveryThreads() {
+        return recoveryThreads;
+    }
+
+    /**
+     * @return a description of the currently running recovery or of the most
+     *          recently finished recovery performed by this agent.
+     */
+    @NotNull
+    public String getRecoveryStatus() {
+        long now = revisionContext.getClock().getTime();
+        Progress p = currentRecovery;
+        if (p != null) {
+            return p.toString(now);
+        }
+        p = lastRecovery;
+        if (p != null) {
+            return p.toString(now);
+        }
+        return "No recovery performed";
+    }
+
     /**
      * Recover the correct _lastRev updates for potentially missing candidate
      * nodes. If another cluster node is already performing the recovery for the
@@ -140,6 +209,16 @@ public class LastRevRecoveryAgent {
      */
     public int recover(int clusterId, long waitUntil)
             throws DocumentStoreException {
+        DocumentStoreCaller previous = DocumentStoreCaller.enter(DocumentStoreCaller.RECOVERY);
+        try {
+            return recoverInternal(clusterId, waitUntil);
+        } finally {
+            DocumentStoreCaller.exit(previous);
+        }
+    }
+
+    private int recoverInternal(int clusterId, long waitUntil)
+            throws DocumentStoreException {
         ClusterNodeInfoDocument nodeInfo = missingLastRevUtil.getClusterNodeInfo(clusterId);
 
         if (nodeInfo != null) {
@@ -257,6 +336,42 @@ public class LastRevRecoveryAgent {
     public int recover(final Iterable<NodeDocument> suspects,
                        final int clusterId, final boolean dryRun)
             throws DocumentStoreException {
+        ExecutorService executor = null;
+        if (recoveryThreads > 1) {
+            executor = Executors.newFixedThreadPool(recoveryThreads,
+                    new ThreadFactoryBuilder().setDaemon(true)
+                            .setNameFormat("LastRevRecoveryAgent worker-%d (clusterId " + clusterId + ")")
+                            .build());
+        }
+        Clock clock = revisionContext.getClock();
+        Progress progress = new Progress(clusterId, clock.getTime());
+        currentRecovery = progress;
+        try {
+            int num = recover(suspects, clusterId, dryRun, executor, progress);
+            progress.finished(clock.getTime(), num);
+            return num;
+        } finally {
+            if (!progress.isFinished()) {
+                progress.failed(clock.getTime());
+            }
+            lastRecovery = progress;
+            currentRecovery = null;
+            if (executor != null) {
+                new ExecutorCloser(executor).close();
+            }
+        }
+    }
+
+    /**
+     * Recovers the given candidates and processes them in batches on the
+     * given executor if not {@code null}.
+     */
+    private int recover(final Iterable<NodeDocument> suspects,
+                        final int clusterId,
+                        final boolean dryRun,
+                        final @Nullable Executor executor,
+                        final Progress progress)
+            throws DocumentStoreException {
         // set a deadline if this is a self recovery. Self recovery does not
         // update the lease in a background thread and must terminate before
         // the lease acquired by the recovery lock expires.
@@ -269,6 +384,7 @@ public class LastRevRecoveryAgent {
         }
 
         NodeDocument rootDoc = Utils.getRootDocument(store);
+        Iterable<NodeDocument> candidates = Iterables.transform(suspects, progress::scanned);
 
         // first run a sweep
         final AtomicReference<Revision> sweepRev = new AtomicReference<>();
@@ -279,8 +395,9 @@ public class LastRevRecoveryAgent {
             final RevisionContext context = new RecoveryContext(rootDoc,
                     revisionContext.getClock(), clusterId,
                     revisionContext::getCommitValue);
-            final NodeDocumentSweeper sweeper = new NodeDocumentSweeper(context, true);
-            sweeper.sweep(suspects, new NodeDocumentSweepListener() {
+            final NodeDocumentSweeper sweeper = new NodeDocumentSweeper(context, true, executor);
+            progress.phase("sweep");
+            sweeper.sweep(candidates, new NodeDocumentSweepListener() {
                 @Override
                 public void sweepUpdate(Map<Path, UpdateOp> updates)
                         throws DocumentStoreException {
@@ -339,7 +456,15 @@ public class LastRevRecoveryAgent {
 
         final List<Revision> pseudoBcRevs = new ArrayList<>();
         int nextFlushCheckCount = PSEUDO_BRANCH_COMMIT_FLUSH_CHECK_COUNT;
-        for (NodeDocument doc : suspects) {
+        progress.phase("lastRev");
+        // 1. determine last committed modification on document and
+        // the higher of this revision and the current _lastRev entry
+        Iterable<Map.Entry<Path, Revision>> lastRevs = ParallelTransform.transform(candidates,
+                doc -> immutableEntry(doc.getPath(), Utils.max(
+                        determineLastModification(doc, clusterId),
+                        doc.getLastRev().get(clusterId))),
+                executor, RECOVERY_BATCH_SIZE, MAX_PENDING_RECOVERY_BATCHES);
+        for (Map.Entry<Path, Revision> docLastRev : lastRevs) {
             totalCount++;
             lastCount++;
 
@@ -362,17 +487,12 @@ public class LastRevRecoveryAgent {
                 lastCount = 0;
             }
 
-            Revision currentLastRev = doc.getLastRev().get(clusterId);
-
-            // 1. determine last committed modification on document
-            Revision lastModifiedRev = determineLastModification(doc, clusterId);
-
-            Revision lastRevForParents = Utils.max(lastModifiedRev, currentLastRev);
+            Revision lastRevForParents = docLastRev.getValue();
             // remember the higher of the two revisions. this is the
             // most recent revision currently obtained from either a
             // _lastRev entry or an explicit modification on the document
             if (lastRevForParents != null) {
-                knownLastRevOrModification.put(doc.getPath(), lastRevForParents);
+                knownLastRevOrModification.put(docLastRev.getKey(), lastRevForParents);
             }
 
             //If both currentLastRev and lostLastRev are null it means
@@ -384,7 +504,7 @@ public class LastRevRecoveryAgent {
 
             //2. Update lastRev for parent paths aka rollup
             if (lastRevForParents != null) {
-                Path path = doc.getPath();
+                Path path = docLastRev.getKey();
                 changes.modified(path); // track all changes
                 while (true) {
                     path = path.getParent();
@@ -430,29 +550,17 @@ public class LastRevRecoveryAgent {
         // propagate the pseudoBcRevs to the changes
         changes.branchCommit(pseudoBcRevs);
 
-        for (Path parentPath : unsavedParents.getPaths()) {
+        progress.phase("parents");
+        Iterable<Map.Entry<Path, Revision>> knownLastRevs = ParallelTransform.transform(
+                unsavedParents.getPaths(),
+                parentPath -> immutableEntry(parentPath, getKnownLastRev(
+                        parentPath, knownLastRevOrModification, clusterId)),
+                executor, RECOVERY_BATCH_SIZE, MAX_PENDING_RECOVERY_BATCHES);
+        for (Map.Entry<Path, Revision> parentLastRev : knownLastRevs) {
+            Path parentPath = parentLastRev.getKey();
             Revision calcLastRev = unsavedParents.get(parentPath);
-            Revision knownLastRev = knownLastRevOrModification.get(parentPath);
-            if (knownLastRev == null) {
-                List<Path> missingDocuments = new ArrayList<>();
-                // we don't know when the document was last modified with
-                // the given clusterId. need to read from store
-                NodeDocument doc = findNearestAncestorOrSelf(parentPath, missingDocuments);
-                if (doc != null) {
-                    Revision lastRev = doc.getLastRev().get(clusterId);
-                    Revision lastMod = determineLastModification(doc, clusterId);
-                    knownLastRev = Utils.max(lastRev, lastMod);
-
-                    if (!missingDocuments.isEmpty()
-                            && doc.getLocalMap(DocumentBundlor.META_PROP_PATTERN).isEmpty()) {
-                        // there are missing document and the returned document
-                        // does not have bundled nodes
-                        for (Path p : missingDocuments) {
-                            log.warn("Unable to find document: {}", Utils.getIdFromPath(p));
-                        }
-                    }
-                }
-            }
+            Revision knownLastRev = parentLastRev.getValue();
+            progress.scanned(null);
 
             //Copy the calcLastRev of parent only if they have changed
             //In many case it might happen that parent have consistent lastRev
@@ -488,6 +596,7 @@ public class LastRevRecoveryAgent {
                 throw new DocumentStoreException(msg);
             }
 
+            progress.phase("persist");
             //UnsavedModifications is designed to be used in concurrent
             //access mode. For recovery case there is no concurrent access
             //involve so just pass a new lock instance
@@ -579,6 +688,40 @@ public class LastRevRecoveryAgent {
         return earliest;
     }
 
+    /**
+     * Returns the most recent revision obtained from either a _lastRev entry
+     * or an explicit modification by {@code clusterId} on the document for
+     * the given path. The revision is looked up in {@code knownLastRevs}
+     * first and read from the store otherwise.
+     */
+    @Nullable
+    private Revision getKnownLastRev(@NotNull Path path,
+                                     @NotNull Map<Path, Revision> knownLastRevs,
+                                     int clusterId) {
+        Revision knownLastRev = knownLastRevs.get(path);
+        if (knownLastRev == null) {
+            List<Path> missingDocuments = new ArrayList<>();
+            // we don't know when the document was last modified with
+            // the given clusterId. need to read from store
+            NodeDocument doc = findNearestAncestorOrSelf(path, missingDocuments);
+            if (doc != null) {
+                Revision lastRev = doc.getLastRev().get(clusterId);
+                Revision lastMod = determineLastModification(doc, clusterId);
+                knownLastRev = Utils.max(lastRev, lastMod);
+
+                if (!missingDocuments.isEmpty()
+                        && doc.getLocalMap(DocumentBundlor.META_PROP_PATTERN).isEmpty()) {
+                    // there are missing document and the returned document
+                    // does not have bundled nodes
+                    for (Path p : missingDocuments) {
+                        log.warn("Unable to find document: {}", Utils.getIdFromPath(p));
+                    }
+                }
+            }
+        }
+        return knownLastRev;
+    }
+
     @Nullable
     private NodeDocument findNearestAncestorOrSelf(@NotNull Path path,
                                                    @NotNull List<Path> missingDocuments) {
@@ -763,6 +906,72 @@ public class LastRevRecoveryAgent {
         }), ClusterNodeInfoDocument::getClusterId);
     }
 
+    /**
+     * Progress of a recovery run for a cluster node.
+     */
+    private static final class Progress {
+
+        private final int clusterId;
+
+        private final long start;
+
+        private final AtomicLong scanned = new AtomicLong();
+
+        private volatile String phase = "init";
+
+        private volatile long end = -1;
+
+        private volatile int recovered = -1;
+
+        Progress(int clusterId, long start) {
+            this.clusterId = clusterId;
+            this.start = start;
+        }
+
+        /**
+         * Starts a new phase and resets the number of scanned documents.
+         */
+        void phase(String phase) {
+            this.phase = phase;
+            scanned.set(0);
+        }
+
+        NodeDocument scanned(NodeDocument doc) {
+            scanned.incrementAndGet();
+            return doc;
+        }
+
+        void finished(long time, int recovered) {
+            this.recovered = recovered;
+            this.phase = "done";
+            this.end = time;
+        }
+
+        void failed(long time) {
+            this.phase = "failed";
+            this.end = time;
+        }
+
+        boolean isFinished() {
+            return end >= 0;
+        }
+
+        String toString(long now) {
+            TimeDurationFormatter df = TimeDurationFormatter.forLogging();
+            long e = end;
+            if (e < 0) {
+                return String.format("Recovery for cluster node [%d] running " +
+                                "since %s, phase: %s, %d scanned in current phase",
+                        clusterId, df.format(now - start, TimeUnit.MILLISECONDS),
+                        phase, scanned.get());
+            }
+            return String.format("Recovery for cluster node [%d] %s at %s " +
+                            "after %s, %d documents recovered",
+                    clusterId, phase, Utils.timestampToString(e),
+                    df.format(e - start, TimeUnit.MILLISECONDS), recovered);
+        }
+    }
+
     private static class ClusterPredicate implements Predicate<Revision> {
         private final int clusterId;
 
@@ -140,7 +140,7 @@ public class LocalDiffCache extends DiffCache {
                 String k = reader.readString();
                 reader.read(':');
                 String v = reader.readString();
-                map.put(Path.fromString(k), v);
+                map.put(PathTrie.fromString(k), v);
                 if (reader.matches(JsopReader.END)) {
                     break;
                 }
@@ -125,7 +125,7 @@ public class MemoryDiffCache extends DiffCache {
 
         @Override
         public void append(@NotNull Path path, @NotNull String changes) {
-            Key key = new Key(path, from, to);
+            Key key = new Key(PathTrie.canonicalize(path), from, to);
             if (changes.length() > CACHE_VALUE_LIMIT) {
                 LOG.warn("Not caching entry for {} from {} to {}. Length of changes is {}.",
                         path, from, to, changes.length());
@@ -243,9 +243,9 @@ public class MemoryDiffCache extends DiffCache {
                         + MemoryDiffCache.Key.class.getSimpleName() + ": " + s);
             }
             return new Key(
-                    Path.fromString(s.substring(idx1, idx2)),
-                    RevisionVector.fromString(s.substring(0, idx1)),
-                    RevisionVector.fromString(s.substring(idx2 + 1))
+                    PathTrie.fromString(s.substring(idx1, idx2)),
+                    RevisionVector.fromString(s, 0, idx1),
+                    RevisionVector.fromString(s, idx2 + 1, s.length())
             );
         }
 
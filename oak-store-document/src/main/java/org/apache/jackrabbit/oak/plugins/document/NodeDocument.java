@@ -356,6 +356,11 @@ public final class NodeDocument extends Document {
      */
     private NavigableMap<Revision, Range> previous;
 
+    /**
+     * The canonical path of this document, once it is sealed.
+     */
+    private Path path;
+
     /**
      * Time at which this object was check for cache consistency
      */
@@ -1180,8 +1185,29 @@ public final class NodeDocument extends Document {
     public Iterable<UpdateOp> split(@NotNull RevisionContext context,
                                     @NotNull RevisionVector head,
                                     @NotNull Function<String, Long> binarySize) {
+        return split(context, head, binarySize, NUM_REVS_THRESHOLD);
+    }
+
+    /**
+     * Same as {@link #split(RevisionContext, RevisionVector, Function)}, but
+     * with an explicit number of revisions threshold.
+     *
+     * @param context the revision context.
+     * @param head    the head revision before this document was retrieved from
+     *                the document store.
+     * @param binarySize a function that returns the binary size of the given
+     *                   JSON property value String.
+     * @param numRevsThreshold only split off at least this number of revisions.
+     * @return the split operations, whereby the last updateOp is guaranteed to be
+     * the update of the main document (unless the entire list is empty)
+     */
+    @NotNull
+    Iterable<UpdateOp> split(@NotNull RevisionContext context,
+                             @NotNull RevisionVector head,
+                             @NotNull Function<String, Long> binarySize,
+                             int numRevsThreshold) {
         return SplitOperations.forDocument(this, context, head,
-                binarySize, NUM_REVS_THRESHOLD);
+                binarySize, numRevsThreshold);
     }
 
     /**
@@ -2199,7 +2225,15 @@ public final class NodeDocument extends Document {
 
     @NotNull
     public Path getPath() {
-        return Path.fromString(getPathString());
+        Path p = path;
+        if (p == null) {
+            p = PathTrie.fromString(getPathString());
+            // the id and path can only change while the document is not sealed
+            if (isSealed()) {
+                path = p;
+            }
+        }
+        return p;
     }
 
     @NotNull
@@ -2248,8 +2282,22 @@ public final class NodeDocument extends Document {
     }
     
     public static NodeDocument fromString(DocumentStore store, String s) {
+        return fromString(store, s, Revision.getCurrentTimestamp());
+    }
+
+    /**
+     * Creates a document from its serialized form as returned by
+     * {@link #asString()} and retains the given creation time.
+     *
+     * @param store the document store.
+     * @param s the serialized document.
+     * @param creationTime the creation time of the document.
+     * @return the document.
+     */
+    public static NodeDocument fromString(DocumentStore store, String s,
+                                          long creationTime) {
         JsopTokenizer json = new JsopTokenizer(s);
-        NodeDocument doc = new NodeDocument(store);
+        NodeDocument doc = new NodeDocument(store, creationTime);
         while (true) {
             if (json.matches(JsopReader.END)) {
                 break;
@@ -18,6 +18,7 @@ package org.apache.jackrabbit.oak.plugins.document;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 import com.google.common.base.Function;
@@ -54,6 +55,13 @@ final class NodeDocumentSweeper {
 
     private static final int INVALIDATE_BATCH_SIZE = 100;
 
+    /**
+     * Number of documents swept by a worker at once when an executor is set.
+     */
+    private static final int SWEEP_BATCH_SIZE = 100;
+
+    private static final int MAX_PENDING_SWEEP_BATCHES = 16;
+
     private static final long LOGINTERVALMS = TimeUnit.MINUTES.toMillis(1);
 
     /** holds the Predicate actually used in sweepOne. This is modifiable ONLY FOR TESTING PURPOSE */
@@ -67,6 +75,8 @@ final class NodeDocumentSweeper {
 
     private final boolean sweepNewerThanHead;
 
+    private final Executor executor;
+
     private Revision head;
 
     private long totalCount;
@@ -98,10 +108,31 @@ final class NodeDocumentSweeper {
      */
     NodeDocumentSweeper(RevisionContext context,
                         boolean sweepNewerThanHead) {
+        this(context, sweepNewerThanHead, null);
+    }
+
+    /**
+     * Creates a new sweeper, which checks documents for uncommitted changes
+     * in batches on the given executor. Documents are still read from the
+     * {@code Iterable} passed to {@link #sweep(Iterable, NodeDocumentSweepListener)}
+     * and the listener is called on the calling thread in the order of the
+     * documents. The commit value lookup of the revision context must be
+     * thread-safe when an executor is given.
+     *
+     * @param context the revision context.
+     * @param sweepNewerThanHead whether uncommitted changes newer than the head
+     *                 revision should be reverted.
+     * @param executor the executor or {@code null} to sweep on the calling
+     *                 thread.
+     */
+    NodeDocumentSweeper(RevisionContext context,
+                        boolean sweepNewerThanHead,
+                        @Nullable Executor executor) {
         this.context = checkNotNull(context);
         this.clusterId = context.getClusterId();
         this.headRevision= context.getHeadRevision();
         this.sweepNewerThanHead = sweepNewerThanHead;
+        this.executor = executor;
     }
 
     /**
@@ -165,11 +196,15 @@ final class NodeDocumentSweeper {
 
     private Iterable<Map.Entry<Path, UpdateOp>> sweepOperations(
             final Iterable<NodeDocument> docs) {
-        return filter(transform(docs,
-                new Function<NodeDocument, Map.Entry<Path, UpdateOp>>() {
+        Iterable<Map.Entry<Path, UpdateOp>> ops = ParallelTransform.transform(docs,
+                doc -> immutableEntry(doc.getPath(), sweepOne(doc)),
+                executor, SWEEP_BATCH_SIZE, MAX_PENDING_SWEEP_BATCHES);
+        return filter(transform(ops,
+                new Function<Map.Entry<Path, UpdateOp>, Map.Entry<Path, UpdateOp>>() {
             @Override
-            public Map.Entry<Path, UpdateOp> apply(NodeDocument doc) {
-                return immutableEntry(doc.getPath(), sweepOne(doc));
+            public Map.Entry<Path, UpdateOp> apply(Map.Entry<Path, UpdateOp> input) {
+                logProgress();
+                return input;
             }
         }), new Predicate<Map.Entry<Path, UpdateOp>>() {
             @Override
@@ -204,7 +239,10 @@ final class NodeDocumentSweeper {
                 }
             }
         }
+        return op.hasChanges() ? op : null;
+    }
 
+    private void logProgress() {
         totalCount++;
         lastCount++;
         long now = context.getClock().getTime();
@@ -226,8 +264,6 @@ final class NodeDocumentSweeper {
             lastLog = now;
             lastCount = 0;
         }
-
-        return op.hasChanges() ? op : null;
     }
 
     private void uncommitted(NodeDocument doc,
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.function.Function;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Transforms the elements of an {@code Iterable} in batches on an executor.
+ * The source is iterated on the calling thread and split into batches of
+ * consecutive elements. Batches are transformed concurrently and the results
+ * are returned in the order of the source. At most a given number of batches
+ * are transformed ahead of the consumer.
+ */
+final class ParallelTransform {
+
+    private ParallelTransform() {
+    }
+
+    /**
+     * Returns a lazy {@code Iterable} with the transformed elements of the
+     * given source. The returned {@code Iterable} transforms the elements on
+     * the calling thread if {@code executor} is {@code null}.
+     *
+     * @param source the elements to transform.
+     * @param function the function to apply to each element. It must be safe
+     *          to call the function concurrently.
+     * @param executor the executor or {@code null}.
+     * @param batchSize the number of elements in a batch.
+     * @param maxPendingBatches the maximum number of batches transformed
+     *          ahead of the consumer.
+     * @return the transformed elements.
+     */
+    static <F, T> Iterable<T> transform(@NotNull Iterable<F> source,
+                                        @NotNull Function<F, T> function,
+                                        @Nullable Executor executor,
+                                        int batchSize,
+                                        int maxPendingBatches) {
+        checkArgument(batchSize > 0);
+        checkArgument(maxPendingBatches > 0);
+        if (executor == null) {
+            return Iterables.transform(source, function::apply);
+        }
+        return () -> new BatchIterator<>(source.iterator(), function,
+                executor, batchSize, maxPendingBatches);
+    }
+
+    private static final class BatchIterator<F, T> extends AbstractIterator<T> {
+
+        private final Iterator<F> source;
+
+        private final Function<F, T> function;
+
+        private final Executor executor;
+
+        private final int batchSize;
+
+        private final int maxPendingBatches;
+
+        private final Deque<Future<List<T>>> pending = new ArrayDeque<>();
+
+        private Iterator<T> current = Collections.emptyIterator();
+
+        BatchIterator(Iterator<F> source,
+                      Function<F, T> function,
+                      Executor executor,
+                      int batchSize,
+                      int maxPendingBatches) {
+            this.source = source;
+            this.function = function;
+            this.executor = executor;
+            this.batchSize = batchSize;
+            this.maxPendingBatches = maxPendingBatches;
+        }
+
+        @Override
+        protected T computeNext() {
+            while (!current.hasNext()) {
+                fill();
+                Future<List<T>> next = pending.poll();
+                if (next == null) {
+                    return endOfData();
+                }
+                current = get(next).iterator();
+            }
+            return current.next();
+        }
+
+        private void fill() {
+            while (pending.size() < maxPendingBatches && source.hasNext()) {
+                List<F> batch = Lists.newArrayListWithCapacity(batchSize);
+                while (batch.size() < batchSize && source.hasNext()) {
+                    batch.add(source.next());
+                }
+                FutureTask<List<T>> task = new FutureTask<>(DocumentStoreCaller.propagate(() -> {
+                    List<T> results = Lists.newArrayListWithCapacity(batch.size());
+                    for (F element : batch) {
+                        results.add(function.apply(element));
+                    }
+                    return results;
+                }));
+                executor.execute(task);
+                pending.add(task);
+            }
+        }
+
+        private List<T> get(Future<List<T>> future) {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw DocumentStoreException.convert(e,
+                        "Interrupted while waiting for batch");
+            } catch (ExecutionException e) {
+                throw DocumentStoreException.convert(e.getCause());
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import org.apache.jackrabbit.oak.commons.PathUtils;
+import org.apache.jackrabbit.oak.plugins.document.util.SystemPropertySupplier;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A concurrent trie of canonical {@link Path} instances. The parent of a
+ * canonical path is canonical as well, which means the canonical paths form
+ * a trie with a single instance per path. Equal canonical paths are
+ * identical and comparing them with {@link Path#equals(Object)} returns
+ * after the identity check. Name strings are shared by all users of a
+ * canonical path.
+ * <p>
+ * Canonical paths are only weakly referenced by the trie and are garbage
+ * collected when no longer used, e.g. when the last cache entry with the
+ * path is evicted. A canonical path strongly references its parent.
+ * <p>
+ * The trie is enabled by default and can be disabled with the system
+ * property {@code oak.documentMK.canonicalPaths=false}. The methods of this
+ * class then return the passed or newly created paths as is.
+ */
+public final class PathTrie {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PathTrie.class);
+
+    private static final boolean ENABLED = SystemPropertySupplier.create(
+            "oak.documentMK.canonicalPaths", Boolean.TRUE).loggingTo(LOG).get();
+
+    private static final Interner<Path> PATHS = Interners.newWeakInterner();
+
+    private PathTrie() {
+    }
+
+    /**
+     * Returns the canonical instance of the given path.
+     *
+     * @param path a path.
+     * @return the canonical path equal to the given path.
+     */
+    @NotNull
+    public static Path canonicalize(@NotNull Path path) {
+        if (!ENABLED) {
+            return path;
+        }
+        return canonicalPath(checkNotNull(path));
+    }
+
+    /**
+     * Returns the canonical path of the child with the given name.
+     *
+     * @param parent the parent path.
+     * @param name the name of the child. Must not be empty.
+     * @return the canonical child path.
+     * @throws IllegalArgumentException if {@code name} is empty.
+     */
+    @NotNull
+    public static Path child(@NotNull Path parent, @NotNull String name) {
+        if (!ENABLED) {
+            return new Path(parent, name);
+        }
+        return intern(canonicalPath(checkNotNull(parent)), name);
+    }
+
+    /**
+     * Creates a canonical {@code Path} from a {@code String}. The same as
+     * {@link Path#fromString(String)}, but does not create new instances
+     * for path elements already present in the trie.
+     *
+     * @param path the {@code String} to parse.
+     * @return the canonical {@code Path} from the {@code String}.
+     * @throws IllegalArgumentException if the {@code path} is the empty
+     *      {@code String}.
+     */
+    @NotNull
+    public static Path fromString(@NotNull String path) {
+        if (!ENABLED) {
+            return Path.fromString(path);
+        }
+        checkNotNull(path);
+        Path p = null;
+        if (PathUtils.isAbsolute(path)) {
+            p = Path.ROOT;
+        }
+        for (String name : PathUtils.elements(path)) {
+            if (p == null) {
+                p = PATHS.intern(new Path(StringCache.get(name)));
+            } else {
+                p = intern(p, name);
+            }
+        }
+        checkArgument(p != null, "path must not be empty");
+        return p;
+    }
+
+    //-------------------------< internal >-------------------------------------
+
+    private static Path canonicalPath(Path path) {
+        Path parent = path.getParent();
+        if (parent == null) {
+            return path.isRoot() ? Path.ROOT : PATHS.intern(path);
+        }
+        Path canonicalParent = canonicalPath(parent);
+        if (canonicalParent != parent) {
+            path = new Path(canonicalParent, path.getName());
+        }
+        return PATHS.intern(path);
+    }
+
+    /**
+     * Interns the child path with the given name of a canonical parent.
+     */
+    private static Path intern(Path canonicalParent, String name) {
+        return PATHS.intern(new Path(canonicalParent, StringCache.get(name)));
+    }
+}
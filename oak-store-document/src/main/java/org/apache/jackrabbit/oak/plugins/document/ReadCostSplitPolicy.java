@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jetbrains.annotations.NotNull;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.apache.jackrabbit.oak.plugins.document.NodeDocument.NUM_REVS_THRESHOLD;
+
+/**
+ * A {@link SplitPolicy} that splits documents more aggressively when they
+ * are expensive to read. The read cost of a document is the number of local
+ * {@code _revisions} and {@code _commitRoot} entries, summed up over all
+ * reads of the document that missed the node cache. The cost decays by half
+ * with every background split, which makes it a moving measure of recent
+ * reads.
+ * <p>
+ * A document with a read cost of at least {@code hotReadCost} is split when
+ * it has more than {@code minNumRevs} local revisions. Below that cost the
+ * threshold grows inversely proportional to the read cost, up to
+ * {@link NodeDocument#NUM_REVS_THRESHOLD}. Documents that are not read, or
+ * only rarely, are split like with the {@link SplitPolicy#DEFAULT} policy.
+ * <p>
+ * The number of documents with a tracked read cost is bounded. Reads of
+ * other documents are ignored while the bound is reached.
+ */
+class ReadCostSplitPolicy implements SplitPolicy {
+
+    static final long DEFAULT_HOT_READ_COST = Long.getLong(
+            "oak.documentMK.splitPolicy.hotReadCost", 100000);
+
+    static final int DEFAULT_MIN_NUM_REVS = Integer.getInteger(
+            "oak.documentMK.splitPolicy.minNumRevs", 10);
+
+    static final int MAX_DOCUMENTS = 10000;
+
+    private final ConcurrentMap<String, AtomicLong> readCosts = new ConcurrentHashMap<>();
+
+    private final long hotReadCost;
+
+    private final int minNumRevs;
+
+    ReadCostSplitPolicy() {
+        this(DEFAULT_HOT_READ_COST, DEFAULT_MIN_NUM_REVS);
+    }
+
+    ReadCostSplitPolicy(long hotReadCost, int minNumRevs) {
+        checkArgument(hotReadCost > 0, "hotReadCost must be > 0");
+        checkArgument(minNumRevs > 0 && minNumRevs <= NUM_REVS_THRESHOLD,
+                "minNumRevs must be > 0 and <= " + NUM_REVS_THRESHOLD);
+        this.hotReadCost = hotReadCost;
+        this.minNumRevs = minNumRevs;
+    }
+
+    @Override
+    public boolean isSplitCandidate(@NotNull NodeDocument doc) {
+        return SplitPolicy.super.isSplitCandidate(doc)
+                || numLocalRevisions(doc) > getNumRevsThreshold(doc);
+    }
+
+    @Override
+    public int getNumRevsThreshold(@NotNull NodeDocument doc) {
+        long cost = getReadCost(doc.getId());
+        if (cost >= hotReadCost) {
+            return minNumRevs;
+        }
+        if (cost * NUM_REVS_THRESHOLD <= hotReadCost * minNumRevs) {
+            return NUM_REVS_THRESHOLD;
+        }
+        return (int) Math.max(minNumRevs, hotReadCost * minNumRevs / cost);
+    }
+
+    @Override
+    public void documentRead(@NotNull NodeDocument doc) {
+        int cost = numLocalRevisions(doc);
+        if (cost <= minNumRevs) {
+            // splitting would not make reading this document cheaper
+            return;
+        }
+        String id = doc.getId();
+        AtomicLong c = readCosts.get(id);
+        if (c == null) {
+            if (readCosts.size() >= MAX_DOCUMENTS) {
+                return;
+            }
+            c = readCosts.computeIfAbsent(id, k -> new AtomicLong());
+        }
+        c.addAndGet(cost);
+    }
+
+    @Override
+    public void splitDone() {
+        for (Iterator<AtomicLong> it = readCosts.values().iterator(); it.hasNext(); ) {
+            AtomicLong c = it.next();
+            if (c.updateAndGet(v -> v / 2) == 0) {
+                it.remove();
+            }
+        }
+    }
+
+    long getReadCost(String id) {
+        AtomicLong c = readCosts.get(id);
+        return c == null ? 0 : c.get();
+    }
+
+    int getNumTrackedDocuments() {
+        return readCosts.size();
+    }
+
+    @Override
+    public String toString() {
+        return "ReadCostSplitPolicy{hotReadCost=" + hotReadCost +
+                ", minNumRevs=" + minNumRevs + "}";
+    }
+
+    private static int numLocalRevisions(NodeDocument doc) {
+        return doc.getLocalRevisions().size() + doc.getLocalCommitRoot().size();
+    }
+}
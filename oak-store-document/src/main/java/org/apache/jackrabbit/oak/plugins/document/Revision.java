@@ -17,6 +17,7 @@
 package org.apache.jackrabbit.oak.plugins.document;
 
 import org.apache.jackrabbit.oak.cache.CacheValue;
+import org.apache.jackrabbit.oak.plugins.document.util.SystemPropertySupplier;
 import org.apache.jackrabbit.oak.plugins.document.util.Utils;
 import org.apache.jackrabbit.oak.stats.Clock;
 
@@ -32,6 +33,11 @@ public final class Revision implements CacheValue {
 
     static final int SHALLOW_MEMORY_USAGE = 32;
 
+    /**
+     * Lossy cache of recently parsed revisions or {@code null} if disabled.
+     */
+    private static final Revision[] REVISION_CACHE = createRevisionCache();
+
     private static volatile long lastTimestamp;
 
     private static volatile long lastRevisionTimestamp;
@@ -229,16 +235,36 @@ public final class Revision implements CacheValue {
     }
 
     public static Revision fromString(String rev) {
-        boolean isBranch = rev.charAt(0) == 'b';
-        int idx = isBranch ? 2 : 1;
-        if (rev.charAt(idx - 1) != 'r') {
-            throw new IllegalArgumentException(rev);
+        return fromString(rev, 0, rev.length());
+    }
+
+    /**
+     * Parses a revision from the characters {@code start} (inclusive) to
+     * {@code end} (exclusive) of the given sequence. The characters are
+     * parsed in place without creating intermediate strings. Recently parsed
+     * revisions are interned, unless the revision cache is disabled with
+     * the system property {@code oak.documentMK.revisionCacheSize=0}.
+     *
+     * @param s the character sequence.
+     * @param start the index of the first character of the revision.
+     * @param end the index after the last character of the revision.
+     * @return the revision.
+     * @throws IllegalArgumentException if the characters do not represent a
+     *          revision.
+     */
+    public static Revision fromString(CharSequence s, int start, int end) {
+        if (start >= end) {
+            throw new IllegalArgumentException(s.subSequence(start, end).toString());
+        }
+        boolean isBranch = s.charAt(start) == 'b';
+        int idx = isBranch ? start + 2 : start + 1;
+        if (idx > end || s.charAt(idx - 1) != 'r') {
+            throw new IllegalArgumentException(s.subSequence(start, end).toString());
         }
-        int len = rev.length();
         // Parse timestamp
         long timestamp = 0;
-        for (; idx < len; idx++) {
-            char c = rev.charAt(idx);
+        for (; idx < end; idx++) {
+            char c = s.charAt(idx);
             if (c == '-') {
                 break;
             }
@@ -247,8 +273,8 @@ public final class Revision implements CacheValue {
         }
         // Parse counter
         int counter = 0;
-        for (idx++; idx < len; idx++) {
-            char c = rev.charAt(idx);
+        for (idx++; idx < end; idx++) {
+            char c = s.charAt(idx);
             if (c == '-') {
                 break;
             }
@@ -257,12 +283,48 @@ public final class Revision implements CacheValue {
         }
         // Parse clusterId
         int clusterId = 0;
-        for (idx++; idx < len; idx++) {
-            char c = rev.charAt(idx);
+        for (idx++; idx < end; idx++) {
+            char c = s.charAt(idx);
             int digit = c >= 'a' ? c - 'a' + 10 : c - '0';
             clusterId = (clusterId << 4) + digit;
         }
-        return new Revision(timestamp, counter, clusterId, isBranch);
+        return intern(timestamp, counter, clusterId, isBranch);
+    }
+
+    /**
+     * Returns a revision with the given components. The revision is taken
+     * from a small lossy cache of recently parsed revisions if possible.
+     * Revisions are immutable, which means a racy update of the cache is
+     * harmless.
+     */
+    private static Revision intern(long timestamp, int counter,
+                                   int clusterId, boolean branch) {
+        Revision[] cache = REVISION_CACHE;
+        if (cache == null) {
+            return new Revision(timestamp, counter, clusterId, branch);
+        }
+        int hash = hashCode(timestamp, counter, clusterId);
+        int index = (hash ^ (hash >>> 16) ^ (branch ? 1 : 0)) & (cache.length - 1);
+        Revision cached = cache[index];
+        if (cached == null
+                || cached.timestamp != timestamp
+                || cached.counter != counter
+                || cached.clusterId != clusterId
+                || cached.branch != branch) {
+            cached = new Revision(timestamp, counter, clusterId, branch);
+            cache[index] = cached;
+        }
+        return cached;
+    }
+
+    private static Revision[] createRevisionCache() {
+        int size = SystemPropertySupplier.create(
+                "oak.documentMK.revisionCacheSize", 4096).get();
+        if (size <= 0) {
+            return null;
+        }
+        // must be a power of 2
+        return new Revision[Integer.highestOneBit(size)];
     }
 
     @Override
@@ -357,6 +419,10 @@ public final class Revision implements CacheValue {
 
     @Override
     public int hashCode() {
+        return hashCode(timestamp, counter, clusterId);
+    }
+
+    private static int hashCode(long timestamp, int counter, int clusterId) {
         return (int) (timestamp >>> 32) ^ (int) timestamp ^ counter ^ clusterId;
     }
 
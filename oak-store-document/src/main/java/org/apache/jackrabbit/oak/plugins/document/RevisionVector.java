@@ -359,15 +359,41 @@ public final class RevisionVector implements Iterable<Revision>, Comparable<Revi
      * @throws IllegalArgumentException if the string is malformed
      */
     public static RevisionVector fromString(String s) {
-        if (s.isEmpty()) {
+        return fromString(s, 0, s.length());
+    }
+
+    /**
+     * Creates a revision vector from the characters {@code start} (inclusive)
+     * to {@code end} (exclusive) of the given sequence. The revisions are
+     * parsed in place without splitting the sequence into strings.
+     *
+     * @param s the character sequence.
+     * @param start the index of the first character of the revision vector.
+     * @param end the index after the last character of the revision vector.
+     * @return the revision vector.
+     * @throws IllegalArgumentException if the characters are malformed
+     */
+    public static RevisionVector fromString(CharSequence s, int start, int end) {
+        if (start >= end) {
             return EMPTY;
         }
-        String[] list = s.split(",");
-        Revision[] revisions = new Revision[list.length];
-        for (int i = 0; i < list.length; i++) {
-            revisions[i] = Revision.fromString(list[i]);
+        int num = 1;
+        for (int i = start; i < end; i++) {
+            if (s.charAt(i) == ',') {
+                num++;
+            }
+        }
+        Revision[] revisions = new Revision[num];
+        int revStart = start;
+        for (int i = 0; i < num; i++) {
+            int revEnd = revStart;
+            while (revEnd < end && s.charAt(revEnd) != ',') {
+                revEnd++;
+            }
+            revisions[i] = Revision.fromString(s, revStart, revEnd);
+            revStart = revEnd + 1;
         }
-        return new RevisionVector(revisions);
+        return new RevisionVector(revisions, true, true);
     }
 
     /**
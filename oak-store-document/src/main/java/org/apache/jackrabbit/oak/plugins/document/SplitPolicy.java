@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document;
+
+import org.jetbrains.annotations.NotNull;
+
+import static org.apache.jackrabbit.oak.plugins.document.NodeDocument.NUM_REVS_THRESHOLD;
+import static org.apache.jackrabbit.oak.plugins.document.NodeDocument.SPLIT_CANDIDATE_THRESHOLD;
+
+/**
+ * Decides when the history of a main document is split off into previous
+ * documents. The {@link DocumentNodeStore} consults the policy after a commit
+ * to find split candidates and again in the background split to get the
+ * number of local revisions a document may keep.
+ */
+public interface SplitPolicy {
+
+    /**
+     * The default policy with the fixed thresholds of {@link NodeDocument}.
+     */
+    SplitPolicy DEFAULT = new SplitPolicy() {
+        @Override
+        public int getNumRevsThreshold(@NotNull NodeDocument doc) {
+            return NUM_REVS_THRESHOLD;
+        }
+
+        @Override
+        public String toString() {
+            return "DefaultSplitPolicy";
+        }
+    };
+
+    /**
+     * Returns {@code true} if the given document, as written by a commit,
+     * should be considered by the next background split. The default
+     * implementation returns {@code true} for documents larger than
+     * {@link NodeDocument#SPLIT_CANDIDATE_THRESHOLD} and documents with
+     * binaries.
+     *
+     * @param doc the main document after the commit.
+     * @return whether the document is a split candidate.
+     */
+    default boolean isSplitCandidate(@NotNull NodeDocument doc) {
+        return doc.getMemory() > SPLIT_CANDIDATE_THRESHOLD || doc.hasBinary();
+    }
+
+    /**
+     * Returns the number of local revisions the given main document may
+     * have before it is split. This is also the minimum number of revisions
+     * moved to a previous document.
+     *
+     * @param doc the main document.
+     * @return the number of revisions threshold.
+     */
+    int getNumRevsThreshold(@NotNull NodeDocument doc);
+
+    /**
+     * Called when the node state of the given document was read at a
+     * revision not present in the node cache. The default implementation
+     * does nothing.
+     *
+     * @param doc the document that was read.
+     */
+    default void documentRead(@NotNull NodeDocument doc) {
+    }
+
+    /**
+     * Called at the end of each background split. The default implementation
+     * does nothing.
+     */
+    default void splitDone() {
+    }
+}
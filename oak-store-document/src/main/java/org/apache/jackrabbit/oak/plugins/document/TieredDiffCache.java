@@ -28,8 +28,10 @@ import org.jetbrains.annotations.Nullable;
 import static org.apache.jackrabbit.oak.plugins.document.util.Utils.isLocalChange;
 
 /**
- * Implements a tiered diff cache which consists of a {@link LocalDiffCache} and
- * a {@link MemoryDiffCache}.
+ * Implements a tiered diff cache which consists of a {@link LocalDiffCache},
+ * a {@link MemoryDiffCache} and an optional {@link CompressedDiffCache} for
+ * external changes. The compressed tier is enabled with
+ * {@link DocumentNodeStoreBuilder#setCompressedDiffCacheSize(long)}.
  */
 class TieredDiffCache extends DiffCache {
 
@@ -43,11 +45,17 @@ class TieredDiffCache extends DiffCache {
     private final int clusterId;
     private final DiffCache localCache;
     private final DiffCache memoryCache;
+    private final DiffCache compressedCache;
 
     TieredDiffCache(DocumentNodeStoreBuilder<?> builder, int clusterId) {
         this.clusterId = clusterId;
         this.localCache = new LocalDiffCache(builder);
         this.memoryCache = new MemoryDiffCache(builder);
+        if (builder.getCompressedDiffCacheSize() > 0) {
+            this.compressedCache = new CompressedDiffCache(builder);
+        } else {
+            this.compressedCache = null;
+        }
     }
 
     @Override
@@ -71,12 +79,24 @@ class TieredDiffCache extends DiffCache {
                 localDiffMisses.put(k, k);
             }
         }
+        if (compressedCache != null) {
+            // check memory and compressed cache without loader
+            // before the memory cache loads the changes
+            String changes = memoryCache.getChanges(from, to, path, null);
+            if (changes == null) {
+                changes = compressedCache.getChanges(from, to, path, null);
+            }
+            if (changes != null) {
+                return changes;
+            }
+        }
         return memoryCache.getChanges(from, to, path, loader);
     }
 
     /**
      * Creates a new entry in the {@link LocalDiffCache} for local changes
-     * and {@link MemoryDiffCache} for external changes
+     * and {@link MemoryDiffCache} for external changes. External changes are
+     * also added to the {@link CompressedDiffCache} if enabled.
      *
      * @param from the from revision.
      * @param to the to revision.
@@ -87,20 +107,43 @@ class TieredDiffCache extends DiffCache {
     public Entry newEntry(@NotNull RevisionVector from, @NotNull RevisionVector to, boolean local) {
         if (local) {
             return localCache.newEntry(from, to, true);
-        } else {
+        } else if (compressedCache == null) {
             return memoryCache.newEntry(from, to, false);
+        } else {
+            final Entry memoryEntry = memoryCache.newEntry(from, to, false);
+            final Entry compressedEntry = compressedCache.newEntry(from, to, false);
+            return new Entry() {
+                @Override
+                public void append(@NotNull Path path, @NotNull String changes) {
+                    memoryEntry.append(path, changes);
+                    compressedEntry.append(path, changes);
+                }
+
+                @Override
+                public boolean done() {
+                    boolean memoryDone = memoryEntry.done();
+                    return compressedEntry.done() && memoryDone;
+                }
+            };
         }
     }
 
     @NotNull
     @Override
     public Iterable<CacheStats> getStats() {
-        return Iterables.concat(localCache.getStats(), memoryCache.getStats());
+        if (compressedCache == null) {
+            return Iterables.concat(localCache.getStats(), memoryCache.getStats());
+        }
+        return Iterables.concat(localCache.getStats(), memoryCache.getStats(),
+                compressedCache.getStats());
     }
 
     @Override
     public void invalidateAll() {
         localCache.invalidateAll();
         memoryCache.invalidateAll();
+        if (compressedCache != null) {
+            compressedCache.invalidateAll();
+        }
     }
 }
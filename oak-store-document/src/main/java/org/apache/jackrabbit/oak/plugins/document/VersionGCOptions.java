@@ -21,6 +21,8 @@ package org.apache.jackrabbit.oak.plugins.document;
 
 import java.util.concurrent.TimeUnit;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 public class VersionGCOptions {
 
     public final int overflowToDiskThreshold;
@@ -29,20 +31,25 @@ public class VersionGCOptions {
     public final int maxIterations;
     public final long maxDurationMs;
     public final double delayFactor;
+    public final int deleteThreads;
+    public final long checkpointIntervalMs;
 
     public VersionGCOptions() {
         this(100000, 100000, TimeUnit.MINUTES.toMillis(1),
-                0, TimeUnit.HOURS.toMillis(0), 0);
+                0, TimeUnit.HOURS.toMillis(0), 0, 1, 0);
     }
 
     private VersionGCOptions(int overflow, long collectLimit, long precisionMs,
-                             int maxIterations, long maxDurationMs, double delayFactor) {
+                             int maxIterations, long maxDurationMs, double delayFactor,
+                             int deleteThreads, long checkpointIntervalMs) {
         this.overflowToDiskThreshold = overflow;
         this.collectLimit = collectLimit;
         this.precisionMs = precisionMs;
         this.maxIterations = maxIterations;
         this.maxDurationMs = maxDurationMs;
         this.delayFactor = delayFactor;
+        this.deleteThreads = deleteThreads;
+        this.checkpointIntervalMs = checkpointIntervalMs;
     }
 
     /**
@@ -52,7 +59,8 @@ public class VersionGCOptions {
      */
     public VersionGCOptions withOverflowToDiskThreshold(int overflowToDiskThreshold) {
         return new VersionGCOptions(overflowToDiskThreshold, this.collectLimit,
-                this.precisionMs, this.maxIterations, this.maxDurationMs, this.delayFactor);
+                this.precisionMs, this.maxIterations, this.maxDurationMs, this.delayFactor,
+                this.deleteThreads, this.checkpointIntervalMs);
     }
 
     /**
@@ -65,7 +73,8 @@ public class VersionGCOptions {
      */
     public VersionGCOptions withCollectLimit(long limit) {
         return new VersionGCOptions(this.overflowToDiskThreshold, limit,
-                this.precisionMs, this.maxIterations, this.maxDurationMs, this.delayFactor);
+                this.precisionMs, this.maxIterations, this.maxDurationMs, this.delayFactor,
+                this.deleteThreads, this.checkpointIntervalMs);
     }
 
     /**
@@ -79,7 +88,8 @@ public class VersionGCOptions {
      */
     public VersionGCOptions withPrecisionMs(TimeUnit unit, long t) {
         return new VersionGCOptions(this.overflowToDiskThreshold, this.collectLimit,
-                unit.toMillis(t), this.maxIterations, this.maxDurationMs, this.delayFactor);
+                unit.toMillis(t), this.maxIterations, this.maxDurationMs, this.delayFactor,
+                this.deleteThreads, this.checkpointIntervalMs);
     }
 
     /**
@@ -93,7 +103,8 @@ public class VersionGCOptions {
      */
     public VersionGCOptions withMaxDuration(TimeUnit unit, long t) {
         return new VersionGCOptions(this.overflowToDiskThreshold, this.collectLimit,
-                this.precisionMs, this.maxIterations, unit.toMillis(t), this.delayFactor);
+                this.precisionMs, this.maxIterations, unit.toMillis(t), this.delayFactor,
+                this.deleteThreads, this.checkpointIntervalMs);
     }
 
     /**
@@ -106,7 +117,8 @@ public class VersionGCOptions {
      */
     public VersionGCOptions withMaxIterations(int max) {
         return new VersionGCOptions(this.overflowToDiskThreshold, this.collectLimit,
-                this.precisionMs, this.maxIterations, max, this.delayFactor);
+                this.precisionMs, this.maxIterations, max, this.delayFactor,
+                this.deleteThreads, this.checkpointIntervalMs);
     }
 
     /**
@@ -122,8 +134,46 @@ public class VersionGCOptions {
      */
     public VersionGCOptions withDelayFactor(double f) {
         return new VersionGCOptions(this.overflowToDiskThreshold, this.collectLimit,
-                this.precisionMs, this.maxIterations, this.maxDurationMs, f);
+                this.precisionMs, this.maxIterations, this.maxDurationMs, f,
+                this.deleteThreads, this.checkpointIntervalMs);
     }
 
-}
+    /**
+     * Set the number of threads used to remove garbage documents and reset
+     * {@code _deletedOnce} flags. With a value greater than one, the
+     * candidate documents are still scanned and checked on the calling
+     * thread, while batched modifications are handed over to a pool of
+     * worker threads and overlap with the scan. At most two batches per
+     * worker are pending at any time. The {@link #delayFactor} is applied
+     * by each worker after each of its batches, hence the overall write
+     * rate still adapts to the latency of the underlying store. The
+     * default is 1, e.g. all modifications are done on the calling thread.
+     *
+     * @param threads the number of threads removing documents.
+     */
+    public VersionGCOptions withDeleteThreads(int threads) {
+        checkArgument(threads > 0, "threads must be > 0: %s", threads);
+        return new VersionGCOptions(this.overflowToDiskThreshold, this.collectLimit,
+                this.precisionMs, this.maxIterations, this.maxDurationMs, this.delayFactor,
+                threads, this.checkpointIntervalMs);
+    }
 
+    /**
+     * Set the interval at which the garbage collector persists its progress
+     * while it collects documents of deleted nodes. The time interval of a
+     * run is processed in slices of this duration (but at least
+     * {@link #precisionMs}) and the end of each completed slice is written
+     * to the settings collection. A run that is canceled or interrupted
+     * will resume from the last checkpoint instead of scanning the entire
+     * time interval again. A value of 0, the default, disables checkpoints.
+     *
+     * @param unit time unit used for the interval
+     * @param t    the number of units in the interval
+     */
+    public VersionGCOptions withCheckpointInterval(TimeUnit unit, long t) {
+        return new VersionGCOptions(this.overflowToDiskThreshold, this.collectLimit,
+                this.precisionMs, this.maxIterations, this.maxDurationMs, this.delayFactor,
+                this.deleteThreads, unit.toMillis(t));
+    }
+
+}
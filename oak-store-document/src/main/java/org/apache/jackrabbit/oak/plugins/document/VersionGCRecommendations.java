@@ -65,7 +65,8 @@ public class VersionGCRecommendations {
      * for future runs.
      * <p>
      * In the settings collection, recommendations keeps "revisionsOlderThan" from the last successful run.
-     * It also updates the time interval recommended for the next run.
+     * It also updates the time interval recommended for the next run and keeps the
+     * checkpoint of a run that was interrupted before it completed.
      *
      * @param maxRevisionAgeMs the minimum age for revisions to be collected
      * @param checkpoints checkpoints from {@link DocumentNodeStore}
@@ -98,6 +99,12 @@ public class VersionGCRecommendations {
             oldestPossible = lastOldestTimestamp - 1;
         }
 
+        long resumeFrom = settings.get(VersionGarbageCollector.SETTINGS_COLLECTION_CHECKPOINT_PROP);
+        if (resumeFrom > oldestPossible) {
+            log.debug("resuming interrupted run from checkpoint {}", Utils.timestampToString(resumeFrom));
+            oldestPossible = resumeFrom;
+        }
+
         TimeInterval scope = new TimeInterval(oldestPossible, Long.MAX_VALUE);
         scope = scope.notLaterThan(keep.fromMs);
 
@@ -182,7 +189,11 @@ public class VersionGCRecommendations {
             stats.needRepeat = true;
         } else if (!stats.canceled && !stats.ignoredGCDueToCheckPoint) {
             // success, we would not expect to encounter revisions older than this in the future
-            setLongSetting(VersionGarbageCollector.SETTINGS_COLLECTION_OLDEST_TIMESTAMP_PROP, scope.toMs);
+            // a checkpoint of this run is not needed anymore
+            UpdateOp updateOp = new UpdateOp(VersionGarbageCollector.SETTINGS_COLLECTION_ID, true);
+            updateOp.set(VersionGarbageCollector.SETTINGS_COLLECTION_OLDEST_TIMESTAMP_PROP, scope.toMs);
+            updateOp.remove(VersionGarbageCollector.SETTINGS_COLLECTION_CHECKPOINT_PROP);
+            vgc.getDocumentStore().createOrUpdate(Collection.SETTINGS, updateOp);
 
             int count = stats.deletedDocGCCount - stats.deletedLeafDocGCCount;
             double usedFraction;
@@ -211,12 +222,27 @@ public class VersionGCRecommendations {
         }
     }
 
+    /**
+     * Persists the progress of a run collecting documents of deleted nodes.
+     * All such documents modified before the given timestamp within the
+     * {@link #scope} of this run have been removed. A subsequent run will
+     * start from the given timestamp, unless it is earlier than the time
+     * of the last successful run.
+     *
+     * @param timestamp the end of the time interval processed so far.
+     */
+    void checkpoint(long timestamp) {
+        log.debug("checkpoint at {}", Utils.timestampToString(timestamp));
+        setLongSetting(VersionGarbageCollector.SETTINGS_COLLECTION_CHECKPOINT_PROP, timestamp);
+    }
+
     private Map<String, Long> getLongSettings() {
         Document versionGCDoc = vgc.getDocumentStore().find(Collection.SETTINGS, VersionGarbageCollector.SETTINGS_COLLECTION_ID, 0);
         Map<String, Long> settings = Maps.newHashMap();
         // default values
         settings.put(VersionGarbageCollector.SETTINGS_COLLECTION_OLDEST_TIMESTAMP_PROP, 0L);
         settings.put(VersionGarbageCollector.SETTINGS_COLLECTION_REC_INTERVAL_PROP, 0L);
+        settings.put(VersionGarbageCollector.SETTINGS_COLLECTION_CHECKPOINT_PROP, 0L);
         if (versionGCDoc != null) {
             for (String k : versionGCDoc.keySet()) {
                 Object value = versionGCDoc.get(k);
@@ -24,6 +24,9 @@ import static org.apache.jackrabbit.oak.plugins.document.NodeDocument.getModifie
 import static org.apache.jackrabbit.oak.plugins.document.util.Utils.getAllDocuments;
 import static org.apache.jackrabbit.oak.plugins.document.util.Utils.getSelectedDocuments;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.jackrabbit.oak.plugins.document.NodeDocument.SplitDocType;
@@ -41,6 +44,14 @@ public class VersionGCSupport {
 
     private static final Logger LOG = LoggerFactory.getLogger(VersionGCSupport.class);
 
+    /**
+     * The fields needed to identify split document garbage and to
+     * disconnect it from the main document, except for split documents of
+     * type {@link SplitDocType#DEFAULT_NO_BRANCH}, which need the revisions.
+     */
+    private static final List<String> GARBAGE_PROJECTION = Collections.unmodifiableList(
+            Arrays.asList(NodeDocument.SD_TYPE, NodeDocument.SD_MAX_REV_TIME_IN_SECS, NodeDocument.PATH));
+
     private final DocumentStore store;
 
     public VersionGCSupport(DocumentStore store) {
@@ -117,7 +128,14 @@ public class VersionGCSupport {
     protected Iterable<NodeDocument> identifyGarbage(final Set<SplitDocType> gcTypes,
                                                      final RevisionVector sweepRevs,
                                                      final long oldestRevTimeStamp) {
-        return filter(getAllDocuments(store), new Predicate<NodeDocument>() {
+        Iterable<NodeDocument> docs;
+        if (gcTypes.contains(SplitDocType.DEFAULT_NO_BRANCH)) {
+            // the revisions are needed, read the complete documents
+            docs = getAllDocuments(store);
+        } else {
+            docs = getSelectedDocuments(store, null, 0, GARBAGE_PROJECTION);
+        }
+        return filter(docs, new Predicate<NodeDocument>() {
             @Override
             public boolean apply(NodeDocument doc) {
                 return gcTypes.contains(doc.getSplitDocType())
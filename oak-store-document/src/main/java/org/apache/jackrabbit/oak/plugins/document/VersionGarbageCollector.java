@@ -27,8 +27,14 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import com.google.common.base.Function;
@@ -40,7 +46,9 @@ import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
+import org.apache.jackrabbit.oak.commons.concurrent.ExecutorCloser;
 import org.apache.jackrabbit.oak.commons.sort.StringSort;
 import org.apache.jackrabbit.oak.plugins.document.util.TimeInterval;
 import org.apache.jackrabbit.oak.plugins.document.util.Utils;
@@ -99,6 +107,12 @@ public class VersionGarbageCollector {
      */
     static final String SETTINGS_COLLECTION_REC_INTERVAL_PROP = "recommendedIntervalMs";
 
+    /**
+     * Property name to the end of the time interval already processed by a
+     * run that did not complete
+     */
+    static final String SETTINGS_COLLECTION_CHECKPOINT_PROP = "checkpointTimeStamp";
+
     private final DocumentNodeStore nodeStore;
     private final DocumentStore ds;
     private final VersionGCSupport versionStore;
@@ -136,6 +150,7 @@ public class VersionGarbageCollector {
             overall.active.start();
             gcStats.started();
             boolean success = false;
+            DocumentStoreCaller previous = DocumentStoreCaller.enter(DocumentStoreCaller.VERSION_GC);
             try {
                 long averageDurationMs = 0;
                 while (maxRunTime.contains(nodeStore.getClock().getTime() + averageDurationMs)) {
@@ -156,6 +171,7 @@ public class VersionGarbageCollector {
                 success = true;
                 return overall;
             } finally {
+                DocumentStoreCaller.exit(previous);
                 overall.active.stop();
                 collector.set(null);
                 overall.success = success;
@@ -494,6 +510,7 @@ public class VersionGarbageCollector {
             VersionGCRecommendations rec = new VersionGCRecommendations(maxRevisionAgeInMillis, nodeStore.getCheckpoints(),
                     nodeStore.getClock(), versionStore, options, gcMonitor);
             GCPhases phases = new GCPhases(cancel, stats, gcMonitor);
+            DeletionWorkers workers = new DeletionWorkers(options.deleteThreads);
             try {
                 if (rec.ignoreDueToCheckPoint) {
                     phases.stats.ignoredGCDueToCheckPoint = true;
@@ -504,12 +521,13 @@ public class VersionGarbageCollector {
                     final RevisionVector sweepRevisions = nodeStore.getSweepRevisions();
                     monitor.info("Looking at revisions in {}", rec.scope);
 
-                    collectDeletedDocuments(phases, headRevision, rec);
+                    collectDeletedDocuments(phases, headRevision, rec, workers);
                     collectSplitDocuments(phases, sweepRevisions, rec);
                 }
             } catch (LimitExceededException ex) {
                 stats.limitExceeded = true;
             } finally {
+                workers.close();
                 phases.close();
                 stats.canceled = cancel.get();
             }
@@ -536,13 +554,52 @@ public class VersionGarbageCollector {
 
         private void collectDeletedDocuments(GCPhases phases,
                                              RevisionVector headRevision,
-                                             VersionGCRecommendations rec)
+                                             VersionGCRecommendations rec,
+                                             DeletionWorkers workers)
+                throws IOException, LimitExceededException {
+            long sliceMs = Long.MAX_VALUE;
+            if (options.checkpointIntervalMs > 0) {
+                sliceMs = Math.max(options.checkpointIntervalMs, options.precisionMs);
+            }
+            TimeInterval remaining = rec.scope;
+            long numCollected = 0;
+            while (!cancel.get()) {
+                TimeInterval slice = remaining;
+                if (slice.getDurationMs() > sliceMs) {
+                    slice = remaining.startAndDuration(sliceMs);
+                    monitor.info("Collecting deleted documents in {}", slice);
+                }
+                numCollected = collectDeletedDocuments(phases, headRevision,
+                        rec, workers, slice, numCollected);
+                if (slice.toMs >= remaining.toMs || cancel.get()) {
+                    break;
+                }
+                // all documents in slice have been processed
+                rec.checkpoint(slice.toMs);
+                remaining = remaining.notEarlierThan(slice.toMs);
+            }
+        }
+
+        /**
+         * Collects and removes documents of deleted nodes in the given time
+         * interval.
+         *
+         * @return the number of documents collected so far in this run,
+         *      including the given {@code numCollected}. Leaf documents are
+         *      not included.
+         */
+        private long collectDeletedDocuments(GCPhases phases,
+                                             RevisionVector headRevision,
+                                             VersionGCRecommendations rec,
+                                             DeletionWorkers workers,
+                                             TimeInterval scope,
+                                             long numCollected)
                 throws IOException, LimitExceededException {
             int docsTraversed = 0;
-            DeletedDocsGC gc = new DeletedDocsGC(headRevision, cancel, options, monitor);
+            DeletedDocsGC gc = new DeletedDocsGC(headRevision, cancel, options, monitor, workers);
             try {
                 if (phases.start(GCPhase.COLLECTING)) {
-                    Iterable<NodeDocument> itr = versionStore.getPossiblyDeletedDocs(rec.scope.fromMs, rec.scope.toMs);
+                    Iterable<NodeDocument> itr = versionStore.getPossiblyDeletedDocs(scope.fromMs, scope.toMs);
                     try {
                         for (NodeDocument doc : itr) {
                             // continue with GC?
@@ -562,7 +619,7 @@ public class VersionGarbageCollector {
                                 gc.possiblyDeleted(doc);
                                 phases.stop(GCPhase.CHECKING);
                             }
-                            if (rec.maxCollect > 0 && gc.docIdsToDelete.getSize() > rec.maxCollect) {
+                            if (rec.maxCollect > 0 && numCollected + gc.docIdsToDelete.getSize() > rec.maxCollect) {
                                 throw new LimitExceededException();
                             }
                             if (gc.hasLeafBatch()) {
@@ -605,8 +662,13 @@ public class VersionGarbageCollector {
                     gc.updateResurrectedDocuments(phases.stats);
                     phases.stop(GCPhase.UPDATING);
                 }
+                return numCollected + gc.docIdsToDelete.getSize();
             } finally {
-                gc.close();
+                try {
+                    gc.awaitModifications(phases.stats);
+                } finally {
+                    gc.close();
+                }
             }
         }
     }
@@ -622,21 +684,28 @@ public class VersionGarbageCollector {
         private final List<String> resurrectedIds = Lists.newArrayList();
         private final StringSort docIdsToDelete;
         private final StringSort prevDocIdsToDelete;
-        private final Set<String> exclude = Sets.newHashSet();
+        private final Set<String> exclude = Sets.newConcurrentHashSet();
         private boolean sorted = false;
-        private final Stopwatch timer;
         private final VersionGCOptions options;
         private final GCMonitor monitor;
+        private final DeletionWorkers workers;
+        // counts of modifications done by workers, but not yet
+        // transferred to the VersionGCStats
+        private final AtomicInteger deletedCount = new AtomicInteger();
+        private final AtomicInteger deletedLeafCount = new AtomicInteger();
+        private final AtomicInteger deletedPreviousCount = new AtomicInteger();
+        private final AtomicInteger updateResurrectedCount = new AtomicInteger();
 
         public DeletedDocsGC(@NotNull RevisionVector headRevision,
                              @NotNull AtomicBoolean cancel,
                              @NotNull VersionGCOptions options,
-                             @NotNull GCMonitor monitor) {
+                             @NotNull GCMonitor monitor,
+                             @NotNull DeletionWorkers workers) {
             this.headRevision = checkNotNull(headRevision);
             this.cancel = checkNotNull(cancel);
-            this.timer = Stopwatch.createUnstarted();
             this.options = options;
             this.monitor = monitor;
+            this.workers = checkNotNull(workers);
             this.docIdsToDelete = newStringSort(options);
             this.prevDocIdsToDelete = newStringSort(options);
         }
@@ -699,10 +768,13 @@ public class VersionGarbageCollector {
          */
         void removeDocuments(VersionGCStats stats) throws IOException {
             removeLeafDocuments(stats);
-            stats.deletedDocGCCount += removeDeletedDocuments(
-                    getDocIdsToDelete(), getDocIdsToDeleteSize(), false, "(other)");
-            // FIXME: this is incorrect because that method also removes intermediate docs
-            stats.splitDocGCCount += removeDeletedPreviousDocuments();
+            removeDeletedDocuments(getDocIdsToDelete(), getDocIdsToDeleteSize(),
+                    deletedCount, false, "(other)");
+            // previous documents of concurrently modified documents
+            // are excluded, wait until all of them are known
+            awaitModifications(stats);
+            removeDeletedPreviousDocuments();
+            awaitModifications(stats);
         }
 
         boolean hasLeafBatch() {
@@ -714,20 +786,40 @@ public class VersionGarbageCollector {
         }
 
         void removeLeafDocuments(VersionGCStats stats) throws IOException {
-            int removeCount = removeDeletedDocuments(
-                    getLeafDocIdsToDelete(), getLeafDocIdsToDeleteSize(), true, "(leaf)");
+            removeDeletedDocuments(getLeafDocIdsToDelete(), getLeafDocIdsToDeleteSize(),
+                    deletedLeafCount, true, "(leaf)");
             leafDocIdsToDelete.clear();
-            stats.deletedLeafDocGCCount += removeCount;
-            stats.deletedDocGCCount += removeCount;
+            transferCounts(stats);
         }
 
         void updateResurrectedDocuments(VersionGCStats stats) throws IOException {
             if (resurrectedIds.isEmpty()) {
                 return;
             }
-            int updateCount = resetDeletedOnce(resurrectedIds);
+            final List<String> ids = Lists.newArrayList(resurrectedIds);
             resurrectedIds.clear();
-            stats.updateResurrectedGCCount += updateCount;
+            workers.execute(new Modification() {
+                @Override
+                public void run() throws IOException {
+                    updateResurrectedCount.addAndGet(resetDeletedOnce(ids));
+                }
+            });
+            transferCounts(stats);
+        }
+
+        /**
+         * Waits until all modifications handed over to the workers are done
+         * and updates the stats with the number of modified documents.
+         *
+         * @param stats to track the number of removed and updated documents.
+         * @throws IOException if a modification failed.
+         */
+        void awaitModifications(VersionGCStats stats) throws IOException {
+            try {
+                workers.await();
+            } finally {
+                transferCounts(stats);
+            }
         }
 
         public void close() {
@@ -745,6 +837,15 @@ public class VersionGarbageCollector {
 
         //------------------------------< internal >----------------------------
 
+        private void transferCounts(VersionGCStats stats) {
+            int leafCount = deletedLeafCount.getAndSet(0);
+            stats.deletedLeafDocGCCount += leafCount;
+            stats.deletedDocGCCount += leafCount + deletedCount.getAndSet(0);
+            // FIXME: this is incorrect because removeDeletedPreviousDocuments() also removes intermediate docs
+            stats.splitDocGCCount += deletedPreviousCount.getAndSet(0);
+            stats.updateResurrectedGCCount += updateResurrectedCount.getAndSet(0);
+        }
+
         private void delayOnModifications(long durationMs) {
             long delayMs = Math.round(durationMs * options.delayFactor);
             if (!cancel.get() && delayMs > 0) {
@@ -850,21 +951,33 @@ public class VersionGarbageCollector {
             });
         }
 
-        private int removeDeletedDocuments(Iterator<String> docIdsToDelete,
-                                           long numDocuments,
-                                           boolean leaves,
-                                           String label) throws IOException {
+        /**
+         * Removes the given documents in batches. The batches are handed over
+         * to the {@link DeletionWorkers} and may still be in progress when
+         * this method returns.
+         *
+         * @param docIdsToDelete id/modified entries of the documents to remove.
+         * @param numDocuments the number of entries.
+         * @param counter incremented with the number of removed documents.
+         * @param leaves whether the documents are leaf documents.
+         * @param label the label used in log messages.
+         */
+        private void removeDeletedDocuments(Iterator<String> docIdsToDelete,
+                                            final long numDocuments,
+                                            final AtomicInteger counter,
+                                            final boolean leaves,
+                                            String label) throws IOException {
             if (numDocuments == 0) {
-                return 0;
+                return;
             }
             monitor.info("Proceeding to delete [{}] documents [{}]", numDocuments, label);
 
             Iterator<List<String>> idListItr = partition(docIdsToDelete, DELETE_BATCH_SIZE);
-            int deletedCount = 0;
-            int lastLoggedCount = 0;
-            int recreatedCount = 0;
+            final AtomicInteger deletedCount = new AtomicInteger();
+            final AtomicInteger lastLoggedCount = new AtomicInteger();
+            final AtomicInteger recreatedCount = new AtomicInteger();
             while (idListItr.hasNext() && !cancel.get()) {
-                Map<String, Long> deletionBatch = Maps.newLinkedHashMap();
+                final Map<String, Long> deletionBatch = Maps.newLinkedHashMap();
                 for (String s : idListItr.next()) {
                     Map.Entry<String, Long> parsed;
                     try {
@@ -882,48 +995,60 @@ public class VersionGarbageCollector {
                     log.trace(sb.toString());
                 }
 
-                timer.reset().start();
-                try {
-                    int nRemoved = ds.remove(NODES, deletionBatch);
-
-                    if (nRemoved < deletionBatch.size()) {
-                        // some nodes were re-created while GC was running
-                        // find the document that still exist
-                        for (String id : deletionBatch.keySet()) {
-                            NodeDocument d = ds.find(NODES, id);
-                            if (d != null) {
-                                concurrentModification(d);
-                            }
+                workers.execute(new Modification() {
+                    @Override
+                    public void run() {
+                        if (cancel.get()) {
+                            return;
                         }
-                        recreatedCount += (deletionBatch.size() - nRemoved);
-                    }
+                        Stopwatch timer = Stopwatch.createStarted();
+                        try {
+                            int nRemoved = ds.remove(NODES, deletionBatch);
+
+                            if (nRemoved < deletionBatch.size()) {
+                                // some nodes were re-created while GC was running
+                                // find the document that still exist
+                                for (String id : deletionBatch.keySet()) {
+                                    NodeDocument d = ds.find(NODES, id);
+                                    if (d != null) {
+                                        concurrentModification(d);
+                                    }
+                                }
+                                recreatedCount.addAndGet(deletionBatch.size() - nRemoved);
+                            }
 
-                    deletedCount += nRemoved;
-                    log.debug("Deleted [{}] documents so far", deletedCount);
-                    if (leaves) {
-                        gcStats.leafDocumentsDeleted(deletedCount);
-                    } else {
-                        gcStats.documentsDeleted(deletedCount);
-                    }
+                            counter.addAndGet(nRemoved);
+                            int deleted = deletedCount.addAndGet(nRemoved);
+                            log.debug("Deleted [{}] documents so far", deleted);
+                            if (leaves) {
+                                gcStats.leafDocumentsDeleted(deleted);
+                            } else {
+                                gcStats.documentsDeleted(deleted);
+                            }
 
-                    if (deletedCount + recreatedCount - lastLoggedCount >= PROGRESS_BATCH_SIZE) {
-                        lastLoggedCount = deletedCount + recreatedCount;
-                        double progress = lastLoggedCount * 1.0 / getNumDocuments() * 100;
-                        String msg = String.format("Deleted %d (%1.2f%%) documents so far", deletedCount, progress);
-                        monitor.info(msg);
+                            int processed = deleted + recreatedCount.get();
+                            int logged = lastLoggedCount.get();
+                            if (processed - logged >= PROGRESS_BATCH_SIZE
+                                    && lastLoggedCount.compareAndSet(logged, processed)) {
+                                // numDocuments is not 0, and the collections
+                                // of ids must not be read by the workers
+                                double progress = processed * 1.0 / numDocuments * 100;
+                                String msg = String.format("Deleted %d (%1.2f%%) documents so far", deleted, progress);
+                                monitor.info(msg);
+                            }
+                        } finally {
+                            delayOnModifications(timer.stop().elapsed(TimeUnit.MILLISECONDS));
+                        }
                     }
-                } finally {
-                    delayOnModifications(timer.stop().elapsed(TimeUnit.MILLISECONDS));
-                }
+                });
             }
-            return deletedCount;
         }
 
         private int resetDeletedOnce(List<String> resurrectedDocuments) throws IOException {
             monitor.info("Proceeding to reset [{}] _deletedOnce flags", resurrectedDocuments.size());
 
             int updateCount = 0;
-            timer.reset().start();
+            Stopwatch timer = Stopwatch.createStarted();
             try {
                 for (String s : resurrectedDocuments) {
                     if (!cancel.get()) {
@@ -951,20 +1076,19 @@ public class VersionGarbageCollector {
             return updateCount;
         }
 
-        private int removeDeletedPreviousDocuments() throws IOException {
-            long num = getNumPreviousDocuments();
+        private void removeDeletedPreviousDocuments() throws IOException {
+            final long num = getNumPreviousDocuments();
             if (num == 0) {
-                return 0;
+                return;
             }
             monitor.info("Proceeding to delete [{}] previous documents", num);
 
-            int deletedCount = 0;
-            int lastLoggedCount = 0;
+            final AtomicInteger deletedCount = new AtomicInteger();
+            final AtomicInteger lastLoggedCount = new AtomicInteger();
             Iterator<List<String>> idListItr =
                     partition(getPrevDocIdsToDelete(), DELETE_BATCH_SIZE);
             while (idListItr.hasNext() && !cancel.get()) {
-                List<String> deletionBatch = idListItr.next();
-                deletedCount += deletionBatch.size();
+                final List<String> deletionBatch = idListItr.next();
 
                 if (log.isDebugEnabled()) {
                     StringBuilder sb = new StringBuilder("Performing batch deletion of previous documents with following ids. \n");
@@ -972,19 +1096,29 @@ public class VersionGarbageCollector {
                     log.debug(sb.toString());
                 }
 
-                ds.remove(NODES, deletionBatch);
-
-                log.debug("Deleted [{}] previous documents so far", deletedCount);
-                gcStats.splitDocumentsDeleted(deletedCount);
-
-                if (deletedCount - lastLoggedCount >= PROGRESS_BATCH_SIZE) {
-                    lastLoggedCount = deletedCount;
-                    double progress = deletedCount * 1.0 / (prevDocIdsToDelete.getSize() - exclude.size()) * 100;
-                    String msg = String.format("Deleted %d (%1.2f%%) previous documents so far", deletedCount, progress);
-                    monitor.info(msg);
-                }
+                workers.execute(new Modification() {
+                    @Override
+                    public void run() {
+                        if (cancel.get()) {
+                            return;
+                        }
+                        ds.remove(NODES, deletionBatch);
+
+                        deletedPreviousCount.addAndGet(deletionBatch.size());
+                        int deleted = deletedCount.addAndGet(deletionBatch.size());
+                        log.debug("Deleted [{}] previous documents so far", deleted);
+                        gcStats.splitDocumentsDeleted(deleted);
+
+                        int logged = lastLoggedCount.get();
+                        if (deleted - logged >= PROGRESS_BATCH_SIZE
+                                && lastLoggedCount.compareAndSet(logged, deleted)) {
+                            double progress = deleted * 1.0 / num * 100;
+                            String msg = String.format("Deleted %d (%1.2f%%) previous documents so far", deleted, progress);
+                            monitor.info(msg);
+                        }
+                    }
+                });
             }
-            return deletedCount;
         }
 
         private void ensureSorted() throws IOException {
@@ -1031,6 +1165,111 @@ public class VersionGarbageCollector {
         }
     };
 
+    /**
+     * A batch of modifications performed by {@link DeletionWorkers}.
+     */
+    private interface Modification {
+
+        void run() throws IOException;
+    }
+
+    /**
+     * Performs the batched modifications of a garbage collection run. With a
+     * single thread, modifications are performed immediately on the calling
+     * thread. Otherwise they are handed over to a pool of worker threads,
+     * which allows the caller to continue with the scan for candidates while
+     * the workers remove documents. The number of pending modifications is
+     * bounded to twice the number of workers.
+     * <p>
+     * Methods of this class must only be called by the thread running the
+     * garbage collection.
+     */
+    private static final class DeletionWorkers implements Closeable {
+
+        private final ExecutorService executor;
+        private final Semaphore permits;
+        private final List<Future<?>> pending = Lists.newArrayList();
+
+        DeletionWorkers(int numThreads) {
+            if (numThreads > 1) {
+                this.executor = Executors.newFixedThreadPool(numThreads,
+                        new ThreadFactoryBuilder().setDaemon(true)
+                                .setNameFormat("oak-version-gc-%d").build());
+                this.permits = new Semaphore(numThreads * 2);
+            } else {
+                this.executor = null;
+                this.permits = null;
+            }
+        }
+
+        void execute(final Modification modification) throws IOException {
+            if (executor == null) {
+                modification.run();
+                return;
+            }
+            permits.acquireUninterruptibly();
+            boolean submitted = false;
+            try {
+                pending.add(executor.submit(DocumentStoreCaller.propagate(() -> {
+                    try {
+                        modification.run();
+                    } finally {
+                        permits.release();
+                    }
+                    return null;
+                })));
+                submitted = true;
+            } finally {
+                if (!submitted) {
+                    permits.release();
+                }
+            }
+            // check for failures early
+            checkPending(false);
+        }
+
+        void await() throws IOException {
+            checkPending(true);
+        }
+
+        @Override
+        public void close() {
+            if (executor != null) {
+                new ExecutorCloser(executor).close();
+            }
+        }
+
+        private void checkPending(boolean wait) throws IOException {
+            Iterator<Future<?>> it = pending.iterator();
+            while (it.hasNext()) {
+                Future<?> f = it.next();
+                if (wait || f.isDone()) {
+                    it.remove();
+                    get(f);
+                }
+            }
+        }
+
+        private static void get(Future<?> f) throws IOException {
+            try {
+                f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IOException(cause);
+            }
+        }
+    }
+
     /**
      * GCMessageTracker is a partial implementation of GCMonitor. We use it to
      * keep track of the last message issued by the GC job.
@@ -0,0 +1,337 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.jackrabbit.oak.plugins.document.bundlor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.apache.jackrabbit.JcrConstants;
+import org.apache.jackrabbit.oak.api.PropertyState;
+import org.apache.jackrabbit.oak.api.Type;
+import org.apache.jackrabbit.oak.spi.nodetype.NodeTypeConstants;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.apache.jackrabbit.oak.api.Type.STRINGS;
+import static org.apache.jackrabbit.oak.plugins.memory.PropertyStates.createProperty;
+
+/**
+ * Records how often documents of child nodes are accessed together with the
+ * document of their parent node and proposes bundling patterns based on these
+ * statistics. Accesses are aggregated by the primary type of the parent node.
+ * <p>
+ * A recommendation for a node type includes a child node name when the
+ * document of the child is accessed for at least a given ratio of the parent
+ * document accesses. Bundling such a child into the parent document saves
+ * one document read for every recorded child access.
+ * <p>
+ * Recording is disabled by default. The number of tracked node types and
+ * child names per node type is bounded.
+ */
+public class BundlingRecommender {
+
+    /**
+     * Default minimum ratio of child to parent document accesses for a
+     * child to be recommended for bundling.
+     */
+    public static final double DEFAULT_MIN_RATIO = 0.5;
+
+    /**
+     * Default minimum number of parent document accesses before a node type
+     * is considered for a recommendation.
+     */
+    public static final long DEFAULT_MIN_ACCESS_COUNT = 100;
+
+    static final int MAX_TYPES = 1000;
+
+    static final int MAX_CHILD_NAMES = 100;
+
+    private final ConcurrentMap<String, TypeStats> types = new ConcurrentHashMap<>();
+
+    private volatile boolean enabled;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Discards all recorded statistics.
+     */
+    public void reset() {
+        types.clear();
+    }
+
+    /**
+     * Records an access of the document for the given node. The document was
+     * read from the store or is written because the node was added.
+     *
+     * @param state the node state.
+     */
+    public void documentAccessed(@NotNull NodeState state) {
+        if (!enabled) {
+            return;
+        }
+        TypeStats stats = getTypeStats(state);
+        if (stats != null) {
+            stats.accessCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Records an access of the separate document of a child node of the
+     * given parent node.
+     *
+     * @param parent the parent node state.
+     * @param childName the name of the child node.
+     */
+    public void childDocumentAccessed(@NotNull NodeState parent,
+                                      @NotNull String childName) {
+        if (!enabled || childName.startsWith(":")) {
+            return;
+        }
+        TypeStats stats = getTypeStats(parent);
+        if (stats != null) {
+            stats.childAccessed(childName);
+        }
+    }
+
+    /**
+     * Returns recommendations based on the default thresholds
+     * {@link #DEFAULT_MIN_RATIO} and {@link #DEFAULT_MIN_ACCESS_COUNT}.
+     *
+     * @return the recommendations, ordered by estimated savings descending.
+     */
+    @NotNull
+    public List<Recommendation> getRecommendations() {
+        return getRecommendations(DEFAULT_MIN_RATIO, DEFAULT_MIN_ACCESS_COUNT);
+    }
+
+    /**
+     * Returns recommendations for node types with at least
+     * {@code minAccessCount} document accesses and child nodes whose
+     * documents are accessed for at least {@code minRatio} of the parent
+     * document accesses.
+     *
+     * @param minRatio the minimum ratio of child to parent document accesses.
+     * @param minAccessCount the minimum number of parent document accesses.
+     * @return the recommendations, ordered by estimated savings descending.
+     */
+    @NotNull
+    public List<Recommendation> getRecommendations(double minRatio,
+                                                   long minAccessCount) {
+        List<Recommendation> recommendations = Lists.newArrayList();
+        for (Map.Entry<String, TypeStats> e : types.entrySet()) {
+            TypeStats stats = e.getValue();
+            long accessCount = stats.accessCount.get();
+            if (accessCount == 0 || accessCount < minAccessCount) {
+                continue;
+            }
+            List<String> patterns = Lists.newArrayList();
+            long savedReads = 0;
+            for (Map.Entry<String, AtomicLong> child : stats.children.entrySet()) {
+                long count = child.getValue().get();
+                if ((double) count / accessCount >= minRatio) {
+                    patterns.add(child.getKey());
+                    savedReads += count;
+                }
+            }
+            if (!patterns.isEmpty()) {
+                Collections.sort(patterns);
+                recommendations.add(new Recommendation(
+                        e.getKey(), patterns, accessCount, savedReads));
+            }
+        }
+        recommendations.sort((r1, r2) -> Long.compare(r2.savedReads, r1.savedReads));
+        return recommendations;
+    }
+
+    /**
+     * Applies the given recommendation to the bundling configuration. The
+     * patterns of the recommendation are added to existing patterns of the
+     * node type. Only nodes added afterwards are bundled according to the
+     * new configuration.
+     *
+     * @param bundlorConfig the builder for the bundling configuration at
+     *          {@link BundlingConfigHandler#CONFIG_PATH}.
+     * @param recommendation the recommendation to apply.
+     */
+    public static void apply(@NotNull NodeBuilder bundlorConfig,
+                             @NotNull Recommendation recommendation) {
+        NodeBuilder type = bundlorConfig.child(recommendation.getNodeType());
+        if (!type.hasProperty(JcrConstants.JCR_PRIMARYTYPE)) {
+            type.setProperty(JcrConstants.JCR_PRIMARYTYPE,
+                    NodeTypeConstants.NT_OAK_UNSTRUCTURED, Type.NAME);
+        }
+        Set<String> patterns = mergePatterns(
+                type.getProperty(DocumentBundlor.PROP_PATTERN), recommendation);
+        type.setProperty(createProperty(DocumentBundlor.PROP_PATTERN, patterns, STRINGS));
+    }
+
+    /**
+     * Returns the bundling patterns of the node type in the given bundling
+     * configuration, with the patterns of the recommendation added. The
+     * configuration is not modified.
+     *
+     * @param bundlorConfig the bundling configuration at
+     *          {@link BundlingConfigHandler#CONFIG_PATH}.
+     * @param recommendation the recommendation.
+     * @return the patterns.
+     */
+    @NotNull
+    public static Set<String> getPatterns(@NotNull NodeState bundlorConfig,
+                                          @NotNull Recommendation recommendation) {
+        NodeState type = bundlorConfig.getChildNode(recommendation.getNodeType());
+        return mergePatterns(type.getProperty(DocumentBundlor.PROP_PATTERN), recommendation);
+    }
+
+    private static Set<String> mergePatterns(@Nullable PropertyState existing,
+                                             @NotNull Recommendation recommendation) {
+        Set<String> patterns = Sets.newLinkedHashSet();
+        if (existing != null) {
+            for (String p : existing.getValue(STRINGS)) {
+                patterns.add(p);
+            }
+        }
+        patterns.addAll(recommendation.getPatterns());
+        return patterns;
+    }
+
+    private TypeStats getTypeStats(NodeState state) {
+        String type = getTypeName(state);
+        if (type == null) {
+            return null;
+        }
+        TypeStats stats = types.get(type);
+        if (stats == null && types.size() < MAX_TYPES) {
+            stats = types.computeIfAbsent(type, t -> new TypeStats());
+        }
+        return stats;
+    }
+
+    private static String getTypeName(NodeState state) {
+        PropertyState ps = state.getProperty(JcrConstants.JCR_PRIMARYTYPE);
+        if (ps == null) {
+            return null;
+        }
+        String type = ps.getValue(Type.NAME);
+        if (JcrConstants.NT_FROZENNODE.equals(type)) {
+            // bundling config of versioned nodes is based on frozen type
+            ps = state.getProperty(JcrConstants.JCR_FROZENPRIMARYTYPE);
+            type = ps != null ? ps.getValue(Type.NAME) : null;
+        }
+        return type;
+    }
+
+    private static final class TypeStats {
+
+        final AtomicLong accessCount = new AtomicLong();
+
+        final ConcurrentMap<String, AtomicLong> children = new ConcurrentHashMap<>();
+
+        void childAccessed(String name) {
+            AtomicLong count = children.get(name);
+            if (count == null) {
+                if (children.size() >= MAX_CHILD_NAMES) {
+                    return;
+                }
+                count = children.computeIfAbsent(name, n -> new AtomicLong());
+            }
+            count.incrementAndGet();
+        }
+    }
+
+    /**
+     * A bundling recommendation for a node type.
+     */
+    public static final class Recommendation {
+
+        private final String nodeType;
+
+        private final List<String> patterns;
+
+        private final long accessCount;
+
+        private final long savedReads;
+
+        Recommendation(String nodeType,
+                       List<String> patterns,
+                       long accessCount,
+                       long savedReads) {
+            checkArgument(!patterns.isEmpty());
+            this.nodeType = nodeType;
+            this.patterns = Collections.unmodifiableList(new ArrayList<>(patterns));
+            this.accessCount = accessCount;
+            this.savedReads = savedReads;
+        }
+
+        /**
+         * @return the name of the node type.
+         */
+        @NotNull
+        public String getNodeType() {
+            return nodeType;
+        }
+
+        /**
+         * @return the recommended include patterns for the node type.
+         */
+        @NotNull
+        public List<String> getPatterns() {
+            return patterns;
+        }
+
+        /**
+         * @return the number of recorded document accesses for nodes of this
+         *          type.
+         */
+        public long getAccessCount() {
+            return accessCount;
+        }
+
+        /**
+         * @return the estimated number of document reads saved if the child
+         *          nodes had been bundled.
+         */
+        public long getSavedReads() {
+            return savedReads;
+        }
+
+        @Override
+        public String toString() {
+            return nodeType + " " + patterns + " (accesses: " + accessCount +
+                    ", estimated saved reads: " + savedReads + ")";
+        }
+    }
+}
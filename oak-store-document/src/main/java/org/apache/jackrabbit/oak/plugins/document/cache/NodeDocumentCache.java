@@ -66,17 +66,38 @@ public class NodeDocumentCache implements Closeable {
 
     private final List<CacheChangesTracker> changeTrackers;
 
+    /**
+     * Optional off-heap tier for documents evicted from the
+     * {@link #nodeDocumentsCache}. May be {@code null}.
+     */
+    private final OffHeapDocumentCache offHeapCache;
+
     public NodeDocumentCache(@NotNull Cache<CacheValue, NodeDocument> nodeDocumentsCache,
                              @NotNull CacheStats nodeDocumentsCacheStats,
                              @NotNull Cache<StringValue, NodeDocument> prevDocumentsCache,
                              @NotNull CacheStats prevDocumentsCacheStats,
                              @NotNull NodeDocumentLocks locks) {
+        this(nodeDocumentsCache, nodeDocumentsCacheStats, prevDocumentsCache,
+                prevDocumentsCacheStats, locks, null);
+    }
+
+    /**
+     * Creates a new cache with an off-heap tier. The off-heap tier must be
+     * registered as eviction listener of the {@code nodeDocumentsCache}.
+     */
+    public NodeDocumentCache(@NotNull Cache<CacheValue, NodeDocument> nodeDocumentsCache,
+                             @NotNull CacheStats nodeDocumentsCacheStats,
+                             @NotNull Cache<StringValue, NodeDocument> prevDocumentsCache,
+                             @NotNull CacheStats prevDocumentsCacheStats,
+                             @NotNull NodeDocumentLocks locks,
+                             @Nullable OffHeapDocumentCache offHeapCache) {
         this.nodeDocumentsCache = nodeDocumentsCache;
         this.nodeDocumentsCacheStats = nodeDocumentsCacheStats;
         this.prevDocumentsCache = prevDocumentsCache;
         this.prevDocumentsCacheStats = prevDocumentsCacheStats;
         this.locks = locks;
         this.changeTrackers = new CopyOnWriteArrayList<CacheChangesTracker>();
+        this.offHeapCache = offHeapCache;
     }
 
     /**
@@ -91,6 +112,9 @@ public class NodeDocumentCache implements Closeable {
                 prevDocumentsCache.invalidate(new StringValue(key));
             } else {
                 nodeDocumentsCache.invalidate(new StringValue(key));
+                if (offHeapCache != null) {
+                    offHeapCache.invalidate(key);
+                }
             }
 
             internalMarkChanged(key);
@@ -126,12 +150,24 @@ public class NodeDocumentCache implements Closeable {
         for (Entry<String, ModificationStamp> e : modStamps.entrySet()) {
             String id = e.getKey();
             ModificationStamp stamp = e.getValue();
-            NodeDocument doc = getIfPresent(id);
-            if (doc == null) {
-                continue;
+            Long modCount;
+            Long modified;
+            NodeDocument doc = getIfPresentOnHeap(id);
+            if (doc != null) {
+                modCount = doc.getModCount();
+                modified = doc.getModified();
+            } else {
+                // check off-heap tier without deserializing the document
+                ModificationStamp cached = offHeapCache != null ?
+                        offHeapCache.getModificationStamp(id) : null;
+                if (cached == null) {
+                    continue;
+                }
+                modCount = cached.modCount;
+                modified = cached.modified;
             }
-            if (!Objects.equal(stamp.modCount, doc.getModCount())
-                    || !Objects.equal(stamp.modified, doc.getModified())) {
+            if (!Objects.equal(stamp.modCount, modCount)
+                    || !Objects.equal(stamp.modified, modified)) {
                 invalidate(id);
                 invalidatedCount++;
             }
@@ -147,11 +183,16 @@ public class NodeDocumentCache implements Closeable {
      */
     @Nullable
     public NodeDocument getIfPresent(@NotNull String key) {
-        if (isLeafPreviousDocId(key)) {
-            return prevDocumentsCache.getIfPresent(new StringValue(key));
-        } else {
-            return nodeDocumentsCache.getIfPresent(new StringValue(key));
+        NodeDocument doc = getIfPresentOnHeap(key);
+        if (doc == null && offHeapCache != null && !isLeafPreviousDocId(key)) {
+            // probe the off-heap tier without the lock. the lock is
+            // only needed to move the document to the on-heap cache
+            doc = offHeapCache.get(key);
+            if (doc != null) {
+                tryPromote(key, doc);
+            }
         }
+        return doc;
     }
 
     /**
@@ -184,6 +225,13 @@ public class NodeDocumentCache implements Closeable {
             if (isLeafPreviousDocId(key)) {
                 return prevDocumentsCache.get(new StringValue(key), wrappedLoader);
             } else {
+                if (offHeapCache != null
+                        && getIfPresentOnHeap(key) == null) {
+                    NodeDocument doc = promote(key);
+                    if (doc != null) {
+                        return doc;
+                    }
+                }
                 return nodeDocumentsCache.get(new StringValue(key), wrappedLoader);
             }
         } finally {
@@ -321,14 +369,20 @@ public class NodeDocumentCache implements Closeable {
     }
 
     /**
-     * @return keys stored in cache
+     * @return keys stored in cache, including the keys of documents in the
+     *          off-heap tier.
      */
     public Iterable<CacheValue> keys() {
-        return Iterables.concat(nodeDocumentsCache.asMap().keySet(), prevDocumentsCache.asMap().keySet());
+        Iterable<CacheValue> keys = Iterables.concat(nodeDocumentsCache.asMap().keySet(), prevDocumentsCache.asMap().keySet());
+        if (offHeapCache != null) {
+            keys = Iterables.concat(keys, Iterables.transform(offHeapCache.keys(), StringValue::new));
+        }
+        return keys;
     }
 
     /**
-     * @return values stored in cache
+     * @return values stored in the on-heap cache. Documents in the off-heap
+     *          tier are not included.
      */
     public Iterable<NodeDocument> values() {
         return Iterables.concat(nodeDocumentsCache.asMap().values(), prevDocumentsCache.asMap().values());
@@ -338,8 +392,19 @@ public class NodeDocumentCache implements Closeable {
         return Lists.newArrayList(nodeDocumentsCacheStats, prevDocumentsCacheStats);
     }
 
+    /**
+     * @return the off-heap tier or {@code null} if there is none.
+     */
+    @Nullable
+    public OffHeapDocumentCache getOffHeapCache() {
+        return offHeapCache;
+    }
+
     @Override
     public void close() throws IOException {
+        if (offHeapCache != null) {
+            offHeapCache.close();
+        }
         if (prevDocumentsCache instanceof Closeable) {
             ((Closeable) prevDocumentsCache).close();
         }
@@ -454,6 +519,61 @@ public class NodeDocumentCache implements Closeable {
 
     //----------------------------< internal >----------------------------------
 
+    @Nullable
+    private NodeDocument getIfPresentOnHeap(@NotNull String key) {
+        if (isLeafPreviousDocId(key)) {
+            return prevDocumentsCache.getIfPresent(new StringValue(key));
+        } else {
+            return nodeDocumentsCache.getIfPresent(new StringValue(key));
+        }
+    }
+
+    /**
+     * Moves a document from the off-heap tier to the on-heap cache. All
+     * trackers are updated as if the document was loaded. The caller must
+     * hold the lock for the given key.
+     *
+     * @param key the document key.
+     * @return the document or {@code null} if not present in the off-heap
+     *          tier.
+     */
+    @Nullable
+    private NodeDocument promote(@NotNull String key) {
+        NodeDocument doc = offHeapCache.get(key);
+        if (doc != null) {
+            putInternal(doc);
+        }
+        return doc;
+    }
+
+    /**
+     * Moves a document read from the off-heap tier to the on-heap cache, if
+     * the lock for the key is available right away and the off-heap entry
+     * did not change in the meantime. Otherwise the document stays in the
+     * off-heap tier. The lock is not awaited, because the caller may hold
+     * the lock of another key.
+     *
+     * @param key the document key.
+     * @param doc the document read from the off-heap tier.
+     */
+    private void tryPromote(@NotNull String key, @NotNull NodeDocument doc) {
+        Lock lock = locks.tryAcquire(key);
+        if (lock == null) {
+            return;
+        }
+        try {
+            ModificationStamp stamp = offHeapCache.getModificationStamp(key);
+            if (stamp != null
+                    && Objects.equal(stamp.modCount, doc.getModCount())
+                    && Objects.equal(stamp.modified, doc.getModified())
+                    && getIfPresentOnHeap(key) == null) {
+                putInternal(doc);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * Marks the document as potentially changed.
      * 
@@ -487,6 +607,9 @@ public class NodeDocumentCache implements Closeable {
         if (isLeafPreviousDocId(doc.getId())) {
             prevDocumentsCache.put(new StringValue(doc.getId()), doc);
         } else {
+            if (offHeapCache != null) {
+                offHeapCache.remove(doc.getId());
+            }
             nodeDocumentsCache.put(new StringValue(doc.getId()), doc);
         }
         for (CacheChangesTracker tracker : changeTrackers) {
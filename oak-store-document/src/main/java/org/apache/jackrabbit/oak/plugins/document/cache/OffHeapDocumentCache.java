@@ -0,0 +1,424 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document.cache;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+import com.google.common.cache.RemovalCause;
+import com.google.common.collect.ImmutableSet;
+import org.apache.jackrabbit.oak.cache.CacheValue;
+import org.apache.jackrabbit.oak.plugins.document.DocumentStore;
+import org.apache.jackrabbit.oak.plugins.document.NodeDocument;
+import org.apache.jackrabbit.oak.plugins.document.Revision;
+import org.apache.jackrabbit.oak.plugins.document.persistentCache.EvictionListener;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * An off-heap tier for documents evicted from the on-heap document cache.
+ * Documents are stored serialized in direct memory slabs together with their
+ * {@link ModificationStamp}. Slabs are filled in a round robin fashion and
+ * all entries of a slab are evicted when the slab is reused.
+ * <p>
+ * The tier only receives documents evicted from the on-heap cache. A document
+ * is rejected when a document with a key in the same lock stripe was
+ * invalidated after the document had been read from the store. This ensures
+ * an invalidation that happens concurrently with the eviction of a document
+ * does not leave an outdated document in this tier.
+ * <p>
+ * This class is thread-safe. Reads do not acquire a lock unless they race
+ * with the reuse of a slab.
+ */
+public class OffHeapDocumentCache
+        implements EvictionListener<CacheValue, NodeDocument>, Closeable {
+
+    /**
+     * The maximum size of a single slab.
+     */
+    static final int MAX_SLAB_SIZE = 1024 * 1024 * 1024;
+
+    /**
+     * The minimum number of slabs.
+     */
+    static final int MIN_SLABS = 16;
+
+    private static final int NUM_STRIPES = 4096;
+
+    private static final Set<RemovalCause> EVICTION_CAUSES = ImmutableSet.of(
+            RemovalCause.COLLECTED, RemovalCause.EXPIRED, RemovalCause.SIZE);
+
+    private final DocumentStore store;
+
+    private final int slabSize;
+
+    private final ByteBuffer[] slabs;
+
+    private final StampedLock[] slabLocks;
+
+    /**
+     * The generation of each slab. Incremented while holding the write lock
+     * of the slab when it is reused.
+     */
+    private final int[] generations;
+
+    /**
+     * The keys written to each slab. Guarded by this.
+     */
+    private final List<List<String>> slabKeys;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * The time of the most recent invalidation per stripe of keys.
+     */
+    private final AtomicLongArray invalidated = new AtomicLongArray(NUM_STRIPES);
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder putCount = new LongAdder();
+
+    private final LongAdder rejectCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    // guarded by this
+    private int currentSlab;
+
+    // guarded by this
+    private int writePosition;
+
+    private volatile boolean closed;
+
+    /**
+     * Creates a new off-heap tier with the given capacity in bytes. The
+     * direct memory of a slab is only allocated when it is used the first
+     * time.
+     *
+     * @param store the store the cached documents belong to.
+     * @param maxSize the maximum number of bytes to use.
+     */
+    public OffHeapDocumentCache(@NotNull DocumentStore store, long maxSize) {
+        checkArgument(maxSize >= MIN_SLABS, "maxSize too small: %s", maxSize);
+        int numSlabs = (int) Math.max(MIN_SLABS, (maxSize - 1) / MAX_SLAB_SIZE + 1);
+        this.store = store;
+        this.slabSize = (int) (maxSize / numSlabs);
+        this.slabs = new ByteBuffer[numSlabs];
+        this.slabLocks = new StampedLock[numSlabs];
+        this.generations = new int[numSlabs];
+        this.slabKeys = new ArrayList<>(numSlabs);
+        for (int i = 0; i < numSlabs; i++) {
+            slabLocks[i] = new StampedLock();
+            slabKeys.add(new ArrayList<>());
+        }
+        // first put moves to slab zero
+        this.currentSlab = numSlabs - 1;
+        this.writePosition = slabSize;
+    }
+
+    /**
+     * Returns the document with the given key or {@code null} if this tier
+     * does not contain the document.
+     *
+     * @param key the document key.
+     * @return the document or {@code null}.
+     */
+    @Nullable
+    public NodeDocument get(@NotNull String key) {
+        Entry e = entries.get(key);
+        byte[] data = e != null ? read(e) : null;
+        if (data == null) {
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        return NodeDocument.fromString(store, new String(data, UTF_8), e.created);
+    }
+
+    /**
+     * Returns the modification stamp of the document with the given key
+     * without deserializing the document.
+     *
+     * @param key the document key.
+     * @return the modification stamp or {@code null} if this tier does not
+     *          contain the document.
+     */
+    @Nullable
+    public ModificationStamp getModificationStamp(@NotNull String key) {
+        Entry e = entries.get(key);
+        return e != null ? e.stamp : null;
+    }
+
+    /**
+     * @return the keys of the documents in this tier.
+     */
+    @NotNull
+    public Iterable<String> keys() {
+        return entries.keySet();
+    }
+
+    /**
+     * Adds a document evicted from the on-heap cache. The document replaces
+     * an entry with the same key, if there is any. The document is rejected
+     * when it does not have a modification stamp, it is too big for a slab,
+     * or a key in the same stripe was invalidated after the document had been
+     * created.
+     *
+     * @param doc the document.
+     * @return {@code true} if the document was added, {@code false} if it
+     *          was rejected.
+     */
+    public boolean put(@NotNull NodeDocument doc) {
+        String id = doc.getId();
+        Long modCount = doc.getModCount();
+        Long modified = doc.getModified();
+        if (id == null || modCount == null || modified == null) {
+            rejectCount.increment();
+            return false;
+        }
+        byte[] data = doc.asString().getBytes(UTF_8);
+        synchronized (this) {
+            if (closed || data.length > slabSize
+                    || invalidated.get(stripe(id)) >= doc.getCreated()) {
+                // must not keep a potentially older entry
+                entries.remove(id);
+                rejectCount.increment();
+                return false;
+            }
+            if (writePosition + data.length > slabSize) {
+                nextSlab();
+            }
+            ByteBuffer buffer = slabs[currentSlab].duplicate();
+            buffer.position(writePosition);
+            buffer.put(data);
+            entries.put(id, new Entry(currentSlab, generations[currentSlab],
+                    writePosition, data.length, doc.getCreated(),
+                    new ModificationStamp(modCount, modified)));
+            slabKeys.get(currentSlab).add(id);
+            writePosition += data.length;
+        }
+        putCount.increment();
+        return true;
+    }
+
+    /**
+     * Removes the document with the given key from this tier because a
+     * document with this key was put into the on-heap cache.
+     *
+     * @param key the document key.
+     */
+    public void remove(@NotNull String key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Invalidates the document with the given key. This also prevents a
+     * concurrent eviction of the document from adding it to this tier.
+     *
+     * @param key the document key.
+     */
+    public void invalidate(@NotNull String key) {
+        long now = Revision.getCurrentTimestamp();
+        synchronized (this) {
+            invalidated.accumulateAndGet(stripe(key), now, Math::max);
+            entries.remove(key);
+        }
+    }
+
+    @Override
+    public void evicted(CacheValue key, NodeDocument value, RemovalCause cause) {
+        if (EVICTION_CAUSES.contains(cause)
+                && value != null && value != NodeDocument.NULL) {
+            put(value);
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            entries.clear();
+            for (int i = 0; i < slabs.length; i++) {
+                long stamp = slabLocks[i].writeLock();
+                try {
+                    generations[i]++;
+                    slabs[i] = null;
+                } finally {
+                    slabLocks[i].unlockWrite(stamp);
+                }
+                slabKeys.get(i).clear();
+            }
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getPutCount() {
+        return putCount.sum();
+    }
+
+    public long getRejectCount() {
+        return rejectCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public long getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * @return the capacity of this tier in bytes.
+     */
+    public long getMaxSize() {
+        return (long) slabs.length * slabSize;
+    }
+
+    /**
+     * @return the number of bytes used by the documents in this tier.
+     */
+    public long getUsedSize() {
+        long size = 0;
+        for (Entry e : entries.values()) {
+            size += e.length;
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "OffHeapDocumentCache[slabs=" + slabs.length +
+                ", slabSize=" + slabSize + ", entries=" + getEntryCount() +
+                ", hits=" + getHitCount() + ", misses=" + getMissCount() +
+                ", puts=" + getPutCount() + ", rejected=" + getRejectCount() +
+                ", evicted=" + getEvictionCount() + "]";
+    }
+
+    //----------------------------< internal >----------------------------------
+
+    private byte[] read(Entry e) {
+        StampedLock lock = slabLocks[e.slab];
+        long stamp = lock.tryOptimisticRead();
+        byte[] data = copy(e);
+        if (!lock.validate(stamp)) {
+            // slab was reused concurrently
+            stamp = lock.readLock();
+            try {
+                data = copy(e);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return data;
+    }
+
+    private byte[] copy(Entry e) {
+        ByteBuffer slab = slabs[e.slab];
+        if (slab == null || generations[e.slab] != e.generation) {
+            return null;
+        }
+        byte[] data = new byte[e.length];
+        ByteBuffer buffer = slab.duplicate();
+        buffer.position(e.offset);
+        buffer.get(data);
+        return data;
+    }
+
+    /**
+     * Moves to the next slab and evicts all entries of that slab. Must be
+     * called while holding the monitor of this object.
+     */
+    private void nextSlab() {
+        int slab = (currentSlab + 1) % slabs.length;
+        if (slabs[slab] == null) {
+            slabs[slab] = ByteBuffer.allocateDirect(slabSize);
+        } else {
+            int generation;
+            long stamp = slabLocks[slab].writeLock();
+            try {
+                generation = generations[slab]++;
+            } finally {
+                slabLocks[slab].unlockWrite(stamp);
+            }
+            List<String> keys = slabKeys.get(slab);
+            for (String key : keys) {
+                Entry e = entries.get(key);
+                if (e != null && e.slab == slab && e.generation == generation
+                        && entries.remove(key, e)) {
+                    evictionCount.increment();
+                }
+            }
+            keys.clear();
+        }
+        currentSlab = slab;
+        writePosition = 0;
+    }
+
+    private static int stripe(String key) {
+        return (key.hashCode() & Integer.MAX_VALUE) % NUM_STRIPES;
+    }
+
+    private static final class Entry {
+
+        final int slab;
+
+        final int generation;
+
+        final int offset;
+
+        final int length;
+
+        final long created;
+
+        final ModificationStamp stamp;
+
+        Entry(int slab,
+              int generation,
+              int offset,
+              int length,
+              long created,
+              ModificationStamp stamp) {
+            this.slab = slab;
+            this.generation = generation;
+            this.offset = offset;
+            this.length = length;
+            this.created = created;
+            this.stamp = stamp;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document.cache;
+
+import com.google.common.cache.CacheStats;
+
+import org.apache.jackrabbit.oak.cache.AbstractCacheStats;
+import org.jetbrains.annotations.NotNull;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Statistics for the {@link OffHeapDocumentCache}. Hits and misses are
+ * counted for lookups in the off-heap tier, that is, after a miss in the
+ * on-heap document cache.
+ */
+public class OffHeapDocumentCacheStats extends AbstractCacheStats {
+
+    private final OffHeapDocumentCache cache;
+
+    public OffHeapDocumentCacheStats(@NotNull OffHeapDocumentCache cache) {
+        super("Document-OffHeapDocuments");
+        this.cache = checkNotNull(cache);
+    }
+
+    @Override
+    protected CacheStats getCurrentStats() {
+        return new CacheStats(cache.getHitCount(), cache.getMissCount(),
+                0, 0, 0, cache.getEvictionCount());
+    }
+
+    @Override
+    public long getElementCount() {
+        return cache.getEntryCount();
+    }
+
+    @Override
+    public long getMaxTotalWeight() {
+        return cache.getMaxSize();
+    }
+
+    @Override
+    public long estimateCurrentWeight() {
+        return cache.getUsedSize();
+    }
+}
@@ -18,6 +18,8 @@ package org.apache.jackrabbit.oak.plugins.document.locks;
 
 import java.util.concurrent.locks.Lock;
 
+import org.jetbrains.annotations.Nullable;
+
 public interface NodeDocumentLocks {
 
     /**
@@ -28,4 +30,17 @@ public interface NodeDocumentLocks {
      */
     Lock acquire(String key);
 
+    /**
+     * Acquires the lock for the given key only if it is available at the
+     * time of invocation. The default implementation waits for the lock.
+     *
+     * @param key a key.
+     * @return the acquired lock for the given key or {@code null} if the
+     *          lock is held by another thread.
+     */
+    @Nullable
+    default Lock tryAcquire(String key) {
+        return acquire(key);
+    }
+
 }
@@ -40,4 +40,10 @@ public class StripedNodeDocumentLocks implements NodeDocumentLocks {
         return lock;
     }
 
+    @Override
+    public Lock tryAcquire(String key) {
+        Lock lock = ROOT.equals(key) ? rootLock : locks.get(key);
+        return lock.tryLock() ? lock : null;
+    }
+
 }
@@ -18,10 +18,13 @@ package org.apache.jackrabbit.oak.plugins.document.memory;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -32,16 +35,20 @@ import com.google.common.collect.Maps;
 import org.apache.jackrabbit.oak.cache.CacheStats;
 import org.apache.jackrabbit.oak.plugins.document.Collection;
 import org.apache.jackrabbit.oak.plugins.document.Document;
+import org.apache.jackrabbit.oak.plugins.document.DocumentChangeFeed;
 import org.apache.jackrabbit.oak.plugins.document.DocumentStore;
 import org.apache.jackrabbit.oak.plugins.document.DocumentStoreException;
 import org.apache.jackrabbit.oak.plugins.document.JournalEntry;
 import org.apache.jackrabbit.oak.plugins.document.NodeDocument;
+import org.apache.jackrabbit.oak.plugins.document.Revision;
 import org.apache.jackrabbit.oak.plugins.document.UpdateOp;
 import org.apache.jackrabbit.oak.plugins.document.UpdateOp.Condition;
 import org.apache.jackrabbit.oak.plugins.document.UpdateOp.Key;
 import org.apache.jackrabbit.oak.plugins.document.UpdateUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Splitter;
 import com.mongodb.ReadPreference;
@@ -60,6 +67,8 @@ import static org.apache.jackrabbit.oak.plugins.document.UpdateUtils.checkCondit
  */
 public class MemoryDocumentStore implements DocumentStore {
 
+    private static final Logger LOG = LoggerFactory.getLogger(MemoryDocumentStore.class);
+
     /**
      * The 'nodes' collection.
      */
@@ -96,6 +105,8 @@ public class MemoryDocumentStore implements DocumentStore {
 
     private final boolean maintainModCount;
 
+    private final List<DocumentChangeFeed.Listener> changeListeners = new CopyOnWriteArrayList<>();
+
     private static final Key KEY_MODIFIED = new Key(MODIFIED_IN_SECS, null);
 
     public MemoryDocumentStore() {
@@ -182,7 +193,9 @@ public class MemoryDocumentStore implements DocumentStore {
         Lock lock = rwLock.writeLock();
         lock.lock();
         try {
-            getMap(collection).remove(key);
+            if (getMap(collection).remove(key) != null) {
+                notifyRemoved(collection, key);
+            }
         } finally {
             lock.unlock();
         }
@@ -207,6 +220,7 @@ public class MemoryDocumentStore implements DocumentStore {
                 Condition c = newEqualsCondition(entry.getValue());
                 if (doc != null && checkConditions(doc, Collections.singletonMap(KEY_MODIFIED, c))) {
                     if (map.remove(entry.getKey()) != null) {
+                        notifyRemoved(collection, entry.getKey());
                         num++;
                     }
                 }
@@ -222,23 +236,27 @@ public class MemoryDocumentStore implements DocumentStore {
                                     final String indexedProperty, final long startValue, final long endValue)
             throws DocumentStoreException {
         ConcurrentSkipListMap<String, T> map = getMap(collection);
-        int num = map.size();
+        int num = 0;
 
         Lock lock = rwLock.writeLock();
         lock.lock();
         try {
-            Maps.filterValues(map, new Predicate<T>() {
+            Map<String, T> removed = Maps.filterValues(map, new Predicate<T>() {
                 @Override
                 public boolean apply(@Nullable T doc) {
                     Long modified = Utils.asLong((Number) doc.get(indexedProperty));
                     return startValue < modified && modified < endValue;
                 }
-            }).clear();
+            });
+            for (String id : new ArrayList<String>(removed.keySet())) {
+                if (map.remove(id) != null) {
+                    notifyRemoved(collection, id);
+                    num++;
+                }
+            }
         } finally {
             lock.unlock();
         }
-
-        num -= map.size();
         return num;
     }
 
@@ -340,10 +358,40 @@ public class MemoryDocumentStore implements DocumentStore {
             maintainModCount(doc);
             doc.seal();
             map.put(update.getId(), doc);
-            return oldDoc;
         } finally {
             lock.unlock();
         }
+        notifyModified(collection, update);
+        return oldDoc;
+    }
+
+    private void notifyModified(Collection<?> collection, UpdateOp update) {
+        if (changeListeners.isEmpty()) {
+            return;
+        }
+        Set<Revision> revisions = new HashSet<>();
+        for (Key k : update.getChanges().keySet()) {
+            if (k.getRevision() != null) {
+                revisions.add(k.getRevision());
+            }
+        }
+        for (DocumentChangeFeed.Listener l : changeListeners) {
+            try {
+                l.modified(collection, update.getId(), revisions);
+            } catch (RuntimeException e) {
+                LOG.warn("Change listener failed", e);
+            }
+        }
+    }
+
+    private void notifyRemoved(Collection<?> collection, String id) {
+        for (DocumentChangeFeed.Listener l : changeListeners) {
+            try {
+                l.removed(collection, id);
+            } catch (RuntimeException e) {
+                LOG.warn("Change listener failed", e);
+            }
+        }
     }
 
     @Override
@@ -464,6 +512,15 @@ public class MemoryDocumentStore implements DocumentStore {
                 .build();
     }
 
+    @NotNull
+    @Override
+    public DocumentChangeFeed getChangeFeed() {
+        return listener -> {
+            changeListeners.add(listener);
+            return () -> changeListeners.remove(listener);
+        };
+    }
+
     @Override
     public long determineServerTimeDifferenceMillis() {
         // the MemoryDocumentStore has no delays, thus return 0
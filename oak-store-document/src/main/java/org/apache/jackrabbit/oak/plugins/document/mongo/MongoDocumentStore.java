@@ -25,6 +25,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -96,6 +97,7 @@ import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.ReturnDocument;
 import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.UpdateOptions;
@@ -103,6 +105,7 @@ import com.mongodb.client.model.WriteModel;
 import com.mongodb.client.result.DeleteResult;
 import com.mongodb.client.result.UpdateResult;
 
+import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Predicates.in;
 import static com.google.common.base.Predicates.not;
 import static com.google.common.collect.Iterables.filter;
@@ -629,7 +632,20 @@ public class MongoDocumentStore implements DocumentStore {
                                               long startValue,
                                               int limit) {
         return queryWithRetry(collection, fromKey, toKey, indexedProperty,
-                startValue, limit, maxQueryTimeMS);
+                startValue, limit, maxQueryTimeMS, null);
+    }
+
+    @NotNull
+    @Override
+    public <T extends Document> List<T> query(Collection<T> collection,
+                                              String fromKey,
+                                              String toKey,
+                                              String indexedProperty,
+                                              long startValue,
+                                              int limit,
+                                              @NotNull List<String> projection) {
+        return queryWithRetry(collection, fromKey, toKey, indexedProperty,
+                startValue, limit, maxQueryTimeMS, checkNotNull(projection));
     }
 
     /**
@@ -643,7 +659,8 @@ public class MongoDocumentStore implements DocumentStore {
                                                         String indexedProperty,
                                                         long startValue,
                                                         int limit,
-                                                        long maxQueryTime) {
+                                                        long maxQueryTime,
+                                                        @Nullable List<String> projection) {
         int numAttempts = queryRetries + 1;
         MongoException ex = null;
         for (int i = 0; i < numAttempts; i++) {
@@ -651,8 +668,12 @@ public class MongoDocumentStore implements DocumentStore {
                 LOG.warn("Retrying query, fromKey={}, toKey={}", fromKey, toKey);
             }
             try {
+                if (projection == null) {
+                    return queryInternal(collection, fromKey, toKey,
+                            indexedProperty, startValue, limit, maxQueryTime);
+                }
                 return queryInternal(collection, fromKey, toKey,
-                        indexedProperty, startValue, limit, maxQueryTime);
+                        indexedProperty, startValue, limit, maxQueryTime, projection);
             } catch (MongoException e) {
                 ex = e;
             }
@@ -674,7 +695,26 @@ public class MongoDocumentStore implements DocumentStore {
                                                          long startValue,
                                                          int limit,
                                                          long maxQueryTime) {
-        log("query", fromKey, toKey, indexedProperty, startValue, limit);
+        return queryInternal(collection, fromKey, toKey, indexedProperty,
+                startValue, limit, maxQueryTime, null);
+    }
+
+    /**
+     * Queries for documents. Only the fields in the projection are returned
+     * if a projection is given. Documents with projected fields are not
+     * put into the cache.
+     */
+    @SuppressWarnings("unchecked")
+    @NotNull
+    protected <T extends Document> List<T> queryInternal(Collection<T> collection,
+                                                         String fromKey,
+                                                         String toKey,
+                                                         String indexedProperty,
+                                                         long startValue,
+                                                         int limit,
+                                                         long maxQueryTime,
+                                                         @Nullable List<String> projection) {
+        log("query", fromKey, toKey, indexedProperty, startValue, limit, projection);
 
         List<Bson> clauses = new ArrayList<>();
         clauses.add(Filters.gt(Document.ID, fromKey));
@@ -708,7 +748,7 @@ public class MongoDocumentStore implements DocumentStore {
         boolean isSlaveOk = false;
         int resultSize = 0;
         CacheChangesTracker cacheChangesTracker = null;
-        if (parentId != null && collection == Collection.NODES) {
+        if (parentId != null && collection == Collection.NODES && projection == null) {
             cacheChangesTracker = nodesCache.registerTracker(fromKey, toKey);
         }
         try {
@@ -733,6 +773,11 @@ public class MongoDocumentStore implements DocumentStore {
                 if (limit >= 0) {
                     result.limit(limit);
                 }
+                if (projection != null) {
+                    List<String> fields = new ArrayList<>(projection);
+                    fields.add(Document.ID);
+                    result.projection(Projections.include(fields));
+                }
                 if (!disableIndexHint && !hasModifiedIdCompoundIndex) {
                     result.hint(hint);
                 }
@@ -1248,6 +1293,60 @@ public class MongoDocumentStore implements DocumentStore {
         return docs;
     }
 
+    @Override
+    public <T extends Document> void prefetch(Collection<T> collection,
+                                              Iterable<String> keys) {
+        if (collection != Collection.NODES) {
+            return;
+        }
+        Set<String> missing = new LinkedHashSet<>();
+        for (String key : keys) {
+            if (nodesCache.getIfPresent(key) == null) {
+                missing.add(key);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        log("prefetch", missing);
+        MongoCollection<BasicDBObject> dbCollection;
+        if (secondariesWithinAcceptableLag()) {
+            dbCollection = getDBCollection(collection);
+        } else {
+            lagTooHigh();
+            dbCollection = getDBCollection(collection).withReadPreference(ReadPreference.primary());
+        }
+        Stopwatch watch = startWatch();
+        int resultSize = 0;
+        CacheChangesTracker tracker = nodesCache.registerTracker(missing);
+        try {
+            for (List<String> keyBatch : Lists.partition(new ArrayList<>(missing), IN_CLAUSE_BATCH_SIZE)) {
+                Bson query = Filters.in(Document.ID, keyBatch);
+                List<NodeDocument> docs = new ArrayList<>(keyBatch.size());
+                execute(session -> {
+                    FindIterable<BasicDBObject> cursor;
+                    if (session != null) {
+                        cursor = dbCollection.find(session, query);
+                    } else {
+                        cursor = dbCollection.find(query);
+                    }
+                    for (BasicDBObject doc : cursor) {
+                        docs.add(convertFromDBObject(Collection.NODES, doc));
+                    }
+                    return null;
+                }, collection);
+                resultSize += docs.size();
+                nodesCache.putNonConflictingDocs(tracker, docs);
+            }
+        } catch (Exception e) {
+            throw handleException(e, collection, missing);
+        } finally {
+            tracker.close();
+            stats.doneQuery(watch.elapsed(TimeUnit.NANOSECONDS), collection, null, null,
+                    false, resultSize, -1, false);
+        }
+    }
+
     private <T extends Document> BulkUpdateResult sendBulkUpdate(Collection<T> collection,
             java.util.Collection<UpdateOp> updateOps, Map<String, T> oldDocs) {
         MongoCollection<BasicDBObject> dbCollection = getDBCollection(collection);
@@ -67,6 +67,7 @@ import com.mongodb.Block;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
 
 /**
  * Mongo specific version of VersionGCSupport which uses mongo queries
@@ -79,6 +80,13 @@ public class MongoVersionGCSupport extends VersionGCSupport {
 
     private static final Logger LOG = LoggerFactory.getLogger(MongoVersionGCSupport.class);
 
+    /**
+     * The fields of split documents needed to disconnect them from their
+     * main document.
+     */
+    private static final Bson GARBAGE_PROJECTION = Projections.include(
+            ID, PATH, SD_TYPE, SD_MAX_REV_TIME_IN_SECS);
+
     private final MongoDocumentStore store;
 
     private final BasicDBObject hint;
@@ -138,15 +146,23 @@ public class MongoVersionGCSupport extends VersionGCSupport {
         List<Bson> queries = createQueries(gcTypes, sweepRevs, oldestRevTimeStamp);
 
         Iterable<NodeDocument> allResults = emptyList();
-        for (Bson query : queries) {
+        for (int i = 0; i < queries.size(); i++) {
+            Bson query = queries.get(i);
             // this query uses a timeout of 15min. hitting the timeout will
             // result in an exception which should show up in the log file.
             // while this doesn't resolve the situation (the restructuring
             // of the query as part of OAK-8351 does), it nevertheless 
             // makes any future similar problem more visible than long running
             // queries alone (15min is still long).
-            Iterable<NodeDocument> iterable = filter(transform(getNodeCollection().find(query)
-                    .maxTime(15, TimeUnit.MINUTES).hint(hint),
+            FindIterable<BasicDBObject> cursor = getNodeCollection().find(query)
+                    .maxTime(15, TimeUnit.MINUTES).hint(hint);
+            if (i == queries.size() - 1) {
+                // the last query is for split types other than
+                // DEFAULT_NO_BRANCH, which are removed without looking at
+                // their revisions: only read what the clean up needs
+                cursor = cursor.projection(GARBAGE_PROJECTION);
+            }
+            Iterable<NodeDocument> iterable = filter(transform(cursor,
                     new Function<BasicDBObject, NodeDocument>() {
                 @Override
                 public NodeDocument apply(BasicDBObject input) {
@@ -169,7 +185,8 @@ public class MongoVersionGCSupport extends VersionGCSupport {
         Bson query = Filters.eq(DELETED_ONCE, Boolean.TRUE);
         Bson sort = Filters.eq(MODIFIED_IN_SECS, 1);
         List<Long> result = new ArrayList<>(1);
-        getNodeCollection().find(query).sort(sort).limit(1).forEach(
+        getNodeCollection().find(query).sort(sort).limit(1)
+                .projection(Projections.include(ID, MODIFIED_IN_SECS)).forEach(
                 new Block<BasicDBObject>() {
             @Override
             public void apply(BasicDBObject document) {
@@ -18,6 +18,7 @@ package org.apache.jackrabbit.oak.plugins.document.persistentCache;
 
 import java.nio.ByteBuffer;
 
+import org.apache.jackrabbit.oak.plugins.document.CompressedDiffCache;
 import org.apache.jackrabbit.oak.plugins.document.LocalDiffCache;
 import org.apache.jackrabbit.oak.plugins.document.DocumentNodeState;
 import org.apache.jackrabbit.oak.plugins.document.DocumentNodeStore;
@@ -30,6 +31,7 @@ import org.apache.jackrabbit.oak.plugins.document.PathRev;
 import org.apache.jackrabbit.oak.plugins.document.RevisionVector;
 import org.apache.jackrabbit.oak.plugins.document.util.RevisionsKey;
 import org.apache.jackrabbit.oak.plugins.document.util.StringValue;
+import org.h2.mvstore.DataUtils;
 import org.h2.mvstore.WriteBuffer;
 import org.h2.mvstore.type.StringDataType;
 
@@ -274,6 +276,46 @@ public enum CacheType {
             return (V) LocalDiffCache.Diff.fromString(readString(buffer));
         }
 
+        @Override
+        public <K> boolean shouldCache(DocumentNodeStore store, K key) {
+            return true;
+        }
+    },
+
+    COMPRESSED_DIFF {
+
+        @Override
+        public <K> void writeKey(WriteBuffer buffer, K key) {
+            LOCAL_DIFF.writeKey(buffer, key);
+        }
+
+        @Override
+        public <K> K readKey(ByteBuffer buffer) {
+            return LOCAL_DIFF.readKey(buffer);
+        }
+
+        @Override
+        public <K> int compareKeys(K a, K b) {
+            return LOCAL_DIFF.compareKeys(a, b);
+        }
+
+        @Override
+        public <V> void writeValue(WriteBuffer buffer, V value) {
+            byte[] bytes = ((CompressedDiffCache.ChangeSet) value).asBytes();
+            buffer.putVarInt(bytes.length);
+            buffer.put(bytes);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <V> V readValue(DocumentNodeStore store,
+                               DocumentStore docStore,
+                               ByteBuffer buffer) {
+            byte[] bytes = new byte[DataUtils.readVarInt(buffer)];
+            buffer.get(bytes);
+            return (V) CompressedDiffCache.ChangeSet.fromBytes(bytes);
+        }
+
         @Override
         public <K> boolean shouldCache(DocumentNodeStore store, K key) {
             return true;
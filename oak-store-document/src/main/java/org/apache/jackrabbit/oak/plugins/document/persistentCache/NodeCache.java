@@ -38,6 +38,7 @@ import org.apache.jackrabbit.oak.plugins.document.DocumentStore;
 import org.apache.jackrabbit.oak.plugins.document.persistentCache.PersistentCache.GenerationCache;
 import org.apache.jackrabbit.oak.plugins.document.persistentCache.async.CacheActionDispatcher;
 import org.apache.jackrabbit.oak.plugins.document.persistentCache.async.CacheWriteQueue;
+import org.apache.jackrabbit.oak.plugins.document.persistentCache.broadcast.Broadcaster;
 import org.apache.jackrabbit.oak.stats.StatisticsProvider;
 import org.apache.jackrabbit.oak.stats.TimerStats;
 import org.h2.mvstore.MVMap;
@@ -71,6 +72,7 @@ class NodeCache<K extends CacheValue, V extends  CacheValue>
     private final CacheMetadata<K> memCacheMetadata;
     private final DocumentNodeStore nodeStore;
     private final boolean async;
+    private final Broadcaster.SendListener broadcastListener;
     CacheWriteQueue<K, V> writeQueue;
 
     NodeCache(
@@ -101,6 +103,17 @@ class NodeCache<K extends CacheValue, V extends  CacheValue>
             LOG.info("The persistent cache {} writes will be synchronous", type);
         }
         this.stats = new PersistentCacheStats(type, statisticsProvider);
+        this.broadcastListener = new Broadcaster.SendListener() {
+            @Override
+            public void sent() {
+                stats.markBroadcastSent();
+            }
+
+            @Override
+            public void dropped() {
+                stats.markBroadcastDropped();
+            }
+        };
     }
     
     @Override
@@ -175,7 +188,7 @@ class NodeCache<K extends CacheValue, V extends  CacheValue>
                 }
                 return null;
             }
-        });
+        }, broadcastListener);
     }
 
     private void write(final K key, final V value) {
@@ -29,6 +29,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.jackrabbit.oak.cache.CacheValue;
 import org.apache.jackrabbit.oak.plugins.document.DocumentNodeStore;
 import org.apache.jackrabbit.oak.plugins.document.DocumentStore;
+import org.apache.jackrabbit.oak.plugins.document.persistentCache.broadcast.BatchingBroadcaster;
 import org.apache.jackrabbit.oak.plugins.document.persistentCache.broadcast.DynamicBroadcastConfig;
 import org.apache.jackrabbit.oak.plugins.document.persistentCache.async.CacheActionDispatcher;
 import org.apache.jackrabbit.oak.plugins.document.persistentCache.broadcast.Broadcaster;
@@ -63,6 +64,7 @@ public class PersistentCache implements Broadcaster.Listener {
     private boolean cacheChildren = true;
     private boolean cacheDiff = true;
     private boolean cacheLocalDiff = true;
+    private boolean cacheCompressedDiff = true;
     private boolean cachePrevDocs = true;
     private boolean compactOnClose;
     private boolean compress = true;
@@ -118,6 +120,8 @@ public class PersistentCache implements Broadcaster.Listener {
                 cacheDiff = false;
             } else if (p.equals("-localDiff")) {
                 cacheLocalDiff = false;
+            } else if (p.equals("-compressedDiff")) {
+                cacheCompressedDiff = false;
             } else if (p.equals("+all")) {
                 logUnsupportedWarning("all");
             } else if (p.equals("-compact")) {
@@ -231,10 +235,10 @@ public class PersistentCache implements Broadcaster.Listener {
             broadcaster = InMemoryBroadcaster.INSTANCE;
         } else if (broadcast.startsWith("udp:")) {
             String config = broadcast.substring("udp:".length(), broadcast.length());
-            broadcaster = new UDPBroadcaster(config);
+            broadcaster = BatchingBroadcaster.wrap(new UDPBroadcaster(config), config);
         } else if (broadcast.startsWith("tcp:")) {
             String config = broadcast.substring("tcp:".length(), broadcast.length());
-            broadcaster = new TCPBroadcaster(config);
+            broadcaster = BatchingBroadcaster.wrap(new TCPBroadcaster(config), config);
         } else {
             throw new IllegalArgumentException("Unknown broadcaster type " + broadcast);
         }
@@ -418,6 +422,10 @@ public class PersistentCache implements Broadcaster.Listener {
             wrap = cacheLocalDiff;
             async = asyncDiffCache;
             break;
+        case COMPRESSED_DIFF:
+            wrap = cacheCompressedDiff;
+            async = asyncDiffCache;
+            break;
         case PREV_DOCUMENT:
             wrap = cachePrevDocs;
             break;
@@ -507,7 +515,7 @@ public class PersistentCache implements Broadcaster.Listener {
         return exceptionCount;
     }
 
-    void broadcast(CacheType type, Function<WriteBuffer, Void> writer) {
+    void broadcast(CacheType type, Function<WriteBuffer, Void> writer, Broadcaster.SendListener listener) {
         Broadcaster b = broadcaster;
         if (b == null) {
             return;
@@ -529,7 +537,7 @@ public class PersistentCache implements Broadcaster.Listener {
         // write length
         byteBuff.putInt(0, length);
         ((Buffer)byteBuff).position(0);
-        b.send(byteBuff);
+        b.trySend(byteBuff, listener);
     }
     
     @Override
@@ -57,6 +57,8 @@ public class PersistentCacheStats extends AnnotatedStandardMBean implements Pers
     private static final String LOAD_EXCEPTIONS = "LOAD_EXCEPTIONS";
     private static final String PUT_ONE = "CACHE_PUT";
     private static final String BROADCAST_RECV = "BROADCAST_RECV";
+    private static final String BROADCAST_SENT = "BROADCAST_SENT";
+    private static final String BROADCAST_DROPPED = "BROADCAST_DROPPED";
     private static final String INVALIDATE_ONE = "INVALIDATE_ONE";
     private static final String INVALIDATE_ALL = "INVALIDATE_ALL";
     private static final String READ_TIMER = "READ_TIMER";
@@ -87,6 +89,12 @@ public class PersistentCacheStats extends AnnotatedStandardMBean implements Pers
     private final MeterStats broadcastRecvMeter;
     private final TimeSeries broadcastRecvRateHistory;
 
+    private final MeterStats broadcastSentMeter;
+    private final TimeSeries broadcastSentRateHistory;
+
+    private final MeterStats broadcastDroppedMeter;
+    private final TimeSeries broadcastDroppedRateHistory;
+
     private final MeterStats invalidateOneMeter;
     private final TimeSeries invalidateOneRateHistory;
 
@@ -160,6 +168,14 @@ public class PersistentCacheStats extends AnnotatedStandardMBean implements Pers
         broadcastRecvMeter = statisticsProvider.getMeter(statName, StatsOptions.DEFAULT);
         broadcastRecvRateHistory = getTimeSeries(statName);
 
+        statName = getStatName(BROADCAST_SENT, cacheName);
+        broadcastSentMeter = statisticsProvider.getMeter(statName, StatsOptions.DEFAULT);
+        broadcastSentRateHistory = getTimeSeries(statName);
+
+        statName = getStatName(BROADCAST_DROPPED, cacheName);
+        broadcastDroppedMeter = statisticsProvider.getMeter(statName, StatsOptions.DEFAULT);
+        broadcastDroppedRateHistory = getTimeSeries(statName);
+
         statName = getStatName(INVALIDATE_ONE, cacheName);
         invalidateOneMeter = statisticsProvider.getMeter(statName, StatsOptions.DEFAULT);
         invalidateOneRateHistory = getTimeSeries(statName);
@@ -236,6 +252,14 @@ public class PersistentCacheStats extends AnnotatedStandardMBean implements Pers
         broadcastRecvMeter.mark();
     }
 
+    public void markBroadcastSent() {
+        broadcastSentMeter.mark();
+    }
+
+    public void markBroadcastDropped() {
+        broadcastDroppedMeter.mark();
+    }
+
     public void markInvalidateOne() {
         invalidateOneMeter.mark();
     }
@@ -443,6 +467,14 @@ public class PersistentCacheStats extends AnnotatedStandardMBean implements Pers
         return TimeSeriesStatsUtil.asCompositeData(broadcastRecvRateHistory, "Persistent cache entries received from broadcast");
     }
 
+    public CompositeData getBroadcastSentRateHistory() {
+        return TimeSeriesStatsUtil.asCompositeData(broadcastSentRateHistory, "Persistent cache entries sent to broadcast");
+    }
+
+    public CompositeData getBroadcastDroppedRateHistory() {
+        return TimeSeriesStatsUtil.asCompositeData(broadcastDroppedRateHistory, "Persistent cache entries dropped by broadcast");
+    }
+
     @Override
     public CompositeData getUsedSpaceHistory() {
         return TimeSeriesStatsUtil.asCompositeData(usedSpaceByteCounterHistory, "Persistent cache estimated size (bytes)");
@@ -498,6 +530,18 @@ public class PersistentCacheStats extends AnnotatedStandardMBean implements Pers
         return putRejectedAsCachedInSecMeter;
     }
 
+    Counting getBroadcastSentCounter() {
+        return broadcastSentMeter;
+    }
+
+    Counting getBroadcastDroppedCounter() {
+        return broadcastDroppedMeter;
+    }
+
+    Counting getBroadcastRecvCounter() {
+        return broadcastRecvMeter;
+    }
+
     //~--------------------------------------< private helpers
 
     private static String getStatName(String meter, String cacheName) {
@@ -0,0 +1,443 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document.persistentCache.broadcast;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.h2.compress.CompressLZF;
+import org.h2.mvstore.WriteBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A broadcaster that collects messages into batches and sends each batch,
+ * compressed, as a single message of the wrapped broadcaster. A batch is
+ * sent once it reaches the configured size, or when its first message is
+ * older than the configured delay. With the default delay of 0, a batch is
+ * sent as soon as the previous one was sent, so that messages are only
+ * batched while the sender is busy, that is, under load.
+ * <p>
+ * Messages are never blocked: if the wrapped broadcaster cannot keep up,
+ * for example because receivers fall behind, full batches queue up and new
+ * messages are dropped once the queue is full.
+ * <p>
+ * The configuration options are (separated by ';', other options are
+ * ignored):
+ * <ul>
+ * <li>"batchSize n": the maximum size of a batch in bytes. 0 disables
+ * batching. The default is 0, or the value of the system property
+ * {@code oak.cache.broadcast.batchSize}, so that batching is opt-in.</li>
+ * <li>"batchDelay n": the maximum delay of a message in milliseconds. The
+ * default is 0, or the value of the system property
+ * {@code oak.cache.broadcast.batchDelay}.</li>
+ * </ul>
+ * Each batch starts with a marker that includes the format version. Messages
+ * without the marker are passed on unchanged, so that a node with batching
+ * enabled still receives the messages of nodes without batching. Nodes
+ * without batching (or older versions) do not understand batches, so batching
+ * should only be enabled once all cluster nodes support it.
+ */
+public class BatchingBroadcaster implements Broadcaster, Broadcaster.Listener {
+
+    static final Logger LOG = LoggerFactory.getLogger(BatchingBroadcaster.class);
+
+    private static final int DEFAULT_BATCH_SIZE = Integer.getInteger("oak.cache.broadcast.batchSize", 0);
+    private static final int DEFAULT_BATCH_DELAY = Integer.getInteger("oak.cache.broadcast.batchDelay", 0);
+
+    /**
+     * The number of full batches waiting to be sent.
+     */
+    private static final int MAX_PENDING_BATCHES = 16;
+
+    /**
+     * How long to retry sending a batch the wrapped broadcaster does not
+     * accept, before it is dropped.
+     */
+    private static final int SEND_RETRY_MILLIS = 1000;
+
+    private static final int IDLE_WAIT_MILLIS = 100;
+
+    /**
+     * The marker at the start of each batch, followed by the format. The
+     * last byte is the version. Unbatched messages start with their
+     * (positive) length, so they never start with the marker.
+     */
+    static final int BATCH_MARKER = 0xBA7C0001;
+
+    private static final byte FORMAT_PLAIN = 0;
+    private static final byte FORMAT_LZF = 1;
+
+    private static final SendListener NO_LISTENER = new SendListener() {
+        @Override
+        public void sent() {
+        }
+
+        @Override
+        public void dropped() {
+        }
+    };
+
+    private final Broadcaster target;
+    private final int maxBatchSize;
+    private final int maxDelayMillis;
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+    private final ArrayBlockingQueue<Batch> pending = new ArrayBlockingQueue<Batch>(MAX_PENDING_BATCHES);
+    private final CompressLZF compressor = new CompressLZF();
+    private final Thread sendThread;
+
+    private final AtomicLong sentMessages = new AtomicLong();
+    private final AtomicLong droppedMessages = new AtomicLong();
+    private final AtomicLong receivedMessages = new AtomicLong();
+    private final AtomicLong sentBatches = new AtomicLong();
+    private final AtomicLong sentBytes = new AtomicLong();
+
+    // the batch messages are currently added to, guarded by this
+    private Batch current;
+
+    private volatile boolean stop;
+
+    public BatchingBroadcaster(Broadcaster target, int maxBatchSize, int maxDelayMillis) {
+        this.target = target;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayMillis = Math.max(0, maxDelayMillis);
+        target.addListener(this);
+        sendThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                send();
+            }
+        }, "Oak BatchingBroadcaster: send");
+        sendThread.setDaemon(true);
+        sendThread.start();
+    }
+
+    /**
+     * Wrap the given broadcaster, unless batching is disabled in the given
+     * configuration.
+     *
+     * @param target the broadcaster to wrap
+     * @param config the configuration of the broadcaster
+     * @return the batching broadcaster, or the target
+     */
+    public static Broadcaster wrap(Broadcaster target, String config) {
+        int batchSize = DEFAULT_BATCH_SIZE;
+        int batchDelay = DEFAULT_BATCH_DELAY;
+        for (String p : config.split(";")) {
+            if (p.startsWith("batchSize ")) {
+                batchSize = Integer.parseInt(p.split(" ")[1]);
+            } else if (p.startsWith("batchDelay ")) {
+                batchDelay = Integer.parseInt(p.split(" ")[1]);
+            }
+        }
+        if (batchSize <= 0) {
+            return target;
+        }
+        LOG.info("Batching broadcast messages, batch size " + batchSize + ", delay " + batchDelay + " ms");
+        return new BatchingBroadcaster(target, batchSize, batchDelay);
+    }
+
+    @Override
+    public void setBroadcastConfig(DynamicBroadcastConfig broadcastConfig) {
+        target.setBroadcastConfig(broadcastConfig);
+    }
+
+    @Override
+    public void send(ByteBuffer buff) {
+        trySend(buff);
+    }
+
+    @Override
+    public boolean trySend(ByteBuffer buff) {
+        return trySend(buff, NO_LISTENER);
+    }
+
+    /**
+     * Add the message to the current batch. The listener is notified once
+     * the batch was sent, or dropped.
+     */
+    @Override
+    public boolean trySend(ByteBuffer buff, SendListener listener) {
+        int len = buff.remaining();
+        synchronized (this) {
+            if (!stop && current != null && current.size() + 4 + len > maxBatchSize
+                    && pending.offer(current)) {
+                current = null;
+                notifyAll();
+            }
+            if (stop || current != null && current.size() + 4 + len > maxBatchSize) {
+                droppedMessages.incrementAndGet();
+                listener.dropped();
+                return false;
+            }
+            if (current == null) {
+                current = new Batch(maxBatchSize + 4 + len);
+                notifyAll();
+            }
+            current.add(buff, listener);
+            if (current.size() >= maxBatchSize && pending.offer(current)) {
+                current = null;
+                notifyAll();
+            }
+        }
+        return true;
+    }
+
+    void send() {
+        while (!stop) {
+            Batch b = nextBatch();
+            if (b != null) {
+                sendBatch(b);
+            }
+        }
+    }
+
+    /**
+     * Wait for the next batch to send: the oldest full batch, or the
+     * current batch once its first message is older than the delay.
+     */
+    private synchronized Batch nextBatch() {
+        while (!stop) {
+            Batch b = pending.poll();
+            if (b != null) {
+                return b;
+            }
+            long wait = IDLE_WAIT_MILLIS;
+            if (current != null) {
+                wait = maxDelayMillis - current.age();
+                if (wait <= 0) {
+                    b = current;
+                    current = null;
+                    return b;
+                }
+            }
+            try {
+                wait(wait);
+            } catch (InterruptedException e) {
+                // ignore
+            }
+        }
+        return null;
+    }
+
+    private void sendBatch(Batch b) {
+        ByteBuffer data = b.getData();
+        int len = data.remaining();
+        // compressing may expand the data slightly
+        byte[] compressed = new byte[len * 2 + 16];
+        int compressedLen = compressor.compress(data.array(), data.arrayOffset() + data.position(), len, compressed, 0);
+        ByteBuffer frame;
+        if (compressedLen < len) {
+            frame = ByteBuffer.allocate(9 + compressedLen);
+            frame.putInt(BATCH_MARKER).put(FORMAT_LZF).putInt(len).put(compressed, 0, compressedLen);
+        } else {
+            frame = ByteBuffer.allocate(5 + len);
+            frame.putInt(BATCH_MARKER).put(FORMAT_PLAIN).put(data);
+        }
+        ((Buffer) frame).flip();
+        int frameLen = frame.remaining();
+        long start = System.currentTimeMillis();
+        while (!target.trySend(frame)) {
+            // the wrapped broadcaster cannot keep up
+            if (stop || System.currentTimeMillis() - start > SEND_RETRY_MILLIS) {
+                LOG.debug("Dropped batch of {} messages", b.count());
+                dropBatch(b);
+                return;
+            }
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                // ignore
+            }
+            ((Buffer) frame).position(0);
+        }
+        sentBatches.incrementAndGet();
+        sentBytes.addAndGet(frameLen);
+        sentMessages.addAndGet(b.count());
+        for (SendListener l : b.listeners) {
+            l.sent();
+        }
+    }
+
+    private void dropBatch(Batch b) {
+        droppedMessages.addAndGet(b.count());
+        for (SendListener l : b.listeners) {
+            l.dropped();
+        }
+    }
+
+    @Override
+    public void receive(ByteBuffer buff) {
+        if (buff.remaining() < 4 || buff.getInt(buff.position()) != BATCH_MARKER) {
+            // a message of a node without batching
+            receivedMessages.incrementAndGet();
+            int start = buff.position();
+            for (Listener l : listeners) {
+                ((Buffer) buff).position(start);
+                l.receive(buff);
+            }
+            return;
+        }
+        buff.getInt();
+        byte format = buff.get();
+        ByteBuffer data;
+        if (format == FORMAT_LZF) {
+            int len = buff.getInt();
+            byte[] compressed = new byte[buff.remaining()];
+            buff.get(compressed);
+            byte[] expanded = new byte[len];
+            new CompressLZF().expand(compressed, 0, compressed.length, expanded, 0, len);
+            data = ByteBuffer.wrap(expanded);
+        } else if (format == FORMAT_PLAIN) {
+            data = buff.slice();
+        } else {
+            LOG.debug("Unknown format {}", format);
+            return;
+        }
+        while (data.remaining() > 4) {
+            int len = data.getInt();
+            int end = data.position() + len;
+            ByteBuffer message = data.slice();
+            ((Buffer) message).limit(len);
+            for (Listener l : listeners) {
+                ((Buffer) message).position(0);
+                l.receive(message);
+            }
+            receivedMessages.incrementAndGet();
+            ((Buffer) data).position(end);
+        }
+    }
+
+    @Override
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public void close() {
+        if (!stop) {
+            synchronized (this) {
+                stop = true;
+                notifyAll();
+            }
+            try {
+                sendThread.join();
+            } catch (InterruptedException e) {
+                // ignore
+            }
+            // batches that were not sent are dropped
+            ArrayList<Batch> unsent = new ArrayList<Batch>();
+            synchronized (this) {
+                pending.drainTo(unsent);
+                if (current != null) {
+                    unsent.add(current);
+                    current = null;
+                }
+            }
+            for (Batch b : unsent) {
+                dropBatch(b);
+            }
+            target.removeListener(this);
+            target.close();
+        }
+    }
+
+    /**
+     * @return the number of messages sent.
+     */
+    public long getSentMessageCount() {
+        return sentMessages.get();
+    }
+
+    /**
+     * @return the number of messages dropped because the wrapped broadcaster
+     *      could not keep up.
+     */
+    public long getDroppedMessageCount() {
+        return droppedMessages.get();
+    }
+
+    /**
+     * @return the number of messages received.
+     */
+    public long getReceivedMessageCount() {
+        return receivedMessages.get();
+    }
+
+    /**
+     * @return the number of batches sent.
+     */
+    public long getSentBatchCount() {
+        return sentBatches.get();
+    }
+
+    /**
+     * @return the number of bytes sent, after compression.
+     */
+    public long getSentByteCount() {
+        return sentBytes.get();
+    }
+
+    /**
+     * A batch of messages, each prefixed with its length.
+     */
+    private static final class Batch {
+
+        private final WriteBuffer buff;
+        private final long created = System.currentTimeMillis();
+        private final ArrayList<SendListener> listeners = new ArrayList<SendListener>();
+
+        Batch(int capacity) {
+            buff = new WriteBuffer(capacity);
+        }
+
+        void add(ByteBuffer message, SendListener listener) {
+            buff.putInt(message.remaining());
+            buff.put(message);
+            listeners.add(listener);
+        }
+
+        int count() {
+            return listeners.size();
+        }
+
+        int size() {
+            return buff.position();
+        }
+
+        long age() {
+            return System.currentTimeMillis() - created;
+        }
+
+        ByteBuffer getData() {
+            ByteBuffer data = buff.getBuffer().duplicate();
+            ((Buffer) data).flip();
+            return data;
+        }
+    }
+}
@@ -36,6 +36,37 @@ public interface Broadcaster {
      * @param buff the buffer
      */
     void send(ByteBuffer buff);
+
+    /**
+     * Send a message, unless the broadcaster is not able to keep up with
+     * the messages already sent.
+     *
+     * @param buff the buffer
+     * @return whether the message was accepted
+     */
+    default boolean trySend(ByteBuffer buff) {
+        send(buff);
+        return true;
+    }
+
+    /**
+     * Send a message, unless the broadcaster is not able to keep up with
+     * the messages already sent. The listener is notified once the message
+     * was sent or dropped, which may be after this method returned.
+     *
+     * @param buff the buffer
+     * @param listener the listener to notify
+     * @return whether the message was accepted
+     */
+    default boolean trySend(ByteBuffer buff, SendListener listener) {
+        boolean sent = trySend(buff);
+        if (sent) {
+            listener.sent();
+        } else {
+            listener.dropped();
+        }
+        return sent;
+    }
     
     /**
      * Add a listener for new messages.
@@ -69,5 +100,22 @@ public interface Broadcaster {
         void receive(ByteBuffer buff);
         
     }
-    
+
+    /**
+     * A listener for the outcome of sending a message.
+     */
+    public interface SendListener {
+
+        /**
+         * The message was sent.
+         */
+        void sent();
+
+        /**
+         * The message was dropped.
+         */
+        void dropped();
+
+    }
+
 }
@@ -338,6 +338,18 @@ public class TCPBroadcaster implements Broadcaster {
         }
     }
     
+    @Override
+    public boolean trySend(ByteBuffer buff) {
+        if (sendBuffer.size() >= MAX_BUFFER_SIZE) {
+            // the receivers are not fast enough
+            return false;
+        }
+        ByteBuffer b = ByteBuffer.allocate(buff.remaining());
+        b.put(buff);
+        ((Buffer)b).flip();
+        return sendBuffer.offer(b);
+    }
+
     private void sendBuffer(ByteBuffer buff) {
         int len = buff.limit();
         byte[] data = new byte[len];
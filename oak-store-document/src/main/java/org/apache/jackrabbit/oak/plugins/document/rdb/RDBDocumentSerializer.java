@@ -141,14 +141,11 @@ public class RDBDocumentSerializer {
     }
 
     /**
-     * Reconstructs a {@link Document} based on the persisted {@link RDBRow}.
+     * Reconstructs a partial {@link Document} from the column-backed
+     * properties of the {@link RDBRow} only, ignoring DATA and BDATA.
      */
     @NotNull
-    public <T extends Document> T fromRow(@NotNull Collection<T> collection, @NotNull RDBRow row) throws DocumentStoreException {
-
-        final String charData = row.getData();
-        checkNotNull(charData, "RDBRow.getData() is null for collection " + collection + ", id: " + row.getId());
-
+    public <T extends Document> T fromColumns(@NotNull Collection<T> collection, @NotNull RDBRow row) {
         T doc = collection.newDocument(store);
         doc.put(ID, row.getId());
         if (row.getModified() != RDBRow.LONG_UNSET) {
@@ -174,6 +171,19 @@ public class RDBDocumentSerializer {
                 doc.put(SDMAXREVTIME, row.getSdMaxRevTime());
             }
         }
+        return doc;
+    }
+
+    /**
+     * Reconstructs a {@link Document} based on the persisted {@link RDBRow}.
+     */
+    @NotNull
+    public <T extends Document> T fromRow(@NotNull Collection<T> collection, @NotNull RDBRow row) throws DocumentStoreException {
+
+        final String charData = row.getData();
+        checkNotNull(charData, "RDBRow.getData() is null for collection " + collection + ", id: " + row.getId());
+
+        T doc = fromColumns(collection, row);
 
         byte[] bdata = row.getBdata();
         boolean blobInUse = false;
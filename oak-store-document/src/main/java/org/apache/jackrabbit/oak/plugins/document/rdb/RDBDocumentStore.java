@@ -54,6 +54,9 @@ import java.util.TreeMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.zip.Deflater;
@@ -63,10 +66,12 @@ import javax.sql.DataSource;
 
 import org.apache.jackrabbit.oak.cache.CacheStats;
 import org.apache.jackrabbit.oak.cache.CacheValue;
+import org.apache.jackrabbit.oak.commons.concurrent.ExecutorCloser;
 import org.apache.jackrabbit.oak.plugins.document.Collection;
 import org.apache.jackrabbit.oak.plugins.document.Document;
 import org.apache.jackrabbit.oak.plugins.document.DocumentNodeStoreBuilder;
 import org.apache.jackrabbit.oak.plugins.document.DocumentStore;
+import org.apache.jackrabbit.oak.plugins.document.DocumentStoreCaller;
 import org.apache.jackrabbit.oak.plugins.document.DocumentStoreException;
 import org.apache.jackrabbit.oak.plugins.document.DocumentStoreStatsCollector;
 import org.apache.jackrabbit.oak.plugins.document.NodeDocument;
@@ -96,6 +101,7 @@ import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * Implementation of {@link DocumentStore} for relational databases.
@@ -298,6 +304,27 @@ public class RDBDocumentStore implements DocumentStore {
         return internalQuery(collection, fromKey, toKey, EMPTY_KEY_PATTERN, conditions, limit);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * When all projected properties are backed by table columns, the DATA and
+     * BDATA columns are not read at all; otherwise full documents are returned.
+     */
+    @NotNull
+    @Override
+    public <T extends Document> List<T> query(Collection<T> collection, String fromKey, String toKey, String indexedProperty,
+            long startValue, int limit, @NotNull List<String> projection) {
+        RDBTableMetaData tmd = getTable(collection);
+        if (!tmd.getColumnProperties().containsAll(projection)) {
+            return query(collection, fromKey, toKey, indexedProperty, startValue, limit);
+        }
+        List<QueryCondition> conditions = Collections.emptyList();
+        if (indexedProperty != null) {
+            conditions = Collections.singletonList(new QueryCondition(indexedProperty, ">=", startValue));
+        }
+        return internalProjectedQuery(collection, tmd, fromKey, toKey, conditions, limit);
+    }
+
     @NotNull
     protected <T extends Document> List<T> query(Collection<T> collection, String fromKey, String toKey,
             List<String> excludeKeyPatterns, List<QueryCondition> conditions, int limit) {
@@ -423,10 +450,36 @@ public class RDBDocumentStore implements DocumentStore {
                 break;
             }
 
-            for (List<UpdateOp> partition : partition(newArrayList(operationsToCover.values()), CHUNKSIZE)) {
-                Map<UpdateOp, T> successfulUpdates = bulkUpdate(collection, partition, oldDocs, upsert);
+            List<List<UpdateOp>> partitions = partition(newArrayList(operationsToCover.values()), CHUNKSIZE);
+            if (BATCHPIPELINE && partitions.size() > 1) {
+                // send the next partition while waiting for the result
+                // of the previous one. each partition works on its own
+                // map of old documents, merged back when it is done
+                PendingBulkUpdate<T> pending = null;
+                for (List<UpdateOp> partition : partitions) {
+                    PendingBulkUpdate<T> next = submitBulkUpdate(collection, partition, oldDocs, upsert);
+                    if (pending != null) {
+                        Map<UpdateOp, T> successfulUpdates;
+                        try {
+                            successfulUpdates = pending.getResult(oldDocs);
+                        } catch (DocumentStoreException ex) {
+                            awaitQuietly(next.future);
+                            throw ex;
+                        }
+                        results.putAll(successfulUpdates);
+                        operationsToCover.values().removeAll(successfulUpdates.keySet());
+                    }
+                    pending = next;
+                }
+                Map<UpdateOp, T> successfulUpdates = pending.getResult(oldDocs);
                 results.putAll(successfulUpdates);
                 operationsToCover.values().removeAll(successfulUpdates.keySet());
+            } else {
+                for (List<UpdateOp> partition : partitions) {
+                    Map<UpdateOp, T> successfulUpdates = bulkUpdate(collection, partition, oldDocs, upsert);
+                    results.putAll(successfulUpdates);
+                    operationsToCover.values().removeAll(successfulUpdates.keySet());
+                }
             }
         }
 
@@ -455,6 +508,72 @@ public class RDBDocumentStore implements DocumentStore {
         return new ArrayList<T>(results.values());
     }
 
+    private <T extends Document> PendingBulkUpdate<T> submitBulkUpdate(final Collection<T> collection,
+            final List<UpdateOp> updates, Map<String, T> oldDocs, final boolean upsert) {
+        final Map<String, T> partitionOldDocs = new HashMap<String, T>();
+        for (UpdateOp op : updates) {
+            T doc = oldDocs.get(op.getId());
+            if (doc != null) {
+                partitionOldDocs.put(op.getId(), doc);
+            }
+        }
+        Future<Map<UpdateOp, T>> future = batchWriter.submit(DocumentStoreCaller.propagate(new Callable<Map<UpdateOp, T>>() {
+            @Override
+            public Map<UpdateOp, T> call() {
+                return bulkUpdate(collection, updates, partitionOldDocs, upsert);
+            }
+        }));
+        return new PendingBulkUpdate<T>(updates, partitionOldDocs, future);
+    }
+
+    /**
+     * A bulk update of a partition submitted to the {@link #batchWriter},
+     * with the old documents of the partition.
+     */
+    private static class PendingBulkUpdate<T extends Document> {
+
+        private final List<UpdateOp> updates;
+        private final Map<String, T> oldDocs;
+        private final Future<Map<UpdateOp, T>> future;
+
+        PendingBulkUpdate(List<UpdateOp> updates, Map<String, T> oldDocs, Future<Map<UpdateOp, T>> future) {
+            this.updates = updates;
+            this.oldDocs = oldDocs;
+            this.future = future;
+        }
+
+        /**
+         * Waits for the bulk update and merges the old documents of the
+         * partition into the given map.
+         */
+        Map<UpdateOp, T> getResult(Map<String, T> allOldDocs) {
+            Map<UpdateOp, T> result;
+            try {
+                result = future.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new DocumentStoreException("interrupted while waiting for bulk update", ex);
+            } catch (ExecutionException ex) {
+                throw DocumentStoreException.convert(ex.getCause());
+            }
+            for (UpdateOp op : updates) {
+                allOldDocs.remove(op.getId());
+            }
+            allOldDocs.putAll(oldDocs);
+            return result;
+        }
+    }
+
+    private static void awaitQuietly(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            LOG.debug("bulk update failed", ex.getCause());
+        }
+    }
+
     private <T extends Document> Map<String, T> readDocumentCached(Collection<T> collection, Set<String> keys) {
         Map<String, T> documents = new HashMap<String, T>();
 
@@ -786,6 +905,18 @@ public class RDBDocumentStore implements DocumentStore {
 
     private final Map<Collection<? extends Document>, RDBTableMetaData> tableMeta = new HashMap<Collection<? extends Document>, RDBTableMetaData>();
 
+    // executes pipelined bulk updates, each with its own connection. the
+    // number of threads is bounded, further bulk updates are queued
+    private final ThreadPoolExecutor batchWriter = createBatchWriter();
+
+    private static ThreadPoolExecutor createBatchWriter() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(BATCHPIPELINETHREADS, BATCHPIPELINETHREADS,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("RDBDocumentStore-batch-writer-%d").build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     @Override
     public void dispose() {
         if (!this.tablesToBeDropped.isEmpty()) {
@@ -815,6 +946,7 @@ public class RDBDocumentStore implements DocumentStore {
             }
             this.droppedTables = dropped.trim();
         }
+        new ExecutorCloser(this.batchWriter).close();
         try {
             this.ch.close();
         } catch (IOException ex) {
@@ -1755,6 +1887,48 @@ public class RDBDocumentStore implements DocumentStore {
         update.increment(MODCOUNT, 1);
     }
 
+    private <T extends Document> List<T> internalProjectedQuery(Collection<T> collection, RDBTableMetaData tmd,
+            String fromKey, String toKey, List<QueryCondition> conditions, int limit) {
+        for (QueryCondition cond : conditions) {
+            if (!INDEXEDPROPERTIES.contains(cond.getPropertyName())) {
+                String message = "indexed property " + cond.getPropertyName() + " not supported, query was '" + cond
+                        + "'; supported properties are " + INDEXEDPROPERTIES;
+                LOG.info(message);
+                throw new DocumentStoreException(message);
+            }
+        }
+
+        Connection connection = null;
+        final Stopwatch watch = startWatch();
+        int resultSize = 0;
+        try {
+            connection = this.ch.getROConnection();
+            String from = collection == Collection.NODES && NodeDocument.MIN_ID_VALUE.equals(fromKey) ? null : fromKey;
+            String to = collection == Collection.NODES && NodeDocument.MAX_ID_VALUE.equals(toKey) ? null : toKey;
+
+            List<RDBRow> dbresult = db.query(connection, tmd, from, to, EMPTY_KEY_PATTERN, conditions, limit, false);
+            connection.commit();
+
+            // partial documents, never put into the cache
+            int size = dbresult.size();
+            List<T> result = new ArrayList<T>(size);
+            for (int i = 0; i < size; i++) {
+                T doc = ser.fromColumns(collection, dbresult.set(i, null));
+                doc.seal();
+                result.add(doc);
+            }
+            resultSize = result.size();
+            return result;
+        } catch (Exception ex) {
+            LOG.error("SQL exception on query", ex);
+            throw asDocumentStoreException(ex, "SQL exception on query");
+        } finally {
+            this.ch.closeConnection(connection);
+            stats.doneQuery(watch.elapsed(TimeUnit.NANOSECONDS), collection, fromKey, toKey,
+                    !conditions.isEmpty(), resultSize, -1, false);
+        }
+    }
+
     private <T extends Document> List<T> internalQuery(Collection<T> collection, String fromKey, String toKey,
             List<String> excludeKeyPatterns, List<QueryCondition> conditions, int limit) {
         Connection connection = null;
@@ -2234,6 +2408,20 @@ public class RDBDocumentStore implements DocumentStore {
                 return String.format("Batch updates disabled (system property %s set to '%s')", name, value);
             }).get();
 
+    // Whether to pipeline the JDBC batches of a createOrUpdate with more than
+    // CHUNKSIZE operations (default: true)
+    private static final boolean BATCHPIPELINE = SystemPropertySupplier
+            .create(RDBDocumentStore.class.getName() + ".BATCHPIPELINE", Boolean.TRUE).loggingTo(LOG)
+            .formatSetMessage((name, value) -> {
+                return String.format("Batch pipelining disabled (system property %s set to '%s')", name, value);
+            }).get();
+
+    // Maximum number of threads (and thus connections) used for pipelined
+    // JDBC batches, shared by all concurrent createOrUpdate calls
+    private static final int BATCHPIPELINETHREADS = SystemPropertySupplier
+            .create(RDBDocumentStore.class.getName() + ".BATCHPIPELINETHREADS", 2).loggingTo(LOG)
+            .validateWith(value -> value > 0).get();
+
     public static byte[] asBytes(@NotNull String data) {
         byte[] bytes;
         try {
@@ -34,6 +34,7 @@ import java.util.TreeSet;
 import org.apache.jackrabbit.oak.plugins.document.rdb.RDBJDBCTools.PreparedStatementComponent;
 import org.apache.jackrabbit.oak.plugins.document.util.SystemPropertySupplier;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -62,6 +63,17 @@ public enum RDBDocumentStoreDB {
         public String getCurrentTimeStampInSecondsSyntax() {
             return "select unix_timestamp()";
         }
+
+        @Override
+        public String getInsertIfAbsentStatement(String tableName, String columns, String values) {
+            return "merge into " + tableName + " using (select 1) S on (ID = ?) when not matched then insert ("
+                    + columns + ") values (" + values + ")";
+        }
+
+        @Override
+        public int getInsertIfAbsentKeyParameterCount() {
+            return 1;
+        }
     },
 
     DERBY("Apache Derby") {
@@ -70,6 +82,9 @@ public enum RDBDocumentStoreDB {
             return RDBJDBCTools.versionCheck(md, 10, 11, description);
         }
 
+        // no insert-if-absent statement: the MERGE form used for DB2 is not
+        // known to work on Derby, upserts use plain inserts
+
         @Override
         public Map<String, String> getAdditionalStatistics(RDBConnectionHandler ch, String catalog, String tableName) {
             Map<String, String> result = new HashMap<String, String>();
@@ -157,6 +172,11 @@ public enum RDBDocumentStoreDB {
             return "select extract(epoch from now())::integer";
         }
 
+        @Override
+        public String getInsertIfAbsentStatement(String tableName, String columns, String values) {
+            return "insert into " + tableName + " (" + columns + ") values (" + values + ") on conflict (ID) do nothing";
+        }
+
         @Override
         public String getTableCreationStatement(String tableName, int schema) {
             return ("create table " + tableName
@@ -320,6 +340,17 @@ public enum RDBDocumentStoreDB {
         public String makeIndexConditionalForColumn(String columnName) {
             return " exclude null keys";
         }
+
+        @Override
+        public String getInsertIfAbsentStatement(String tableName, String columns, String values) {
+            return "merge into " + tableName + " using SYSIBM.SYSDUMMY1 on (ID = ?) when not matched then insert ("
+                    + columns + ") values (" + values + ")";
+        }
+
+        @Override
+        public int getInsertIfAbsentKeyParameterCount() {
+            return 1;
+        }
     },
 
     ORACLE("Oracle", RDBCommonVendorSpecificCode.ORACLE) {
@@ -416,6 +447,17 @@ public enum RDBDocumentStoreDB {
         public String getBigintType() {
             return "number";
         }
+
+        @Override
+        public String getInsertIfAbsentStatement(String tableName, String columns, String values) {
+            return "merge into " + tableName + " using dual on (ID = ?) when not matched then insert ("
+                    + columns + ") values (" + values + ")";
+        }
+
+        @Override
+        public int getInsertIfAbsentKeyParameterCount() {
+            return 1;
+        }
     },
 
     MYSQL("MySQL", RDBCommonVendorSpecificCode.MYSQL) {
@@ -444,6 +486,10 @@ public enum RDBDocumentStoreDB {
             return FETCHFIRSTSYNTAX.LIMIT;
         }
 
+        // no insert-if-absent statement: with CLIENT_FOUND_ROWS, "on duplicate
+        // key update" reports an existing row as changed, and "insert ignore"
+        // also suppresses other errors; upserts use plain inserts
+
         @Override
         public PreparedStatementComponent getConcatQuery(final String appendData, final int dataOctetLimit) {
             return new PreparedStatementComponent() {
@@ -541,6 +587,17 @@ public enum RDBDocumentStoreDB {
             return FETCHFIRSTSYNTAX.TOP;
         }
 
+        @Override
+        public String getInsertIfAbsentStatement(String tableName, String columns, String values) {
+            return "merge into " + tableName + " with (holdlock) using (select 1 as X) S on (ID = ?) when not matched then insert ("
+                    + columns + ") values (" + values + ");";
+        }
+
+        @Override
+        public int getInsertIfAbsentKeyParameterCount() {
+            return 1;
+        }
+
         @Override
         public PreparedStatementComponent getConcatQuery(final String appendData, final int dataOctetLimit) {
             return new PreparedStatementComponent() {
@@ -668,6 +725,35 @@ public enum RDBDocumentStoreDB {
         return FETCHFIRSTSYNTAX.FETCHFIRST;
     }
 
+    /**
+     * Statement which inserts a row unless a row with the same ID already
+     * exists. An existing row must neither fail the statement nor the batch
+     * the statement is part of; the update count for the row is 0 instead.
+     * <p>
+     * The parameters of the statement are the parameters of {@code values},
+     * preceded by {@link #getInsertIfAbsentKeyParameterCount()} parameters
+     * for the ID of the row.
+     *
+     * @param tableName
+     *            name of the table
+     * @param columns
+     *            comma separated list of columns
+     * @param values
+     *            comma separated list of values
+     * @return the statement or {@code null} when not supported
+     */
+    public @Nullable String getInsertIfAbsentStatement(String tableName, String columns, String values) {
+        return null;
+    }
+
+    /**
+     * Number of parameters for the ID preceding the values in the statement
+     * returned by {@link #getInsertIfAbsentStatement(String, String, String)}.
+     */
+    public int getInsertIfAbsentKeyParameterCount() {
+        return 0;
+    }
+
     /**
      * Query syntax for current time in ms since the epoch
      * 
@@ -35,6 +35,7 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -86,6 +87,10 @@ public class RDBDocumentStoreJDBC {
     private final int queryHitsLimit, queryTimeLimit;
 
     private static final Long INITIALMODCOUNT = Long.valueOf(1);
+
+    // whether the insert-if-absent statement of the database is usable,
+    // set to false when the driver rejects it
+    private volatile boolean insertIfAbsentSupported = true;
     
     public RDBDocumentStoreJDBC(RDBDocumentStoreDB dbInfo, RDBDocumentSerializer ser, int queryHitsLimit, int queryTimeLimit) {
         this.dbInfo = dbInfo;
@@ -94,6 +99,15 @@ public class RDBDocumentStoreJDBC {
         this.queryTimeLimit = queryTimeLimit;
     }
 
+    /**
+     * @return whether upserts use the insert-if-absent statement of the
+     *         database; {@code false} if the database does not have one or
+     *         the driver rejected it
+     */
+    boolean isInsertIfAbsentSupported() {
+        return this.insertIfAbsentSupported && this.dbInfo.getInsertIfAbsentStatement("T", "ID", "?") != null;
+    }
+
     public boolean appendingUpdate(Connection connection, RDBTableMetaData tmd, String id, Long modified,
             boolean setModifiedConditionally, Number hasBinary, Boolean deletedOnce, Long modcount, Long cmodcount,
             Long oldmodcount, String appendData) throws SQLException {
@@ -250,15 +264,46 @@ public class RDBDocumentStoreJDBC {
     }
 
     public <T extends Document> Set<String> insert(Connection connection, RDBTableMetaData tmd, List<T> documents) throws SQLException {
+        return insert(connection, tmd, documents, false);
+    }
+
+    /**
+     * Insert a list of documents using JDBC batches. If {@code ifAbsent} is
+     * set and the database supports it, documents already present in the
+     * table are skipped by the database instead of failing the insert, so
+     * that the remaining documents of the batch are inserted in any case.
+     * Skipped documents are not part of the returned set.
+     */
+    private <T extends Document> Set<String> insert(Connection connection, RDBTableMetaData tmd, List<T> documents, boolean ifAbsent)
+            throws SQLException {
         int actualSchema = tmd.hasSplitDocs() ? 2 : 1;
-        PreparedStatement stmt = connection.prepareStatement(
-                "insert into " + tmd.getName() + "(ID, MODIFIED, HASBINARY, DELETEDONCE, MODCOUNT, CMODCOUNT, DSIZE, "
-                        + (tmd.hasVersion() ? "VERSION, " : "") 
-                        + (tmd.hasSplitDocs() ? "SDTYPE, SDMAXREVTIME, " : "")
-                        + "DATA, BDATA) " + "values (?, ?, ?, ?, ?, ?, ?, "
-                        + (tmd.hasVersion() ? (" " + actualSchema + ", ") : "")
-                        + (tmd.hasSplitDocs() ? "?, ?, " : "")
-                        + "?, ?)");
+        String columns = "ID, MODIFIED, HASBINARY, DELETEDONCE, MODCOUNT, CMODCOUNT, DSIZE, "
+                + (tmd.hasVersion() ? "VERSION, " : "")
+                + (tmd.hasSplitDocs() ? "SDTYPE, SDMAXREVTIME, " : "")
+                + "DATA, BDATA";
+        String values = "?, ?, ?, ?, ?, ?, ?, "
+                + (tmd.hasVersion() ? (" " + actualSchema + ", ") : "")
+                + (tmd.hasSplitDocs() ? "?, ?, " : "")
+                + "?, ?";
+
+        PreparedStatement stmt = null;
+        int keyParameters = 0;
+        String insertIfAbsent = ifAbsent && this.insertIfAbsentSupported
+                ? this.dbInfo.getInsertIfAbsentStatement(tmd.getName(), columns, values) : null;
+        if (insertIfAbsent != null) {
+            try {
+                stmt = connection.prepareStatement(insertIfAbsent);
+                keyParameters = this.dbInfo.getInsertIfAbsentKeyParameterCount();
+            } catch (SQLException ex) {
+                // do not try again, the statement is the same for all tables
+                this.insertIfAbsentSupported = false;
+                LOG.warn("Insert-if-absent statement rejected by " + this.dbInfo
+                        + ", falling back to plain inserts for upserts: " + insertIfAbsent, ex);
+            }
+        }
+        if (stmt == null) {
+            stmt = connection.prepareStatement("insert into " + tmd.getName() + "(" + columns + ") values (" + values + ")");
+        }
 
         List<T> sortedDocs = sortDocuments(documents);
         int[] results;
@@ -271,6 +316,9 @@ public class RDBDocumentStoreJDBC {
                 Long cmodcount = (Long) document.get(COLLISIONSMODCOUNT);
 
                 int si = 1;
+                for (int i = 0; i < keyParameters; i++) {
+                    setIdInStatement(tmd, stmt, si++, id);
+                }
                 setIdInStatement(tmd, stmt, si++, id);
                 stmt.setObject(si++, document.get(MODIFIED), Types.BIGINT);
                 stmt.setObject(si++, hasBinaryAsNullOrInteger(hasBinary), Types.SMALLINT);
@@ -300,17 +348,55 @@ public class RDBDocumentStoreJDBC {
             stmt.close();
         }
         Set<String> succesfullyInserted = new HashSet<String>();
+        Map<String, T> unknown = new HashMap<String, T>();
         for (int i = 0; i < results.length; i++) {
             int result = results[i];
-            if (result != 1 && result != Statement.SUCCESS_NO_INFO) {
-                LOG.debug("DB insert failed for {}: {}", tmd.getName(), sortedDocs.get(i).getId());
+            String id = sortedDocs.get(i).getId();
+            if (result == Statement.SUCCESS_NO_INFO && insertIfAbsent != null) {
+                // an existing row is not an error for insert-if-absent, the
+                // DB may not tell whether the row was actually inserted
+                unknown.put(id, sortedDocs.get(i));
+            } else if (result != 1 && result != Statement.SUCCESS_NO_INFO) {
+                LOG.debug("DB insert failed for {}: {}", tmd.getName(), id);
             } else {
-                succesfullyInserted.add(sortedDocs.get(i).getId());
+                succesfullyInserted.add(id);
             }
         }
+        if (!unknown.isEmpty()) {
+            succesfullyInserted.addAll(verifyWrites(connection, tmd, unknown));
+        }
         return succesfullyInserted;
     }
 
+    /**
+     * Reads back the rows for documents where the batch result was
+     * {@link Statement#SUCCESS_NO_INFO}, and returns the ids of those rows
+     * that have exactly the modcount and data that was written.
+     */
+    private <T extends Document> Set<String> verifyWrites(Connection connection, RDBTableMetaData tmd, Map<String, T> documents)
+            throws SQLException {
+        Set<String> verified = new HashSet<String>();
+        for (RDBRow row : read(connection, tmd, documents.keySet())) {
+            T document = documents.get(row.getId());
+            if (document == null || !Long.valueOf(row.getModcount()).equals(document.get(MODCOUNT))) {
+                continue;
+            }
+            String data = this.ser.asString(document, tmd.getColumnOnlyProperties());
+            boolean same;
+            if (data.length() < tmd.getDataLimitInOctets() / CHAR2OCTETRATIO) {
+                same = data.equals(row.getData());
+            } else {
+                same = Arrays.equals(asBytes(data), row.getBdata());
+            }
+            if (same) {
+                verified.add(row.getId());
+            } else {
+                LOG.debug("DB write not applied for {}: {}", tmd.getName(), row.getId());
+            }
+        }
+        return verified;
+    }
+
     /**
      * Update a list of documents using JDBC batches. Some of the updates may fail because of the concurrent
      * changes. The method returns a set of successfully updated documents. It's the caller responsibility
@@ -407,11 +493,23 @@ public class RDBDocumentStoreJDBC {
             LOG.trace(br.toString());
         }
 
+        Map<String, T> unknown = new HashMap<String, T>();
         for (int i = 0; i < batchResults.length; i++) {
             int result = batchResults[i];
-            if (result == 1 || result == Statement.SUCCESS_NO_INFO) {
+            if (result == 1) {
                 successfulUpdates.add(updatedKeys.get(i));
+            } else if (result == Statement.SUCCESS_NO_INFO) {
+                unknown.put(updatedKeys.get(i), null);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            // the modcount condition may not have matched
+            for (T doc : documents) {
+                if (unknown.containsKey(doc.getId())) {
+                    unknown.put(doc.getId(), doc);
+                }
             }
+            successfulUpdates.addAll(verifyWrites(connection, tmd, unknown));
         }
 
         if (upsert) {
@@ -423,7 +521,7 @@ public class RDBDocumentStoreJDBC {
             }
 
             if (!toBeInserted.isEmpty()) {
-                for (String id : insert(connection, tmd, toBeInserted)) {
+                for (String id : insert(connection, tmd, toBeInserted, true)) {
                     successfulUpdates.add(id);
                 }
             }
@@ -440,6 +538,17 @@ public class RDBDocumentStoreJDBC {
     @NotNull
     public List<RDBRow> query(Connection connection, RDBTableMetaData tmd, String minId, String maxId,
             List<String> excludeKeyPatterns, List<QueryCondition> conditions, int limit) throws SQLException {
+        return query(connection, tmd, minId, maxId, excludeKeyPatterns, conditions, limit, true);
+    }
+
+    /**
+     * Like {@link #query(Connection, RDBTableMetaData, String, String, List, List, int)},
+     * but optionally without reading the DATA and BDATA columns, in which case
+     * the returned rows only carry the column-backed properties.
+     */
+    @NotNull
+    public List<RDBRow> query(Connection connection, RDBTableMetaData tmd, String minId, String maxId,
+            List<String> excludeKeyPatterns, List<QueryCondition> conditions, int limit, boolean withData) throws SQLException {
         long start = System.currentTimeMillis();
         List<RDBRow> result = new ArrayList<RDBRow>();
         long dataTotal = 0, bdataTotal = 0;
@@ -452,6 +561,9 @@ public class RDBDocumentStoreJDBC {
         } else {
             fields = "ID, MODIFIED, MODCOUNT, CMODCOUNT, HASBINARY, DELETEDONCE, DATA, BDATA";
         }
+        if (!withData) {
+            fields = fields.substring(0, fields.length() - ", DATA, BDATA".length());
+        }
         ResultSet rs = null;
         try {
             long pstart = PERFLOG.start(PERFLOG.isDebugEnabled()
@@ -477,8 +589,8 @@ public class RDBDocumentStoreJDBC {
                 long schemaVersion = tmd.hasVersion() ? readLongFromResultSet(rs, field++) : 0;
                 long sdType = tmd.hasSplitDocs() ? readLongFromResultSet(rs, field++) : RDBRow.LONG_UNSET;
                 long sdMaxRevTime = tmd.hasSplitDocs() ? readLongFromResultSet(rs, field++) : RDBRow.LONG_UNSET;
-                String data = rs.getString(field++);
-                byte[] bdata = rs.getBytes(field++);
+                String data = withData ? rs.getString(field++) : null;
+                byte[] bdata = withData ? rs.getBytes(field++) : null;
                 result.add(new RDBRow(id, hasBinary, deletedOnce, modified, modcount, cmodcount, schemaVersion, sdType,
                         sdMaxRevTime, data, bdata));
                 dataTotal += data == null ? 0 : data.length();
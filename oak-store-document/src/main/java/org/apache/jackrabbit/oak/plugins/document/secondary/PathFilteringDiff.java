@@ -43,7 +43,19 @@ class PathFilteringDiff extends ApplyDiff {
     private final AbstractDocumentNodeState parent;
 
     public PathFilteringDiff(NodeBuilder builder, PathFilter pathFilter, List<String> metaPropNames, AbstractDocumentNodeState parent) {
-        this(builder, new DiffContext(pathFilter, metaPropNames), parent);
+        this(builder, new DiffContext(pathFilter, metaPropNames, null), parent);
+    }
+
+    /**
+     * Creates a diff for the root node, which does not descend into the
+     * child nodes of the root. Added and changed child nodes are collected
+     * in {@code subtrees} instead and can then be applied independently of
+     * each other with {@link Subtree#apply(NodeState, PathFilter, List)}.
+     */
+    static PathFilteringDiff forRoot(NodeBuilder builder, PathFilter pathFilter, List<String> metaPropNames,
+                                     AbstractDocumentNodeState root, List<Subtree> subtrees) {
+        checkArgument(root.getPath().isRoot(), "Not a root node: %s", root.getPath());
+        return new PathFilteringDiff(builder, new DiffContext(pathFilter, metaPropNames, subtrees), root);
     }
 
     private PathFilteringDiff(NodeBuilder builder, DiffContext ctx, AbstractDocumentNodeState parent) {
@@ -61,6 +73,10 @@ class PathFilteringDiff extends ApplyDiff {
             return true;
         }
 
+        if (ctx.collectSubtree(parent, name, EMPTY_NODE, afterDoc)) {
+            return true;
+        }
+
         ctx.traversingNode(nextPath);
         //We avoid this as we need to copy meta properties
         //super.childNodeAdded(name, after);
@@ -76,6 +92,9 @@ class PathFilteringDiff extends ApplyDiff {
         AbstractDocumentNodeState afterDoc = asDocumentState(after, name);
         String nextPath = afterDoc.getPath().toString();
         if (ctx.pathFilter.filter(nextPath) != PathFilter.Result.EXCLUDE) {
+            if (ctx.collectSubtree(parent, name, before, afterDoc)) {
+                return true;
+            }
             ctx.traversingNode(nextPath);
             NodeBuilder childBuilder = builder.getChildNode(name);
             copyMetaProperties(afterDoc, childBuilder, ctx.metaPropNames);
@@ -122,14 +141,61 @@ class PathFilteringDiff extends ApplyDiff {
         return createProperty(name, revision.asString());
     }
 
+    /**
+     * An added or changed child node of the root node.
+     */
+    static class Subtree {
+        final String name;
+        final NodeState before;
+        final AbstractDocumentNodeState after;
+
+        Subtree(String name, NodeState before, AbstractDocumentNodeState after) {
+            this.name = name;
+            this.before = before;
+            this.after = after;
+        }
+
+        /**
+         * Applies the changes of this subtree to the given state of the
+         * child node in the secondary store.
+         *
+         * @param secondary the child node in the secondary store. May be
+         *                  non-existing if the child node was added.
+         * @return the updated child node.
+         */
+        NodeState apply(NodeState secondary, PathFilter pathFilter, List<String> metaPropNames) {
+            NodeBuilder builder = secondary.exists() ? secondary.builder() : EMPTY_NODE.builder();
+            copyMetaProperties(after, builder, metaPropNames);
+            after.compareAgainstBaseState(before,
+                    new PathFilteringDiff(builder, pathFilter, metaPropNames, after));
+            return builder.getNodeState();
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
     private static class DiffContext {
         private long count;
         final PathFilter pathFilter;
         final List<String> metaPropNames;
+        final List<Subtree> subtrees;
 
-        public DiffContext(PathFilter filter, List<String> metaPropNames) {
+        public DiffContext(PathFilter filter, List<String> metaPropNames, List<Subtree> subtrees) {
             this.pathFilter = filter;
             this.metaPropNames = metaPropNames;
+            this.subtrees = subtrees;
+        }
+
+        boolean collectSubtree(AbstractDocumentNodeState parent, String name,
+                               NodeState before, AbstractDocumentNodeState after) {
+            if (subtrees == null || !parent.getPath().isRoot()) {
+                return false;
+            }
+            subtrees.add(new Subtree(name, before, after));
+            return true;
         }
 
         public void traversingNode(String path){
@@ -28,6 +28,7 @@ import org.apache.jackrabbit.oak.spi.filter.PathFilter;
 import org.apache.jackrabbit.oak.spi.state.NodeStore;
 import org.apache.jackrabbit.oak.stats.StatisticsProvider;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Collections.singletonList;
 
 public class SecondaryStoreBuilder {
@@ -36,6 +37,7 @@ public class SecondaryStoreBuilder {
     private NodeStateDiffer differ = NodeStateDiffer.DEFAULT_DIFFER;
     private StatisticsProvider statsProvider = StatisticsProvider.NOOP;
     private List<String> metaPropNames = Collections.emptyList();
+    private int bootstrapThreads = 1;
 
     public SecondaryStoreBuilder(NodeStore nodeStore) {
         this.store = nodeStore;
@@ -61,6 +63,12 @@ public class SecondaryStoreBuilder {
         return this;
     }
 
+    public SecondaryStoreBuilder bootstrapThreads(int bootstrapThreads) {
+        checkArgument(bootstrapThreads > 0, "bootstrapThreads must be > 0");
+        this.bootstrapThreads = bootstrapThreads;
+        return this;
+    }
+
     public SecondaryStoreCache buildCache() {
         return new SecondaryStoreCache(store, differ, pathFilter, statsProvider);
     }
@@ -70,6 +78,7 @@ public class SecondaryStoreBuilder {
     }
 
     public SecondaryStoreObserver buildObserver(SecondaryStoreRootObserver secondaryStoreRootObserver) {
-        return new SecondaryStoreObserver(store, metaPropNames, differ, pathFilter, statsProvider, secondaryStoreRootObserver);
+        return new SecondaryStoreObserver(store, metaPropNames, differ, pathFilter, statsProvider,
+                secondaryStoreRootObserver, bootstrapThreads);
     }
 }
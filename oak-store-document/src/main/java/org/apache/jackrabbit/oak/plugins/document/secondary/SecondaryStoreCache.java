@@ -19,6 +19,13 @@
 
 package org.apache.jackrabbit.oak.plugins.document.secondary;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
 import com.google.common.collect.EvictingQueue;
 import org.apache.jackrabbit.oak.plugins.document.AbstractDocumentNodeState;
 import org.apache.jackrabbit.oak.plugins.document.DocumentNodeStateCache;
@@ -38,9 +45,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
-public class SecondaryStoreCache implements DocumentNodeStateCache, SecondaryStoreRootObserver {
+public class SecondaryStoreCache implements DocumentNodeStateCache, SecondaryStoreRootObserver,
+        SecondaryStoreCacheMBean {
     private final Logger log = LoggerFactory.getLogger(getClass());
     private static final AbstractDocumentNodeState[] EMPTY = new AbstractDocumentNodeState[0];
+    /**
+     * Hits and misses are aggregated per ancestor at this depth.
+     */
+    static final int PATH_STATS_DEPTH = 2;
+    /**
+     * Maximum number of paths with hit and miss counts.
+     */
+    static final int MAX_PATH_STATS = 1000;
     private final NodeStore store;
     private final PathFilter pathFilter;
     private final NodeStateDiffer differ;
@@ -54,6 +70,7 @@ public class SecondaryStoreCache implements DocumentNodeStateCache, SecondarySto
     private final int maxSize = 10000;
     private final EvictingQueue<AbstractDocumentNodeState> queue;
     private volatile AbstractDocumentNodeState[] previousRoots = EMPTY;
+    private final ConcurrentMap<String, PathStats> pathStats = new ConcurrentHashMap<>();
 
     public SecondaryStoreCache(NodeStore nodeStore, NodeStateDiffer differ, PathFilter pathFilter,
                                StatisticsProvider statisticsProvider) {
@@ -84,6 +101,17 @@ public class SecondaryStoreCache implements DocumentNodeStateCache, SecondarySto
             return null;
         }
 
+        AbstractDocumentNodeState state = findDocumentNodeState(path, p, rootRevision, lastRev);
+        PathStats stats = getPathStats(path);
+        if (stats != null) {
+            (state != null ? stats.hits : stats.misses).incrementAndGet();
+        }
+        return state;
+    }
+
+    @Nullable
+    private AbstractDocumentNodeState findDocumentNodeState(Path path, String p, RevisionVector rootRevision,
+                                                            RevisionVector lastRev) {
         if (!DelegatingDocumentNodeState.hasMetaProps(store.getRoot())){
             return null;
         }
@@ -177,6 +205,36 @@ public class SecondaryStoreCache implements DocumentNodeStateCache, SecondarySto
         return null;
     }
 
+    @Override
+    public String[] getPathStats() {
+        List<PathStats> stats = new ArrayList<>(pathStats.values());
+        stats.sort(Comparator.comparingLong(PathStats::getCount).reversed());
+        String[] result = new String[stats.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = stats.get(i).toString();
+        }
+        return result;
+    }
+
+    @Override
+    public void resetPathStats() {
+        pathStats.clear();
+    }
+
+    @Nullable
+    PathStats getPathStats(Path path) {
+        int depth = path.getDepth();
+        if (depth > PATH_STATS_DEPTH) {
+            path = path.getAncestor(depth - PATH_STATS_DEPTH);
+        }
+        String key = path.toString();
+        PathStats stats = pathStats.get(key);
+        if (stats == null && pathStats.size() < MAX_PATH_STATS) {
+            stats = pathStats.computeIfAbsent(key, PathStats::new);
+        }
+        return stats;
+    }
+
     @Override
     public void contentChanged(@NotNull AbstractDocumentNodeState root) {
         synchronized (queue){
@@ -216,4 +274,33 @@ public class SecondaryStoreCache implements DocumentNodeStateCache, SecondarySto
         return (AbstractDocumentNodeState)state;
     }
 
+    static final class PathStats {
+        private final String path;
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+
+        PathStats(String path) {
+            this.path = path;
+        }
+
+        long getHits() {
+            return hits.get();
+        }
+
+        long getMisses() {
+            return misses.get();
+        }
+
+        long getCount() {
+            return getHits() + getMisses();
+        }
+
+        @Override
+        public String toString() {
+            long h = getHits();
+            long m = getMisses();
+            return String.format("%s: hits=%d, misses=%d, hitRate=%.2f",
+                    path, h, m, h + m == 0 ? 0.0 : (double) h / (h + m));
+        }
+    }
 }
@@ -86,6 +86,13 @@ public class SecondaryStoreCacheService {
                 description = "Observer queue size. Used if 'enableAsyncObserver' is set to true"
         )
         int observerQueueSize() default BackgroundObserver.DEFAULT_QUEUE_SIZE;
+
+        @AttributeDefinition(
+                name = "Initial sync threads",
+                description = "Number of threads used to sync the subtrees of the secondary store " +
+                        "concurrently on startup. Subsequent changes are applied by the observer"
+        )
+        int bootstrapThreads() default 4;
     }
 
     private final Logger log = LoggerFactory.getLogger(getClass());
@@ -139,11 +146,18 @@ public class SecondaryStoreCacheService {
                 .differ(differ)
                 .metaPropNames(DocumentNodeStore.META_PROP_NAMES)
                 .statisticsProvider(statisticsProvider)
-                .pathFilter(pathFilter);
+                .pathFilter(pathFilter)
+                .bootstrapThreads(Math.max(1, config.bootstrapThreads()));
         SecondaryStoreCache cache = builder.buildCache();
         SecondaryStoreObserver observer = builder.buildObserver(cache);
         registerObserver(observer, config);
 
+        oakRegs.add(registerMBean(whiteboard,
+                SecondaryStoreCacheMBean.class,
+                cache,
+                SecondaryStoreCacheMBean.TYPE,
+                "Secondary NodeStore cache stats"));
+
         regs.add(bundleContext.registerService(DocumentNodeStateCache.class.getName(), cache, null));
 
         //TODO Need to see OSGi dynamics. Its possible that DocumentNodeStore works after the cache
@@ -19,10 +19,16 @@
 
 package org.apache.jackrabbit.oak.plugins.document.secondary;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.jackrabbit.oak.api.CommitFailedException;
 import org.apache.jackrabbit.oak.plugins.document.AbstractDocumentNodeState;
 import org.apache.jackrabbit.oak.plugins.document.NodeStateDiffer;
@@ -50,6 +56,7 @@ public class SecondaryStoreObserver implements Observer {
     private final NodeStateDiffer differ;
     private final TimerStats local;
     private final TimerStats external;
+    private final int bootstrapThreads;
     private boolean firstEventProcessed;
 
     public SecondaryStoreObserver(NodeStore nodeStore,
@@ -58,6 +65,23 @@ public class SecondaryStoreObserver implements Observer {
                                   PathFilter pathFilter,
                                   StatisticsProvider statisticsProvider,
                                   SecondaryStoreRootObserver secondaryObserver) {
+        this(nodeStore, metaPropNames, differ, pathFilter, statisticsProvider, secondaryObserver, 1);
+    }
+
+    /**
+     * @param bootstrapThreads the number of threads used for the initial
+     *                         sync. With more than one thread, the added and
+     *                         changed child nodes of the root are synced
+     *                         concurrently.
+     */
+    public SecondaryStoreObserver(NodeStore nodeStore,
+                                  List<String> metaPropNames,
+                                  NodeStateDiffer differ,
+                                  PathFilter pathFilter,
+                                  StatisticsProvider statisticsProvider,
+                                  SecondaryStoreRootObserver secondaryObserver,
+                                  int bootstrapThreads) {
+        this.bootstrapThreads = bootstrapThreads;
         this.nodeStore = nodeStore;
         this.pathFilter = pathFilter;
         this.secondaryObserver = secondaryObserver;
@@ -80,13 +104,24 @@ public class SecondaryStoreObserver implements Observer {
         NodeState secondaryRoot = nodeStore.getRoot();
         NodeState base = DelegatingDocumentNodeState.wrapIfPossible(secondaryRoot, differ);
         NodeBuilder builder = secondaryRoot.builder();
-        ApplyDiff diff = new PathFilteringDiff(builder, pathFilter, metaPropNames, target);
 
         //Copy the root node meta properties
         PathFilteringDiff.copyMetaProperties(target, builder, metaPropNames);
 
-        //Apply the rest of properties
-        target.compareAgainstBaseState(base, diff);
+        if (!firstEventProcessed && bootstrapThreads > 1) {
+            //The initial sync brings the secondary store from its persisted
+            //state to the first observed root. Subtrees below the root are
+            //independent and can be synced concurrently
+            List<PathFilteringDiff.Subtree> subtrees = new ArrayList<>();
+            target.compareAgainstBaseState(base, PathFilteringDiff.forRoot(
+                    builder, pathFilter, metaPropNames, target, subtrees));
+            applyConcurrently(secondaryRoot, builder, subtrees);
+        } else {
+            ApplyDiff diff = new PathFilteringDiff(builder, pathFilter, metaPropNames, target);
+
+            //Apply the rest of properties
+            target.compareAgainstBaseState(base, diff);
+        }
         try {
             NodeState updatedSecondaryRoot = nodeStore.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
             secondaryObserver.contentChanged(DelegatingDocumentNodeState.wrap(updatedSecondaryRoot, differ));
@@ -104,4 +139,40 @@ public class SecondaryStoreObserver implements Observer {
         }
     }
 
+    private void applyConcurrently(NodeState secondaryRoot,
+                                   NodeBuilder builder,
+                                   List<PathFilteringDiff.Subtree> subtrees) {
+        if (subtrees.isEmpty()) {
+            return;
+        }
+        int numThreads = Math.min(bootstrapThreads, subtrees.size());
+        log.info("Syncing {} subtrees with {} threads", subtrees.size(), numThreads);
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads,
+                new ThreadFactoryBuilder().setDaemon(true)
+                        .setNameFormat("SecondaryStore initial sync-%d").build());
+        try {
+            List<Future<NodeState>> futures = new ArrayList<>(subtrees.size());
+            for (PathFilteringDiff.Subtree subtree : subtrees) {
+                NodeState secondary = secondaryRoot.getChildNode(subtree.name);
+                futures.add(executor.submit(() -> subtree.apply(secondary, pathFilter, metaPropNames)));
+            }
+            for (int i = 0; i < subtrees.size(); i++) {
+                PathFilteringDiff.Subtree subtree = subtrees.get(i);
+                NodeState state;
+                try {
+                    state = futures.get(i).get();
+                } catch (ExecutionException e) {
+                    log.warn("Concurrent sync of subtree {} failed, retrying in the observer thread",
+                            subtree, e.getCause());
+                    state = subtree.apply(secondaryRoot.getChildNode(subtree.name), pathFilter, metaPropNames);
+                }
+                builder.setChildNode(subtree.name, state);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while syncing the secondary store", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
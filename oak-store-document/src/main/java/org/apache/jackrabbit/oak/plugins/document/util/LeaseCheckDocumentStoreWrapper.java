@@ -25,6 +25,7 @@ import org.apache.jackrabbit.oak.cache.CacheStats;
 import org.apache.jackrabbit.oak.plugins.document.ClusterNodeInfo;
 import org.apache.jackrabbit.oak.plugins.document.Collection;
 import org.apache.jackrabbit.oak.plugins.document.Document;
+import org.apache.jackrabbit.oak.plugins.document.DocumentChangeFeed;
 import org.apache.jackrabbit.oak.plugins.document.DocumentStore;
 import org.apache.jackrabbit.oak.plugins.document.DocumentStoreException;
 import org.apache.jackrabbit.oak.plugins.document.UpdateOp;
@@ -85,6 +86,14 @@ public final class LeaseCheckDocumentStoreWrapper implements DocumentStore {
         return delegate.query(collection, fromKey, toKey, indexedProperty, startValue, limit);
     }
 
+    @Override
+    public final <T extends Document> List<T> query(Collection<T> collection,
+            String fromKey, String toKey, String indexedProperty,
+            long startValue, int limit, List<String> projection) {
+        performLeaseCheck();
+        return delegate.query(collection, fromKey, toKey, indexedProperty, startValue, limit, projection);
+    }
+
     @Override
     public final <T extends Document> void remove(Collection<T> collection, String key) {
         performLeaseCheck();
@@ -220,4 +229,16 @@ public final class LeaseCheckDocumentStoreWrapper implements DocumentStore {
     public int getNodeNameLimit() {
         return delegate.getNodeNameLimit();
     }
+
+    @Override
+    public DocumentChangeFeed getChangeFeed() {
+        return delegate.getChangeFeed();
+    }
+
+    @Override
+    public final <T extends Document> void prefetch(Collection<T> collection,
+            Iterable<String> keys) {
+        performLeaseCheck();
+        delegate.prefetch(collection, keys);
+    }
 }
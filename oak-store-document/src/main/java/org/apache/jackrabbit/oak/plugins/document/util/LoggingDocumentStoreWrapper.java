@@ -24,6 +24,7 @@ import org.apache.jackrabbit.oak.cache.CacheStats;
 import org.apache.jackrabbit.oak.commons.json.JsopBuilder;
 import org.apache.jackrabbit.oak.plugins.document.Collection;
 import org.apache.jackrabbit.oak.plugins.document.Document;
+import org.apache.jackrabbit.oak.plugins.document.DocumentChangeFeed;
 import org.apache.jackrabbit.oak.plugins.document.DocumentStore;
 import org.apache.jackrabbit.oak.plugins.document.DocumentStoreException;
 import org.apache.jackrabbit.oak.plugins.document.UpdateOp;
@@ -142,6 +143,29 @@ public class LoggingDocumentStoreWrapper implements DocumentStore {
         }
     }
 
+    @Override
+    @NotNull
+    public <T extends Document> List<T> query(final Collection<T> collection,
+                                final String fromKey,
+                                final String toKey,
+                                final String indexedProperty,
+                                final long startValue,
+                                final int limit,
+                                final List<String> projection) {
+        try {
+            logMethod("query", collection, fromKey, toKey, indexedProperty, startValue, limit, projection);
+            return logResult(new Callable<List<T>>() {
+                @Override
+                public List<T> call() throws Exception {
+                    return store.query(collection, fromKey, toKey, indexedProperty, startValue, limit, projection);
+                }
+            });
+        } catch (Exception e) {
+            logException(e);
+            throw convert(e);
+        }
+    }
+
     @Override
     public <T extends Document> void remove(Collection<T> collection, String key) {
         try {
@@ -328,6 +352,24 @@ public class LoggingDocumentStoreWrapper implements DocumentStore {
         }
     }
 
+    @Override
+    public <T extends Document> void prefetch(final Collection<T> collection,
+                                              final Iterable<String> keys) {
+        try {
+            logMethod("prefetch", collection, keys);
+            logResult(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    store.prefetch(collection, keys);
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            logException(e);
+            throw convert(e);
+        }
+    }
+
     @Override
     public void setReadWriteMode(String readWriteMode) {
         try {
@@ -389,6 +431,14 @@ public class LoggingDocumentStoreWrapper implements DocumentStore {
         return result;
     }
 
+    @Override
+    public DocumentChangeFeed getChangeFeed() {
+        logMethod("getChangeFeed", "start");
+        final DocumentChangeFeed result = store.getChangeFeed();
+        logMethod("getChangeFeed", "end", result);
+        return result;
+    }
+
     private void logMethod(String methodName, Object... args) {
         StringBuilder buff = new StringBuilder(logPrefix);
         buff.append('.').append(methodName).append('(');
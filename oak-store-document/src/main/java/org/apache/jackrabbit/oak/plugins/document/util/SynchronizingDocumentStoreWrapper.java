@@ -22,6 +22,7 @@ import java.util.Map;
 import org.apache.jackrabbit.oak.cache.CacheStats;
 import org.apache.jackrabbit.oak.plugins.document.Collection;
 import org.apache.jackrabbit.oak.plugins.document.Document;
+import org.apache.jackrabbit.oak.plugins.document.DocumentChangeFeed;
 import org.apache.jackrabbit.oak.plugins.document.DocumentStore;
 import org.apache.jackrabbit.oak.plugins.document.DocumentStoreException;
 import org.apache.jackrabbit.oak.plugins.document.UpdateOp;
@@ -64,6 +65,14 @@ public class SynchronizingDocumentStoreWrapper implements DocumentStore {
         return store.query(collection, fromKey, toKey, indexedProperty, startValue, limit);
     }
 
+    @Override
+    @NotNull
+    public synchronized <T extends Document> List<T> query(final Collection<T> collection, final String fromKey,
+            final String toKey, final String indexedProperty, final long startValue, final int limit,
+            final List<String> projection) {
+        return store.query(collection, fromKey, toKey, indexedProperty, startValue, limit, projection);
+    }
+
     @Override
     public synchronized <T extends Document> void remove(Collection<T> collection, String key) {
         store.remove(collection, key);
@@ -132,6 +141,11 @@ public class SynchronizingDocumentStoreWrapper implements DocumentStore {
         return store.getIfCached(collection, key);
     }
 
+    @Override
+    public synchronized <T extends Document> void prefetch(final Collection<T> collection, final Iterable<String> keys) {
+        store.prefetch(collection, keys);
+    }
+
     @Override
     public synchronized void setReadWriteMode(String readWriteMode) {
         store.setReadWriteMode(readWriteMode);
@@ -157,6 +171,11 @@ public class SynchronizingDocumentStoreWrapper implements DocumentStore {
         return store.getNodeNameLimit();
     }
 
+    @Override
+    public synchronized DocumentChangeFeed getChangeFeed() {
+        return store.getChangeFeed();
+    }
+
     @Override
     public synchronized Map<String, String> getMetadata() {
         return store.getMetadata();
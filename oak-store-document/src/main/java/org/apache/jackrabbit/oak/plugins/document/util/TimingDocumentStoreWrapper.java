@@ -28,6 +28,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.jackrabbit.oak.cache.CacheStats;
 import org.apache.jackrabbit.oak.plugins.document.Collection;
 import org.apache.jackrabbit.oak.plugins.document.Document;
+import org.apache.jackrabbit.oak.plugins.document.DocumentChangeFeed;
 import org.apache.jackrabbit.oak.plugins.document.DocumentStore;
 import org.apache.jackrabbit.oak.plugins.document.DocumentStoreException;
 import org.apache.jackrabbit.oak.plugins.document.UpdateOp;
@@ -185,6 +186,28 @@ public class TimingDocumentStoreWrapper implements DocumentStore {
         }
     }
 
+    @Override
+    @NotNull
+    public <T extends Document> List<T> query(Collection<T> collection,
+                                              String fromKey,
+                                              String toKey,
+                                              String indexedProperty,
+                                              long startValue,
+                                              int limit,
+                                              List<String> projection) {
+        try {
+            long start = now();
+            List<T> result = base.query(collection, fromKey, toKey, indexedProperty, startValue, limit, projection);
+            updateAndLogTimes("query3", start, 0, size(result));
+            if (logCommonCall()) {
+                logCommonCall(start, "query3 " + collection + " " + fromKey + " " + toKey + " " + indexedProperty + " " + startValue + " " + limit + " " + projection);
+            }
+            return result;
+        } catch (Exception e) {
+            throw convert(e);
+        }
+    }
+
     @Override
     public <T extends Document> void remove(Collection<T> collection, String key) {
         try {
@@ -443,6 +466,22 @@ public class TimingDocumentStoreWrapper implements DocumentStore {
         }
     }
 
+    @Override
+    public DocumentChangeFeed getChangeFeed() {
+        return base.getChangeFeed();
+    }
+
+    @Override
+    public <T extends Document> void prefetch(Collection<T> collection, Iterable<String> keys) {
+        try {
+            long start = now();
+            base.prefetch(collection, keys);
+            updateAndLogTimes("prefetch", start, 0, 0);
+        } catch (Exception e) {
+            throw convert(e);
+        }
+    }
+
     private void logCommonCall(long start, String key) {
         int time = (int) (System.currentTimeMillis() - start);
         if (time <= 0) {
@@ -666,7 +666,7 @@ public class Utils {
      * @return an {@link Iterable} over all documents in the store.
      */
     public static Iterable<NodeDocument> getAllDocuments(final DocumentStore store) {
-        return internalGetSelectedDocuments(store, null, 0, DEFAULT_BATCH_SIZE);
+        return internalGetSelectedDocuments(store, null, 0, DEFAULT_BATCH_SIZE, null);
     }
 
     /**
@@ -708,7 +708,7 @@ public class Utils {
      */
     public static Iterable<NodeDocument> getSelectedDocuments(
             DocumentStore store, String indexedProperty, long startValue, int batchSize) {
-        return internalGetSelectedDocuments(store, indexedProperty, startValue, batchSize);
+        return internalGetSelectedDocuments(store, indexedProperty, startValue, batchSize, null);
     }
 
     /**
@@ -717,12 +717,25 @@ public class Utils {
      */
     public static Iterable<NodeDocument> getSelectedDocuments(
             DocumentStore store, String indexedProperty, long startValue) {
-        return internalGetSelectedDocuments(store, indexedProperty, startValue, DEFAULT_BATCH_SIZE);
+        return internalGetSelectedDocuments(store, indexedProperty, startValue, DEFAULT_BATCH_SIZE, null);
+    }
+
+    /**
+     * Like {@link #getSelectedDocuments(DocumentStore, String, long)}, but
+     * the returned documents may only contain the {@code _id} and the given
+     * fields. See {@link DocumentStore#query(Collection, String, String, String, long, int, List)}.
+     */
+    public static Iterable<NodeDocument> getSelectedDocuments(
+            DocumentStore store, String indexedProperty, long startValue,
+            @NotNull List<String> projection) {
+        return internalGetSelectedDocuments(store, indexedProperty, startValue,
+                DEFAULT_BATCH_SIZE, checkNotNull(projection));
     }
 
     private static Iterable<NodeDocument> internalGetSelectedDocuments(
             final DocumentStore store, final String indexedProperty,
-            final long startValue, final int batchSize) {
+            final long startValue, final int batchSize,
+            @Nullable final List<String> projection) {
         if (batchSize < 2) {
             throw new IllegalArgumentException("batchSize must be > 1");
         }
@@ -754,6 +767,10 @@ public class Utils {
                     }
 
                     private Iterator<NodeDocument> nextBatch() {
+                        if (projection != null) {
+                            return store.query(Collection.NODES, startId, NodeDocument.MAX_ID_VALUE,
+                                    indexedProperty, startValue, batchSize, projection).iterator();
+                        }
                         List<NodeDocument> result = indexedProperty == null ? store.query(Collection.NODES, startId,
                                 NodeDocument.MAX_ID_VALUE, batchSize) : store.query(Collection.NODES, startId,
                                 NodeDocument.MAX_ID_VALUE, indexedProperty, startValue, batchSize);
@@ -28,6 +28,7 @@ import static org.junit.Assume.assumeTrue;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -928,6 +929,36 @@ public class BasicDocumentStoreTest extends AbstractDocumentStoreTest {
         assertFalse(result.contains(base + "1"));
     }
 
+    @Test
+    public void testQueryWithProjection() {
+        String base = this.getClass().getName() + ".testQueryWithProjection-";
+        for (int i = 0; i < 10; i++) {
+            String id = base + i;
+            UpdateOp up = new UpdateOp(id, true);
+            up.set(NodeDocument.DELETED_ONCE, Boolean.valueOf(i % 2 == 0));
+            NodeDocument.setModified(up, new Revision(System.currentTimeMillis(), 0, 1));
+            up.set("foo", "bar");
+            boolean success = super.ds.create(Collection.NODES, Collections.singletonList(up));
+            assertTrue("document with " + id + " not created", success);
+            removeMe.add(id);
+        }
+
+        List<String> projection = Arrays.asList(NodeDocument.DELETED_ONCE, NodeDocument.MODIFIED_IN_SECS);
+        List<NodeDocument> full = ds.query(Collection.NODES, base, base + "Z", NodeDocument.DELETED_ONCE, 1L, 1000);
+        List<NodeDocument> projected = ds.query(Collection.NODES, base, base + "Z", NodeDocument.DELETED_ONCE, 1L, 1000,
+                projection);
+        assertEquals(getKeys(full), getKeys(projected));
+        for (int i = 0; i < full.size(); i++) {
+            NodeDocument doc = projected.get(i);
+            assertTrue(doc.wasDeletedOnce());
+            assertEquals(full.get(i).getModified(), doc.getModified());
+        }
+
+        // projection without an indexed property
+        projected = ds.query(Collection.NODES, base, base + "Z", null, 0, 1000, projection);
+        assertEquals(10, projected.size());
+    }
+
     @Test
     public void testQueryCollation() {
         // create ten documents
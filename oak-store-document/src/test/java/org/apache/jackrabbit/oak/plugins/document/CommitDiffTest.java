@@ -182,7 +182,7 @@ public class CommitDiffTest {
     }
 
     private CommitDiff newCommitDiff(CommitBuilder builder) {
-        return new CommitDiff(bundlingHandler, builder, ns.getBlobSerializer());
+        return new CommitDiff(bundlingHandler, ns.getBundlingRecommender(), builder, ns.getBlobSerializer());
     }
 
     private static NodeState newNtFile() {
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document;
+
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.jackrabbit.oak.cache.CacheStats;
+import org.apache.jackrabbit.oak.plugins.document.CompressedDiffCache.ChangeSet;
+import org.apache.jackrabbit.oak.plugins.document.memory.MemoryDocumentStore;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.apache.jackrabbit.oak.plugins.document.TestUtils.merge;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CompressedDiffCacheTest {
+
+    @Rule
+    public DocumentMKBuilderProvider builderProvider = new DocumentMKBuilderProvider();
+
+    @Test
+    public void changeSet() {
+        SortedMap<Path, String> changes = createChanges();
+        ChangeSet cs = ChangeSet.create(changes);
+        for (SortedMap.Entry<Path, String> e : changes.entrySet()) {
+            assertEquals(e.getValue(), cs.getChanges(e.getKey()));
+        }
+        // not mentioned by changes of parent
+        assertEquals("", cs.getChanges(Path.fromString("/content/foo")));
+        assertEquals("", cs.getChanges(Path.fromString("/content/foo/bar")));
+        assertEquals("", cs.getChanges(Path.fromString("/content/node-1/child-99")));
+        // changed according to parent, but without own entry
+        assertNull(cs.getChanges(Path.fromString("/content/node-1/child-1")));
+        // outside of change set
+        assertNull(cs.getChanges(Path.fromString("foo")));
+
+        assertEquals(changes, cs.getAllChanges());
+    }
+
+    @Test
+    public void asBytes() {
+        ChangeSet cs = ChangeSet.create(createChanges());
+        ChangeSet cs2 = ChangeSet.fromBytes(cs.asBytes());
+        assertEquals(cs, cs2);
+        assertEquals(cs.getAllChanges(), cs2.getAllChanges());
+    }
+
+    @Test
+    public void mergeEntries() {
+        CompressedDiffCache cache = new CompressedDiffCache(
+                builderProvider.newBuilder().setCompressedDiffCacheSize(1024 * 1024));
+        RevisionVector from = new RevisionVector(new Revision(1, 0, 1));
+        RevisionVector to = new RevisionVector(new Revision(2, 0, 1));
+        Path foo = Path.fromString("/foo");
+        Path bar = Path.fromString("/bar");
+        assertNull(cache.getChanges(from, to, foo, null));
+
+        DiffCache.Entry entry = cache.newEntry(from, to, false);
+        entry.append(foo, "^\"a\":{}");
+        assertTrue(entry.done());
+        entry = cache.newEntry(from, to, false);
+        entry.append(bar, "-\"b\"");
+        assertTrue(entry.done());
+
+        assertEquals("^\"a\":{}", cache.getChanges(from, to, foo, null));
+        assertEquals("-\"b\"", cache.getChanges(from, to, bar, null));
+        assertEquals("", cache.getChanges(from, to, new Path(foo, "b"), null));
+        assertEquals("loaded", cache.getChanges(from, to, Path.ROOT, () -> "loaded"));
+    }
+
+    @Test
+    public void externalChanges() throws Exception {
+        MemoryDocumentStore store = new MemoryDocumentStore();
+        DocumentNodeStore ns1 = builderProvider.newBuilder().setAsyncDelay(0)
+                .setDocumentStore(store).setClusterId(1).getNodeStore();
+        DocumentNodeStore ns2 = builderProvider.newBuilder().setAsyncDelay(0)
+                .setDocumentStore(store).setClusterId(2)
+                .setCompressedDiffCacheSize(1024 * 1024).getNodeStore();
+        CacheStats stats = null;
+        for (CacheStats cs : ns2.getDiffCacheStats()) {
+            if (cs.getName().equals("Document-CompressedDiff")) {
+                stats = cs;
+            }
+        }
+        assertTrue(stats != null);
+        assertEquals(0, stats.getElementCount());
+
+        RevisionVector before = ns2.getHeadRevision();
+        NodeBuilder builder = ns1.getRoot().builder();
+        builder.child("a").child("b");
+        merge(ns1, builder);
+        ns1.runBackgroundOperations();
+        ns2.runBackgroundOperations();
+        RevisionVector after = ns2.getHeadRevision();
+        assertFalse(before.equals(after));
+        assertEquals(1, stats.getElementCount());
+
+        String changes = ns2.getDiffCache().getChanges(before, after, Path.ROOT, null);
+        assertEquals("^\"a\":{}", changes);
+        Path a = Path.fromString("/a");
+        assertEquals("^\"b\":{}", ns2.getDiffCache().getChanges(before, after, a, null));
+        // unchanged nodes are inferred from the same change set
+        Path x = Path.fromString("/x/y");
+        assertEquals("", ns2.getDiffCache().getChanges(before, after, x, null));
+    }
+
+    private static SortedMap<Path, String> createChanges() {
+        SortedMap<Path, String> changes = new TreeMap<>();
+        changes.put(Path.ROOT, "^\"content\":{}");
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            content.append("^\"node-").append(i).append("\":{}");
+            changes.put(Path.fromString("/content/node-" + i), "+\"child-" + i + "\":{}");
+        }
+        changes.put(Path.fromString("/content"), content.toString());
+        return changes;
+    }
+}
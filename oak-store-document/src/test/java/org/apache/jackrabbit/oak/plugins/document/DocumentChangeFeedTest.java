@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Lists;
+
+import org.apache.jackrabbit.oak.plugins.document.memory.MemoryDocumentStore;
+import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
+import org.apache.jackrabbit.oak.spi.commit.EmptyHook;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonMap;
+import static org.apache.jackrabbit.oak.plugins.document.Collection.NODES;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class DocumentChangeFeedTest {
+
+    @Rule
+    public final DocumentMKBuilderProvider builderProvider = new DocumentMKBuilderProvider();
+
+    @Test
+    public void memoryDocumentStore() throws Exception {
+        MemoryDocumentStore store = new MemoryDocumentStore();
+        DocumentChangeFeed feed = store.getChangeFeed();
+        assertNotNull(feed);
+        List<String> ids = Lists.newArrayList();
+        List<Set<Revision>> revisions = Lists.newArrayList();
+        Closeable registration = feed.addListener(new DocumentChangeFeed.Listener() {
+            @Override
+            public void modified(@NotNull Collection<?> collection,
+                                 @NotNull String id,
+                                 @NotNull Set<Revision> revs) {
+                ids.add(id);
+                revisions.add(revs);
+            }
+        });
+
+        Revision r = Revision.newRevision(1);
+        UpdateOp op = new UpdateOp("1:/foo", true);
+        NodeDocument.setModified(op, r);
+        op.setMapEntry("p", r, "v");
+        store.createOrUpdate(NODES, op);
+        assertEquals(Lists.newArrayList("1:/foo"), ids);
+        assertEquals(singleton(r), revisions.get(0));
+
+        // conditional update that does not apply
+        op = new UpdateOp("1:/foo", false);
+        op.equals("p", r, "x");
+        op.setMapEntry("p", r, "w");
+        store.findAndUpdate(NODES, op);
+        assertEquals(1, ids.size());
+
+        registration.close();
+        op = new UpdateOp("1:/bar", true);
+        op.setMapEntry("p", r, "v");
+        store.createOrUpdate(NODES, op);
+        assertEquals(1, ids.size());
+    }
+
+    @Test
+    public void memoryDocumentStoreRemove() throws Exception {
+        MemoryDocumentStore store = new MemoryDocumentStore();
+        List<String> removed = Lists.newArrayList();
+        store.getChangeFeed().addListener(new DocumentChangeFeed.Listener() {
+            @Override
+            public void modified(@NotNull Collection<?> collection,
+                                 @NotNull String id,
+                                 @NotNull Set<Revision> revs) {
+            }
+
+            @Override
+            public void removed(@NotNull Collection<?> collection,
+                                @NotNull String id) {
+                removed.add(id);
+            }
+        });
+
+        Revision r = Revision.newRevision(1);
+        for (String id : new String[]{"1:/a", "1:/b", "1:/c", "1:/d"}) {
+            UpdateOp op = new UpdateOp(id, true);
+            NodeDocument.setModified(op, r);
+            store.createOrUpdate(NODES, op);
+        }
+        long modified = store.find(NODES, "1:/a").getModified();
+
+        store.remove(NODES, "1:/a");
+        // not present anymore
+        store.remove(NODES, "1:/a");
+        assertEquals(Lists.newArrayList("1:/a"), removed);
+
+        store.remove(NODES, singletonMap("1:/b", modified));
+        assertEquals(Lists.newArrayList("1:/a", "1:/b"), removed);
+
+        store.remove(NODES, NodeDocument.MODIFIED_IN_SECS, modified - 1, modified + 1);
+        assertEquals(Lists.newArrayList("1:/a", "1:/b", "1:/c", "1:/d"), removed);
+    }
+
+    @Test
+    public void backgroundReadOnPeerChange() throws Exception {
+        MemoryDocumentStore store = new MemoryDocumentStore();
+        DocumentNodeStore ns1 = builderProvider.newBuilder()
+                .setDocumentStore(store).setClusterId(1)
+                .setAsyncDelay(0).getNodeStore();
+        // periodic background read would only see
+        // changes from ns1 after one minute
+        DocumentNodeStore ns2 = builderProvider.newBuilder()
+                .setDocumentStore(store).setClusterId(2)
+                .setAsyncDelay((int) TimeUnit.MINUTES.toMillis(1)).getNodeStore();
+
+        NodeBuilder builder = ns1.getRoot().builder();
+        builder.child("foo");
+        ns1.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+        ns1.runBackgroundOperations();
+
+        long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (!ns2.getRoot().hasChildNode("foo")
+                && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertTrue(ns2.getRoot().hasChildNode("foo"));
+    }
+}
@@ -20,6 +20,7 @@
 package org.apache.jackrabbit.oak.plugins.document;
 
 import java.lang.management.ManagementFactory;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -37,6 +38,7 @@ import org.slf4j.LoggerFactory;
 
 import static com.google.common.collect.ImmutableList.of;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class DocumentStoreStatsTest {
     private ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
@@ -173,6 +175,78 @@ public class DocumentStoreStatsTest {
     }
 
 
+    @Test
+    public void latencyPerCollectionAndOperation() throws Exception{
+        stats.doneFindUncached(100, Collection.SETTINGS, "foo", true, false);
+        stats.doneFindAndModify(200, Collection.NODES, "0:/", false, true, 0);
+        stats.doneFindAndModify(300, Collection.NODES, "0:/", false, true, 0);
+        stats.doneRemove(400, Collection.JOURNAL, 3);
+
+        Timer find = getTimer(DocumentStoreStats.getLatencyStatsName(
+                Collection.SETTINGS, DocumentStoreStats.Operation.FIND));
+        assertEquals(1, find.getCount());
+        assertEquals(100, find.getSnapshot().getMax());
+        Timer update = getTimer(DocumentStoreStats.getLatencyStatsName(
+                Collection.NODES, DocumentStoreStats.Operation.FIND_AND_UPDATE));
+        assertEquals(2, update.getCount());
+        assertEquals(300, update.getSnapshot().getMax());
+        assertEquals(1, getTimer("DOCUMENT_JOURNAL_REMOVE_LATENCY").getCount());
+        assertEquals(0, getTimer(DocumentStoreStats.getLatencyStatsName(
+                Collection.NODES, DocumentStoreStats.Operation.QUERY)).getCount());
+    }
+
+    @Test
+    public void slowOperations() throws Exception{
+        DocumentStoreStats slowStats = new DocumentStoreStats(statsProvider, 10);
+        long slow = TimeUnit.MILLISECONDS.toNanos(20);
+        slowStats.doneFindUncached(100, Collection.NODES, "0:/", true, false);
+        slowStats.doneFindUncached(slow, Collection.NODES, "1:/foo", true, false);
+        DocumentStoreCaller previous = DocumentStoreCaller.enter(DocumentStoreCaller.COMMIT);
+        try {
+            slowStats.doneCreateOrUpdate(slow, Collection.NODES, of("1:/a", "1:/b"));
+        } finally {
+            DocumentStoreCaller.exit(previous);
+        }
+        assertEquals(DocumentStoreCaller.OTHER, DocumentStoreCaller.current());
+
+        String[] ops = slowStats.getSlowOperations();
+        assertEquals(2, ops.length);
+        assertTrue(ops[0], ops[0].contains("CREATE_OR_UPDATE nodes [[1:/a, 1:/b]]"));
+        assertTrue(ops[0], ops[0].contains("caller=COMMIT"));
+        assertTrue(ops[1], ops[1].contains("FIND nodes [1:/foo] took 20ms"));
+        assertTrue(ops[1], ops[1].contains("caller=OTHER"));
+        assertEquals(1, getMeter(DocumentStoreStats.SLOW_OPERATIONS + "_COMMIT").getCount());
+        assertEquals(1, getMeter(DocumentStoreStats.SLOW_OPERATIONS + "_OTHER").getCount());
+    }
+
+    @Test
+    public void slowOperationsOnOtherThread() throws Exception {
+        DocumentStoreStats slowStats = new DocumentStoreStats(statsProvider, 10);
+        long slow = TimeUnit.MILLISECONDS.toNanos(20);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            DocumentStoreCaller previous = DocumentStoreCaller.enter(DocumentStoreCaller.VERSION_GC);
+            try {
+                executor.submit(DocumentStoreCaller.propagate(
+                        () -> slowStats.doneRemove(slow, Collection.NODES, 3))).get();
+            } finally {
+                DocumentStoreCaller.exit(previous);
+            }
+            // not propagated without a caller
+            executor.submit(DocumentStoreCaller.propagate(
+                    () -> slowStats.doneRemove(slow, Collection.NODES, 4))).get();
+        } finally {
+            new ExecutorCloser(executor).close();
+        }
+
+        String[] ops = slowStats.getSlowOperations();
+        assertEquals(2, ops.length);
+        assertTrue(ops[0], ops[0].contains("REMOVE nodes [4]"));
+        assertTrue(ops[0], ops[0].contains("caller=OTHER"));
+        assertTrue(ops[1], ops[1].contains("REMOVE nodes [3]"));
+        assertTrue(ops[1], ops[1].contains("caller=VERSION_GC"));
+    }
+
     private Meter getMeter(String name) {
         return statsProvider.getRegistry().getMeters().get(name);
     }
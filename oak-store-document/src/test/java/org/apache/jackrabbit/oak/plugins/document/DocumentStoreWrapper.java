@@ -169,4 +169,9 @@ public class DocumentStoreWrapper implements DocumentStore {
     public long determineServerTimeDifferenceMillis() {
         return store.determineServerTimeDifferenceMillis();
     }
+
+    @Override
+    public DocumentChangeFeed getChangeFeed() {
+        return store.getChangeFeed();
+    }
 }
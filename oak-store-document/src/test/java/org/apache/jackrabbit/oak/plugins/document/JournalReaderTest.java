@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Lists;
+
+import org.apache.jackrabbit.oak.commons.concurrent.ExecutorCloser;
+import org.apache.jackrabbit.oak.plugins.document.memory.MemoryDocumentStore;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static java.util.Collections.singletonList;
+import static org.apache.jackrabbit.oak.plugins.document.Collection.JOURNAL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JournalReaderTest {
+
+    private static final int NUM_ENTRIES = 250;
+
+    private ExecutorService executor;
+
+    private DocumentStore store = new MemoryDocumentStore();
+
+    @Before
+    public void before() {
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void after() {
+        new ExecutorCloser(executor).close();
+    }
+
+    @Test
+    public void readSequential() {
+        createEntries();
+        assertEntries(new JournalReader(store, null));
+    }
+
+    @Test
+    public void readPrefetch() {
+        createEntries();
+        assertEntries(new JournalReader(store, executor));
+    }
+
+    @Test
+    public void noEntries() {
+        try (JournalReader reader = new JournalReader(store, executor)) {
+            Iterator<JournalEntry> entries = reader.read(
+                    new Revision(0, 0, 1), new Revision(10, 0, 1));
+            assertFalse(entries.hasNext());
+        }
+    }
+
+    @Test
+    public void closeBeforeFullyConsumed() throws Exception {
+        createEntries();
+        JournalReader reader = new JournalReader(store, executor);
+        List<Iterator<JournalEntry>> iterators = Lists.newArrayList();
+        for (int clusterId = 1; clusterId <= 3; clusterId++) {
+            iterators.add(reader.read(new Revision(0, 0, clusterId),
+                    new Revision(NUM_ENTRIES, 0, clusterId)));
+        }
+        // consume some entries of the first range only
+        // and then stop reading
+        Iterator<JournalEntry> first = iterators.get(0);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(first.hasNext());
+            first.next();
+        }
+        reader.close();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void exception() {
+        createEntries();
+        store = new DocumentStoreWrapper(store) {
+            @NotNull
+            @Override
+            public <T extends Document> List<T> query(Collection<T> collection,
+                                                      String fromKey,
+                                                      String toKey,
+                                                      int limit) {
+                throw new DocumentStoreException("failure");
+            }
+        };
+        try (JournalReader reader = new JournalReader(store, executor)) {
+            Iterator<JournalEntry> entries = reader.read(
+                    new Revision(0, 0, 1), new Revision(NUM_ENTRIES, 0, 1));
+            entries.hasNext();
+            fail("DocumentStoreException expected");
+        } catch (DocumentStoreException e) {
+            assertEquals("failure", e.getMessage());
+        }
+    }
+
+    private void assertEntries(JournalReader reader) {
+        try {
+            List<Iterator<JournalEntry>> iterators = Lists.newArrayList();
+            for (int clusterId = 1; clusterId <= 3; clusterId++) {
+                iterators.add(reader.read(new Revision(0, 0, clusterId),
+                        new Revision(NUM_ENTRIES, 0, clusterId)));
+            }
+            int clusterId = 1;
+            for (Iterator<JournalEntry> it : iterators) {
+                int num = 0;
+                while (it.hasNext()) {
+                    JournalEntry entry = it.next();
+                    num++;
+                    assertEquals(JournalEntry.asId(new Revision(num, 0, clusterId)),
+                            entry.getId());
+                }
+                assertEquals(NUM_ENTRIES, num);
+                clusterId++;
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void createEntries() {
+        for (int clusterId = 1; clusterId <= 3; clusterId++) {
+            for (int i = 1; i <= NUM_ENTRIES; i++) {
+                JournalEntry entry = JOURNAL.newDocument(store);
+                entry.modified(Path.fromString("/node-" + i));
+                UpdateOp op = entry.asUpdateOp(new Revision(i, 0, clusterId));
+                assertTrue(store.create(JOURNAL, singletonList(op)));
+            }
+        }
+    }
+}
@@ -25,7 +25,9 @@ import org.apache.jackrabbit.oak.api.CommitFailedException;
 import org.apache.jackrabbit.oak.plugins.document.util.Utils;
 import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
 import org.apache.jackrabbit.oak.spi.commit.EmptyHook;
+import org.apache.jackrabbit.oak.spi.state.ChildNodeEntry;
 import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
 import org.junit.Test;
 
 import static org.apache.jackrabbit.oak.plugins.document.Collection.NODES;
@@ -36,6 +38,7 @@ import static org.hamcrest.Matchers.greaterThan;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -252,6 +255,46 @@ public class LastRevRecoveryAgentTest extends AbstractTwoNodeTest {
         assertNotEquals(zlastRev2, getDocument(ds1, "/").getLastRev().get(c2Id));
     }
 
+    @Test
+    public void parallelRecovery() throws Exception {
+        NodeBuilder b1 = ds1.getRoot().builder();
+        b1.child("x");
+        merge(ds1, b1);
+        ds1.runBackgroundOperations();
+        ds2.runBackgroundOperations();
+
+        int numNodes = 500;
+        NodeBuilder b2 = ds2.getRoot().builder();
+        for (int i = 0; i < numNodes; i++) {
+            b2.child("x").child("node-" + (i % 50)).child("child-" + i);
+        }
+        merge(ds2, b2);
+
+        // simulate a crash of ds2
+        long leaseTime = ds2.getClusterInfo().getLeaseTime();
+        clock.waitUntil(clock.getTime() + leaseTime * 2);
+        ds1.getClusterInfo().renewLease();
+
+        LastRevRecoveryAgent agent = ds1.getLastRevRecoveryAgent();
+        agent.setRecoveryThreads(4);
+        assertEquals("No recovery performed", agent.getRecoveryStatus());
+        assertThat(agent.recover(c2Id), greaterThan(0));
+        assertTrue(agent.getRecoveryStatus(), agent.getRecoveryStatus().contains("done"));
+        assertTrue(ds1.getMBean().getLastRevRecoveryStatus().contains("done"));
+        assertNotNull(getDocument(ds1, "/x/node-0").getLastRev().get(c2Id));
+
+        ds1.runBackgroundOperations();
+        NodeState x = ds1.getRoot().getChildNode("x");
+        int count = 0;
+        for (ChildNodeEntry parent : x.getChildNodeEntries()) {
+            count += (int) parent.getNodeState().getChildNodeCount(Long.MAX_VALUE);
+        }
+        assertEquals(numNodes, count);
+
+        // dispose ds2 quietly because it may now throw an exception
+        disposeQuietly(ds2);
+    }
+
     private static NodeDocument getDocument(DocumentNodeStore nodeStore,
                                             String path) {
         return nodeStore.getDocumentStore().find(NODES, getIdFromPath(path));
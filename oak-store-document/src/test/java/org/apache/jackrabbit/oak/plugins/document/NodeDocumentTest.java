@@ -61,6 +61,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -87,6 +88,21 @@ public class NodeDocumentTest {
         doc.split(DummyRevisionContext.INSTANCE, head, NO_BINARY);
     }
 
+    @Test
+    public void pathOfSealedDocument() {
+        MemoryDocumentStore docStore = new MemoryDocumentStore();
+        NodeDocument doc = new NodeDocument(docStore);
+        doc.put(Document.ID, Utils.getIdFromPath("/foo"));
+        assertEquals(Path.fromString("/foo"), doc.getPath());
+        // not sealed yet, the id may still change
+        doc.put(Document.ID, Utils.getIdFromPath("/bar"));
+        assertEquals(Path.fromString("/bar"), doc.getPath());
+        doc.seal();
+        Path p = doc.getPath();
+        assertEquals(Path.fromString("/bar"), p);
+        assertSame(p, doc.getPath());
+    }
+
     @Test
     public void getConflictsFor() {
         MemoryDocumentStore docStore = new MemoryDocumentStore();
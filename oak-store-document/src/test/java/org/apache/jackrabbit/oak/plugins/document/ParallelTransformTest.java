@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.google.common.collect.ContiguousSet;
+import com.google.common.collect.DiscreteDomain;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Range;
+
+import org.apache.jackrabbit.oak.commons.concurrent.ExecutorCloser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ParallelTransformTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void before() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void after() {
+        new ExecutorCloser(executor).close();
+    }
+
+    @Test
+    public void ordered() {
+        List<Integer> numbers = ContiguousSet.create(
+                Range.closedOpen(0, 1000), DiscreteDomain.integers()).asList();
+        Iterable<Integer> doubled = ParallelTransform.transform(
+                numbers, i -> i * 2, executor, 7, 3);
+        int expected = 0;
+        for (int i : doubled) {
+            assertEquals(expected, i);
+            expected += 2;
+        }
+        assertEquals(2000, expected);
+        // iterable can be iterated again
+        assertEquals(1000, ImmutableList.copyOf(doubled).size());
+    }
+
+    @Test
+    public void sequential() {
+        Iterable<String> strings = ParallelTransform.transform(
+                ImmutableList.of(1, 2, 3), String::valueOf, null, 1, 1);
+        assertEquals(ImmutableList.of("1", "2", "3"), ImmutableList.copyOf(strings));
+    }
+
+    @Test
+    public void empty() {
+        Iterable<Integer> result = ParallelTransform.transform(
+                ImmutableList.<Integer>of(), i -> i, executor, 10, 2);
+        assertEquals(0, ImmutableList.copyOf(result).size());
+    }
+
+    @Test
+    public void exception() {
+        Iterable<Integer> result = ParallelTransform.transform(
+                ImmutableList.of(1, 2, 3), i -> {
+                    if (i == 3) {
+                        throw new DocumentStoreException("failure");
+                    }
+                    return i;
+                }, executor, 1, 2);
+        try {
+            ImmutableList.copyOf(result);
+            fail("DocumentStoreException expected");
+        } catch (DocumentStoreException e) {
+            assertEquals("failure", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+public class PathTriePerformance {
+
+    private static final int NUM_PATHS = 100000;
+
+    // number of caches holding an equal path
+    private static final int NUM_COPIES = 4;
+
+    @Test
+    public void heapUsage() {
+        measure("Path.fromString", Path::fromString);
+        measure("PathTrie.fromString", PathTrie::fromString);
+    }
+
+    private static void measure(String name, Function<String, Path> parser) {
+        List<Path> paths = new ArrayList<>(NUM_PATHS * NUM_COPIES);
+        long before = usedMemory();
+        long time = System.nanoTime();
+        for (int c = 0; c < NUM_COPIES; c++) {
+            for (int i = 0; i < NUM_PATHS; i++) {
+                paths.add(parser.apply("/content/site-" + (i % 10) +
+                        "/page-" + (i % 1000) + "/jcr:content/node-" + i));
+            }
+        }
+        time = System.nanoTime() - time;
+        long used = usedMemory() - before;
+        System.out.println(name + ": " + paths.size() + " paths, heap: " +
+                (used / 1024) + " KB, time: " +
+                TimeUnit.NANOSECONDS.toMillis(time) + " ms.");
+    }
+
+    private static long usedMemory() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document;
+
+import org.apache.jackrabbit.oak.plugins.document.memory.MemoryDocumentStore;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.apache.jackrabbit.oak.plugins.document.TestUtils.merge;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class PathTrieTest {
+
+    @Rule
+    public DocumentMKBuilderProvider builderProvider = new DocumentMKBuilderProvider();
+
+    @Test
+    public void canonicalize() {
+        Path p1 = Path.fromString("/foo/bar/baz");
+        Path p2 = Path.fromString("/foo/bar/baz");
+        assertNotSame(p1, p2);
+        Path c1 = PathTrie.canonicalize(p1);
+        Path c2 = PathTrie.canonicalize(p2);
+        assertEquals(p1, c1);
+        assertSame(c1, c2);
+        assertSame(c1.getParent(), PathTrie.canonicalize(Path.fromString("/foo/bar")));
+        assertSame(Path.ROOT, PathTrie.canonicalize(Path.ROOT));
+        assertSame(c1, PathTrie.fromString("/foo/bar/baz"));
+        assertSame(c1, PathTrie.child(Path.fromString("/foo/bar"), "baz"));
+    }
+
+    @Test
+    public void relativePaths() {
+        Path p = PathTrie.fromString("foo/bar");
+        assertEquals(Path.fromString("foo/bar"), p);
+        assertSame(p, PathTrie.canonicalize(Path.fromString("foo/bar")));
+        assertNotSame(p, PathTrie.fromString("/foo/bar"));
+    }
+
+    @Test
+    public void emptyPath() {
+        try {
+            PathTrie.fromString("");
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            PathTrie.child(Path.ROOT, "");
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void sharedByCaches() throws Exception {
+        DocumentNodeStore ns = builderProvider.newBuilder().setAsyncDelay(0)
+                .setDocumentStore(new MemoryDocumentStore()).getNodeStore();
+        NodeBuilder builder = ns.getRoot().builder();
+        builder.child("foo");
+        merge(ns, builder);
+        RevisionVector head = ns.getHeadRevision();
+        Path path = Path.fromString("/foo");
+        DocumentNodeState state = ns.getNode(path, head);
+        assertNotNull(state);
+        assertSame(PathTrie.canonicalize(path), state.getPath());
+        NodeDocument doc = ns.getDocumentStore().find(Collection.NODES, "1:/foo");
+        assertNotNull(doc);
+        assertSame(state.getPath(), doc.getPath());
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document;
+
+import org.apache.jackrabbit.oak.plugins.document.memory.MemoryDocumentStore;
+import org.apache.jackrabbit.oak.plugins.document.util.Utils;
+import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
+import org.apache.jackrabbit.oak.spi.commit.EmptyHook;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.apache.jackrabbit.oak.plugins.document.Collection.NODES;
+import static org.apache.jackrabbit.oak.plugins.document.NodeDocument.NUM_REVS_THRESHOLD;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class ReadCostSplitPolicyTest {
+
+    @Rule
+    public DocumentMKBuilderProvider builderProvider = new DocumentMKBuilderProvider();
+
+    private final DocumentStore store = new MemoryDocumentStore();
+
+    @Test
+    public void coldDocument() {
+        ReadCostSplitPolicy policy = new ReadCostSplitPolicy(100, 10);
+        NodeDocument doc = createDocument("/foo", 30);
+        assertEquals(NUM_REVS_THRESHOLD, policy.getNumRevsThreshold(doc));
+        assertFalse(policy.isSplitCandidate(doc));
+    }
+
+    @Test
+    public void hotDocument() {
+        ReadCostSplitPolicy policy = new ReadCostSplitPolicy(100, 10);
+        NodeDocument doc = createDocument("/foo", 50);
+        policy.documentRead(doc);
+        assertEquals(50, policy.getReadCost(doc.getId()));
+        assertEquals(20, policy.getNumRevsThreshold(doc));
+        policy.documentRead(doc);
+        assertEquals(10, policy.getNumRevsThreshold(doc));
+        assertTrue(policy.isSplitCandidate(doc));
+    }
+
+    @Test
+    public void decay() {
+        ReadCostSplitPolicy policy = new ReadCostSplitPolicy(100, 10);
+        NodeDocument doc = createDocument("/foo", 50);
+        policy.documentRead(doc);
+        policy.documentRead(doc);
+        policy.splitDone();
+        assertEquals(50, policy.getReadCost(doc.getId()));
+        for (int i = 0; i < 10; i++) {
+            policy.splitDone();
+        }
+        assertEquals(0, policy.getReadCost(doc.getId()));
+        assertEquals(0, policy.getNumTrackedDocuments());
+        assertEquals(NUM_REVS_THRESHOLD, policy.getNumRevsThreshold(doc));
+    }
+
+    @Test
+    public void ignoreSmallHistory() {
+        ReadCostSplitPolicy policy = new ReadCostSplitPolicy(100, 10);
+        NodeDocument doc = createDocument("/foo", 5);
+        for (int i = 0; i < 100; i++) {
+            policy.documentRead(doc);
+        }
+        assertEquals(0, policy.getNumTrackedDocuments());
+    }
+
+    @Test
+    public void splitHotDocument() throws Exception {
+        DocumentNodeStore ns = builderProvider.newBuilder()
+                .setSplitPolicy(new ReadCostSplitPolicy(1, 10))
+                .setAsyncDelay(0).getNodeStore();
+        String id = Utils.getIdFromPath("/foo");
+        for (int i = 0; i < 20; i++) {
+            NodeBuilder builder = ns.getRoot().builder();
+            builder.child("foo").setProperty("p", i);
+            merge(ns, builder);
+        }
+        // read it without the node cache
+        ns.getNodeCache().invalidateAll();
+        assertTrue(ns.getRoot().getChildNode("foo").exists());
+
+        NodeBuilder builder = ns.getRoot().builder();
+        builder.child("foo").setProperty("p", -1);
+        merge(ns, builder);
+        ns.runBackgroundOperations();
+
+        NodeDocument doc = ns.getDocumentStore().find(NODES, id);
+        assertNotNull(doc);
+        assertEquals(1, doc.getPreviousRanges().size());
+        assertTrue(doc.getLocalRevisions().size() < 10);
+    }
+
+    private NodeDocument createDocument(String path, int numRevisions) {
+        String id = Utils.getIdFromPath(path);
+        UpdateOp op = new UpdateOp(id, true);
+        for (int i = 0; i < numRevisions; i++) {
+            NodeDocument.setRevision(op, new Revision(i + 1, 0, 1), "c");
+        }
+        store.createOrUpdate(NODES, op);
+        NodeDocument doc = store.find(NODES, id);
+        assertNotNull(doc);
+        return doc;
+    }
+
+    private static void merge(DocumentNodeStore ns, NodeBuilder builder)
+            throws Exception {
+        ns.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class RevisionParsePerformance {
+
+    private static final int NUM_REVISIONS = 100;
+
+    private static final int NUM_ITERATIONS = 100000;
+
+    @Test
+    public void revision() {
+        String[] revisions = new String[NUM_REVISIONS];
+        for (int i = 0; i < revisions.length; i++) {
+            revisions[i] = Revision.newRevision(1).toString();
+        }
+        long time = System.nanoTime();
+        for (int i = 0; i < NUM_ITERATIONS; i++) {
+            for (String r : revisions) {
+                Revision.fromString(r);
+            }
+        }
+        time = System.nanoTime() - time;
+        System.out.println("revision: " + TimeUnit.NANOSECONDS.toMicros(time) + " us.");
+    }
+
+    @Test
+    public void revisionVector() {
+        String rv = new RevisionVector(Revision.newRevision(1),
+                Revision.newRevision(2), Revision.newRevision(3)).asString();
+        long time = System.nanoTime();
+        for (int i = 0; i < NUM_ITERATIONS * 10; i++) {
+            RevisionVector.fromString(rv);
+        }
+        time = System.nanoTime() - time;
+        System.out.println("revision vector: " + TimeUnit.NANOSECONDS.toMicros(time) + " us.");
+    }
+
+    @Test
+    public void diffCacheKey() {
+        RevisionVector from = new RevisionVector(Revision.newRevision(1), Revision.newRevision(2));
+        RevisionVector to = new RevisionVector(Revision.newRevision(1), Revision.newRevision(2));
+        String key = new MemoryDiffCache.Key(Path.fromString("/content/site/page"), from, to).asString();
+        long time = System.nanoTime();
+        for (int i = 0; i < NUM_ITERATIONS * 10; i++) {
+            MemoryDiffCache.Key.fromString(key);
+        }
+        time = System.nanoTime() - time;
+        System.out.println("diff cache key: " + TimeUnit.NANOSECONDS.toMicros(time) + " us.");
+    }
+}
@@ -91,6 +91,36 @@ public class RevisionTest {
         }
     }
 
+    @Test
+    public void fromCharSequence() {
+        Revision r = new Revision(0x15f1e6d0c5aL, 3, 2, true);
+        String s = "x" + r + ",";
+        Revision r2 = Revision.fromString(new StringBuilder(s), 1, s.length() - 1);
+        assertEquals(r, r2);
+        assertEquals(r.toString(), r2.toString());
+        for (String invalid : new String[]{"x,", "xb,", "xbb,"}) {
+            try {
+                Revision.fromString(invalid, 1, invalid.length() - 1);
+                fail("Expected: Invalid revision id exception for " + invalid);
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void internRecentRevisions() {
+        Revision r = Revision.newRevision(1);
+        Revision r1 = Revision.fromString(r.toString());
+        Revision r2 = Revision.fromString(r.toString());
+        assertEquals(r, r1);
+        assertTrue(r1 == r2);
+        // the branch flag is part of the identity
+        Revision b = Revision.fromString(r.asBranchRevision().toString());
+        assertTrue(b.isBranch());
+        assertFalse(r1.isBranch());
+    }
+
     @Test
     public void difference() throws InterruptedException {
         long t0 = Revision.getCurrentTimestamp();
@@ -28,6 +28,7 @@ import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class RevisionVectorTest {
 
@@ -403,6 +404,24 @@ public class RevisionVectorTest {
         assertEquals(rv, rvFromStr);
     }
 
+    @Test
+    public void fromCharSequence() {
+        RevisionVector rv = new RevisionVector(
+                new Revision(1, 0, 1),
+                new Revision(2, 0, 2, true),
+                new Revision(3, 1, 3)
+        );
+        String s = "/" + rv.asString() + "@";
+        assertEquals(rv, RevisionVector.fromString(s, 1, s.length() - 1));
+        assertEquals(new RevisionVector(), RevisionVector.fromString(s, 1, 1));
+        try {
+            RevisionVector.fromString("r1-0-1,", 0, 7);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
     @Test
     public void toStringBuilder() throws Exception {
         RevisionVector rv = new RevisionVector();
@@ -40,6 +40,7 @@ import java.util.concurrent.TimeUnit;
 
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
 
 import org.apache.jackrabbit.oak.api.CommitFailedException;
 import org.apache.jackrabbit.oak.plugins.document.VersionGarbageCollector.VersionGCStats;
@@ -216,6 +217,112 @@ public class VersionGCDeletionTest {
         }
     }
 
+    @Test
+    public void deleteLargeNumberWithDeleteThreads() throws Exception{
+        int noOfDocsToDelete = 10000;
+        DocumentStore ts = new MemoryDocumentStore();
+        store = new DocumentMK.Builder()
+                .clock(clock)
+                .setLeaseCheckMode(LeaseCheckMode.LENIENT)
+                .setDocumentStore(ts)
+                .setAsyncDelay(0)
+                .getNodeStore();
+
+        NodeBuilder b1 = store.getRoot().builder();
+        NodeBuilder xb = b1.child("x");
+        for (int i = 0; i < noOfDocsToDelete; i++){
+            xb.child("a"+i).child("b"+i);
+        }
+        store.merge(b1, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+
+        long maxAge = 1; //hours
+        long delta = TimeUnit.MINUTES.toMillis(10);
+
+        //Remove x
+        NodeBuilder b2 = store.getRoot().builder();
+        b2.child("x").remove();
+        store.merge(b2, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+
+        store.runBackgroundOperations();
+
+        clock.waitUntil(clock.getTime() + HOURS.toMillis(maxAge*2) + delta);
+        VersionGarbageCollector gc = store.getVersionGarbageCollector();
+        gc.setOptions(gc.getOptions().withOverflowToDiskThreshold(100).withDeleteThreads(4));
+
+        VersionGCStats stats = gc.gc(maxAge * 2, HOURS);
+        assertEquals(noOfDocsToDelete * 2 + 1, stats.deletedDocGCCount);
+        assertEquals(noOfDocsToDelete, stats.deletedLeafDocGCCount);
+
+        assertNull(ts.find(Collection.NODES, "1:/x"));
+
+        for (int i = 0; i < noOfDocsToDelete; i++){
+            assertNull(ts.find(Collection.NODES, "3:/x/a"+i+"/b"+i));
+            assertNull(ts.find(Collection.NODES, "2:/x/a"+i));
+        }
+    }
+
+    @Test
+    public void checkpointProgress() throws Exception{
+        final List<Long> checkpoints = Lists.newArrayList();
+        DocumentStore ts = new MemoryDocumentStore() {
+            @Override
+            public <T extends Document> T createOrUpdate(Collection<T> collection,
+                                                         UpdateOp update) {
+                UpdateOp.Operation op = update.getChanges().get(
+                        new UpdateOp.Key(VersionGarbageCollector.SETTINGS_COLLECTION_CHECKPOINT_PROP, null));
+                if (collection == Collection.SETTINGS && op != null
+                        && op.type == UpdateOp.Operation.Type.SET) {
+                    checkpoints.add((Long) op.value);
+                }
+                return super.createOrUpdate(collection, update);
+            }
+        };
+        store = new DocumentMK.Builder()
+                .clock(clock)
+                .setLeaseCheckMode(LeaseCheckMode.LENIENT)
+                .setDocumentStore(ts)
+                .setAsyncDelay(0)
+                .getNodeStore();
+
+        // create and remove nodes over a period of four hours
+        for (int i = 0; i < 4; i++) {
+            NodeBuilder builder = store.getRoot().builder();
+            builder.child("x" + i);
+            store.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+            builder = store.getRoot().builder();
+            builder.child("x" + i).remove();
+            store.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+            store.runBackgroundOperations();
+            clock.waitUntil(clock.getTime() + HOURS.toMillis(1));
+        }
+
+        long maxAge = 1; //hours
+        clock.waitUntil(clock.getTime() + HOURS.toMillis(maxAge));
+        VersionGarbageCollector gc = store.getVersionGarbageCollector();
+        gc.setOptions(gc.getOptions().withCheckpointInterval(MINUTES, 30));
+
+        VersionGCStats stats = gc.gc(maxAge, HOURS);
+        assertEquals(4, stats.deletedDocGCCount);
+        for (int i = 0; i < 4; i++) {
+            assertNull(ts.find(Collection.NODES, Utils.getIdFromPath("/x" + i)));
+        }
+        // progress must have been persisted
+        assertTrue(checkpoints.size() > 1);
+        assertEquals(Ordering.natural().sortedCopy(checkpoints), checkpoints);
+        // but checkpoint is removed after a successful run
+        Document settings = ts.find(Collection.SETTINGS, VersionGarbageCollector.SETTINGS_COLLECTION_ID);
+        assertNotNull(settings);
+        assertNull(settings.get(VersionGarbageCollector.SETTINGS_COLLECTION_CHECKPOINT_PROP));
+
+        // a subsequent run resumes from a checkpoint
+        long checkpoint = checkpoints.get(0);
+        UpdateOp op = new UpdateOp(VersionGarbageCollector.SETTINGS_COLLECTION_ID, false);
+        op.set(VersionGarbageCollector.SETTINGS_COLLECTION_OLDEST_TIMESTAMP_PROP, checkpoint - HOURS.toMillis(1));
+        op.set(VersionGarbageCollector.SETTINGS_COLLECTION_CHECKPOINT_PROP, checkpoint);
+        ts.findAndUpdate(Collection.SETTINGS, op);
+        assertEquals(checkpoint, gc.getInfo(maxAge, HOURS).oldestRevisionEstimate);
+    }
+
     @Test
     public void gcWithPathsHavingNewLine() throws Exception{
         int noOfDocsToDelete = 200;
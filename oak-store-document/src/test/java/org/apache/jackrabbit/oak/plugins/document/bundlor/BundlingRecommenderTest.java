@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.jackrabbit.oak.plugins.document.bundlor;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+
+import org.apache.jackrabbit.oak.InitialContent;
+import org.apache.jackrabbit.oak.api.CommitFailedException;
+import org.apache.jackrabbit.oak.api.Type;
+import org.apache.jackrabbit.oak.plugins.document.DocumentMKBuilderProvider;
+import org.apache.jackrabbit.oak.plugins.document.DocumentNodeStore;
+import org.apache.jackrabbit.oak.plugins.document.DocumentNodeStoreMBean;
+import org.apache.jackrabbit.oak.plugins.document.bundlor.BundlingRecommender.Recommendation;
+import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
+import org.apache.jackrabbit.oak.spi.commit.EmptyHook;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.apache.jackrabbit.oak.spi.state.NodeStateUtils;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.apache.jackrabbit.JcrConstants.JCR_PRIMARYTYPE;
+import static org.apache.jackrabbit.oak.plugins.memory.EmptyNodeState.EMPTY_NODE;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BundlingRecommenderTest {
+
+    @Rule
+    public DocumentMKBuilderProvider builderProvider = new DocumentMKBuilderProvider();
+
+    @Test
+    public void disabledByDefault() {
+        BundlingRecommender recommender = new BundlingRecommender();
+        assertFalse(recommender.isEnabled());
+        NodeState page = newNode("app:Page");
+        recommender.documentAccessed(page);
+        recommender.childDocumentAccessed(page, "jcr:content");
+        assertTrue(recommender.getRecommendations(0, 0).isEmpty());
+    }
+
+    @Test
+    public void recommendations() {
+        BundlingRecommender recommender = new BundlingRecommender();
+        recommender.setEnabled(true);
+        NodeState page = newNode("app:Page");
+        for (int i = 0; i < 10; i++) {
+            recommender.documentAccessed(page);
+            recommender.childDocumentAccessed(page, "jcr:content");
+            if (i % 5 == 0) {
+                recommender.childDocumentAccessed(page, "comments");
+            }
+            // hidden nodes are ignored
+            recommender.childDocumentAccessed(page, ":index");
+        }
+        // node without type is ignored
+        recommender.documentAccessed(EMPTY_NODE);
+        recommender.childDocumentAccessed(EMPTY_NODE, "jcr:content");
+
+        List<Recommendation> recommendations = recommender.getRecommendations(0.5, 10);
+        assertEquals(1, recommendations.size());
+        Recommendation r = recommendations.get(0);
+        assertEquals("app:Page", r.getNodeType());
+        assertEquals(ImmutableList.of("jcr:content"), r.getPatterns());
+        assertEquals(10, r.getAccessCount());
+        assertEquals(10, r.getSavedReads());
+
+        recommendations = recommender.getRecommendations(0.1, 10);
+        assertEquals(ImmutableList.of("comments", "jcr:content"),
+                recommendations.get(0).getPatterns());
+        assertEquals(12, recommendations.get(0).getSavedReads());
+
+        assertTrue(recommender.getRecommendations(0.5, 11).isEmpty());
+
+        recommender.reset();
+        assertTrue(recommender.getRecommendations(0, 0).isEmpty());
+    }
+
+    @Test
+    public void boundedChildNames() {
+        BundlingRecommender recommender = new BundlingRecommender();
+        recommender.setEnabled(true);
+        NodeState page = newNode("app:Page");
+        recommender.documentAccessed(page);
+        for (int i = 0; i < BundlingRecommender.MAX_CHILD_NAMES * 2; i++) {
+            recommender.childDocumentAccessed(page, "child-" + i);
+        }
+        List<Recommendation> recommendations = recommender.getRecommendations(0, 0);
+        assertEquals(BundlingRecommender.MAX_CHILD_NAMES,
+                recommendations.get(0).getPatterns().size());
+    }
+
+    @Test
+    public void applyMergesPatterns() {
+        NodeBuilder config = BundledTypesRegistry.builder()
+                .forType("app:Page", "metadata").build().builder();
+        assertEquals(ImmutableList.of("metadata", "jcr:content"),
+                ImmutableList.copyOf(BundlingRecommender.getPatterns(config.getNodeState(),
+                        new Recommendation("app:Page", ImmutableList.of("jcr:content"), 10, 10))));
+        BundlingRecommender.apply(config, new Recommendation("app:Page",
+                ImmutableList.of("jcr:content"), 10, 10));
+        BundlingRecommender.apply(config, new Recommendation("app:Folder",
+                ImmutableList.of("jcr:content"), 10, 10));
+
+        BundledTypesRegistry registry = BundledTypesRegistry.from(config.getNodeState());
+        DocumentBundlor page = registry.getBundlor(newNode("app:Page"));
+        assertTrue(page.isBundled("metadata"));
+        assertTrue(page.isBundled("jcr:content"));
+        DocumentBundlor folder = registry.getBundlor(newNode("app:Folder"));
+        assertTrue(folder.isBundled("jcr:content"));
+    }
+
+    @Test
+    public void recordAndGetPatterns() throws Exception {
+        DocumentNodeStore store = builderProvider.newBuilder()
+                .setAsyncDelay(0).memoryCacheSize(0).getNodeStore();
+        NodeBuilder builder = store.getRoot().builder();
+        new InitialContent().initialize(builder);
+        BundlingConfigInitializer.INSTANCE.initialize(builder);
+        merge(store, builder);
+
+        DocumentNodeStoreMBean mbean = store.getMBean();
+        mbean.recordBundlingStatistics(true);
+
+        int numPages = (int) BundlingRecommender.DEFAULT_MIN_ACCESS_COUNT;
+        builder = store.getRoot().builder();
+        NodeBuilder content = builder.child("content");
+        for (int i = 0; i < numPages; i++) {
+            NodeBuilder page = content.child("page-" + i);
+            page.setProperty(JCR_PRIMARYTYPE, "app:Page", Type.NAME);
+            page.child("jcr:content");
+            if (i % 10 == 0) {
+                page.child("comments");
+            }
+        }
+        merge(store, builder);
+
+        String[] recommendations = mbean.getBundlingRecommendations();
+        assertEquals(1, recommendations.length);
+        assertTrue(recommendations[0], recommendations[0].startsWith("app:Page [jcr:content]"));
+
+        // reads of the child documents are recorded as well
+        mbean.recordBundlingStatistics(true);
+        store.getNodeCache().invalidateAll();
+        NodeState root = store.getRoot();
+        for (int i = 0; i < numPages; i++) {
+            NodeState page = root.getChildNode("content").getChildNode("page-" + i);
+            assertTrue(page.getChildNode("jcr:content").exists());
+        }
+        recommendations = mbean.getBundlingRecommendations();
+        assertEquals(1, recommendations.length);
+        assertTrue(recommendations[0], recommendations[0].startsWith("app:Page [jcr:content]"));
+
+        assertArrayEquals(new String[]{"jcr:content"}, mbean.getBundlingPatterns("app:Page"));
+        assertArrayEquals(new String[0], mbean.getBundlingPatterns("app:Folder"));
+        // the configuration is not modified
+        NodeState config = NodeStateUtils.getNode(store.getRoot(),
+                BundlingConfigHandler.CONFIG_PATH).getChildNode("app:Page");
+        assertFalse(config.exists());
+    }
+
+    private static NodeState newNode(String typeName) {
+        NodeBuilder builder = EMPTY_NODE.builder();
+        builder.setProperty(JCR_PRIMARYTYPE, typeName, Type.NAME);
+        return builder.getNodeState();
+    }
+
+    private static void merge(DocumentNodeStore store, NodeBuilder builder)
+            throws CommitFailedException {
+        store.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document.cache;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.Lock;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.RemovalCause;
+import com.google.common.collect.ImmutableSet;
+import org.apache.jackrabbit.oak.cache.CacheLIRS;
+import org.apache.jackrabbit.oak.cache.CacheStats;
+import org.apache.jackrabbit.oak.cache.CacheValue;
+import org.apache.jackrabbit.oak.plugins.document.DocumentStore;
+import org.apache.jackrabbit.oak.plugins.document.NodeDocument;
+import org.apache.jackrabbit.oak.plugins.document.Revision;
+import org.apache.jackrabbit.oak.plugins.document.UpdateOp;
+import org.apache.jackrabbit.oak.plugins.document.locks.NodeDocumentLocks;
+import org.apache.jackrabbit.oak.plugins.document.locks.StripedNodeDocumentLocks;
+import org.apache.jackrabbit.oak.plugins.document.memory.MemoryDocumentStore;
+import org.apache.jackrabbit.oak.plugins.document.util.StringValue;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import static org.apache.jackrabbit.oak.plugins.document.Collection.NODES;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OffHeapDocumentCacheTest {
+
+    private DocumentStore store;
+
+    @Before
+    public void before() {
+        store = new MemoryDocumentStore(true);
+    }
+
+    @Test
+    public void putAndGet() {
+        OffHeapDocumentCache cache = new OffHeapDocumentCache(store, 1024 * 1024);
+        NodeDocument doc = createDoc("1:/foo");
+        assertTrue(cache.put(doc));
+
+        NodeDocument cached = cache.get("1:/foo");
+        assertNotNull(cached);
+        assertEquals(doc.asString(), cached.asString());
+        assertEquals(doc.getCreated(), cached.getCreated());
+        ModificationStamp stamp = cache.getModificationStamp("1:/foo");
+        assertNotNull(stamp);
+        assertEquals(doc.getModCount().longValue(), stamp.modCount);
+        assertEquals(doc.getModified().longValue(), stamp.modified);
+        assertEquals(1, cache.getHitCount());
+
+        assertNull(cache.get("1:/bar"));
+        assertEquals(1, cache.getMissCount());
+
+        cache.remove("1:/foo");
+        assertNull(cache.get("1:/foo"));
+    }
+
+    @Test
+    public void onlyEvictedDocuments() {
+        OffHeapDocumentCache cache = new OffHeapDocumentCache(store, 1024 * 1024);
+        NodeDocument doc = createDoc("1:/foo");
+        cache.evicted(new StringValue("1:/foo"), doc, RemovalCause.EXPLICIT);
+        cache.evicted(new StringValue("1:/foo"), doc, RemovalCause.REPLACED);
+        cache.evicted(new StringValue("1:/foo"), NodeDocument.NULL, RemovalCause.SIZE);
+        assertEquals(0, cache.getEntryCount());
+        cache.evicted(new StringValue("1:/foo"), doc, RemovalCause.SIZE);
+        assertEquals(1, cache.getEntryCount());
+    }
+
+    @Test
+    public void rejectInvalidated() throws Exception {
+        OffHeapDocumentCache cache = new OffHeapDocumentCache(store, 1024 * 1024);
+        NodeDocument doc = createDoc("1:/foo");
+        assertTrue(cache.put(doc));
+        // concurrent invalidation while the document is evicted
+        Thread.sleep(5);
+        cache.invalidate("1:/foo");
+        assertFalse(cache.put(doc));
+        assertNull(cache.get("1:/foo"));
+        assertEquals(1, cache.getRejectCount());
+
+        // a document read after the invalidation is accepted
+        Thread.sleep(5);
+        assertTrue(cache.put(createDoc("1:/foo")));
+    }
+
+    @Test
+    public void slabReuse() {
+        int size = OffHeapDocumentCache.MIN_SLABS * 1024;
+        OffHeapDocumentCache cache = new OffHeapDocumentCache(store, size);
+        int numDocs = 1000;
+        for (int i = 0; i < numDocs; i++) {
+            cache.put(createDoc("1:/node-" + i));
+        }
+        assertTrue(cache.getEvictionCount() > 0);
+        assertEquals(numDocs - cache.getEvictionCount(), cache.getEntryCount());
+        assertNull(cache.get("1:/node-0"));
+        NodeDocument last = cache.get("1:/node-" + (numDocs - 1));
+        assertNotNull(last);
+        assertEquals("1:/node-" + (numDocs - 1), last.getId());
+        cache.close();
+        assertNull(cache.get("1:/node-" + (numDocs - 1)));
+    }
+
+    @Test
+    public void nodeDocumentCacheTier() throws Exception {
+        OffHeapDocumentCache offHeap = new OffHeapDocumentCache(store, 1024 * 1024);
+        NodeDocumentCache cache = createCache(offHeap);
+        for (int i = 0; i < 100; i++) {
+            cache.put(createDoc("1:/node-" + i));
+        }
+        assertTrue(offHeap.getEntryCount() > 0);
+        assertEquals(100, ImmutableSet.copyOf(cache.keys()).size());
+
+        // find a document evicted to the off-heap tier
+        String id = offHeap.keys().iterator().next();
+        CacheChangesTracker tracker = cache.registerTracker(ImmutableSet.of(id));
+        NodeDocument doc = cache.getIfPresent(id);
+        assertNotNull(doc);
+        assertEquals(id, doc.getId());
+        // promoted to the on-heap cache
+        assertNull(offHeap.getModificationStamp(id));
+        assertTrue(tracker.mightBeenAffected(id));
+        tracker.close();
+
+        // invalidateOutdated with off-heap entries
+        id = offHeap.keys().iterator().next();
+        ModificationStamp stamp = offHeap.getModificationStamp(id);
+        assertNotNull(stamp);
+        assertEquals(0, cache.invalidateOutdated(Collections.singletonMap(id, stamp)));
+        assertEquals(1, cache.invalidateOutdated(Collections.singletonMap(id,
+                new ModificationStamp(stamp.modCount + 1, stamp.modified))));
+        assertNull(cache.getIfPresent(id));
+
+        // invalidate removes off-heap entry
+        id = offHeap.keys().iterator().next();
+        cache.invalidate(id);
+        assertNull(cache.getIfPresent(id));
+
+        // loader is not called for off-heap entry
+        id = offHeap.keys().iterator().next();
+        doc = cache.get(id, () -> {
+            throw new AssertionError("must not load");
+        });
+        assertEquals(id, doc.getId());
+    }
+
+    @Test
+    public void getIfPresentDoesNotWaitForLock() throws Exception {
+        OffHeapDocumentCache offHeap = new OffHeapDocumentCache(store, 1024 * 1024);
+        NodeDocumentLocks locks = new StripedNodeDocumentLocks();
+        NodeDocumentCache cache = createCache(offHeap, locks);
+        for (int i = 0; i < 100; i++) {
+            cache.put(createDoc("1:/node-" + i));
+        }
+        String id = offHeap.keys().iterator().next();
+
+        // another thread holds the lock for the document
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        Thread t = new Thread(() -> {
+            Lock lock = locks.acquire(id);
+            try {
+                locked.countDown();
+                done.await();
+            } catch (InterruptedException e) {
+                // ignore
+            } finally {
+                lock.unlock();
+            }
+        });
+        t.start();
+        locked.await();
+        try {
+            NodeDocument doc = cache.getIfPresent(id);
+            assertNotNull(doc);
+            assertEquals(id, doc.getId());
+            // not promoted
+            assertNotNull(offHeap.getModificationStamp(id));
+        } finally {
+            done.countDown();
+            t.join();
+        }
+        assertNotNull(cache.getIfPresent(id));
+        assertNull(offHeap.getModificationStamp(id));
+    }
+
+    @Test
+    public void stats() {
+        OffHeapDocumentCache offHeap = new OffHeapDocumentCache(store, 1024 * 1024);
+        OffHeapDocumentCacheStats stats = new OffHeapDocumentCacheStats(offHeap);
+        NodeDocument doc = createDoc("1:/foo");
+        assertTrue(offHeap.put(doc));
+        assertNotNull(offHeap.get("1:/foo"));
+        assertNull(offHeap.get("1:/bar"));
+        assertEquals(1, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+        assertEquals(1, stats.getElementCount());
+        assertEquals(doc.asString().length(), stats.estimateCurrentWeight());
+        assertEquals(1024 * 1024, stats.getMaxTotalWeight());
+    }
+
+    private NodeDocumentCache createCache(OffHeapDocumentCache offHeap) {
+        return createCache(offHeap, new StripedNodeDocumentLocks());
+    }
+
+    private NodeDocumentCache createCache(OffHeapDocumentCache offHeap,
+                                          NodeDocumentLocks locks) {
+        Cache<CacheValue, NodeDocument> nodeDocumentsCache = CacheLIRS.<CacheValue, NodeDocument>newBuilder()
+                .maximumSize(10).segmentCount(1)
+                .evictionCallback(offHeap::evicted).build();
+        Cache<StringValue, NodeDocument> prevDocumentsCache = new CacheLIRS<StringValue, NodeDocument>(10);
+        CacheStats nodeDocumentsCacheStats = Mockito.mock(CacheStats.class);
+        CacheStats prevDocumentsCacheStats = Mockito.mock(CacheStats.class);
+        return new NodeDocumentCache(nodeDocumentsCache, nodeDocumentsCacheStats,
+                prevDocumentsCache, prevDocumentsCacheStats,
+                locks, offHeap);
+    }
+
+    private NodeDocument createDoc(String id) {
+        Revision r = new Revision(System.currentTimeMillis(), 0, 1);
+        UpdateOp op = new UpdateOp(id, true);
+        NodeDocument.setModified(op, r);
+        op.set("prop", "value");
+        store.createOrUpdate(NODES, op);
+        NodeDocument doc = store.find(NODES, id);
+        assertNotNull(doc);
+        return doc;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.plugins.document.mongo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.mongodb.DBObject;
+
+import org.apache.jackrabbit.oak.plugins.document.AbstractMongoConnectionTest;
+import org.apache.jackrabbit.oak.plugins.document.Collection;
+import org.apache.jackrabbit.oak.plugins.document.Document;
+import org.apache.jackrabbit.oak.plugins.document.DocumentMK;
+import org.apache.jackrabbit.oak.plugins.document.DocumentNodeStore;
+import org.apache.jackrabbit.oak.plugins.document.MongoUtils;
+import org.apache.jackrabbit.oak.plugins.document.NodeDocument;
+import org.apache.jackrabbit.oak.plugins.document.UpdateOp;
+import org.apache.jackrabbit.oak.plugins.document.util.MongoConnection;
+import org.apache.jackrabbit.oak.spi.commit.CommitInfo;
+import org.apache.jackrabbit.oak.spi.commit.EmptyHook;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Test;
+
+import static org.apache.jackrabbit.oak.plugins.document.Collection.NODES;
+import static org.apache.jackrabbit.oak.plugins.document.util.Utils.getIdFromPath;
+import static org.apache.jackrabbit.oak.plugins.memory.EmptyNodeState.EMPTY_NODE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests prefetching documents into the cache of the {@link MongoDocumentStore}.
+ */
+public class MongoPrefetchTest extends AbstractMongoConnectionTest {
+
+    private TestStore store;
+
+    @Override
+    public void setUpConnection() throws Exception {
+        mongoConnection = connectionFactory.getConnection();
+        MongoUtils.dropCollections(mongoConnection.getDBName());
+        DocumentMK.Builder builder = new DocumentMK.Builder();
+        store = new TestStore(mongoConnection, builder);
+        builder.setDocumentStore(store);
+        mk = builder.setMongoDB(mongoConnection.getMongoClient(), mongoConnection.getDBName()).open();
+    }
+
+    @Test
+    public void prefetch() {
+        List<String> ids = createDocuments(10);
+        store.invalidateCache();
+        for (String id : ids) {
+            assertNull(store.getIfCached(NODES, id));
+        }
+        List<String> keys = new ArrayList<>(ids);
+        keys.add(getIdFromPath("/missing"));
+        store.prefetch(NODES, keys);
+        for (int i = 0; i < ids.size(); i++) {
+            NodeDocument doc = store.getIfCached(NODES, ids.get(i));
+            assertNotNull(doc);
+            assertEquals(i, ((Number) doc.get("p")).intValue());
+        }
+        assertNull(store.getIfCached(NODES, getIdFromPath("/missing")));
+    }
+
+    @Test
+    public void prefetchWithConcurrentUpdate() {
+        List<String> ids = createDocuments(10);
+        store.invalidateCache();
+        final String changed = ids.get(5);
+        // the document is updated after it was read by the prefetch,
+        // but before the prefetched documents are put into the cache
+        store.beforeConvert = new Runnable() {
+            @Override
+            public void run() {
+                UpdateOp op = new UpdateOp(changed, false);
+                op.set("p", "updated");
+                assertNotNull(store.findAndUpdate(NODES, op));
+            }
+        };
+        store.beforeConvertId = changed;
+        store.prefetch(NODES, ids);
+        // the prefetched (old) document must not replace the updated one
+        NodeDocument doc = store.getIfCached(NODES, changed);
+        if (doc != null) {
+            assertEquals("updated", doc.get("p"));
+        }
+        assertEquals("updated", store.find(NODES, changed).get("p"));
+        for (String id : ids) {
+            if (!id.equals(changed)) {
+                assertNotNull(store.getIfCached(NODES, id));
+            }
+        }
+    }
+
+    @Test
+    public void prefetchNodeStore() throws Exception {
+        DocumentNodeStore ns = mk.getNodeStore();
+        NodeBuilder builder = ns.getRoot().builder();
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            builder.child("test").child("n" + i);
+            paths.add("/test/n" + i);
+        }
+        ns.merge(builder, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+
+        store.invalidateCache();
+        // not a state of this store: nothing is prefetched
+        ns.prefetch(paths, EMPTY_NODE);
+        for (String p : paths) {
+            assertNull(store.getIfCached(NODES, getIdFromPath(p)));
+        }
+        ns.prefetch(paths, ns.getRoot());
+        for (String p : paths) {
+            assertNotNull(store.getIfCached(NODES, getIdFromPath(p)));
+        }
+        // the nodes are read from the prefetched documents
+        for (int i = 0; i < 10; i++) {
+            assertTrue(ns.getRoot().getChildNode("test").getChildNode("n" + i).exists());
+        }
+    }
+
+    private List<String> createDocuments(int count) {
+        List<String> ids = new ArrayList<>();
+        List<UpdateOp> ops = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String id = getIdFromPath("/prefetch/node-" + i);
+            UpdateOp op = new UpdateOp(id, true);
+            op.set("p", i);
+            ops.add(op);
+            ids.add(id);
+        }
+        store.create(NODES, ops);
+        return ids;
+    }
+
+    static final class TestStore extends MongoDocumentStore {
+
+        volatile String beforeConvertId;
+        volatile Runnable beforeConvert;
+
+        TestStore(MongoConnection c, DocumentMK.Builder builder) {
+            super(c.getMongoClient(), c.getDatabase(), builder);
+        }
+
+        @Override
+        protected <T extends Document> T convertFromDBObject(@NotNull Collection<T> collection,
+                                                             @Nullable DBObject n) {
+            Runnable r = beforeConvert;
+            if (r != null && n != null && collection == NODES
+                    && n.get(Document.ID).equals(beforeConvertId)) {
+                beforeConvert = null;
+                r.run();
+            }
+            return super.convertFromDBObject(collection, n);
+        }
+    }
+}
@@ -18,22 +18,31 @@
  */
 package org.apache.jackrabbit.oak.plugins.document.persistentCache;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.jackrabbit.oak.cache.CacheLIRS;
 import org.apache.jackrabbit.oak.plugins.document.MemoryDiffCache.Key;
 import org.apache.jackrabbit.oak.plugins.document.Path;
 import org.apache.jackrabbit.oak.plugins.document.RevisionVector;
+import org.apache.jackrabbit.oak.plugins.document.persistentCache.broadcast.BatchingBroadcaster;
 import org.apache.jackrabbit.oak.plugins.document.persistentCache.broadcast.Broadcaster;
+import org.apache.jackrabbit.oak.plugins.document.persistentCache.broadcast.DynamicBroadcastConfig;
 import org.apache.jackrabbit.oak.plugins.document.persistentCache.broadcast.TCPBroadcaster;
 import org.apache.jackrabbit.oak.plugins.document.util.StringValue;
 import org.junit.Assert;
@@ -148,6 +157,103 @@ public class BroadcastTest {
         broadcast("tcp:sendTo localhost;key 123", 80);
     }
 
+    @Test
+    public void broadcastBatchedTCP() throws Exception {
+        broadcast("tcp:sendTo localhost;key 123;batchSize 16384", 80);
+    }
+
+    @Test
+    public void batchLoopback() throws Exception {
+        Loopback loopback = new Loopback();
+        BatchingBroadcaster b = new BatchingBroadcaster(loopback, 4096, 5);
+        final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+        b.addListener(new Broadcaster.Listener() {
+            @Override
+            public void receive(ByteBuffer buff) {
+                byte[] data = new byte[buff.remaining()];
+                buff.get(data);
+                received.add(new String(data, StandardCharsets.UTF_8));
+            }
+        });
+        int count = 1000;
+        int rawBytes = 0;
+        for (int i = 0; i < count; i++) {
+            byte[] data = ("/content/node-" + i + " Hello World").getBytes(StandardCharsets.UTF_8);
+            rawBytes += data.length;
+            assertTrue(b.trySend(ByteBuffer.wrap(data)));
+        }
+        long start = System.currentTimeMillis();
+        while (received.size() < count && System.currentTimeMillis() - start < 10000) {
+            Thread.sleep(1);
+        }
+        b.close();
+        assertEquals(count, received.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals("/content/node-" + i + " Hello World", received.get(i));
+        }
+        // messages of nodes without batching are passed on unchanged
+        assertTrue(loopback.trySend(ByteBuffer.wrap("unbatched".getBytes(StandardCharsets.UTF_8))));
+        assertEquals(count + 1, received.size());
+        assertEquals("unbatched", received.get(count));
+        assertEquals(count, b.getSentMessageCount());
+        assertEquals(count + 1, b.getReceivedMessageCount());
+        assertEquals(0, b.getDroppedMessageCount());
+        // far less messages than sent by the cache, and compressed
+        assertTrue(loopback.frames.get() < count / 10);
+        assertEquals(b.getSentBatchCount(), loopback.frames.get());
+        assertTrue(b.getSentByteCount() < rawBytes);
+        assertTrue(loopback.closed);
+    }
+
+    @Test
+    public void batchBackPressure() throws Exception {
+        Loopback loopback = new Loopback();
+        // receivers fall behind
+        loopback.accept = false;
+        BatchingBroadcaster b = new BatchingBroadcaster(loopback, 256, 1);
+        final AtomicInteger sent = new AtomicInteger();
+        final AtomicInteger dropped = new AtomicInteger();
+        Broadcaster.SendListener listener = new Broadcaster.SendListener() {
+            @Override
+            public void sent() {
+                sent.incrementAndGet();
+            }
+
+            @Override
+            public void dropped() {
+                dropped.incrementAndGet();
+            }
+        };
+        byte[] data = new byte[100];
+        int accepted = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (b.trySend(ByteBuffer.wrap(data), listener)) {
+                accepted++;
+            }
+        }
+        // new messages are dropped once the pending batches are full
+        assertTrue(accepted < 1000);
+        assertEquals(0, b.getSentMessageCount());
+        assertEquals(0, sent.get());
+        assertTrue(b.getDroppedMessageCount() >= 1000 - accepted);
+        assertEquals(b.getDroppedMessageCount(), dropped.get());
+        assertEquals(0, loopback.frames.get());
+
+        // receivers caught up
+        loopback.accept = true;
+        long start = System.currentTimeMillis();
+        while (b.getSentBatchCount() == 0 && System.currentTimeMillis() - start < 10000) {
+            Thread.sleep(1);
+        }
+        assertTrue(b.trySend(ByteBuffer.wrap(data), listener));
+        b.close();
+        assertTrue(b.getSentBatchCount() > 0);
+        // each message is either sent or dropped, also the ones queued on close
+        assertEquals(1001, sent.get() + dropped.get());
+        assertEquals(b.getSentMessageCount(), sent.get());
+        assertEquals(b.getDroppedMessageCount(), dropped.get());
+    }
+
     @Test
     public void broadcastInMemory() throws Exception {
         broadcast("inMemory", 100);
@@ -284,6 +390,53 @@ public class BroadcastTest {
         }, timeoutInMilliseconds);
     }
     
+    /**
+     * A broadcaster delivering its messages to its own listeners.
+     */
+    private static class Loopback implements Broadcaster {
+
+        final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+        final AtomicInteger frames = new AtomicInteger();
+        volatile boolean accept = true;
+        volatile boolean closed;
+
+        @Override
+        public void setBroadcastConfig(DynamicBroadcastConfig broadcastConfig) {
+        }
+
+        @Override
+        public void send(ByteBuffer buff) {
+            trySend(buff);
+        }
+
+        @Override
+        public boolean trySend(ByteBuffer buff) {
+            if (!accept) {
+                return false;
+            }
+            frames.incrementAndGet();
+            for (Listener l : listeners) {
+                l.receive(buff.duplicate());
+            }
+            return true;
+        }
+
+        @Override
+        public void addListener(Listener listener) {
+            listeners.add(listener);
+        }
+
+        @Override
+        public void removeListener(Listener listener) {
+            listeners.remove(listener);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
     private static Cache<Key, StringValue> openCache(PersistentCache p) {
         CacheLIRS<Key, StringValue> cache = new CacheLIRS.Builder<Key, StringValue>().
                 maximumSize(1).build();
@@ -36,6 +36,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -261,6 +262,66 @@ public class RDBDocumentStoreJDBCTest extends AbstractDocumentStoreTest {
         }
     }
 
+    @Test
+    public void upsertWithExistingRows() throws SQLException {
+        upsertWithExistingRows(true);
+    }
+
+    @Test
+    public void upsertWithExistingRowsWithoutBatchInfo() throws SQLException {
+        // Oracle and DB2 report SUCCESS_NO_INFO for every row
+        assumeTrue(super.rdbDataSource instanceof RDBDataSourceWrapper);
+        upsertWithExistingRows(false);
+    }
+
+    private void upsertWithExistingRows(boolean preciseBatchResult) throws SQLException {
+        // runs for each RDB fixture with an insert-if-absent statement
+        assumeTrue(dbInfo.getInsertIfAbsentStatement("T", "ID", "?") != null);
+        String baseName = this.getClass().getName() + "." + name.getMethodName();
+        String existing = baseName + "-1";
+        String absent = baseName + "-2";
+        super.ds.remove(Collection.NODES, Arrays.asList(existing, absent));
+        removeMe.add(existing);
+        removeMe.add(absent);
+        UpdateOp op = new UpdateOp(existing, true);
+        op.set("p", 0L);
+        assertTrue(super.ds.create(Collection.NODES, Collections.singletonList(op)));
+
+        List<NodeDocument> docs = new ArrayList<NodeDocument>();
+        for (String id : Arrays.asList(existing, absent)) {
+            NodeDocument doc = Collection.NODES.newDocument(super.ds);
+            doc.put(NodeDocument.ID, id);
+            doc.put(NodeDocument.MOD_COUNT, 1L);
+            doc.put("p", 1L);
+            docs.add(doc);
+        }
+
+        RDBTableMetaData tmd = ((RDBDocumentStore) super.ds).getTable(Collection.NODES);
+        if (!preciseBatchResult) {
+            ((RDBDataSourceWrapper) super.rdbDataSource).setBatchResultPrecise(false);
+        }
+        Connection con = super.rdbDataSource.getConnection();
+        try {
+            // the existing row must not prevent the insert of the other one
+            Set<String> inserted = jdbc.update(con, tmd, docs, true);
+            con.commit();
+            assertEquals(of(absent), inserted);
+            // the vendor specific statement must not have been replaced
+            // by the plain insert
+            assertTrue(dbInfo + " rejected the insert-if-absent statement",
+                    jdbc.isInsertIfAbsentSupported());
+        } finally {
+            con.close();
+            if (!preciseBatchResult) {
+                ((RDBDataSourceWrapper) super.rdbDataSource).setBatchResultPrecise(true);
+            }
+        }
+
+        super.ds.invalidateCache();
+        assertEquals(0L, super.ds.find(Collection.NODES, existing).get("p"));
+        assertEquals(1L, super.ds.find(Collection.NODES, absent).get("p"));
+    }
+
     @Test
     public void statementCloseTest() throws SQLException {
 
@@ -21,6 +21,7 @@ import static org.apache.jackrabbit.oak.plugins.document.util.Utils.getIdFromPat
 import static org.hamcrest.Matchers.hasItem;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
@@ -233,6 +234,45 @@ public class RDBDocumentStoreTest extends AbstractDocumentStoreTest {
         }
     }
 
+    @Test
+    public void pipelinedCreateOrUpdate() {
+        if (ds instanceof RDBDocumentStore) {
+            // more than two chunks, half of the documents already exist
+            final int NUM_DOCS = 300;
+            List<UpdateOp> ops = Lists.newArrayList();
+            for (int i = 0; i < NUM_DOCS; i += 2) {
+                UpdateOp op = new UpdateOp(getIdFromPath("/pipelined-" + i), true);
+                op.set("p", 0L);
+                ops.add(op);
+                removeMe.add(op.getId());
+            }
+            assertTrue(ds.create(NODES, ops));
+
+            ops = Lists.newArrayList();
+            for (int i = 0; i < NUM_DOCS; i++) {
+                UpdateOp op = new UpdateOp(getIdFromPath("/pipelined-" + i), true);
+                op.set("p", 1L);
+                ops.add(op);
+                removeMe.add(op.getId());
+            }
+            List<NodeDocument> results = ds.createOrUpdate(NODES, ops);
+            assertEquals(NUM_DOCS, results.size());
+            for (int i = 0; i < NUM_DOCS; i++) {
+                NodeDocument old = results.get(i);
+                if (i % 2 == 0) {
+                    assertNotNull(old);
+                    assertEquals(0L, old.get("p"));
+                } else {
+                    assertNull(old);
+                }
+                ds.invalidateCache(NODES, ops.get(i).getId());
+                NodeDocument doc = ds.find(NODES, ops.get(i).getId());
+                assertNotNull(doc);
+                assertEquals(1L, doc.get("p"));
+            }
+        }
+    }
+
     @Test
     public void testAppendStringColumnLimit() {
         if (ds instanceof RDBDocumentStore) {
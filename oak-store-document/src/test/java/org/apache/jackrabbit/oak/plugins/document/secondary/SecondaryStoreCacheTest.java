@@ -128,6 +128,35 @@ public class SecondaryStoreCacheTest {
         assertNull(result);
     }
 
+    @Test
+    public void pathStats() throws Exception{
+        SecondaryStoreCache cache = createCache(new PathFilter(of("/a"), empty));
+
+        NodeBuilder nb = primary.getRoot().builder();
+        create(nb, "/a/b/c", "/a/d", "/x/y/z");
+        AbstractDocumentNodeState r1 = merge(nb);
+
+        AbstractDocumentNodeState c = documentState(r1, "/a/b/c");
+        assertNotNull(cache.getDocumentNodeState(c.getPath(), r1.getRootRevision(), c.getLastRevision()));
+
+        RevisionVector rv1 = new RevisionVector(new Revision(1,0,1));
+        RevisionVector rv2 = new RevisionVector(new Revision(1,0,3));
+        assertNull(cache.getDocumentNodeState(Path.fromString("/a/b"), rv1, rv2));
+        assertNull(cache.getDocumentNodeState(Path.fromString("/a/d"), rv1, rv2));
+        //Paths not in the secondary store are not counted
+        assertNull(cache.getDocumentNodeState(Path.fromString("/x/y"), rv1, rv2));
+
+        SecondaryStoreCache.PathStats ab = cache.getPathStats(Path.fromString("/a/b"));
+        assertEquals(1, ab.getHits());
+        assertEquals(1, ab.getMisses());
+        assertEquals(1, cache.getPathStats(Path.fromString("/a/d")).getMisses());
+        assertEquals(2, cache.getPathStats().length);
+        assertTrue(cache.getPathStats()[0].startsWith("/a/b:"));
+
+        cache.resetPathStats();
+        assertEquals(0, cache.getPathStats().length);
+    }
+
     @Test
     public void updateAndReadAtPrevRevision() throws Exception {
         SecondaryStoreCache cache = createCache(new PathFilter(of("/a"), empty));
@@ -127,6 +127,31 @@ public class SecondaryStoreObserverTest {
         assertFalse(NodeStateUtils.getNode(secondaryRoot(), "/a/c").exists());
     }
 
+    @Test
+    public void concurrentInitialSync() throws Exception{
+        NodeBuilder nb = primary.getRoot().builder();
+        create(nb, "/a/b", "/a/c", "/b/d/e", "/c/f", "/x/y/z");
+        primary.merge(nb, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+
+        PathFilter pathFilter = new PathFilter(of("/a", "/b", "/c"), empty);
+        SecondaryStoreObserver observer = createBuilder(pathFilter).bootstrapThreads(4).buildObserver();
+        primary.addObserver(observer);
+
+        for (String name : of("a", "b", "c")) {
+            assertEquals(primary.getRoot().getChildNode(name), secondaryRoot().getChildNode(name));
+        }
+        assertFalse(secondaryRoot().hasChildNode("x"));
+        assertMetaState(primary.getRoot(), secondaryRoot(), "/b/d/e");
+
+        //Later changes are applied with the diff of the observer
+        nb = primary.getRoot().builder();
+        create(nb, "/a/g", "/c/f/h");
+        primary.merge(nb, EmptyHook.INSTANCE, CommitInfo.EMPTY);
+
+        assertMetaState(primary.getRoot(), secondaryRoot(), "/a/g");
+        assertMetaState(primary.getRoot(), secondaryRoot(), "/c/f/h");
+    }
+
     private NodeState secondaryRoot() {
         return DelegatingDocumentNodeState.wrap(secondary.getRoot(), NodeStateDiffer.DEFAULT_DIFFER);
     }
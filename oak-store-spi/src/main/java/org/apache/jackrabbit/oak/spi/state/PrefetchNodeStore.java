@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.oak.spi.state;
+
+import java.util.Collection;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Optional interface of a {@link NodeStore} that can load a number of nodes
+ * with one bulk read, so that reading them afterwards is fast. Used for
+ * example by the query engine to load the nodes of a batch of result rows.
+ */
+public interface PrefetchNodeStore {
+
+    /**
+     * A store that doesn't prefetch anything.
+     */
+    PrefetchNodeStore NOOP = new PrefetchNodeStore() {
+        @Override
+        public void prefetch(@NotNull Collection<String> paths, @NotNull NodeState rootState) {
+            // nothing to do
+        }
+    };
+
+    /**
+     * Load the nodes with the given paths (as of the given root state) into
+     * the cache, if they are not cached yet. Nodes that don't exist are
+     * ignored. This is only a hint: implementations may load none or only
+     * some of the nodes.
+     *
+     * @param paths the absolute paths of the nodes
+     * @param rootState the root state, as returned by this store
+     */
+    void prefetch(@NotNull Collection<String> paths, @NotNull NodeState rootState);
+
+}